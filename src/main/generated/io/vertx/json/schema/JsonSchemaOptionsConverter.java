@@ -27,6 +27,51 @@ public class JsonSchemaOptionsConverter {
             obj.setOutputFormat(io.vertx.json.schema.OutputFormat.valueOf((String)member.getValue()));
           }
           break;
+        case "inlineValidationThreshold":
+          if (member.getValue() instanceof Number) {
+            obj.setInlineValidationThreshold(((Number)member.getValue()).intValue());
+          }
+          break;
+        case "maxInlineValidationSteps":
+          if (member.getValue() instanceof Number) {
+            obj.setMaxInlineValidationSteps(((Number)member.getValue()).intValue());
+          }
+          break;
+        case "maxConcurrentValidations":
+          if (member.getValue() instanceof Number) {
+            obj.setMaxConcurrentValidations(((Number)member.getValue()).intValue());
+          }
+          break;
+        case "maxConcurrentDereferences":
+          if (member.getValue() instanceof Number) {
+            obj.setMaxConcurrentDereferences(((Number)member.getValue()).intValue());
+          }
+          break;
+        case "parallelValidationThreshold":
+          if (member.getValue() instanceof Number) {
+            obj.setParallelValidationThreshold(((Number)member.getValue()).intValue());
+          }
+          break;
+        case "resultCacheSize":
+          if (member.getValue() instanceof Number) {
+            obj.setResultCacheSize(((Number)member.getValue()).intValue());
+          }
+          break;
+        case "compileThreshold":
+          if (member.getValue() instanceof Number) {
+            obj.setCompileThreshold(((Number)member.getValue()).intValue());
+          }
+          break;
+        case "linearTimeRegex":
+          if (member.getValue() instanceof Boolean) {
+            obj.setLinearTimeRegex((Boolean)member.getValue());
+          }
+          break;
+        case "maxRegexSteps":
+          if (member.getValue() instanceof Number) {
+            obj.setMaxRegexSteps(((Number)member.getValue()).intValue());
+          }
+          break;
       }
     }
   }
@@ -45,5 +90,14 @@ public class JsonSchemaOptionsConverter {
     if (obj.getOutputFormat() != null) {
       json.put("outputFormat", obj.getOutputFormat().name());
     }
+    json.put("inlineValidationThreshold", obj.getInlineValidationThreshold());
+    json.put("maxInlineValidationSteps", obj.getMaxInlineValidationSteps());
+    json.put("maxConcurrentValidations", obj.getMaxConcurrentValidations());
+    json.put("maxConcurrentDereferences", obj.getMaxConcurrentDereferences());
+    json.put("parallelValidationThreshold", obj.getParallelValidationThreshold());
+    json.put("resultCacheSize", obj.getResultCacheSize());
+    json.put("compileThreshold", obj.getCompileThreshold());
+    json.put("linearTimeRegex", obj.isLinearTimeRegex());
+    json.put("maxRegexSteps", obj.getMaxRegexSteps());
   }
 }
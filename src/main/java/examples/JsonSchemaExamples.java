@@ -1,5 +1,7 @@
 package examples;
 
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.json.schema.*;
 import io.vertx.json.schema.common.dsl.Schemas;
@@ -19,6 +21,17 @@ public class JsonSchemaExamples {
     repository.dereference(JsonSchema.of(object));
   }
 
+  public void snapshot(Vertx vertx, SchemaRepository repository) {
+    Buffer snapshot = repository.snapshot();
+    vertx.fileSystem().writeFileBlocking("schemas.snapshot", snapshot);
+
+    // Later, on another process
+
+    SchemaRepository restored = SchemaRepository
+      .create(new JsonSchemaOptions().setBaseUri("https://vertx.io"))
+      .restore(vertx.fileSystem().readFileBlocking("schemas.snapshot"));
+  }
+
   public void validate(JsonSchema schema, Object json) {
     OutputUnit result = Validator.create(
         schema,
@@ -32,6 +45,23 @@ public class JsonSchemaExamples {
     }
   }
 
+  public void validateAsync(JsonSchema schema, Object json) {
+    Validator validator = Validator.create(
+      schema,
+      new JsonSchemaOptions()
+        .setDraft(Draft.DRAFT7)
+        .setInlineValidationThreshold(500)
+        .setMaxConcurrentValidations(4));
+
+    validator
+      .validateAsync(json)
+      .onSuccess(result -> {
+        if (result.getValid()) {
+          // Successful validation
+        }
+      });
+  }
+
   public void instantiateWithCustomJsonFormatValidator() {
     JsonFormatValidator customFormatValidator = (instanceType, format, instance) -> {
       if ("string".equals(instanceType) && "allUpercase".equals(format)) {
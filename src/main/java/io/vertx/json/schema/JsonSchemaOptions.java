@@ -25,6 +25,46 @@ import java.util.Objects;
 @JsonGen(publicConverter = false)
 public class JsonSchemaOptions {
 
+  /**
+   * Default value of {@link #getInlineValidationThreshold()} = 1000
+   */
+  public static final int DEFAULT_INLINE_VALIDATION_THRESHOLD = 1000;
+
+  /**
+   * Default value of {@link #getMaxInlineValidationSteps()} = 0 (no limit)
+   */
+  public static final int DEFAULT_MAX_INLINE_VALIDATION_STEPS = 0;
+
+  /**
+   * Default value of {@link #getMaxConcurrentValidations()} = 0 (no limit)
+   */
+  public static final int DEFAULT_MAX_CONCURRENT_VALIDATIONS = 0;
+
+  /**
+   * Default value of {@link #getMaxConcurrentDereferences()} = 0 (no limit)
+   */
+  public static final int DEFAULT_MAX_CONCURRENT_DEREFERENCES = 0;
+
+  /**
+   * Default value of {@link #getParallelValidationThreshold()} = 0 (disabled)
+   */
+  public static final int DEFAULT_PARALLEL_VALIDATION_THRESHOLD = 0;
+
+  /**
+   * Default value of {@link #getResultCacheSize()} = 0 (disabled)
+   */
+  public static final int DEFAULT_RESULT_CACHE_SIZE = 0;
+
+  /**
+   * Default value of {@link #getCompileThreshold()} = 0 (disabled)
+   */
+  public static final int DEFAULT_COMPILE_THRESHOLD = 0;
+
+  /**
+   * Default value of {@link #getMaxRegexSteps()} = 0 (disabled)
+   */
+  public static final int DEFAULT_MAX_REGEX_STEPS = 0;
+
   /**
    * Your application base uri.
    */
@@ -40,6 +80,51 @@ public class JsonSchemaOptions {
    */
   private OutputFormat outputFormat = OutputFormat.Flag;
 
+  /**
+   * Up to how many JSON values an instance is validated inline by {@code validateAsync}.
+   */
+  private int inlineValidationThreshold = DEFAULT_INLINE_VALIDATION_THRESHOLD;
+
+  /**
+   * How many schemas an inline validation of {@code validateAsync} can evaluate before moving to a worker thread.
+   */
+  private int maxInlineValidationSteps = DEFAULT_MAX_INLINE_VALIDATION_STEPS;
+
+  /**
+   * How many validations a validator can offload to worker threads at the same time.
+   */
+  private int maxConcurrentValidations = DEFAULT_MAX_CONCURRENT_VALIDATIONS;
+
+  /**
+   * How many non-blocking dereferences a repository runs on worker threads at the same time.
+   */
+  private int maxConcurrentDereferences = DEFAULT_MAX_CONCURRENT_DEREFERENCES;
+
+  /**
+   * From how many items or properties their sub validations are run in parallel.
+   */
+  private int parallelValidationThreshold = DEFAULT_PARALLEL_VALIDATION_THRESHOLD;
+
+  /**
+   * How many sub validation results a validator keeps.
+   */
+  private int resultCacheSize = DEFAULT_RESULT_CACHE_SIZE;
+
+  /**
+   * After how many validations a validator compiles its schema.
+   */
+  private int compileThreshold = DEFAULT_COMPILE_THRESHOLD;
+
+  /**
+   * Whether patterns are matched by a linear time engine.
+   */
+  private boolean linearTimeRegex;
+
+  /**
+   * How many characters a match of a backtracking prone pattern can read.
+   */
+  private int maxRegexSteps = DEFAULT_MAX_REGEX_STEPS;
+
   public JsonSchemaOptions() {
   }
 
@@ -52,6 +137,15 @@ public class JsonSchemaOptions {
     this.baseUri = other.baseUri;
     this.draft = other.draft;
     this.outputFormat = other.outputFormat;
+    this.inlineValidationThreshold = other.inlineValidationThreshold;
+    this.maxInlineValidationSteps = other.maxInlineValidationSteps;
+    this.maxConcurrentValidations = other.maxConcurrentValidations;
+    this.maxConcurrentDereferences = other.maxConcurrentDereferences;
+    this.parallelValidationThreshold = other.parallelValidationThreshold;
+    this.resultCacheSize = other.resultCacheSize;
+    this.compileThreshold = other.compileThreshold;
+    this.linearTimeRegex = other.linearTimeRegex;
+    this.maxRegexSteps = other.maxRegexSteps;
   }
 
   public String getBaseUri() {
@@ -81,6 +175,194 @@ public class JsonSchemaOptions {
     return this;
   }
 
+  public int getInlineValidationThreshold() {
+    return inlineValidationThreshold;
+  }
+
+  /**
+   * Set the size, in number of JSON values, up to which an instance is validated inline on the event loop by
+   * {@link Validator#validateAsync(Object)}. Larger instances are validated on a worker thread.
+   *
+   * @param inlineValidationThreshold the threshold, {@code 0} to always validate on a worker thread
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JsonSchemaOptions setInlineValidationThreshold(int inlineValidationThreshold) {
+    if (inlineValidationThreshold < 0) {
+      throw new IllegalArgumentException("inlineValidationThreshold must be >= 0");
+    }
+    this.inlineValidationThreshold = inlineValidationThreshold;
+    return this;
+  }
+
+  public int getMaxInlineValidationSteps() {
+    return maxInlineValidationSteps;
+  }
+
+  /**
+   * Set how many schemas a validation running inline on the event loop, see
+   * {@link #setInlineValidationThreshold(int)}, can evaluate. When the budget is exceeded the validation is abandoned
+   * and restarted on a worker thread, which bounds the time the event loop is blocked regardless of the schema.
+   *
+   * @param maxInlineValidationSteps the budget, {@code 0} for no limit
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JsonSchemaOptions setMaxInlineValidationSteps(int maxInlineValidationSteps) {
+    if (maxInlineValidationSteps < 0) {
+      throw new IllegalArgumentException("maxInlineValidationSteps must be >= 0");
+    }
+    this.maxInlineValidationSteps = maxInlineValidationSteps;
+    return this;
+  }
+
+  public int getMaxConcurrentValidations() {
+    return maxConcurrentValidations;
+  }
+
+  /**
+   * Set how many validations a single validator can run on worker threads at the same time when using
+   * {@link Validator#validateAsync(Object)}. Validations above the limit wait for a running one to complete.
+   *
+   * @param maxConcurrentValidations the limit, {@code 0} for no limit
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JsonSchemaOptions setMaxConcurrentValidations(int maxConcurrentValidations) {
+    if (maxConcurrentValidations < 0) {
+      throw new IllegalArgumentException("maxConcurrentValidations must be >= 0");
+    }
+    this.maxConcurrentValidations = maxConcurrentValidations;
+    return this;
+  }
+
+  public int getMaxConcurrentDereferences() {
+    return maxConcurrentDereferences;
+  }
+
+  /**
+   * Set how many dereferences a repository runs on worker threads at the same time when using the non-blocking
+   * {@link SchemaRepository#dereference(io.vertx.core.Vertx, JsonSchema)} and
+   * {@link SchemaRepository#preloadMetaSchema(io.vertx.core.Vertx)} variants, e.g. to keep a large bundle from taking
+   * the whole worker pool. Dereferences above the limit wait for a running one to complete.
+   *
+   * @param maxConcurrentDereferences the limit, {@code 0} for no limit other than the worker pool size
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JsonSchemaOptions setMaxConcurrentDereferences(int maxConcurrentDereferences) {
+    if (maxConcurrentDereferences < 0) {
+      throw new IllegalArgumentException("maxConcurrentDereferences must be >= 0");
+    }
+    this.maxConcurrentDereferences = maxConcurrentDereferences;
+    return this;
+  }
+
+  public int getParallelValidationThreshold() {
+    return parallelValidationThreshold;
+  }
+
+  /**
+   * Set from how many array items ({@code items}, {@code prefixItems}) or object properties ({@code properties}) the
+   * sub validations of a keyword are split across the common {@link java.util.concurrent.ForkJoinPool}. Errors are
+   * reported in the same order as a sequential validation. When enabled, the format validator must be thread safe.
+   *
+   * @param parallelValidationThreshold the threshold, {@code 0} to always validate sequentially
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JsonSchemaOptions setParallelValidationThreshold(int parallelValidationThreshold) {
+    if (parallelValidationThreshold < 0) {
+      throw new IllegalArgumentException("parallelValidationThreshold must be >= 0");
+    }
+    this.parallelValidationThreshold = parallelValidationThreshold;
+    return this;
+  }
+
+  public int getResultCacheSize() {
+    return resultCacheSize;
+  }
+
+  /**
+   * Set how many results of sub validations a validator keeps, so identical sub documents (e.g. the same address in
+   * many messages) validated against the same part of the schema are validated once. Only the parts of the schema
+   * that do not depend on the validation path (no {@code unevaluated*}, {@code $dynamicRef} or {@code $recursiveRef})
+   * are cached, and format validators are then expected to be deterministic. Only small sub documents are cached, so
+   * the cost of a lookup does not depend on the size of the instance.
+   *
+   * @param resultCacheSize the number of results to keep, {@code 0} to disable the cache
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JsonSchemaOptions setResultCacheSize(int resultCacheSize) {
+    if (resultCacheSize < 0) {
+      throw new IllegalArgumentException("resultCacheSize must be >= 0");
+    }
+    this.resultCacheSize = resultCacheSize;
+    return this;
+  }
+
+  public int getCompileThreshold() {
+    return compileThreshold;
+  }
+
+  /**
+   * Set after how many validations a validator compiles its schema into a tree of specialized checks, e.g. for hot
+   * schemas only known at runtime. The compiled schema decides the validity of the instances, error reports are still
+   * built by interpreting the schema. Schemas using {@code $dynamicRef}, {@code $recursiveRef}, the
+   * {@code unevaluated*} keywords or unresolvable references are always interpreted.
+   * <p>
+   * The compiled tree is simplified as it is built, e.g. single element {@code allOf}, {@code $ref} chains or
+   * {@code true} sub schemas cost nothing. Interpreted validations, which are all of them when the threshold is
+   * {@code 0}, skip the same sub schemas with the {@link OutputFormat#Flag} output format only, as the other formats
+   * report their errors.
+   *
+   * @param compileThreshold the number of validations, {@code 0} to never compile
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JsonSchemaOptions setCompileThreshold(int compileThreshold) {
+    if (compileThreshold < 0) {
+      throw new IllegalArgumentException("compileThreshold must be >= 0");
+    }
+    this.compileThreshold = compileThreshold;
+    return this;
+  }
+
+  public boolean isLinearTimeRegex() {
+    return linearTimeRegex;
+  }
+
+  /**
+   * Set whether the {@code pattern} and {@code patternProperties} regular expressions are matched by a linear time
+   * engine instead of {@code java.util.regex}, so that schemas from untrusted sources cannot make a validation
+   * backtrack for an exponential time. The engine supports the regular subset of the ECMA 262 syntax, the patterns of
+   * a schema are compiled when its validator is created, which fails with a {@link SchemaException} when one of them
+   * uses another construct, such as a back reference or a look ahead.
+   *
+   * @param linearTimeRegex {@code true} to match the regular expressions in linear time
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JsonSchemaOptions setLinearTimeRegex(boolean linearTimeRegex) {
+    this.linearTimeRegex = linearTimeRegex;
+    return this;
+  }
+
+  public int getMaxRegexSteps() {
+    return maxRegexSteps;
+  }
+
+  /**
+   * Set how many characters the match of a {@code pattern} or {@code patternProperties} regular expression can read
+   * when its shape is prone to catastrophic backtracking, such as {@code (a+)+} or {@code (a|ab)*}. The shape of a
+   * pattern is analyzed when it is first compiled, the matches of the other patterns are not limited. A match
+   * exceeding its budget is aborted, the instance is then invalid with an {@link OutputErrorType#REGEX_BUDGET_EXCEEDED}
+   * error, and counted by {@link Validator#abortedMatches()}. This does not apply to patterns matched in linear time.
+   *
+   * @param maxRegexSteps the number of characters a match can read, {@code 0} for no limit
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JsonSchemaOptions setMaxRegexSteps(int maxRegexSteps) {
+    if (maxRegexSteps < 0) {
+      throw new IllegalArgumentException("maxRegexSteps must be >= 0");
+    }
+    this.maxRegexSteps = maxRegexSteps;
+    return this;
+  }
+
   public JsonObject toJson() {
     final JsonObject json = new JsonObject();
     JsonSchemaOptionsConverter.toJson(this, json);
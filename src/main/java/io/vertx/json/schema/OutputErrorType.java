@@ -7,6 +7,7 @@ public enum OutputErrorType {
 
   NONE,
   INVALID_VALUE,
-  MISSING_VALUE
+  MISSING_VALUE,
+  REGEX_BUDGET_EXCEEDED
 
 }
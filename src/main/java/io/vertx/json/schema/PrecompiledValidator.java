@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2011-2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package io.vertx.json.schema;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.impl.Format;
+import io.vertx.json.schema.impl.Utils;
+import io.vertx.json.schema.impl.ValidationResultsImpl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Base class of the validators generated by {@link ValidatorGenerator}, not meant to be extended by hand.
+ * <p>
+ * A generated validator decides the validity of an instance with straight-line code. The reports of the invalid
+ * instances, in formats other than {@link OutputFormat#Flag}, are built by the interpreting validator of the same
+ * schema, which also validates everything when the schema could not be compiled. The generated code matches the
+ * patterns with {@code java.util.regex}: when the options ask for {@link JsonSchemaOptions#setLinearTimeRegex(boolean)
+ * linear time} or {@link JsonSchemaOptions#setMaxRegexSteps(int) budgeted} matches, the schemas using patterns are
+ * validated by the interpreting validator as well.
+ */
+public abstract class PrecompiledValidator implements Validator {
+
+  private final Validator interpreter;
+  private final OutputFormat outputFormat;
+  private final JsonFormatValidator formatValidator;
+  private final boolean compiled;
+
+  /**
+   * @param schema          the JSON encoding of the schema the validator was generated from
+   * @param draft           the draft the validator was generated for
+   * @param compiled        whether {@link #isValid(Object)} is overridden by the generated checks
+   * @param options         the validator options, the draft is the one of the generated validator
+   * @param formatValidator the custom JSON format validator
+   */
+  protected PrecompiledValidator(String schema, Draft draft, boolean compiled, JsonSchemaOptions options, JsonFormatValidator formatValidator) {
+    Objects.requireNonNull(options, "'options' cannot be null");
+    Objects.requireNonNull(formatValidator, "'formatValidator' cannot be null");
+    final Object json = Json.decodeValue(schema);
+    this.interpreter = Validator.create(
+      json instanceof Boolean ? JsonSchema.of((Boolean) json) : JsonSchema.of((JsonObject) json),
+      new JsonSchemaOptions(options).setDraft(draft),
+      formatValidator);
+    this.outputFormat = options.getOutputFormat();
+    this.formatValidator = formatValidator;
+    this.compiled = compiled && (!options.isLinearTimeRegex() && options.getMaxRegexSteps() == 0 || !usesPatterns(json));
+  }
+
+  /**
+   * @return {@code true} when the schema may use {@code pattern} or {@code patternProperties}, looking at any member
+   */
+  private static boolean usesPatterns(Object json) {
+    if (json instanceof JsonObject) {
+      for (Map.Entry<String, Object> entry : (JsonObject) json) {
+        if ("pattern".equals(entry.getKey()) && entry.getValue() instanceof String ||
+          "patternProperties".equals(entry.getKey()) && entry.getValue() instanceof JsonObject ||
+          usesPatterns(entry.getValue())) {
+          return true;
+        }
+      }
+    } else if (json instanceof JsonArray) {
+      for (Object item : (JsonArray) json) {
+        if (usesPatterns(item)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Overridden by the validators of the compilable schemas, the others validate with the interpreting validator.
+   *
+   * @param instance the instance, in the JSON type space
+   * @return the validity of the instance
+   */
+  protected boolean isValid(Object instance) {
+    return interpreter.validate(instance).getValid();
+  }
+
+  @Override
+  public OutputUnit validate(Object instance) throws SchemaException {
+    if (!compiled) {
+      return interpreter.validate(instance);
+    }
+    if (isValid(instance)) {
+      return new OutputUnit(true).setErrorType(OutputErrorType.NONE);
+    }
+    return outputFormat == OutputFormat.Flag ?
+      new OutputUnit(false).setErrorType(OutputErrorType.NONE) :
+      interpreter.validate(instance);
+  }
+
+  @Override
+  public ValidationResults validateAll(List<?> instances) throws SchemaException {
+    if (!compiled) {
+      return interpreter.validateAll(instances);
+    }
+    Objects.requireNonNull(instances, "'instances' cannot be null");
+    final ValidationResultsImpl results = new ValidationResultsImpl(instances.size());
+    int index = 0;
+    for (Object instance : instances) {
+      results.add(index++, validate(instance));
+    }
+    return results;
+  }
+
+  @Override
+  public Future<OutputUnit> validateAsync(Object instance) {
+    if (compiled) {
+      try {
+        // straight-line code is cheap enough to always run inline, only the error reports may not be
+        if (isValid(instance)) {
+          return Future.succeededFuture(new OutputUnit(true).setErrorType(OutputErrorType.NONE));
+        }
+        if (outputFormat == OutputFormat.Flag) {
+          return Future.succeededFuture(new OutputUnit(false).setErrorType(OutputErrorType.NONE));
+        }
+      } catch (RuntimeException e) {
+        return Future.failedFuture(e);
+      }
+    }
+    return interpreter.validateAsync(instance);
+  }
+
+  @Override
+  public long maxInstanceLength() {
+    return interpreter.maxInstanceLength();
+  }
+
+  @Override
+  public Map<String, Long> abortedMatches() {
+    // the generated code does not budget its matches, the schemas using patterns are interpreted under a budget
+    return interpreter.abortedMatches();
+  }
+
+  // support of the generated code, with the semantics of the interpreting validator
+
+  protected static Object jsonify(Object instance) {
+    return Utils.JSON.jsonify(instance);
+  }
+
+  protected static String typeOf(Object instance) {
+    return Utils.JSON.typeOf(instance);
+  }
+
+  protected static boolean isInteger(Object instance) {
+    return Utils.Numbers.isInteger(instance);
+  }
+
+  protected static boolean lt(Number instance, Object value) {
+    return Utils.Numbers.lt(instance, value);
+  }
+
+  protected static boolean lte(Number instance, Object value) {
+    return Utils.Numbers.lte(instance, value);
+  }
+
+  protected static boolean gt(Number instance, Object value) {
+    return Utils.Numbers.gt(instance, value);
+  }
+
+  protected static boolean gte(Number instance, Object value) {
+    return Utils.Numbers.gte(instance, value);
+  }
+
+  protected static boolean multipleOf(Number instance, Number value) {
+    final double remainder = Utils.Numbers.remainder(instance, value);
+    return Math.abs(0 - remainder) < 1.1920929e-7 || Math.abs(value.doubleValue() - remainder) < 1.1920929e-7;
+  }
+
+  protected static int length(String instance) {
+    return Utils.Strings.ucs2length(instance);
+  }
+
+  protected static boolean equal(Object instance, Object value) {
+    return instance instanceof JsonObject || instance instanceof JsonArray ?
+      Utils.JSON.deepCompare(instance, value) :
+      Utils.Objects.equals(value, instance);
+  }
+
+  protected static boolean in(Object instance, JsonArray values) {
+    for (Object value : values) {
+      if (equal(instance, value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  protected static boolean unique(JsonArray instance) {
+    return Utils.JSON.unique(instance);
+  }
+
+  protected static boolean knownFormat(String format, String instance) {
+    return Format.fastFormat(format, instance);
+  }
+
+  protected static boolean contentEncoding(String encoding, String instance) {
+    return Format.testContentEncoding(encoding, instance);
+  }
+
+  protected boolean format(String type, String format, Object instance) {
+    return formatValidator.validateFormat(type, format, instance) == null;
+  }
+}
@@ -12,10 +12,15 @@ package io.vertx.json.schema;
 
 import io.vertx.codegen.annotations.Fluent;
 import io.vertx.codegen.annotations.VertxGen;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.file.FileSystem;
 import io.vertx.core.json.JsonObject;
 import io.vertx.json.schema.impl.SchemaRepositoryImpl;
 
+import java.util.Map;
+
 import static io.vertx.json.schema.JsonFormatValidator.DEFAULT_VALIDATOR;
 
 /**
@@ -70,6 +75,98 @@ public interface SchemaRepository {
   @Fluent
   SchemaRepository dereference(String uri, JsonSchema schema) throws SchemaException;
 
+  /**
+   * Dereferences a bundle of independent schema documents to the repository. Documents are processed in parallel
+   * using the common fork/join pool and published to the repository at once, when all documents have been processed.
+   * <p>
+   * Documents are merged in the order of their URIs, so when several documents define the same schema URI the
+   * reported duplicate does not depend on the scheduling of the parallel work.
+   *
+   * @param schemas the schemas to list, keyed by the source of each schema used for de-referencing, optionally
+   *                relative to {@link JsonSchemaOptions#getBaseUri()}.
+   * @return a repository
+   * @throws SchemaException when a schema is already present for the same id, in that case none of the schemas are
+   *                         published
+   */
+  @Fluent
+  SchemaRepository dereferenceAll(Map<String, JsonSchema> schemas) throws SchemaException;
+
+  /**
+   * Dereferences a schema to the repository, without blocking the caller. The dereference is performed on a worker
+   * thread of the given {@link Vertx} instance and the schemas are published to the repository at once, when the
+   * whole schema has been processed.
+   * <p>
+   * Independent calls are not ordered, so they run in parallel, within the limits of the worker pool and of
+   * {@link JsonSchemaOptions#getMaxConcurrentDereferences()}.
+   *
+   * @param vertx  the Vert.x instance used to run the dereference
+   * @param schema a new schema to list
+   * @return a future completed with this repository, or failed with a {@link SchemaException} when a schema is
+   * already present for the same id, in that case none of the schemas are published
+   */
+  Future<SchemaRepository> dereference(Vertx vertx, JsonSchema schema);
+
+  /**
+   * Dereferences a schema to the repository, without blocking the caller. The dereference is performed on a worker
+   * thread of the given {@link Vertx} instance and the schemas are published to the repository at once, when the
+   * whole schema has been processed.
+   * <p>
+   * Independent calls are not ordered, so they run in parallel, within the limits of the worker pool and of
+   * {@link JsonSchemaOptions#getMaxConcurrentDereferences()}.
+   *
+   * @param vertx  the Vert.x instance used to run the dereference
+   * @param uri    the source of the schema used for de-referencing, optionally relative to
+   *               {@link JsonSchemaOptions#getBaseUri()}.
+   * @param schema a new schema to list
+   * @return a future completed with this repository, or failed with a {@link SchemaException} when a schema is
+   * already present for the same id, in that case none of the schemas are published
+   */
+  Future<SchemaRepository> dereference(Vertx vertx, String uri, JsonSchema schema);
+
+  /**
+   * Preloads the repository with the meta schemas for the related {@link Draft} version. The related draft version
+   * is determined from the {@link JsonSchemaOptions}, in case that no draft is set in the options an
+   * {@link IllegalStateException} is thrown.
+   * <p>
+   * Meta schemas are read from the classpath and dereferenced once per JVM, then shared by all the repositories, so
+   * this method performs no I/O after the first call for a given draft.
+   *
+   * @return a repository
+   */
+  @Fluent
+  SchemaRepository preloadMetaSchema();
+
+  /**
+   * Preloads the repository with the meta schemas for the related draft version.
+   * <p>
+   * Meta schemas are read from the classpath and dereferenced once per JVM, then shared by all the repositories, so
+   * this method performs no I/O after the first call for a given draft.
+   *
+   * @param draft The draft version of the meta files to load
+   * @return a repository
+   */
+  @Fluent
+  SchemaRepository preloadMetaSchema(Draft draft);
+
+  /**
+   * Like {@link #preloadMetaSchema()}, without blocking the caller. The first load of the meta schemas of a draft is
+   * performed on a worker thread of the given {@link Vertx} instance.
+   *
+   * @param vertx the Vert.x instance used to load the meta schemas
+   * @return a future completed with this repository
+   */
+  Future<SchemaRepository> preloadMetaSchema(Vertx vertx);
+
+  /**
+   * Like {@link #preloadMetaSchema(Draft)}, without blocking the caller. The first load of the meta schemas of a draft
+   * is performed on a worker thread of the given {@link Vertx} instance.
+   *
+   * @param vertx the Vert.x instance used to load the meta schemas
+   * @param draft The draft version of the meta files to load
+   * @return a future completed with this repository
+   */
+  Future<SchemaRepository> preloadMetaSchema(Vertx vertx, Draft draft);
+
   /**
    * Preloads the repository with the meta schemas for the related @link {@link Draft} version. The related draft version
    * is determined from the {@link JsonSchemaOptions}, in case that no draft is set in the options an
@@ -91,6 +188,27 @@ public interface SchemaRepository {
   @Fluent
   SchemaRepository preloadMetaSchema(FileSystem fs, Draft draft);
 
+  /**
+   * Exports all the dereferenced schemas of this repository (lookup table, absolute URIs and resolved references)
+   * to a compact binary snapshot. A snapshot can be loaded with {@link #restore(Buffer)}, for example by another
+   * process, skipping the parsing and dereferencing work.
+   *
+   * @return the snapshot
+   */
+  Buffer snapshot();
+
+  /**
+   * Loads a snapshot produced by {@link #snapshot()} into this repository. Schemas are not dereferenced again, the
+   * URIs of the snapshot are used as is.
+   *
+   * @param snapshot the snapshot
+   * @return a repository
+   * @throws SchemaException when the snapshot is not valid or when a different schema is already present for the same
+   *                         id
+   */
+  @Fluent
+  SchemaRepository restore(Buffer snapshot) throws SchemaException;
+
   /**
    * A new validator instance using this repository options.
    *
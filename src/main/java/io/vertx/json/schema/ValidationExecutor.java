@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2011-2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package io.vertx.json.schema;
+
+import io.vertx.codegen.annotations.GenIgnore;
+import io.vertx.codegen.annotations.VertxGen;
+import io.vertx.core.Future;
+import io.vertx.json.schema.impl.ValidationExecutorImpl;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Runs validations on dedicated threads, with at most a given number of them running at the same time, so a burst of
+ * validations cannot starve the rest of the application.
+ * <p>
+ * Validations above the limit wait in a queue, the time they spend there is reported by the metrics of the executor.
+ * A validation is admitted before it starts running, so a waiting validation holds no thread and no stack.
+ */
+@VertxGen
+public interface ValidationExecutor extends AutoCloseable {
+
+  /**
+   * Create an executor running each validation on its own virtual thread, when the JVM supports them (Java 21+),
+   * otherwise on a pool of {@code maxConcurrency} daemon threads.
+   *
+   * @param maxConcurrency the maximum number of validations running at the same time
+   * @return the executor
+   */
+  static ValidationExecutor create(int maxConcurrency) {
+    return ValidationExecutorImpl.create(maxConcurrency);
+  }
+
+  /**
+   * Create an executor running validations on the given executor, which is not closed by {@link #close()}.
+   *
+   * @param executor       the executor running the validations
+   * @param maxConcurrency the maximum number of validations running at the same time
+   * @return the executor
+   */
+  @GenIgnore(GenIgnore.PERMITTED_TYPE)
+  static ValidationExecutor create(Executor executor, int maxConcurrency) {
+    return new ValidationExecutorImpl(executor, maxConcurrency, false);
+  }
+
+  /**
+   * Validate an instance, once admitted. When called from a Vert.x context, the future is completed on that context.
+   *
+   * @param validator the validator
+   * @param instance  the instance to validate
+   * @return a future of the output unit, failed with a {@link SchemaException} if the validation cannot complete
+   */
+  Future<OutputUnit> validate(Validator validator, Object instance);
+
+  /**
+   * @return the number of validations waiting to be admitted
+   */
+  int pending();
+
+  /**
+   * @return the number of validations running
+   */
+  int running();
+
+  /**
+   * @return the number of validations admitted since the creation of the executor
+   */
+  long admitted();
+
+  /**
+   * @return the total time, in nanoseconds, validations waited before being admitted
+   */
+  long totalQueueTime();
+
+  /**
+   * @return the longest time, in nanoseconds, a validation waited before being admitted
+   */
+  long maxQueueTime();
+
+  /**
+   * Stop the threads created by this executor. Pending validations are failed.
+   */
+  @Override
+  void close();
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2011-2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package io.vertx.json.schema;
+
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * The results of the validation of a batch of instances, see {@link Validator#validateAll(java.util.List)}.
+ * <p>
+ * The outcome of each instance is a single bit, only the instances that did not validate keep their
+ * {@link OutputUnit}.
+ */
+public interface ValidationResults {
+
+  /**
+   * @return the number of validated instances
+   */
+  int size();
+
+  /**
+   * @param index the index of the instance in the batch
+   * @return {@code true} when the instance at the given index is valid
+   */
+  boolean isValid(int index);
+
+  /**
+   * @return {@code true} when all the instances of the batch are valid
+   */
+  boolean isAllValid();
+
+  /**
+   * @return a copy of the outcomes of the batch, the bit of each valid instance is set
+   */
+  BitSet valid();
+
+  /**
+   * @param index the index of the instance in the batch
+   * @return the output unit of the instance at the given index, or {@code null} when the instance is valid
+   */
+  OutputUnit error(int index);
+
+  /**
+   * @return the output units of the invalid instances, keyed by their index in the batch, in ascending order
+   */
+  Map<Integer, OutputUnit> errors();
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2011-2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package io.vertx.json.schema;
+
+import io.vertx.codegen.annotations.Nullable;
+import io.vertx.codegen.annotations.VertxGen;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.streams.WriteStream;
+import io.vertx.json.schema.impl.ValidationStreamImpl;
+
+/**
+ * A write stream decoding a JSON document as it is written, and validating it while it is decoded.
+ * <p>
+ * The type of the root instance is checked as soon as it is known, and each member of a root object or array is
+ * validated as soon as it is decoded, against the sub schemas the root schema applies to it. At the first violation,
+ * the {@link #result()} is completed and the following writes fail, so the source can stop sending data. Once the
+ * stream is ended, the whole document is validated with {@link Validator#validateAsync(Object)}.
+ * <p>
+ * Members are not validated on their own when the root schema depends on the dynamic scope of the validation
+ * ({@code $dynamicRef}, {@code $recursiveRef}), the document is then only validated once ended. Otherwise a root
+ * object repeating a member name is rejected as malformed, as its first value was already validated.
+ * <p>
+ * A document is also rejected as soon as its significant length, without insignificant whitespace and counting strings
+ * from their decoded characters, exceeds {@link Validator#maxInstanceLength()}.
+ */
+@VertxGen
+public interface ValidationStream extends WriteStream<Buffer> {
+
+  /**
+   * Create a stream validating the document written to it.
+   *
+   * @param validator the validator
+   * @return the stream
+   */
+  static ValidationStream create(Validator validator) {
+    return new ValidationStreamImpl(validator);
+  }
+
+  /**
+   * Decode and validate the body of a request as it is received. At the first violation the request is reset, so the
+   * rest of the body is neither received nor decoded.
+   *
+   * @param request   the request, not yet read
+   * @param validator the validator
+   * @return a future of the decoded body, failed with a {@link JsonSchemaValidationException} when the body is not
+   * valid, a {@link io.vertx.core.json.DecodeException} when it is not JSON or a {@link SchemaException} when the
+   * validation cannot complete
+   */
+  static Future<Object> validate(HttpServerRequest request, Validator validator) {
+    return ValidationStreamImpl.validate(request, validator);
+  }
+
+  /**
+   * @return a future of the validation result, completed at the first violation or once the stream is ended
+   */
+  Future<OutputUnit> result();
+
+  /**
+   * @return the decoded document, once the stream is ended and the document is valid
+   */
+  @Nullable
+  Object instance();
+
+  @Override
+  ValidationStream exceptionHandler(@Nullable Handler<Throwable> handler);
+
+  @Override
+  ValidationStream setWriteQueueMaxSize(int maxSize);
+
+  @Override
+  ValidationStream drainHandler(@Nullable Handler<Void> handler);
+}
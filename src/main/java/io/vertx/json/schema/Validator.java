@@ -10,10 +10,17 @@
  */
 package io.vertx.json.schema;
 
+import io.vertx.codegen.annotations.GenIgnore;
 import io.vertx.codegen.annotations.VertxGen;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
 import io.vertx.json.schema.impl.SchemaValidatorImpl;
+import io.vertx.json.schema.impl.ValidationResultsImpl;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import static io.vertx.json.schema.JsonFormatValidator.DEFAULT_VALIDATOR;
@@ -67,4 +74,87 @@ public interface Validator {
    * @throws SchemaException if the validation cannot complete, for example when a reference is missing.
    */
   OutputUnit validate(Object instance) throws SchemaException;
+
+  /**
+   * Get an upper bound of the length, in bytes, of the compact encoding of any instance valid against the schema, as
+   * derived from keywords such as {@code maxLength}, {@code maxItems}, {@code maxProperties}, {@code enum} or
+   * {@code const}.
+   * <p>
+   * The compact encoding is the one produced by {@link io.vertx.core.json.Json#encode(Object)}: UTF-8, without
+   * insignificant whitespace and escaping only what must be escaped. The bound is conservative, it is {@code -1} as
+   * soon as some part of the instance cannot be bounded, e.g. an array without {@code maxItems} or a recursive schema.
+   * <p>
+   * No bound holds for the raw length of every legal encoding: insignificant whitespace and escapes can make a valid
+   * payload arbitrarily longer, it must not be compared to e.g. a {@code Content-Length}. A {@link ValidationStream}
+   * instead compares it to the significant length of the document it decodes, which ignores insignificant whitespace
+   * and counts strings from their decoded characters, and rejects the document as soon as it exceeds the bound.
+   *
+   * The default implementation does not bound the length.
+   *
+   * @return the bound, or {@code -1} when the length of valid instances is not bounded
+   */
+  default long maxInstanceLength() {
+    return -1;
+  }
+
+  /**
+   * Get how many pattern matches were aborted, as they exceeded {@link JsonSchemaOptions#getMaxRegexSteps()}, since
+   * this validator was created.
+   *
+   * The default implementation does not budget matches.
+   *
+   * @return the counts, by absolute keyword location of the pattern
+   */
+  default Map<String, Long> abortedMatches() {
+    return Collections.emptyMap();
+  }
+
+  /**
+   * Validate a batch of inputs against the initial schema, on the calling thread.
+   * <p>
+   * The state needed by a validation is set up once and reused for the whole batch, and only the output units of the
+   * invalid inputs are kept, which makes this method cheaper than calling {@link #validate(Object)} for each input of
+   * a large batch of small inputs. The default implementation calls {@link #validate(Object)} for each input.
+   *
+   * @param instances instances to validate
+   * @return the results, in the order of the given instances
+   * @throws SchemaException if the validation cannot complete, for example when a reference is missing.
+   */
+  @GenIgnore(GenIgnore.PERMITTED_TYPE)
+  default ValidationResults validateAll(List<?> instances) throws SchemaException {
+    Objects.requireNonNull(instances, "'instances' cannot be null");
+    final ValidationResultsImpl results = new ValidationResultsImpl(instances.size());
+    int index = 0;
+    for (Object instance : instances) {
+      results.add(index++, validate(instance));
+    }
+    return results;
+  }
+
+  /**
+   * Validate a given input against the initial schema, without blocking the event loop.
+   * <p>
+   * When called from an event loop, the size of the instance is estimated first: instances up to
+   * {@link JsonSchemaOptions#getInlineValidationThreshold()} JSON values are validated inline, larger ones are
+   * validated on a worker thread of the calling context, with at most
+   * {@link JsonSchemaOptions#getMaxConcurrentValidations()} of them running at the same time for this validator.
+   * Anywhere else, the instance is validated on the calling thread.
+   * <p>
+   * The default implementation validates every instance on a worker thread when called from an event loop.
+   *
+   * @param instance instance to validate
+   * @return a future of the output unit object as defined by the options, failed with a {@link SchemaException} if
+   * the validation cannot complete, for example when a reference is missing.
+   */
+  default Future<OutputUnit> validateAsync(Object instance) {
+    final Context context = Vertx.currentContext();
+    if (context != null && context.isEventLoopContext()) {
+      return context.executeBlocking(() -> validate(instance), false);
+    }
+    try {
+      return Future.succeededFuture(validate(instance));
+    } catch (RuntimeException e) {
+      return Future.failedFuture(e);
+    }
+  }
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2011-2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ */
+package io.vertx.json.schema;
+
+import io.vertx.json.schema.impl.ValidatorGeneratorImpl;
+
+/**
+ * Generates the Java source of a {@link Validator} specialized for a fixed schema, ahead of time, e.g. during the
+ * build of an application shipping validators of its public contracts.
+ * <p>
+ * The generated class extends {@link PrecompiledValidator}: each schema node becomes a method of straight-line code,
+ * property accesses use constant names, patterns are compiled once in static fields and numeric bounds are inlined.
+ * Local references become calls between the generated methods and unknown keywords are ignored. Only the validity is
+ * compiled, error reports are built by the interpreting validator. Schemas using remote references,
+ * {@code $dynamicRef}, {@code $recursiveRef}, {@code unevaluatedProperties} or {@code unevaluatedItems} depend on more
+ * than the instance and cannot be compiled, the generated class then delegates to the interpreting validator.
+ */
+public interface ValidatorGenerator {
+
+  /**
+   * Create a generator. The draft of the options is the draft of the generated validators, when absent, it is derived
+   * from the {@code $schema} of each schema.
+   *
+   * @param options the options
+   * @return the generator
+   */
+  static ValidatorGenerator create(JsonSchemaOptions options) {
+    return new ValidatorGeneratorImpl(options);
+  }
+
+  /**
+   * Check if the validation of a schema can be compiled.
+   *
+   * @param schema the schema
+   * @return {@code true} when the generated validator does not delegate to the interpreting validator
+   */
+  boolean isCompilable(JsonSchema schema);
+
+  /**
+   * Generate the source of a validator for a schema. The generated class has a constructor taking the
+   * {@link JsonSchemaOptions} of the validator, and one also taking a custom {@link JsonFormatValidator}.
+   *
+   * @param schema      the schema
+   * @param packageName the package of the generated class
+   * @param className   the simple name of the generated class
+   * @return the Java source
+   */
+  String generate(JsonSchema schema, String packageName, String className);
+}
@@ -0,0 +1,750 @@
+package io.vertx.json.schema.impl;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.Draft;
+import io.vertx.json.schema.JsonFormatValidator;
+import io.vertx.json.schema.JsonSchema;
+
+import java.util.*;
+import java.util.regex.PatternSyntaxException;
+
+import static io.vertx.json.schema.impl.Utils.*;
+
+/**
+ * A schema compiled into a tree of checks, deciding the validity of an instance exactly like
+ * {@link SchemaValidatorImpl} does, without building any report.
+ * <p>
+ * Each schema node becomes a {@link Node} holding the checks of its keywords, with the keyword values (bounds,
+ * property names, compiled patterns...) captured once, and {@code $ref} resolved to a direct call of the referenced
+ * node. Keywords depending on the validation path ({@code $dynamicRef}, {@code $recursiveRef},
+ * {@code unevaluatedProperties}, {@code unevaluatedItems}), unresolvable references and malformed keyword values are
+ * not compiled, the schema must then be interpreted.
+ * <p>
+ * The tree is simplified as it is built: sub schemas that always validate ({@code true}, {@code {}}) are not
+ * called, single element {@code allOf}, {@code anyOf} and {@code oneOf} become a plain call, and plain calls, e.g. to
+ * a {@code $ref} pointing to another {@code $ref}, are then replaced by the checks of the called node. The reports are
+ * still built from the original schema by the interpreter, so the locations of the errors are unaffected.
+ * <p>
+ * The schemas of the repository are never rewritten, the interpreter skips the same forwarding nodes with its
+ * {@link Shortcuts} when only the validity is needed.
+ */
+final class CompiledSchema {
+
+  /**
+   * The check of a keyword, given the instance in the JSON type space and its JSON type.
+   */
+  @FunctionalInterface
+  private interface Check {
+    boolean test(Object instance, String type);
+  }
+
+  private static final class Node {
+
+    private Check[] checks;
+
+    Node(Check[] checks) {
+      this.checks = checks;
+    }
+
+    boolean valid(Object _instance) {
+      final Object instance = JSON.jsonify(_instance);
+      final String type = JSON.typeOf(instance);
+      for (Check check : checks) {
+        if (!check.test(instance, type)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * The validation of the instance against another node, which can be replaced by the checks of that node.
+   */
+  private static final class Delegate implements Check {
+
+    private final Node target;
+
+    Delegate(Node target) {
+      this.target = target;
+    }
+
+    @Override
+    public boolean test(Object instance, String type) {
+      return target.valid(instance);
+    }
+  }
+
+  private static final Node TRUE = new Node(new Check[0]);
+  private static final Node FALSE = new Node(new Check[]{(instance, type) -> false});
+
+  /**
+   * Thrown when a part of the schema cannot be compiled, the whole schema is then interpreted.
+   */
+  private static final class NotCompilable extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    NotCompilable() {
+      super(null, null, false, false);
+    }
+  }
+
+  private static final NotCompilable NOT_COMPILABLE = new NotCompilable();
+
+  // up to how many checks of a called node are copied to its caller
+  private static final int INLINE_LIMIT = 16;
+
+  private final Node root;
+
+  private CompiledSchema(Node root) {
+    this.root = root;
+  }
+
+  /**
+   * @return the compiled schema, or {@code null} when the schema cannot be compiled
+   */
+  static CompiledSchema compile(JsonSchema schema, Draft draft, Map<String, JsonSchema> lookup, JsonFormatValidator formatValidator, boolean linearRegex, int maxRegexSteps) {
+    try {
+      final Compiler compiler = new Compiler(draft, lookup, formatValidator, linearRegex, maxRegexSteps);
+      final Node root = compiler.node(schema);
+      compiler.inline();
+      return new CompiledSchema(root);
+    } catch (NotCompilable e) {
+      return null;
+    }
+  }
+
+  boolean valid(Object instance) {
+    return root.valid(instance);
+  }
+
+  private static final class Compiler {
+
+    private final Draft draft;
+    private final Map<String, JsonSchema> lookup;
+    private final JsonFormatValidator formatValidator;
+    private final boolean linearRegex;
+    private final int maxRegexSteps;
+    // nodes by schema map, so that shared and recursive schemas are compiled once
+    private final Map<Object, Node> nodes = new IdentityHashMap<>();
+
+    Compiler(Draft draft, Map<String, JsonSchema> lookup, JsonFormatValidator formatValidator, boolean linearRegex, int maxRegexSteps) {
+      this.draft = draft;
+      this.lookup = lookup;
+      this.formatValidator = formatValidator;
+      this.linearRegex = linearRegex;
+      this.maxRegexSteps = maxRegexSteps;
+    }
+
+    /**
+     * Replace the calls of nodes by the checks of the called nodes, except for recursive calls.
+     */
+    void inline() {
+      final Map<Node, Check[]> inlined = new IdentityHashMap<>();
+      final Set<Node> path = Collections.newSetFromMap(new IdentityHashMap<>());
+      for (Node node : nodes.values()) {
+        inline(node, inlined, path);
+      }
+      for (Node node : nodes.values()) {
+        node.checks = inlined.get(node);
+      }
+    }
+
+    private Check[] inline(Node node, Map<Node, Check[]> inlined, Set<Node> path) {
+      Check[] checks = inlined.get(node);
+      if (checks == null) {
+        path.add(node);
+        final List<Check> list = new ArrayList<>();
+        for (Check check : node.checks) {
+          if (check instanceof Delegate && !path.contains(((Delegate) check).target)) {
+            final Check[] target = inline(((Delegate) check).target, inlined, path);
+            if (target.length <= INLINE_LIMIT) {
+              list.addAll(Arrays.asList(target));
+              continue;
+            }
+          }
+          list.add(check);
+        }
+        path.remove(node);
+        checks = list.toArray(new Check[0]);
+        inlined.put(node, checks);
+      }
+      return checks;
+    }
+
+    Node node(Object schema) {
+      if (schema == BooleanSchema.TRUE || Boolean.TRUE.equals(schema)) {
+        return TRUE;
+      }
+      if (schema == BooleanSchema.FALSE || Boolean.FALSE.equals(schema)) {
+        return FALSE;
+      }
+      if (!(schema instanceof JsonObject)) {
+        throw NOT_COMPILABLE;
+      }
+      final JsonObject json = (JsonObject) schema;
+      Node node = nodes.get(json.getMap());
+      if (node == null) {
+        // registered before its checks are compiled, references back to it are then direct calls
+        node = new Node(null);
+        nodes.put(json.getMap(), node);
+        node.checks = checks(json).toArray(new Check[0]);
+      }
+      return node;
+    }
+
+    private Node[] nodes(Object schemas) {
+      final JsonArray array = array(schemas);
+      final Node[] nodes = new Node[array.size()];
+      for (int i = 0; i < nodes.length; i++) {
+        nodes[i] = node(array.getValue(i));
+      }
+      return nodes;
+    }
+
+    private List<Check> checks(JsonObject schema) {
+      for (String keyword : schema.fieldNames()) {
+        if (KeywordKind.is(keyword, KeywordKind.PATH_DEPENDENT)) {
+          throw NOT_COMPILABLE;
+        }
+      }
+      final List<Check> checks = new ArrayList<>();
+
+      if (schema.containsKey("$ref")) {
+        final Object uri = schema.getValue("__absolute_ref__") != null ? schema.getValue("__absolute_ref__") : schema.getValue("$ref");
+        if (!lookup.containsKey(uri)) {
+          throw NOT_COMPILABLE;
+        }
+        checks.add(new Delegate(node(lookup.get(uri))));
+        if (draft == Draft.DRAFT4 || draft == Draft.DRAFT7) {
+          // the other keywords are ignored
+          return checks;
+        }
+      }
+
+      type(checks, schema);
+
+      if (schema.containsKey("const")) {
+        final Object value = schema.getValue("const");
+        checks.add((instance, type) -> "object".equals(type) || "array".equals(type) ?
+          JSON.deepCompare(instance, value) :
+          Utils.Objects.equals(value, instance));
+      }
+      if (schema.containsKey("enum")) {
+        final Object[] values = array(schema.getValue("enum")).getList().toArray();
+        checks.add((instance, type) -> {
+          final boolean container = "object".equals(type) || "array".equals(type);
+          for (Object value : values) {
+            if (container ? JSON.deepCompare(instance, value) : Utils.Objects.equals(instance, value)) {
+              return true;
+            }
+          }
+          return false;
+        });
+      }
+      if (schema.containsKey("not")) {
+        final Node not = node(schema.getValue("not"));
+        if (not != FALSE) {
+          checks.add((instance, type) -> !not.valid(instance));
+        }
+      }
+      if (schema.containsKey("anyOf")) {
+        final Node[] anyOf = nodes(schema.getValue("anyOf"));
+        final UnionDispatch dispatch = UnionDispatch.of(schema, "anyOf", draft, lookup);
+        if (anyOf.length == 1) {
+          checks.add(new Delegate(anyOf[0]));
+        } else if (!Arrays.asList(anyOf).contains(TRUE)) {
+          checks.add((instance, type) -> {
+            final int[] candidates = dispatch.candidates(instance, type);
+            final int length = candidates == null ? anyOf.length : candidates.length;
+            for (int c = 0; c < length; c++) {
+              if (anyOf[candidates == null ? c : candidates[c]].valid(instance)) {
+                return true;
+              }
+            }
+            return false;
+          });
+        }
+      }
+      if (schema.containsKey("allOf")) {
+        for (Node node : nodes(schema.getValue("allOf"))) {
+          checks.add(new Delegate(node));
+        }
+      }
+      if (schema.containsKey("oneOf")) {
+        final Node[] oneOf = nodes(schema.getValue("oneOf"));
+        if (oneOf.length == 1) {
+          checks.add(new Delegate(oneOf[0]));
+        } else {
+          final UnionDispatch dispatch = UnionDispatch.of(schema, "oneOf", draft, lookup);
+          checks.add((instance, type) -> {
+            final int[] candidates = dispatch.candidates(instance, type);
+            final int length = candidates == null ? oneOf.length : candidates.length;
+            int matches = 0;
+            for (int c = 0; c < length; c++) {
+              if (oneOf[candidates == null ? c : candidates[c]].valid(instance) && ++matches > 1) {
+                return false;
+              }
+            }
+            return matches == 1;
+          });
+        }
+      }
+      if (schema.containsKey("if")) {
+        final Node condition = node(schema.getValue("if"));
+        final Node then = schema.containsKey("then") ? node(schema.getValue("then")) : TRUE;
+        final Node otherwise = schema.containsKey("else") ? node(schema.getValue("else")) : TRUE;
+        if (then != TRUE || otherwise != TRUE) {
+          checks.add((instance, type) -> condition.valid(instance) ? then.valid(instance) : otherwise.valid(instance));
+        }
+      }
+
+      typed(checks, "object", object(schema));
+      typed(checks, "array", array(schema));
+      typed(checks, "number", number(schema));
+      typed(checks, "string", string(schema));
+
+      final String format = schema.getValue("format") != null ? string(schema.getValue("format")) : null;
+      if (formatValidator != JsonFormatValidator.DEFAULT_VALIDATOR) {
+        checks.add((instance, type) -> formatValidator.validateFormat(type, format, instance) == null);
+      }
+      return checks;
+    }
+
+    private void type(List<Check> checks, JsonObject schema) {
+      if (!schema.containsKey("type")) {
+        return;
+      }
+      final Object value = schema.getValue("type");
+      if (value instanceof JsonArray && ((JsonArray) value).size() == 1) {
+        type(checks, string(((JsonArray) value).getValue(0)));
+      } else if (value instanceof JsonArray) {
+        final String[] types = strings(value);
+        final boolean integer = Arrays.asList(types).contains("integer");
+        checks.add((instance, type) -> {
+          for (String t : types) {
+            if (type.equals(t)) {
+              return true;
+            }
+          }
+          return integer && "number".equals(type) && Numbers.isInteger(instance);
+        });
+      } else {
+        type(checks, string(value));
+      }
+    }
+
+    private static void type(List<Check> checks, String expected) {
+      if ("integer".equals(expected)) {
+        checks.add((instance, type) -> "number".equals(type) && Numbers.isInteger(instance));
+      } else {
+        checks.add((instance, type) -> type.equals(expected));
+      }
+    }
+
+    /**
+     * Add the checks of the keywords only applying to one type of instance, behind a single type test.
+     */
+    private static void typed(List<Check> checks, String expected, List<Check> typed) {
+      if (typed.size() == 1) {
+        final Check check = typed.get(0);
+        checks.add((instance, type) -> !expected.equals(type) || check.test(instance, type));
+      } else if (!typed.isEmpty()) {
+        final Check[] array = typed.toArray(new Check[0]);
+        checks.add((instance, type) -> {
+          if (expected.equals(type)) {
+            for (Check check : array) {
+              if (!check.test(instance, type)) {
+                return false;
+              }
+            }
+          }
+          return true;
+        });
+      }
+    }
+
+    private List<Check> object(JsonObject schema) {
+      final List<Check> checks = new ArrayList<>();
+      if (schema.containsKey("required")) {
+        final String[] required = strings(schema.getValue("required"));
+        checks.add((instance, type) -> {
+          for (String key : required) {
+            if (!((JsonObject) instance).containsKey(key)) {
+              return false;
+            }
+          }
+          return true;
+        });
+      }
+      if (schema.containsKey("minProperties")) {
+        final int min = integer(schema.getValue("minProperties"));
+        checks.add((instance, type) -> ((JsonObject) instance).size() >= min);
+      }
+      if (schema.containsKey("maxProperties")) {
+        final int max = integer(schema.getValue("maxProperties"));
+        checks.add((instance, type) -> ((JsonObject) instance).size() <= max);
+      }
+      if (schema.containsKey("propertyNames")) {
+        final Node names = node(schema.getValue("propertyNames"));
+        if (names != TRUE) {
+          checks.add((instance, type) -> {
+            for (String key : ((JsonObject) instance).fieldNames()) {
+              if (!names.valid(key)) {
+                return false;
+              }
+            }
+            return true;
+          });
+        }
+      }
+      if (schema.containsKey("dependentRequired")) {
+        final JsonObject dependentRequired = object(schema.getValue("dependentRequired"));
+        for (String key : dependentRequired.fieldNames()) {
+          final String[] required = strings(dependentRequired.getValue(key));
+          checks.add(dependentRequired(key, required));
+        }
+      }
+      if (schema.containsKey("dependentSchemas")) {
+        final JsonObject dependentSchemas = object(schema.getValue("dependentSchemas"));
+        for (String key : dependentSchemas.fieldNames()) {
+          final Node node = node(dependentSchemas.getValue(key));
+          if (node != TRUE) {
+            checks.add((instance, type) -> !((JsonObject) instance).containsKey(key) || node.valid(instance));
+          }
+        }
+      }
+      if (schema.containsKey("dependencies")) {
+        final JsonObject dependencies = object(schema.getValue("dependencies"));
+        for (String key : dependencies.fieldNames()) {
+          final Object dependency = dependencies.getValue(key);
+          if (dependency instanceof JsonArray) {
+            checks.add(dependentRequired(key, strings(dependency)));
+          } else {
+            final Node node = node(dependency);
+            if (node != TRUE) {
+              checks.add((instance, type) -> !((JsonObject) instance).containsKey(key) || node.valid(instance));
+            }
+          }
+        }
+      }
+
+      final JsonObject properties = schema.containsKey("properties") ? object(schema.getValue("properties")) : new JsonObject();
+      final List<String> checked = new ArrayList<>();
+      final List<Node> checkedValues = new ArrayList<>();
+      for (String name : properties.fieldNames()) {
+        final Node node = node(properties.getValue(name));
+        if (node != TRUE) {
+          checked.add(name);
+          checkedValues.add(node);
+        }
+      }
+      if (!checked.isEmpty()) {
+        final String[] names = checked.toArray(new String[0]);
+        final Node[] values = checkedValues.toArray(new Node[0]);
+        checks.add((instance, type) -> {
+          final JsonObject object = (JsonObject) instance;
+          for (int i = 0; i < names.length; i++) {
+            if (object.containsKey(names[i]) && !values[i].valid(object.getValue(names[i]))) {
+              return false;
+            }
+          }
+          return true;
+        });
+      }
+
+      final JsonObject patternProperties = schema.containsKey("patternProperties") ? object(schema.getValue("patternProperties")) : new JsonObject();
+      final Node additional = schema.containsKey("additionalProperties") && node(schema.getValue("additionalProperties")) != TRUE ?
+        node(schema.getValue("additionalProperties")) :
+        null;
+      final List<String> patternList = new ArrayList<>();
+      final List<Node> patternNodes = new ArrayList<>();
+      for (String pattern : patternProperties.fieldNames()) {
+        pattern(pattern);
+        final Node node = node(patternProperties.getValue(pattern));
+        // a pattern always matched by its schema only matters when it exempts properties from additionalProperties
+        if (node != TRUE || additional != null) {
+          patternList.add(pattern);
+          patternNodes.add(node);
+        }
+      }
+      final Node[] patternValues = patternNodes.toArray(new Node[0]);
+      if (!patternList.isEmpty() || additional != null) {
+        // properties failing their own schema already invalidate the instance, they do not need to be skipped here
+        final PropertyDispatch dispatch = new PropertyDispatch(new HashSet<>(properties.fieldNames()), patternList.toArray(new String[0]), linearRegex, maxRegexSteps);
+        checks.add((instance, type) -> {
+          final JsonObject object = (JsonObject) instance;
+          for (String key : object.fieldNames()) {
+            final int[] matches = dispatch.matches(key);
+            for (int index : matches) {
+              if (!patternValues[index].valid(object.getValue(key))) {
+                return false;
+              }
+            }
+            if (additional != null && matches.length == 0 && !dispatch.declared(key) && !additional.valid(object.getValue(key))) {
+              return false;
+            }
+          }
+          return true;
+        });
+      }
+      return checks;
+    }
+
+    private static Check dependentRequired(String key, String[] required) {
+      return (instance, type) -> {
+        final JsonObject object = (JsonObject) instance;
+        if (object.containsKey(key)) {
+          for (String dependency : required) {
+            if (!object.containsKey(dependency)) {
+              return false;
+            }
+          }
+        }
+        return true;
+      };
+    }
+
+    private List<Check> array(JsonObject schema) {
+      final List<Check> checks = new ArrayList<>();
+      if (schema.containsKey("maxItems")) {
+        final int max = integer(schema.getValue("maxItems"));
+        checks.add((instance, type) -> ((JsonArray) instance).size() <= max);
+      }
+      if (schema.containsKey("minItems")) {
+        final int min = integer(schema.getValue("minItems"));
+        checks.add((instance, type) -> ((JsonArray) instance).size() >= min);
+      }
+
+      // same precedence as the interpreter: prefixItems, then items, then additionalItems (only next to items)
+      final Node[] prefixItems = schema.containsKey("prefixItems") ? nodes(schema.getValue("prefixItems")) : new Node[0];
+      final Node[] tuple;
+      final Node items;
+      final Node additionalItems;
+      if (schema.containsKey("items")) {
+        if (schema.getValue("items") instanceof JsonArray) {
+          tuple = nodes(schema.getValue("items"));
+          items = null;
+          additionalItems = schema.containsKey("additionalItems") ? node(schema.getValue("additionalItems")) : null;
+        } else {
+          tuple = null;
+          items = node(schema.getValue("items"));
+          additionalItems = null;
+        }
+      } else {
+        tuple = null;
+        items = null;
+        additionalItems = null;
+      }
+      final Node rest = tuple != null ? additionalItems : items;
+      final boolean checked = rest != null && rest != TRUE ||
+        Arrays.stream(prefixItems).anyMatch(node -> node != TRUE) ||
+        tuple != null && Arrays.stream(tuple).anyMatch(node -> node != TRUE);
+      if (checked) {
+        checks.add((instance, type) -> {
+          final JsonArray array = (JsonArray) instance;
+          final int length = array.size();
+          int i = 0;
+          for (; i < Math.min(prefixItems.length, length); i++) {
+            if (!prefixItems[i].valid(array.getValue(i))) {
+              return false;
+            }
+          }
+          if (tuple != null) {
+            for (; i < Math.min(tuple.length, length); i++) {
+              if (!tuple[i].valid(array.getValue(i))) {
+                return false;
+              }
+            }
+          }
+          if (rest != null) {
+            for (; i < length; i++) {
+              if (!rest.valid(array.getValue(i))) {
+                return false;
+              }
+            }
+          }
+          return true;
+        });
+      }
+
+      if (schema.containsKey("contains")) {
+        final Node contains = node(schema.getValue("contains"));
+        final boolean hasMin = schema.containsKey("minContains");
+        final boolean hasMax = schema.containsKey("maxContains");
+        final int min = hasMin ? integer(schema.getValue("minContains")) : 0;
+        final int max = hasMax ? integer(schema.getValue("maxContains")) : 0;
+        checks.add((instance, type) -> {
+          final JsonArray array = (JsonArray) instance;
+          final int length = array.size();
+          if (hasMin ? length < min : length == 0) {
+            return false;
+          }
+          int contained = 0;
+          for (int i = 0; i < length; i++) {
+            if (contains.valid(array.getValue(i))) {
+              contained++;
+            }
+          }
+          if (!hasMin && !hasMax) {
+            return contained > 0;
+          }
+          return (!hasMin || contained >= min) && (!hasMax || contained <= max);
+        });
+      }
+
+      if (schema.containsKey("uniqueItems") && Utils.Objects.truthy(schema.getValue("uniqueItems"))) {
+        checks.add((instance, type) -> JSON.unique((JsonArray) instance));
+      }
+      return checks;
+    }
+
+    private List<Check> number(JsonObject schema) {
+      final List<Check> checks = new ArrayList<>();
+      if (draft == Draft.DRAFT4) {
+        if (schema.containsKey("minimum")) {
+          final Number minimum = number(schema.getValue("minimum"));
+          if (bool(schema.getValue("exclusiveMinimum"))) {
+            checks.add((instance, type) -> !Numbers.lte((Number) instance, minimum));
+          } else {
+            checks.add((instance, type) -> !Numbers.lt((Number) instance, minimum));
+          }
+        }
+        if (schema.containsKey("maximum")) {
+          final Number maximum = number(schema.getValue("maximum"));
+          if (bool(schema.getValue("exclusiveMaximum"))) {
+            checks.add((instance, type) -> !Numbers.gte((Number) instance, maximum));
+          } else {
+            checks.add((instance, type) -> !Numbers.gt((Number) instance, maximum));
+          }
+        }
+      } else {
+        if (schema.containsKey("minimum")) {
+          final Number minimum = number(schema.getValue("minimum"));
+          checks.add((instance, type) -> !Numbers.lt((Number) instance, minimum));
+        }
+        if (schema.containsKey("maximum")) {
+          final Number maximum = number(schema.getValue("maximum"));
+          checks.add((instance, type) -> !Numbers.gt((Number) instance, maximum));
+        }
+        if (schema.containsKey("exclusiveMinimum")) {
+          final Number minimum = number(schema.getValue("exclusiveMinimum"));
+          checks.add((instance, type) -> !Numbers.lte((Number) instance, minimum));
+        }
+        if (schema.containsKey("exclusiveMaximum")) {
+          final Number maximum = number(schema.getValue("exclusiveMaximum"));
+          checks.add((instance, type) -> !Numbers.gte((Number) instance, maximum));
+        }
+      }
+      if (schema.containsKey("multipleOf")) {
+        final Number multipleOf = number(schema.getValue("multipleOf"));
+        final double value = multipleOf.doubleValue();
+        checks.add((instance, type) -> {
+          final double remainder = Numbers.remainder((Number) instance, multipleOf);
+          return Math.abs(0 - remainder) < 1.1920929e-7 || Math.abs(value - remainder) < 1.1920929e-7;
+        });
+      }
+      return checks;
+    }
+
+    private List<Check> string(JsonObject schema) {
+      final List<Check> checks = new ArrayList<>();
+      if (schema.containsKey("minLength")) {
+        final Number min = number(schema.getValue("minLength"));
+        checks.add((instance, type) -> !Numbers.lt(Strings.ucs2length((String) instance), min));
+      }
+      if (schema.containsKey("maxLength")) {
+        final Number max = number(schema.getValue("maxLength"));
+        checks.add((instance, type) -> !Numbers.gt(Strings.ucs2length((String) instance), max));
+      }
+      if (schema.containsKey("pattern")) {
+        final Regex pattern = pattern(schema.getValue("pattern"));
+        checks.add((instance, type) -> pattern.find((String) instance));
+      }
+      if (schema.containsKey("format")) {
+        final String format = string(schema.getValue("format"));
+        checks.add((instance, type) -> Format.fastFormat(format, (String) instance));
+      }
+      if (draft.isAfter(Draft.DRAFT4) && schema.containsKey("contentEncoding")) {
+        if (draft.isAfter(Draft.DRAFT7)) {
+          // reported as an annotation of valid instances
+          throw NOT_COMPILABLE;
+        }
+        final String encoding = string(schema.getValue("contentEncoding"));
+        checks.add((instance, type) -> Format.testContentEncoding(encoding, (String) instance));
+      }
+      return checks;
+    }
+
+    // keyword values of an unexpected type fail the interpreter when validating, so they are left to it
+
+    private static JsonArray array(Object value) {
+      if (!(value instanceof JsonArray)) {
+        throw NOT_COMPILABLE;
+      }
+      return (JsonArray) value;
+    }
+
+    private static JsonObject object(Object value) {
+      if (!(value instanceof JsonObject)) {
+        throw NOT_COMPILABLE;
+      }
+      return (JsonObject) value;
+    }
+
+    private static String[] strings(Object value) {
+      final JsonArray array = array(value);
+      final String[] strings = new String[array.size()];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = string(array.getValue(i));
+      }
+      return strings;
+    }
+
+    private static String string(Object value) {
+      if (!(value instanceof String)) {
+        throw NOT_COMPILABLE;
+      }
+      return (String) value;
+    }
+
+    private static int integer(Object value) {
+      if (!(value instanceof Integer)) {
+        throw NOT_COMPILABLE;
+      }
+      return (Integer) value;
+    }
+
+    private static Number number(Object value) {
+      if (!(value instanceof Number)) {
+        throw NOT_COMPILABLE;
+      }
+      return (Number) value;
+    }
+
+    private static boolean bool(Object value) {
+      if (value == null) {
+        return false;
+      }
+      if (!(value instanceof Boolean)) {
+        throw NOT_COMPILABLE;
+      }
+      return (Boolean) value;
+    }
+
+    private Regex pattern(Object value) {
+      final Regex regex;
+      try {
+        regex = Regex.compile(string(value), linearRegex, maxRegexSteps);
+      } catch (PatternSyntaxException | UnsupportedOperationException e) {
+        throw NOT_COMPILABLE;
+      }
+      if (regex.budgeted()) {
+        // aborted matches are reported by the interpreter
+        throw NOT_COMPILABLE;
+      }
+      return regex;
+    }
+  }
+}
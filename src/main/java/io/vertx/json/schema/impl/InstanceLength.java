@@ -0,0 +1,335 @@
+package io.vertx.json.schema.impl;
+
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.Draft;
+import io.vertx.json.schema.JsonSchema;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Derives from a schema an upper bound of the length, in bytes, of the compact encoding of any valid instance.
+ * <p>
+ * The compact encoding is the one of {@link Json#encode(Object)}: no insignificant whitespace, UTF-8, only the
+ * characters that must be escaped are escaped. The bound is conservative: when a keyword cannot be bounded (e.g. an
+ * array without {@code maxItems}, a recursive schema), the whole bound is {@link #UNBOUNDED}. A bound of {@code 0}
+ * means that no instance is valid.
+ */
+final class InstanceLength {
+
+  static final long UNBOUNDED = -1;
+
+  // longest Double.toString() / Long.toString() output, e.g. -2.2250738585072014E-308
+  private static final long NUMBER = 24;
+  // worst case of a single character in a string: a control character escaped as \\u00XX
+  private static final long CHAR = 6;
+
+  private final Map<String, JsonSchema> lookup;
+  private final Draft draft;
+  private final Set<Object> visiting = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  private InstanceLength(Map<String, JsonSchema> lookup, Draft draft) {
+    this.lookup = lookup;
+    this.draft = draft;
+  }
+
+  /**
+   * @param schema the schema
+   * @param lookup the dereferenced schemas, used to follow {@code $ref}
+   * @param draft  the draft of the schema
+   * @return the bound, or {@link #UNBOUNDED}
+   */
+  static long of(JsonSchema schema, Map<String, JsonSchema> lookup, Draft draft) {
+    return new InstanceLength(lookup, draft).bound(schema);
+  }
+
+  private long bound(Object schema) {
+    if (schema == BooleanSchema.FALSE || Boolean.FALSE.equals(schema)) {
+      return 0;
+    }
+    if (!(schema instanceof JsonObject)) {
+      return UNBOUNDED;
+    }
+    final JsonObject json = (JsonObject) schema;
+    // schemas sharing the same map are the same schema
+    final Object identity = json.getMap();
+    if (!visiting.add(identity)) {
+      // recursive schemas describe instances of any depth
+      return UNBOUNDED;
+    }
+    try {
+      return compute(json);
+    } finally {
+      visiting.remove(identity);
+    }
+  }
+
+  private long compute(JsonObject schema) {
+    long bound = UNBOUNDED;
+
+    if (schema.containsKey("$ref")) {
+      final JsonSchema target = lookup.get(schema.getString("__absolute_ref__", schema.getString("$ref")));
+      final long ref = target == null ? UNBOUNDED : bound(target);
+      if (draft == Draft.DRAFT4 || draft == Draft.DRAFT7) {
+        // all other keywords are ignored next to $ref
+        return ref;
+      }
+      bound = min(bound, ref);
+    }
+
+    if (schema.containsKey("const")) {
+      bound = min(bound, valueLength(schema.getValue("const")));
+    }
+
+    if (schema.getValue("enum") instanceof JsonArray) {
+      long values = 0;
+      for (Object value : schema.getJsonArray("enum")) {
+        values = max(values, valueLength(value));
+      }
+      bound = min(bound, values);
+    }
+
+    bound = min(bound, types(schema));
+
+    if (schema.getValue("allOf") instanceof JsonArray) {
+      for (Object sub : schema.getJsonArray("allOf")) {
+        bound = min(bound, bound(sub));
+      }
+    }
+    for (String keyword : new String[]{"anyOf", "oneOf"}) {
+      if (schema.getValue(keyword) instanceof JsonArray) {
+        long any = 0;
+        for (Object sub : schema.getJsonArray(keyword)) {
+          any = max(any, bound(sub));
+        }
+        bound = min(bound, any);
+      }
+    }
+    if (schema.containsKey("then") && schema.containsKey("else")) {
+      // valid instances are valid against one of the branches
+      bound = min(bound, max(bound(schema.getValue("then")), bound(schema.getValue("else"))));
+    }
+
+    return bound;
+  }
+
+  private long types(JsonObject schema) {
+    final Object type = schema.getValue("type");
+    final Collection<?> types;
+    if (type instanceof String) {
+      types = Collections.singleton(type);
+    } else if (type instanceof JsonArray) {
+      types = ((JsonArray) type).getList();
+    } else {
+      types = Arrays.asList("null", "boolean", "number", "string", "array", "object");
+    }
+
+    long bound = 0;
+    for (Object t : types) {
+      bound = max(bound, type(schema, String.valueOf(t)));
+      if (bound == UNBOUNDED) {
+        break;
+      }
+    }
+    return bound;
+  }
+
+  private long type(JsonObject schema, String type) {
+    switch (type) {
+      case "null":
+        return 4;
+      case "boolean":
+        return 5;
+      case "integer":
+      case "number":
+        return number(schema);
+      case "string":
+        return schema.getValue("maxLength") instanceof Number ?
+          add(2, mul(CHAR, schema.getLong("maxLength"))) :
+          UNBOUNDED;
+      case "array":
+        return array(schema);
+      case "object":
+        return object(schema);
+      default:
+        return UNBOUNDED;
+    }
+  }
+
+  private static long number(JsonObject schema) {
+    final Number low = schema.getValue("minimum") instanceof Number ?
+      schema.getNumber("minimum") :
+      schema.getValue("exclusiveMinimum") instanceof Number ? schema.getNumber("exclusiveMinimum") : null;
+    final Number high = schema.getValue("maximum") instanceof Number ?
+      schema.getNumber("maximum") :
+      schema.getValue("exclusiveMaximum") instanceof Number ? schema.getNumber("exclusiveMaximum") : null;
+    // outside of the long range, numbers can be big integers of any length
+    if (low == null || high == null || Math.abs(low.doubleValue()) > Long.MAX_VALUE / 2 || Math.abs(high.doubleValue()) > Long.MAX_VALUE / 2) {
+      return UNBOUNDED;
+    }
+    return NUMBER;
+  }
+
+  private long array(JsonObject schema) {
+    final JsonArray tuple;
+    final Object rest;
+    if (schema.getValue("prefixItems") instanceof JsonArray) {
+      tuple = schema.getJsonArray("prefixItems");
+      rest = schema.getValue("items");
+    } else if (schema.getValue("items") instanceof JsonArray) {
+      tuple = schema.getJsonArray("items");
+      rest = schema.getValue("additionalItems");
+    } else {
+      tuple = new JsonArray();
+      rest = schema.getValue("items");
+    }
+
+    long count = schema.getValue("maxItems") instanceof Number ? schema.getLong("maxItems") : UNBOUNDED;
+    final long restBound = rest == null ? UNBOUNDED : bound(rest);
+    if (restBound == 0) {
+      count = min(count, tuple.size());
+    }
+
+    long item = 0;
+    for (int i = 0; i < tuple.size() && (count == UNBOUNDED || i < count); i++) {
+      final long bound = bound(tuple.getValue(i));
+      if (bound == 0) {
+        // no item can be valid at this position
+        count = min(count, i);
+        break;
+      }
+      item = max(item, bound);
+    }
+    if (count == UNBOUNDED) {
+      return UNBOUNDED;
+    }
+    if (count > tuple.size()) {
+      item = max(item, restBound);
+    }
+    return container(count, item);
+  }
+
+  private long object(JsonObject schema) {
+    final JsonObject properties = schema.getValue("properties") instanceof JsonObject ? schema.getJsonObject("properties") : new JsonObject();
+    final JsonObject patterns = schema.getValue("patternProperties") instanceof JsonObject ? schema.getJsonObject("patternProperties") : null;
+    final long additional = schema.containsKey("additionalProperties") ? bound(schema.getValue("additionalProperties")) : UNBOUNDED;
+    // only the declared properties are allowed
+    final boolean closed = additional == 0 && (patterns == null || patterns.isEmpty());
+
+    long count = schema.getValue("maxProperties") instanceof Number ? schema.getLong("maxProperties") : UNBOUNDED;
+    if (closed) {
+      count = min(count, properties.size());
+    }
+    if (count == UNBOUNDED) {
+      return UNBOUNDED;
+    }
+
+    long key = UNBOUNDED;
+    if (closed) {
+      key = 0;
+      for (String name : properties.fieldNames()) {
+        key = max(key, valueLength(name));
+      }
+    }
+    if (schema.getValue("propertyNames") instanceof JsonObject) {
+      final JsonObject names = schema.getJsonObject("propertyNames");
+      if (names.getValue("maxLength") instanceof Number) {
+        key = min(key, add(2, mul(CHAR, names.getLong("maxLength"))));
+      }
+    }
+
+    long value = 0;
+    for (String name : properties.fieldNames()) {
+      value = max(value, bound(properties.getValue(name)));
+    }
+    if (!closed) {
+      value = max(value, additional);
+      if (patterns != null) {
+        for (String pattern : patterns.fieldNames()) {
+          value = max(value, bound(patterns.getValue(pattern)));
+        }
+      }
+    }
+
+    // "key":value
+    return container(count, add(add(key, 1), value));
+  }
+
+  /**
+   * Length of {@code count} entries of the given length, separated by commas, and enclosed in brackets.
+   */
+  private static long container(long count, long entry) {
+    if (count == 0) {
+      return 2;
+    }
+    return add(2, add(mul(count, entry), count - 1));
+  }
+
+  /**
+   * Length of an instance equal to the given value, the value itself may not be in its compact encoding.
+   */
+  private static long valueLength(Object value) {
+    if (value instanceof JsonObject) {
+      final JsonObject object = (JsonObject) value;
+      long length = 0;
+      for (String key : object.fieldNames()) {
+        length = add(length, add(add(valueLength(key), 1), valueLength(object.getValue(key))));
+      }
+      return add(length, object.size() == 0 ? 2 : object.size() + 1);
+    }
+    if (value instanceof JsonArray) {
+      final JsonArray array = (JsonArray) value;
+      long length = 0;
+      for (Object item : array) {
+        length = add(length, valueLength(item));
+      }
+      return add(length, array.size() == 0 ? 2 : array.size() + 1);
+    }
+    if (value instanceof Number) {
+      // equal numbers can have different encodings, e.g. 1 and 1.0
+      return Math.max(NUMBER, value.toString().length());
+    }
+    return Json.encode(value).getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  private static long min(long a, long b) {
+    if (a == UNBOUNDED) {
+      return b;
+    }
+    if (b == UNBOUNDED) {
+      return a;
+    }
+    return Math.min(a, b);
+  }
+
+  private static long max(long a, long b) {
+    if (a == UNBOUNDED || b == UNBOUNDED) {
+      return UNBOUNDED;
+    }
+    return Math.max(a, b);
+  }
+
+  private static long add(long a, long b) {
+    if (a == UNBOUNDED || b == UNBOUNDED) {
+      return UNBOUNDED;
+    }
+    try {
+      return Math.addExact(a, b);
+    } catch (ArithmeticException e) {
+      return UNBOUNDED;
+    }
+  }
+
+  private static long mul(long a, long b) {
+    if (a == UNBOUNDED || b == UNBOUNDED) {
+      return UNBOUNDED;
+    }
+    try {
+      return Math.multiplyExact(a, b);
+    } catch (ArithmeticException e) {
+      return UNBOUNDED;
+    }
+  }
+}
@@ -2,12 +2,16 @@ package io.vertx.json.schema.impl;
 
 import io.vertx.core.json.JsonObject;
 import io.vertx.json.schema.JsonSchema;
+import io.vertx.json.schema.SchemaException;
 
 import java.util.*;
 
 public final class JsonObjectSchema extends JsonObject implements JsonSchema {
 
   private boolean annotated;
+  private volatile KeywordOrder keywordOrder;
+  private volatile PropertyDispatch propertyDispatch;
+  private volatile Regex pattern;
 
   public JsonObjectSchema(JsonObject json) {
     super(json.getMap());
@@ -39,6 +43,55 @@ public final class JsonObjectSchema extends JsonObject implements JsonSchema {
     return this;
   }
 
+  /**
+   * @return the adaptive order of the assertions of this node, shared by all the validations using it
+   */
+  KeywordOrder keywordOrder() {
+    KeywordOrder order = keywordOrder;
+    if (order == null) {
+      // racy but idempotent
+      keywordOrder = order = KeywordOrder.of(this);
+    }
+    return order;
+  }
+
+  /**
+   * @param linear   {@code true} to match the patterns in linear time
+   * @param maxSteps the budget of the backtracking patterns, {@code 0} for no limit
+   * @return the classification of property names against the {@code properties} and {@code patternProperties} of
+   * this node, shared by all the validations using it
+   */
+  PropertyDispatch propertyDispatch(boolean linear, int maxSteps) {
+    PropertyDispatch dispatch = propertyDispatch;
+    if (dispatch == null || !dispatch.isFor(linear, maxSteps)) {
+      try {
+        // racy but idempotent
+        propertyDispatch = dispatch = PropertyDispatch.of(this, linear, maxSteps);
+      } catch (UnsupportedOperationException e) {
+        throw new SchemaException(this, e.getMessage(), e);
+      }
+    }
+    return dispatch;
+  }
+
+  /**
+   * @param linear   {@code true} to match the pattern in linear time
+   * @param maxSteps the budget of the pattern if it can backtrack, {@code 0} for no limit
+   * @return the compiled {@code pattern} of this node
+   */
+  Regex pattern(boolean linear, int maxSteps) {
+    Regex regex = pattern;
+    if (regex == null || !regex.isFor(linear, maxSteps)) {
+      try {
+        // racy but idempotent
+        pattern = regex = Regex.compile(getString("pattern"), linear, maxSteps);
+      } catch (UnsupportedOperationException e) {
+        throw new SchemaException(this, e.getMessage(), e);
+      }
+    }
+    return regex;
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public <R> R get(String key, R fallback) {
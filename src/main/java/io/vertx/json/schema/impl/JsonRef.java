@@ -53,6 +53,7 @@ public final class JsonRef {
 
   /**
    * This is a list of keys that are allowed to be used as a pointer, they usually point to a json pointer.
+   * Lookups use {@link KeywordKind#POINTER} instead of scanning this list.
    */
   public static final List<String> POINTER_KEYWORD = Arrays.asList(
     "$ref",
@@ -267,7 +268,7 @@ public final class JsonRef {
           case "__absolute_recursive_ref__":
             continue;
         }
-        if (POINTER_KEYWORD.contains(prop)) {
+        if (KeywordKind.is(prop, KeywordKind.POINTER)) {
           pointers
             .computeIfAbsent(prop, key -> new ArrayList<>())
             .add(new JsonRef(json.getString(prop), json, prop, path, id));
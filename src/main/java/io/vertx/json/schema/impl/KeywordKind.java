@@ -0,0 +1,173 @@
+package io.vertx.json.schema.impl;
+
+/**
+ * Classification of the JSON Schema keywords, as a bit set of kinds.
+ * <p>
+ * The classification is a {@code switch} over the keyword, which the compiler turns into a hash based jump table,
+ * so a keyword is classified with a single hash computation (cached by {@link String}) and at most one
+ * {@link String#equals(Object)} call, instead of scanning lists of keywords.
+ */
+final class KeywordKind {
+
+  /**
+   * No special meaning, unknown keywords are classified as such.
+   */
+  static final int NONE = 0;
+  /**
+   * Keywords that never hold sub schemas and are skipped during dereference.
+   */
+  static final int IGNORE = 1;
+  /**
+   * Keywords that hold a pointer (or an identifier) and are collected during resolve.
+   */
+  static final int POINTER = 1 << 1;
+  /**
+   * Keywords holding a single sub schema.
+   */
+  static final int SCHEMA = 1 << 2;
+  /**
+   * Keywords holding an array of sub schemas.
+   */
+  static final int SCHEMA_ARRAY = 1 << 3;
+  /**
+   * Keywords holding an object of sub schemas.
+   */
+  static final int SCHEMA_MAP = 1 << 4;
+  /**
+   * Keywords whose result depends on the schemas the validation went through.
+   */
+  static final int DYNAMIC_SCOPE = 1 << 5;
+  /**
+   * Keywords reading what the sub schemas of a validation evaluated.
+   */
+  static final int UNEVALUATED = 1 << 6;
+  /**
+   * Keywords whose result does not only depend on the instance, these are never compiled nor cached.
+   */
+  static final int PATH_DEPENDENT = DYNAMIC_SCOPE | UNEVALUATED;
+  /**
+   * Keywords that can report an error for an instance of any type.
+   */
+  static final int ANY_TYPE = 1 << 7;
+  /**
+   * Keywords only checked against object instances.
+   */
+  static final int OBJECT = 1 << 8;
+  /**
+   * Keywords only checked against array instances.
+   */
+  static final int ARRAY = 1 << 9;
+  /**
+   * Keywords only checked against number instances.
+   */
+  static final int NUMBER = 1 << 10;
+  /**
+   * Keywords only checked against string instances.
+   */
+  static final int STRING = 1 << 11;
+
+  private KeywordKind() {
+  }
+
+  /**
+   * Classify a keyword.
+   *
+   * @param keyword the keyword
+   * @return the bit set of kinds of the keyword
+   */
+  static int of(String keyword) {
+    switch (keyword) {
+      case "$id":
+      case "$schema":
+      case "$anchor":
+        return IGNORE | POINTER;
+      case "$ref":
+        return IGNORE | POINTER | ANY_TYPE;
+      case "$dynamicRef":
+        return POINTER | DYNAMIC_SCOPE | ANY_TYPE;
+      case "$dynamicAnchor":
+        return POINTER;
+      case "$recursiveRef":
+        return DYNAMIC_SCOPE | ANY_TYPE;
+      case "id":
+      case "$vocabulary":
+      case "$comment":
+      case "default":
+        return IGNORE;
+      case "enum":
+      case "const":
+      case "type":
+        return IGNORE | ANY_TYPE;
+      case "maximum":
+      case "minimum":
+      case "exclusiveMaximum":
+      case "exclusiveMinimum":
+      case "multipleOf":
+        return IGNORE | NUMBER;
+      case "maxLength":
+      case "minLength":
+      case "pattern":
+      case "format":
+        return IGNORE | STRING;
+      case "maxItems":
+      case "minItems":
+      case "uniqueItems":
+        return IGNORE | ARRAY;
+      case "required":
+      case "maxProperties":
+      case "minProperties":
+        return IGNORE | OBJECT;
+      case "items":
+        return SCHEMA | SCHEMA_ARRAY | ARRAY;
+      case "prefixItems":
+        return SCHEMA_ARRAY | ARRAY;
+      case "allOf":
+      case "anyOf":
+      case "oneOf":
+        return SCHEMA_ARRAY | ANY_TYPE;
+      case "$defs":
+      case "definitions":
+        return SCHEMA_MAP;
+      case "properties":
+      case "patternProperties":
+      case "dependentSchemas":
+        return SCHEMA_MAP | OBJECT;
+      case "unevaluatedItems":
+        return SCHEMA | UNEVALUATED | ARRAY;
+      case "unevaluatedProperties":
+        return SCHEMA | UNEVALUATED | OBJECT;
+      case "additionalItems":
+      case "contains":
+        return SCHEMA | ARRAY;
+      case "additionalProperties":
+      case "propertyNames":
+        return SCHEMA | OBJECT;
+      case "not":
+      case "if":
+      case "then":
+      case "else":
+        return SCHEMA | ANY_TYPE;
+      case "minContains":
+      case "maxContains":
+        return ARRAY;
+      case "dependentRequired":
+      case "dependencies":
+        return OBJECT;
+      case "contentEncoding":
+        return STRING;
+      default:
+        return NONE;
+    }
+  }
+
+  /**
+   * Checks if a keyword is of the given kind.
+   *
+   * @param keyword the keyword
+   * @param kind    one of the kind constants
+   * @return {@code true} when the keyword is of that kind
+   */
+  static boolean is(String keyword, int kind) {
+    return (of(keyword) & kind) != 0;
+  }
+}
@@ -0,0 +1,196 @@
+package io.vertx.json.schema.impl;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.Draft;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.vertx.json.schema.impl.Utils.*;
+
+/**
+ * The assertions of a schema node that only depend on the instance, checked before the rest of the schema in the
+ * {@link io.vertx.json.schema.OutputFormat#Flag} format, so that an invalid instance is rejected without evaluating
+ * sub schemas.
+ * <p>
+ * The assertions are independent of each other, so they can be checked in any order: each node counts, without
+ * locking, how often each of its assertions rejected an instance, and periodically sorts them so that the most
+ * rejecting one is checked first. Nodes using a reference are not pre-checked, as the reference must be resolved, or
+ * fail to resolve, exactly like the full validation does.
+ */
+final class KeywordOrder {
+
+  static final KeywordOrder NONE = new KeywordOrder(new Assertion[0]);
+
+  // on average, the order is updated once every REORDER_INTERVAL checks
+  private static final int REORDER_INTERVAL = 1024;
+
+  private enum Assertion {
+    TYPE("type"),
+    REQUIRED("required"),
+    MIN_PROPERTIES("minProperties"),
+    MAX_PROPERTIES("maxProperties"),
+    MIN_ITEMS("minItems"),
+    MAX_ITEMS("maxItems"),
+    MIN_LENGTH("minLength"),
+    MAX_LENGTH("maxLength"),
+    MINIMUM("minimum"),
+    MAXIMUM("maximum"),
+    EXCLUSIVE_MINIMUM("exclusiveMinimum"),
+    EXCLUSIVE_MAXIMUM("exclusiveMaximum"),
+    PATTERN("pattern");
+
+    final String keyword;
+
+    Assertion(String keyword) {
+      this.keyword = keyword;
+    }
+  }
+
+  private final Assertion[] assertions;
+  private final LongAdder[] rejections;
+  private volatile int[] order;
+
+  private KeywordOrder(Assertion[] assertions) {
+    this.assertions = assertions;
+    this.rejections = new LongAdder[assertions.length];
+    this.order = new int[assertions.length];
+    for (int i = 0; i < assertions.length; i++) {
+      rejections[i] = new LongAdder();
+      order[i] = i;
+    }
+  }
+
+  static KeywordOrder of(JsonObject schema) {
+    if (schema.containsKey("$ref") || schema.containsKey("$dynamicRef") || schema.containsKey("$recursiveRef")) {
+      return NONE;
+    }
+    final List<Assertion> assertions = new ArrayList<>();
+    for (Assertion assertion : Assertion.values()) {
+      if (schema.containsKey(assertion.keyword)) {
+        assertions.add(assertion);
+      }
+    }
+    return assertions.isEmpty() ? NONE : new KeywordOrder(assertions.toArray(new Assertion[0]));
+  }
+
+  /**
+   * @param schema       the schema node this order was created for
+   * @param instance     the instance, in the JSON type space
+   * @param instanceType the JSON type of the instance
+   * @param draft        the draft of the schema
+   * @param linearRegex  {@code true} to match patterns in linear time
+   * @param maxRegexSteps the budget of the backtracking patterns
+   * @return {@code true} when one of the assertions rejects the instance
+   */
+  boolean rejects(JsonObjectSchema schema, Object instance, String instanceType, Draft draft, boolean linearRegex, int maxRegexSteps) {
+    if (assertions.length == 0) {
+      return false;
+    }
+    boolean rejected = false;
+    for (int i : order) {
+      if (rejects(assertions[i], schema, instance, instanceType, draft, linearRegex, maxRegexSteps)) {
+        rejections[i].increment();
+        rejected = true;
+        break;
+      }
+    }
+    if (ThreadLocalRandom.current().nextInt(REORDER_INTERVAL) == 0) {
+      reorder();
+    }
+    return rejected;
+  }
+
+  private void reorder() {
+    final long[] counts = new long[rejections.length];
+    final Integer[] indexes = new Integer[rejections.length];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = rejections[i].sum();
+      indexes[i] = i;
+    }
+    // stable: assertions that never rejected anything keep their declaration order
+    Arrays.sort(indexes, Comparator.comparingLong(i -> -counts[i]));
+    final int[] order = new int[indexes.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = indexes[i];
+    }
+    this.order = order;
+  }
+
+  private static boolean rejects(Assertion assertion, JsonObjectSchema schema, Object instance, String instanceType, Draft draft, boolean linearRegex, int maxRegexSteps) {
+    switch (assertion) {
+      case TYPE: {
+        final Object type = schema.get("type");
+        if (type instanceof JsonArray) {
+          for (int i = 0; i < ((JsonArray) type).size(); i++) {
+            final String t = ((JsonArray) type).getString(i);
+            if (instanceType.equals(t) || ("integer".equals(t) && "number".equals(instanceType) && Numbers.isInteger(instance))) {
+              return false;
+            }
+          }
+          return true;
+        }
+        if ("integer".equals(type)) {
+          return !"number".equals(instanceType) || !Numbers.isInteger(instance);
+        }
+        return !instanceType.equals(type);
+      }
+      case REQUIRED:
+        if ("object".equals(instanceType)) {
+          for (final Object key : schema.<JsonArray>get("required")) {
+            if (!((JsonObject) instance).containsKey((String) key)) {
+              return true;
+            }
+          }
+        }
+        return false;
+      case MIN_PROPERTIES:
+        return "object".equals(instanceType) && ((JsonObject) instance).size() < schema.<Integer>get("minProperties");
+      case MAX_PROPERTIES:
+        return "object".equals(instanceType) && ((JsonObject) instance).size() > schema.<Integer>get("maxProperties");
+      case MIN_ITEMS:
+        return "array".equals(instanceType) && ((JsonArray) instance).size() < schema.<Integer>get("minItems");
+      case MAX_ITEMS:
+        return "array".equals(instanceType) && ((JsonArray) instance).size() > schema.<Integer>get("maxItems");
+      case MIN_LENGTH:
+        return "string".equals(instanceType) && Numbers.lt(Strings.ucs2length((String) instance), schema.get("minLength"));
+      case MAX_LENGTH:
+        return "string".equals(instanceType) && Numbers.gt(Strings.ucs2length((String) instance), schema.get("maxLength"));
+      case MINIMUM:
+        if (!"number".equals(instanceType)) {
+          return false;
+        }
+        if (draft == Draft.DRAFT4 && schema.<Boolean>get("exclusiveMinimum", false)) {
+          return Numbers.lte((Number) instance, schema.get("minimum"));
+        }
+        return Numbers.lt((Number) instance, schema.get("minimum"));
+      case MAXIMUM:
+        if (!"number".equals(instanceType)) {
+          return false;
+        }
+        if (draft == Draft.DRAFT4 && schema.<Boolean>get("exclusiveMaximum", false)) {
+          return Numbers.gte((Number) instance, schema.get("maximum"));
+        }
+        return Numbers.gt((Number) instance, schema.get("maximum"));
+      case EXCLUSIVE_MINIMUM:
+        // draft 4 uses a boolean modifier of minimum
+        return draft != Draft.DRAFT4 && "number".equals(instanceType) && Numbers.lte((Number) instance, schema.get("exclusiveMinimum"));
+      case EXCLUSIVE_MAXIMUM:
+        return draft != Draft.DRAFT4 && "number".equals(instanceType) && Numbers.gte((Number) instance, schema.get("exclusiveMaximum"));
+      case PATTERN:
+        if (!"string".equals(instanceType)) {
+          return false;
+        }
+        final Regex regex = schema.pattern(linearRegex, maxRegexSteps);
+        // an aborted match is reported by the full validation
+        return !regex.budgeted() && !regex.find((String) instance);
+      default:
+        return false;
+    }
+  }
+}
@@ -0,0 +1,672 @@
+package io.vertx.json.schema.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A regular expression matched in time linear to the length of the input, whatever the pattern and the input are.
+ * <p>
+ * The pattern is compiled to a program of a non deterministic automaton, run as a Pike VM: all the threads of the
+ * automaton advance together over each character of the input, and at most one thread per instruction is kept, so a
+ * match takes {@code O(input length x program size)} steps, instead of the exponential time a backtracking engine can
+ * take on patterns such as {@code ^(a+)+$}.
+ * <p>
+ * The engine supports the regular subset of the ECMA 262 syntax used by JSON schemas: literals, escapes, {@code .},
+ * character classes and {@code \d \w \s} shorthands, groups (capturing groups do not capture), alternatives, greedy
+ * or lazy quantifiers, and the {@code ^ $ \b \B} assertions, with the semantics of {@code java.util.regex}. Back
+ * references, look arounds, inline flags, possessive quantifiers and the other {@code java.util.regex} extensions are
+ * not supported, nor are programs larger than {@link #MAX_PROGRAM_SIZE} instructions, e.g. {@code a{100000}}.
+ */
+final class LinearRegex extends Regex {
+
+  static final int MAX_PROGRAM_SIZE = 10_000;
+
+  private static final int CHAR = 0;
+  private static final int CLASS = 1;
+  private static final int ANY = 2;
+  private static final int SPLIT = 3;
+  private static final int JUMP = 4;
+  private static final int MATCH = 5;
+  private static final int BEGIN = 6;
+  private static final int END = 7;
+  private static final int WORD_BOUNDARY = 8;
+  private static final int NOT_WORD_BOUNDARY = 9;
+
+  private static final int[] DIGIT = {'0', '9'};
+  private static final int[] WORD = {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+  private static final int[] SPACE = {'\t', '\r', ' ', ' '};
+  // java.util.regex \v
+  private static final int[] VERTICAL = {'\n', '\r', 0x85, 0x85, 0x2028, 0x2029};
+
+  private final int[] ops;
+  private final int[] args;
+  private final int[] targets;
+  private final int[][] classes;
+
+  private LinearRegex(Program program) {
+    super(true, 0);
+    final int size = program.ops.size();
+    this.ops = new int[size];
+    this.args = new int[size];
+    this.targets = new int[size];
+    for (int i = 0; i < size; i++) {
+      ops[i] = program.ops.get(i);
+      args[i] = program.args.get(i);
+      targets[i] = program.targets.get(i);
+    }
+    this.classes = program.classes.toArray(new int[0][]);
+  }
+
+  /**
+   * @param pattern a valid {@code java.util.regex} pattern
+   * @throws UnsupportedOperationException when the pattern uses a construct that cannot be matched in linear time
+   */
+  static LinearRegex compile(String pattern) {
+    final Parser parser = new Parser(pattern);
+    final Node node = parser.alternatives();
+    if (parser.position != pattern.length()) {
+      throw parser.unsupported();
+    }
+    final Program program = new Program();
+    node.emit(program);
+    program.add(MATCH, 0, 0);
+    return new LinearRegex(program);
+  }
+
+  @Override
+  boolean find(CharSequence input) {
+    final Threads current = new Threads(ops.length);
+    final Threads next = new Threads(ops.length);
+    // each instruction is followed once per position, pushing at most 2 others
+    final int[] stack = new int[ops.length * 2 + 1];
+    Threads list = current;
+    Threads following = next;
+    int position = 0;
+    while (true) {
+      // a match can start at any position
+      if (follow(list, 0, input, position, stack)) {
+        return true;
+      }
+      if (position == input.length()) {
+        return false;
+      }
+      final int c = Character.codePointAt(input, position);
+      final int after = position + Character.charCount(c);
+      following.clear();
+      for (int i = 0; i < list.size; i++) {
+        final int pc = list.dense[i];
+        final boolean matches;
+        switch (ops[pc]) {
+          case CHAR:
+            matches = args[pc] == c;
+            break;
+          case CLASS:
+            matches = contains(classes[args[pc]], c) != (targets[pc] != 0);
+            break;
+          case ANY:
+            matches = !lineTerminator(c);
+            break;
+          default:
+            matches = false;
+        }
+        if (matches && follow(following, pc + 1, input, after, stack)) {
+          return true;
+        }
+      }
+      final Threads swap = list;
+      list = following;
+      following = swap;
+      position = after;
+    }
+  }
+
+  /**
+   * Add the thread at {@code pc} to the list, following the instructions not consuming a character.
+   *
+   * @return {@code true} when a thread reaches the end of the program
+   */
+  private boolean follow(Threads list, int start, CharSequence input, int position, int[] stack) {
+    int top = 0;
+    stack[top++] = start;
+    while (top > 0) {
+      final int pc = stack[--top];
+      if (!list.add(pc)) {
+        continue;
+      }
+      switch (ops[pc]) {
+        case MATCH:
+          return true;
+        case JUMP:
+          stack[top++] = args[pc];
+          break;
+        case SPLIT:
+          stack[top++] = targets[pc];
+          stack[top++] = args[pc];
+          break;
+        case BEGIN:
+          if (position == 0) {
+            stack[top++] = pc + 1;
+          }
+          break;
+        case END:
+          if (end(input, position)) {
+            stack[top++] = pc + 1;
+          }
+          break;
+        case WORD_BOUNDARY:
+        case NOT_WORD_BOUNDARY:
+          final boolean boundary = (position > 0 && word(input.charAt(position - 1))) != (position < input.length() && word(input.charAt(position)));
+          if (boundary == (ops[pc] == WORD_BOUNDARY)) {
+            stack[top++] = pc + 1;
+          }
+          break;
+        default:
+          // consumes a character
+      }
+    }
+    return false;
+  }
+
+  /**
+   * {@code $} of {@code java.util.regex}: the end of the input, or before its final line terminator.
+   */
+  private static boolean end(CharSequence input, int position) {
+    final int remaining = input.length() - position;
+    if (remaining == 0) {
+      return true;
+    }
+    if (remaining == 2) {
+      return input.charAt(position) == '\r' && input.charAt(position + 1) == '\n';
+    }
+    if (remaining == 1) {
+      final char c = input.charAt(position);
+      // not between \r and \n
+      return lineTerminator(c) && !(c == '\n' && position > 0 && input.charAt(position - 1) == '\r');
+    }
+    return false;
+  }
+
+  private static boolean lineTerminator(int c) {
+    return c == '\n' || c == '\r' || c == 0x85 || c == 0x2028 || c == 0x2029;
+  }
+
+  private static boolean word(char c) {
+    return contains(WORD, c);
+  }
+
+  private static boolean contains(int[] ranges, int c) {
+    for (int i = 0; i < ranges.length; i += 2) {
+      if (c < ranges[i]) {
+        return false;
+      }
+      if (c <= ranges[i + 1]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A set of instructions, iterated in insertion order, cleared in constant time.
+   */
+  private static final class Threads {
+    final int[] dense;
+    final int[] sparse;
+    int size;
+
+    Threads(int capacity) {
+      dense = new int[capacity];
+      sparse = new int[capacity];
+    }
+
+    boolean add(int pc) {
+      final int index = sparse[pc];
+      if (index < size && dense[index] == pc) {
+        return false;
+      }
+      sparse[pc] = size;
+      dense[size++] = pc;
+      return true;
+    }
+
+    void clear() {
+      size = 0;
+    }
+  }
+
+  private static final class Program {
+    final List<Integer> ops = new ArrayList<>();
+    final List<Integer> args = new ArrayList<>();
+    final List<Integer> targets = new ArrayList<>();
+    final List<int[]> classes = new ArrayList<>();
+
+    int add(int op, int arg, int target) {
+      if (ops.size() == MAX_PROGRAM_SIZE) {
+        throw new UnsupportedOperationException("The pattern is too large to be matched in linear time");
+      }
+      ops.add(op);
+      args.add(arg);
+      targets.add(target);
+      return ops.size() - 1;
+    }
+
+    int pc() {
+      return ops.size();
+    }
+  }
+
+  private interface Node {
+    void emit(Program program);
+  }
+
+  private static Node instruction(int op, int arg, int target) {
+    return program -> program.add(op, arg, target);
+  }
+
+  private static Node ranges(int[] ranges, boolean negated) {
+    return program -> {
+      program.classes.add(ranges);
+      program.add(CLASS, program.classes.size() - 1, negated ? 1 : 0);
+    };
+  }
+
+  private static Node sequence(List<Node> nodes) {
+    return program -> {
+      for (Node node : nodes) {
+        node.emit(program);
+      }
+    };
+  }
+
+  private static Node alternatives(List<Node> nodes) {
+    if (nodes.size() == 1) {
+      return nodes.get(0);
+    }
+    return program -> {
+      final List<Integer> jumps = new ArrayList<>();
+      for (int i = 0; i < nodes.size() - 1; i++) {
+        final int split = program.add(SPLIT, program.pc() + 1, 0);
+        nodes.get(i).emit(program);
+        jumps.add(program.add(JUMP, 0, 0));
+        program.targets.set(split, program.pc());
+      }
+      nodes.get(nodes.size() - 1).emit(program);
+      for (int jump : jumps) {
+        program.args.set(jump, program.pc());
+      }
+    };
+  }
+
+  private static Node repeat(Node node, int min, int max) {
+    return program -> {
+      for (int i = 0; i < min; i++) {
+        node.emit(program);
+      }
+      if (max == -1) {
+        final int split = program.add(SPLIT, program.pc() + 1, 0);
+        node.emit(program);
+        program.add(JUMP, split, 0);
+        program.targets.set(split, program.pc());
+      } else {
+        final List<Integer> splits = new ArrayList<>();
+        for (int i = min; i < max; i++) {
+          splits.add(program.add(SPLIT, program.pc() + 1, 0));
+          node.emit(program);
+        }
+        for (int split : splits) {
+          program.targets.set(split, program.pc());
+        }
+      }
+    };
+  }
+
+  private static final class Parser {
+
+    final String pattern;
+    int position;
+
+    Parser(String pattern) {
+      this.pattern = pattern;
+    }
+
+    UnsupportedOperationException unsupported() {
+      return new UnsupportedOperationException("The pattern \"" + pattern + "\" cannot be matched in linear time, at index " + position);
+    }
+
+    boolean more() {
+      return position < pattern.length();
+    }
+
+    int peek() {
+      return pattern.codePointAt(position);
+    }
+
+    int next() {
+      final int c = pattern.codePointAt(position);
+      position += Character.charCount(c);
+      return c;
+    }
+
+    boolean accept(char c) {
+      if (more() && pattern.charAt(position) == c) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    Node alternatives() {
+      final List<Node> nodes = new ArrayList<>();
+      nodes.add(sequence());
+      while (accept('|')) {
+        nodes.add(sequence());
+      }
+      return LinearRegex.alternatives(nodes);
+    }
+
+    Node sequence() {
+      final List<Node> nodes = new ArrayList<>();
+      while (more() && peek() != '|' && peek() != ')') {
+        nodes.add(quantified(term()));
+      }
+      return LinearRegex.sequence(nodes);
+    }
+
+    Node quantified(Node node) {
+      final int min;
+      final int max;
+      if (accept('*')) {
+        min = 0;
+        max = -1;
+      } else if (accept('+')) {
+        min = 1;
+        max = -1;
+      } else if (accept('?')) {
+        min = 0;
+        max = 1;
+      } else if (accept('{')) {
+        min = number();
+        if (accept(',')) {
+          max = more() && peek() == '}' ? -1 : number();
+        } else {
+          max = min;
+        }
+        if (!accept('}')) {
+          throw unsupported();
+        }
+      } else {
+        return node;
+      }
+      // lazy quantifiers match the same inputs
+      accept('?');
+      if (more() && peek() == '+') {
+        // possessive
+        throw unsupported();
+      }
+      if (max != -1 && max < min || Math.max(min, max) > MAX_PROGRAM_SIZE) {
+        throw unsupported();
+      }
+      return repeat(node, min, max);
+    }
+
+    int number() {
+      final int start = position;
+      while (more() && peek() >= '0' && peek() <= '9' && position - start < 9) {
+        position++;
+      }
+      if (start == position) {
+        throw unsupported();
+      }
+      return Integer.parseInt(pattern.substring(start, position));
+    }
+
+    Node term() {
+      final int c = next();
+      switch (c) {
+        case '(':
+          if (accept('?')) {
+            if (accept(':')) {
+              // non capturing
+            } else if (accept('<') && more() && Character.isLetter(peek())) {
+              // named group
+              while (more() && peek() != '>') {
+                position++;
+              }
+              accept('>');
+            } else {
+              // look arounds, inline flags, atomic groups
+              throw unsupported();
+            }
+          }
+          final Node group = alternatives();
+          if (!accept(')')) {
+            throw unsupported();
+          }
+          return group;
+        case '[':
+          return characterClass();
+        case '.':
+          return instruction(ANY, 0, 0);
+        case '^':
+          return instruction(BEGIN, 0, 0);
+        case '$':
+          return instruction(END, 0, 0);
+        case '\\':
+          return escape();
+        case '*':
+        case '+':
+        case '?':
+        case '{':
+          throw unsupported();
+        default:
+          return instruction(CHAR, c, 0);
+      }
+    }
+
+    Node escape() {
+      if (!more()) {
+        throw unsupported();
+      }
+      final int c = peek();
+      switch (c) {
+        case 'b':
+          position++;
+          return instruction(WORD_BOUNDARY, 0, 0);
+        case 'B':
+          position++;
+          return instruction(NOT_WORD_BOUNDARY, 0, 0);
+        default:
+          final int[] shorthand = shorthand();
+          if (shorthand != null) {
+            return ranges(shorthand, false);
+          }
+          return instruction(CHAR, escapedCharacter(), 0);
+      }
+    }
+
+    /**
+     * @return the ranges of a {@code \d \D \w \W \s \S \v} shorthand, or {@code null} when the escape is not one
+     */
+    int[] shorthand() {
+      final int[] ranges;
+      switch (peek()) {
+        case 'd':
+          ranges = DIGIT;
+          break;
+        case 'D':
+          ranges = complement(DIGIT);
+          break;
+        case 'w':
+          ranges = WORD;
+          break;
+        case 'W':
+          ranges = complement(WORD);
+          break;
+        case 's':
+          ranges = SPACE;
+          break;
+        case 'S':
+          ranges = complement(SPACE);
+          break;
+        case 'v':
+          ranges = VERTICAL;
+          break;
+        default:
+          return null;
+      }
+      position++;
+      return ranges;
+    }
+
+    int escapedCharacter() {
+      final int c = next();
+      switch (c) {
+        case 't':
+          return '\t';
+        case 'n':
+          return '\n';
+        case 'r':
+          return '\r';
+        case 'f':
+          return '\f';
+        case 'a':
+          return 0x07;
+        case 'e':
+          return 0x1B;
+        case 'c':
+          return next() ^ 64;
+        case 'x':
+          if (accept('{')) {
+            final int start = position;
+            while (more() && peek() != '}') {
+              position++;
+            }
+            final int value = hex(start, position);
+            accept('}');
+            return value;
+          }
+          position += 2;
+          return hex(position - 2, position);
+        case 'u':
+          position += 4;
+          return hex(position - 4, position);
+        default:
+          if (c < 128 && Character.isLetterOrDigit(c)) {
+            // back references, octal escapes, unicode properties, quotes and other extensions
+            position -= 1;
+            throw unsupported();
+          }
+          return c;
+      }
+    }
+
+    int hex(int start, int end) {
+      try {
+        return Integer.parseInt(pattern.substring(start, end), 16);
+      } catch (RuntimeException e) {
+        throw unsupported();
+      }
+    }
+
+    Node characterClass() {
+      final boolean negated = accept('^');
+      final List<int[]> ranges = new ArrayList<>();
+      boolean first = true;
+      while (true) {
+        if (!more()) {
+          throw unsupported();
+        }
+        final int c = peek();
+        if (c == ']' && !first) {
+          position++;
+          break;
+        }
+        if (c == '[' || c == ']' || pattern.startsWith("&&", position)) {
+          // nested classes, intersections
+          throw unsupported();
+        }
+        first = false;
+        if (c == '\\') {
+          position++;
+          if (!more()) {
+            throw unsupported();
+          }
+          final int[] shorthand = shorthand();
+          if (shorthand != null) {
+            ranges.add(shorthand);
+            continue;
+          }
+          if (peek() == 'b') {
+            throw unsupported();
+          }
+        }
+        final int low = c == '\\' ? escapedCharacter() : next();
+        if (more() && peek() == '-' && position + 1 < pattern.length() && pattern.charAt(position + 1) != ']') {
+          position++;
+          final int end = next();
+          final int high;
+          if (end == '\\') {
+            if (shorthand() != null) {
+              throw unsupported();
+            }
+            high = escapedCharacter();
+          } else if (end == '[') {
+            throw unsupported();
+          } else {
+            high = end;
+          }
+          if (high < low) {
+            throw unsupported();
+          }
+          ranges.add(new int[]{low, high});
+        } else {
+          ranges.add(new int[]{low, low});
+        }
+      }
+      return LinearRegex.ranges(union(ranges), negated);
+    }
+  }
+
+  /**
+   * @return the sorted and merged union of ranges
+   */
+  private static int[] union(List<int[]> sets) {
+    final List<int[]> ranges = new ArrayList<>();
+    for (int[] set : sets) {
+      for (int i = 0; i < set.length; i += 2) {
+        ranges.add(new int[]{set[i], set[i + 1]});
+      }
+    }
+    ranges.sort((a, b) -> Integer.compare(a[0], b[0]));
+    final int[] merged = new int[ranges.size() * 2];
+    int size = 0;
+    for (int[] range : ranges) {
+      if (size > 0 && range[0] <= merged[size - 1] + 1) {
+        merged[size - 1] = Math.max(merged[size - 1], range[1]);
+      } else {
+        merged[size++] = range[0];
+        merged[size++] = range[1];
+      }
+    }
+    return Arrays.copyOf(merged, size);
+  }
+
+  private static int[] complement(int[] ranges) {
+    final int[] complement = new int[ranges.length + 2];
+    int size = 0;
+    int low = 0;
+    for (int i = 0; i < ranges.length; i += 2) {
+      if (ranges[i] > low) {
+        complement[size++] = low;
+        complement[size++] = ranges[i] - 1;
+      }
+      low = ranges[i + 1] + 1;
+    }
+    if (low <= Character.MAX_CODE_POINT) {
+      complement[size++] = low;
+      complement[size++] = Character.MAX_CODE_POINT;
+    }
+    return Arrays.copyOf(complement, size);
+  }
+}
@@ -0,0 +1,120 @@
+package io.vertx.json.schema.impl;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.Draft;
+import io.vertx.json.schema.JsonSchema;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.vertx.json.schema.impl.SchemaRepositoryImpl.*;
+
+/**
+ * Holder of the dereferenced meta schemas. Meta schemas never change, so they are read from the classpath and
+ * dereferenced once per JVM into a template lookup table per draft.
+ * <p>
+ * The template is never validated against: schema nodes hold per validation state, e.g. wrapped sub schemas, keyword
+ * statistics and compiled patterns depending on the validator options, so each repository gets its own copy of the
+ * template, which is much cheaper than reading and dereferencing the files again.
+ */
+final class MetaSchemas {
+
+  private static final Map<Draft, Map<String, JsonSchema>> CACHE = new ConcurrentHashMap<>();
+
+  private MetaSchemas() {
+  }
+
+  /**
+   * Get the dereferenced meta schemas of a draft, loading them on first use.
+   *
+   * @param draft the draft
+   * @return a lookup table owned by the caller
+   */
+  static Map<String, JsonSchema> lookup(Draft draft) {
+    Objects.requireNonNull(draft, "'draft' cannot be null");
+    final Map<String, JsonSchema> template = CACHE.computeIfAbsent(draft, MetaSchemas::load);
+    // the nodes reachable from several entries stay shared in the copy
+    final Map<Object, Object> copies = new IdentityHashMap<>();
+    final Map<String, JsonSchema> lookup = new HashMap<>();
+    template.forEach((uri, schema) -> lookup.put(uri, (JsonSchema) copy(schema, copies)));
+    return lookup;
+  }
+
+  static List<String> ids(Draft draft) {
+    switch (draft) {
+      case DRAFT4:
+        return DRAFT_4_META_FILES;
+      case DRAFT7:
+        return DRAFT_7_META_FILES;
+      case DRAFT201909:
+        return DRAFT_201909_META_FILES;
+      case DRAFT202012:
+        return DRAFT_202012_META_FILES;
+      default:
+        throw new IllegalStateException();
+    }
+  }
+
+  private static Map<String, JsonSchema> load(Draft draft) {
+    final Map<String, JsonSchema> lookup = new HashMap<>();
+    for (String id : ids(draft)) {
+      // read files from classpath
+      final JsonSchema schema = JsonSchema.of(read(id.substring(id.indexOf("://") + 3)));
+      // try to extract the '$id' from the schema itself, fallback to old field 'id' and if not present to the given url
+      dereference(lookup, schema, new URL(schema.get("$id", schema.get("id", id))), "", true);
+    }
+    return Collections.unmodifiableMap(lookup);
+  }
+
+  private static Object copy(Object value, Map<Object, Object> copies) {
+    if (value instanceof JsonObject) {
+      Object copy = copies.get(value);
+      if (copy == null) {
+        final JsonObject object = new JsonObject(new LinkedHashMap<>(((JsonObject) value).size()));
+        for (Map.Entry<String, Object> entry : ((JsonObject) value).getMap().entrySet()) {
+          object.put(entry.getKey(), copy(entry.getValue(), copies));
+        }
+        // a schema is wrapped once complete, so it inherits its annotations
+        copy = value instanceof JsonObjectSchema ? new JsonObjectSchema(object) : object;
+        copies.put(value, copy);
+      }
+      return copy;
+    }
+    if (value instanceof JsonArray) {
+      Object copy = copies.get(value);
+      if (copy == null) {
+        final JsonArray array = new JsonArray(new ArrayList<>(((JsonArray) value).size()));
+        for (Object item : ((JsonArray) value).getList()) {
+          array.add(copy(item, copies));
+        }
+        copies.put(value, copy = array);
+      }
+      return copy;
+    }
+    // strings, numbers, booleans and the boolean schemas are immutable
+    return value;
+  }
+
+  private static JsonObject read(String path) {
+    InputStream in = MetaSchemas.class.getResourceAsStream("/" + path);
+    if (in == null) {
+      final ClassLoader tccl = Thread.currentThread().getContextClassLoader();
+      if (tccl != null) {
+        in = tccl.getResourceAsStream(path);
+      }
+    }
+    if (in == null) {
+      throw new IllegalStateException("Meta schema not found in the classpath: " + path);
+    }
+    try (InputStream stream = in) {
+      return new JsonObject(Buffer.buffer(stream.readAllBytes()));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
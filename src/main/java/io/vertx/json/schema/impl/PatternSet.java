@@ -0,0 +1,175 @@
+package io.vertx.json.schema.impl;
+
+import java.util.*;
+
+/**
+ * A set of regular expressions matched together against a string, telling which of them {@code find} a match.
+ * <p>
+ * Most {@code patternProperties} are anchored literals, such as {@code ^x-}, or start with one, such as
+ * {@code ^x-[a-z]+$}. Their literal prefixes are stored in a trie, walked once along the string: a pattern made of its
+ * prefix only matches when its prefix is reached, the other patterns are only run when their prefix is reached.
+ * Unanchored literals are searched with {@link String#contains}, the remaining patterns are always run.
+ * <p>
+ * The regular expressions are all compiled, so an invalid pattern is reported even when its regex is never run.
+ */
+final class PatternSet {
+
+  private static final int[] NONE = new int[0];
+  private static final String META = "\\^$.|?*+()[]{}";
+
+  private static final class Trie {
+    final Map<Character, Trie> children = new HashMap<>();
+    int[] matched = NONE;
+    int[] candidates = NONE;
+  }
+
+  private final Regex[] regexes;
+  private final Trie prefixes = new Trie();
+  private final int[] literals;
+  private final String[] literalValues;
+  private final int[] others;
+
+  /**
+   * @param linear   {@code true} to run the patterns in linear time
+   * @param maxSteps the budget of the backtracking patterns, {@code 0} for no limit
+   */
+  PatternSet(String[] patterns, boolean linear, int maxSteps) {
+    regexes = new Regex[patterns.length];
+    final List<Integer> literalList = new ArrayList<>();
+    final List<Integer> otherList = new ArrayList<>();
+    literalValues = new String[patterns.length];
+    for (int i = 0; i < patterns.length; i++) {
+      regexes[i] = Regex.compile(patterns[i], linear, maxSteps);
+      final String pattern = patterns[i];
+      if (pattern.indexOf('|') != -1) {
+        // an alternative can match anywhere
+        otherList.add(i);
+        continue;
+      }
+      if (pattern.startsWith("^")) {
+        final StringBuilder prefix = new StringBuilder();
+        final int end = literal(pattern, 1, prefix);
+        if (prefix.length() == 0) {
+          otherList.add(i);
+        } else {
+          final Trie node = node(prefix);
+          if (end == pattern.length()) {
+            node.matched = add(node.matched, i);
+          } else {
+            node.candidates = add(node.candidates, i);
+          }
+        }
+      } else {
+        final StringBuilder literal = new StringBuilder();
+        if (literal(pattern, 0, literal) == pattern.length() && literal.length() > 0) {
+          literalList.add(i);
+          literalValues[i] = literal.toString();
+        } else {
+          otherList.add(i);
+        }
+      }
+    }
+    literals = literalList.stream().mapToInt(Integer::intValue).toArray();
+    others = otherList.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * @return the number of patterns
+   */
+  int size() {
+    return regexes.length;
+  }
+
+  /**
+   * @return the indexes, in order, of the patterns finding a match in the string
+   * @throws Regex.Aborted when the match of a pattern exceeds its budget, with the index of that pattern
+   */
+  int[] matches(String string) {
+    int[] indexes = NONE;
+    Trie node = prefixes;
+    for (int i = 0; ; i++) {
+      for (int index : node.matched) {
+        indexes = add(indexes, index);
+      }
+      for (int index : node.candidates) {
+        if (find(index, string)) {
+          indexes = add(indexes, index);
+        }
+      }
+      if (i == string.length() || (node = node.children.get(string.charAt(i))) == null) {
+        break;
+      }
+    }
+    for (int index : literals) {
+      if (string.contains(literalValues[index])) {
+        indexes = add(indexes, index);
+      }
+    }
+    for (int index : others) {
+      if (find(index, string)) {
+        indexes = add(indexes, index);
+      }
+    }
+    if (indexes.length > 1) {
+      Arrays.sort(indexes);
+    }
+    return indexes;
+  }
+
+  private boolean find(int index, String string) {
+    try {
+      return regexes[index].find(string);
+    } catch (Regex.Aborted e) {
+      throw new Regex.Aborted(index);
+    }
+  }
+
+  private Trie node(CharSequence prefix) {
+    Trie node = prefixes;
+    for (int i = 0; i < prefix.length(); i++) {
+      node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Trie());
+    }
+    return node;
+  }
+
+  /**
+   * Read the literal characters of a pattern, up to the first construct that is not a literal character.
+   *
+   * @return the index of that construct, the characters before it are appended to the literal
+   */
+  private static int literal(String pattern, int start, StringBuilder literal) {
+    int i = start;
+    while (i < pattern.length()) {
+      final char c = pattern.charAt(i);
+      final int length;
+      final char value;
+      if (c == '\\') {
+        // an escaped punctuation character is itself, a letter or a digit escapes a class or a back reference
+        if (i + 1 == pattern.length() || Character.isLetterOrDigit(pattern.charAt(i + 1))) {
+          break;
+        }
+        value = pattern.charAt(i + 1);
+        length = 2;
+      } else if (META.indexOf(c) != -1 || Character.isSurrogate(c)) {
+        break;
+      } else {
+        value = c;
+        length = 1;
+      }
+      final int next = i + length;
+      if (next < pattern.length() && "?*+{".indexOf(pattern.charAt(next)) != -1) {
+        // the quantified character is not always there
+        break;
+      }
+      literal.append(value);
+      i = next;
+    }
+    return i;
+  }
+
+  private static int[] add(int[] indexes, int index) {
+    final int[] copy = Arrays.copyOf(indexes, indexes.length + 1);
+    copy[indexes.length] = index;
+    return copy;
+  }
+}
@@ -0,0 +1,143 @@
+package io.vertx.json.schema.impl;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.*;
+
+/**
+ * Classifies the property names of an object instance against the {@code properties} and {@code patternProperties}
+ * of a schema node, which tells which sub schemas apply to each property, and whether {@code additionalProperties}
+ * does.
+ * <p>
+ * The patterns are compiled once per node, instead of once per validation, into a {@link PatternSet} classifying
+ * each property name against all of them in a single pass. As instances of a schema mostly share the same property
+ * names, the patterns matching a name are remembered, so that a known name is classified by a single lookup. As the
+ * names come from the instances, possibly untrusted, only the names of up to {@link #MAX_KEY_LENGTH} characters are
+ * remembered, in a fixed table of {@link #CACHE_SIZE} slots indexed by the hash of the name, where a name replaces
+ * the one in its slot. The table is shared by all the validations of the node without locking: the entries are
+ * immutable, so a racing read sees either the previous or the new entry of a slot.
+ */
+final class PropertyDispatch {
+
+  // a power of two
+  static final int CACHE_SIZE = 1024;
+  static final int MAX_KEY_LENGTH = 64;
+
+  private static final int[] NONE = new int[0];
+
+  private final Set<String> declared;
+  private final String[] patterns;
+  private final boolean linear;
+  private final int maxSteps;
+  private final PatternSet regexes;
+  private final Match[] matches;
+
+  /**
+   * @throws UnsupportedOperationException when a pattern cannot be matched in linear time
+   */
+  PropertyDispatch(Set<String> declared, String[] patterns, boolean linear, int maxSteps) {
+    this.declared = declared;
+    this.patterns = patterns;
+    this.linear = linear;
+    this.maxSteps = maxSteps;
+    this.regexes = new PatternSet(patterns, linear, maxSteps);
+    this.matches = patterns.length == 0 ? null : new Match[CACHE_SIZE];
+  }
+
+  /**
+   * @param schema the schema node, holding the {@code properties} and {@code patternProperties} keywords
+   * @param linear   {@code true} to match the patterns in linear time
+   * @param maxSteps the budget of the backtracking patterns, {@code 0} for no limit
+   */
+  static PropertyDispatch of(JsonObject schema, boolean linear, int maxSteps) {
+    final Object properties = schema.getValue("properties");
+    final Object patternProperties = schema.getValue("patternProperties");
+    return new PropertyDispatch(
+      properties instanceof JsonObject ? new HashSet<>(((JsonObject) properties).fieldNames()) : Collections.emptySet(),
+      patternProperties instanceof JsonObject ? ((JsonObject) patternProperties).fieldNames().toArray(new String[0]) : new String[0],
+      linear,
+      maxSteps);
+  }
+
+  /**
+   * @return {@code true} when this dispatch was created with these options
+   */
+  boolean isFor(boolean linear, int maxSteps) {
+    return this.linear == linear && this.maxSteps == maxSteps;
+  }
+
+  /**
+   * @return the patterns, in the order of the schema
+   */
+  String[] patterns() {
+    return patterns;
+  }
+
+  /**
+   * @return {@code true} when the name is one of the {@code properties}
+   */
+  boolean declared(String key) {
+    return declared.contains(key);
+  }
+
+  /**
+   * @return the indexes, in order, of the patterns the name matches
+   * @throws Regex.Aborted when the match of a pattern exceeds its budget
+   */
+  int[] matches(String key) {
+    if (regexes.size() == 0) {
+      return NONE;
+    }
+    if (key.length() > MAX_KEY_LENGTH) {
+      return regexes.matches(key);
+    }
+    final int h = key.hashCode();
+    final int slot = (h ^ (h >>> 16)) & (CACHE_SIZE - 1);
+    final Match match = matches[slot];
+    if (match != null && match.key.equals(key)) {
+      return match.indexes;
+    }
+    final int[] indexes = regexes.matches(key);
+    // racy but idempotent
+    matches[slot] = new Match(key, indexes);
+    return indexes;
+  }
+
+  /**
+   * Classify the property names of an instance in one pass.
+   *
+   * @param aborted collects the names whose classification exceeded the budget of a pattern, with that pattern, or
+   *                {@code null} when no pattern has a budget
+   * @return for each pattern, in order, the names matching it in the order of the instance, or {@code null} when none
+   * does
+   */
+  List<String>[] byPattern(Set<String> keys, Map<String, Integer> aborted) {
+    @SuppressWarnings("unchecked") final List<String>[] byPattern = (List<String>[]) new List<?>[patterns.length];
+    for (String key : keys) {
+      final int[] matches;
+      try {
+        matches = matches(key);
+      } catch (Regex.Aborted e) {
+        aborted.put(key, e.index);
+        continue;
+      }
+      for (int index : matches) {
+        if (byPattern[index] == null) {
+          byPattern[index] = new ArrayList<>();
+        }
+        byPattern[index].add(key);
+      }
+    }
+    return byPattern;
+  }
+
+  private static final class Match {
+    final String key;
+    final int[] indexes;
+
+    Match(String key, int[] indexes) {
+      this.key = key;
+      this.indexes = indexes;
+    }
+  }
+}
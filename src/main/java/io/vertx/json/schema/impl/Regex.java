@@ -0,0 +1,396 @@
+package io.vertx.json.schema.impl;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled {@code pattern} or {@code patternProperties} regular expression, matched with {@code java.util.regex},
+ * or in linear time by a {@link LinearRegex} when untrusted schemas must not be able to make a match backtrack.
+ * <p>
+ * With {@code java.util.regex}, the patterns whose shape can backtrack catastrophically, i.e. quantified groups
+ * containing an unbounded quantifier, as in {@code (a+)+}, or alternatives starting alike, as in {@code (a|ab)*}, can
+ * be given a budget of character reads: their matches are {@link Aborted} once the budget is spent.
+ */
+abstract class Regex {
+
+  /**
+   * A match that was aborted as it exceeded its budget, the instance is then considered invalid.
+   */
+  static final class Aborted extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    // the index of the pattern in its set, -1 for a single pattern
+    final int index;
+
+    Aborted(int index) {
+      super("The pattern match exceeded its budget", null, false, false);
+      this.index = index;
+    }
+  }
+
+  private final boolean linear;
+  private final int maxSteps;
+
+  Regex(boolean linear, int maxSteps) {
+    this.linear = linear;
+    this.maxSteps = maxSteps;
+  }
+
+  /**
+   * @param pattern  the regular expression
+   * @param linear   {@code true} to match in linear time
+   * @param maxSteps the number of characters a match of a backtracking pattern can read, {@code 0} for no limit
+   * @throws java.util.regex.PatternSyntaxException when the pattern is not valid
+   * @throws UnsupportedOperationException          when the pattern cannot be matched in linear time
+   */
+  static Regex compile(String pattern, boolean linear, int maxSteps) {
+    final Pattern regex = Pattern.compile(pattern);
+    if (linear) {
+      return LinearRegex.compile(pattern);
+    }
+    if (maxSteps > 0 && backtracks(pattern)) {
+      return new Budgeted(regex, maxSteps);
+    }
+    return new Regex(false, maxSteps) {
+      @Override
+      boolean find(CharSequence input) {
+        return regex.matcher(input).find();
+      }
+    };
+  }
+
+  /**
+   * @return {@code true} when this regex was compiled with these options
+   */
+  boolean isFor(boolean linear, int maxSteps) {
+    // linear matches are never budgeted
+    return this.linear == linear && (linear || this.maxSteps == maxSteps);
+  }
+
+  /**
+   * @return {@code true} when the matches can be {@link Aborted}
+   */
+  boolean budgeted() {
+    return false;
+  }
+
+  /**
+   * @return {@code true} when the regular expression matches somewhere in the input
+   * @throws Aborted when the match exceeds its budget
+   */
+  abstract boolean find(CharSequence input);
+
+  private static final class Budgeted extends Regex {
+
+    private final Pattern pattern;
+    private final int budget;
+
+    Budgeted(Pattern pattern, int budget) {
+      super(false, budget);
+      this.pattern = pattern;
+      this.budget = budget;
+    }
+
+    @Override
+    boolean budgeted() {
+      return true;
+    }
+
+    @Override
+    boolean find(CharSequence input) {
+      return pattern.matcher(new Steps(input, budget)).find();
+    }
+  }
+
+  /**
+   * A char sequence aborting the match reading it after a number of character reads.
+   */
+  private static final class Steps implements CharSequence {
+
+    private final CharSequence input;
+    private int remaining;
+
+    Steps(CharSequence input, int remaining) {
+      this.input = input;
+      this.remaining = remaining;
+    }
+
+    @Override
+    public int length() {
+      return input.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (--remaining < 0) {
+        throw new Aborted(-1);
+      }
+      return input.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return input.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+      return input.toString();
+    }
+  }
+
+  /**
+   * Tell whether a pattern has a shape known to backtrack catastrophically: a group repeated more than once,
+   * containing an unbounded quantifier, e.g. {@code (a+)+} or {@code (.*a){12}}, or alternatives that can start with
+   * the same character, e.g. {@code (a|ab)*}, or adjacent unbounded quantifiers over atoms that can match the same
+   * character, possibly separated by optional atoms, e.g. {@code \s*\s*$}. The analysis is structural, it flags some patterns that
+   * {@code java.util.regex} matches in polynomial time, which are budgeted all the same.
+   */
+  static boolean backtracks(String pattern) {
+    final Deque<Group> groups = new ArrayDeque<>();
+    Group current = new Group();
+    int i = 0;
+    while (i < pattern.length()) {
+      final char c = pattern.charAt(i);
+      switch (c) {
+        case '\\': {
+          final int end = Math.min(i + 2, pattern.length());
+          i = atom(current, pattern.substring(i, end), pattern, end);
+          break;
+        }
+        case '[': {
+          final int start = i++;
+          if (i < pattern.length() && pattern.charAt(i) == '^') {
+            i++;
+          }
+          if (i < pattern.length() && pattern.charAt(i) == ']') {
+            i++;
+          }
+          int depth = 1;
+          while (i < pattern.length() && depth > 0) {
+            final char d = pattern.charAt(i);
+            if (d == '\\') {
+              i++;
+            } else if (d == '[') {
+              depth++;
+            } else if (d == ']') {
+              depth--;
+            }
+            i++;
+          }
+          i = atom(current, pattern.substring(start, i), pattern, i);
+          break;
+        }
+        case '(':
+          groups.push(current);
+          current = new Group();
+          i++;
+          if (i < pattern.length() && pattern.charAt(i) == '?') {
+            // skip the group modifiers
+            while (i < pattern.length() && ":)>=!".indexOf(pattern.charAt(i)) == -1) {
+              i++;
+            }
+            if (i < pattern.length() && pattern.charAt(i) == ')') {
+              // a modifier applying to the rest of the enclosing group, e.g. (?i), is not a group
+              current = groups.pop();
+            }
+            i++;
+          }
+          break;
+        case ')': {
+          final Group group = current;
+          current = groups.isEmpty() ? new Group() : groups.pop();
+          i++;
+          final int end = quantifier(pattern, i);
+          if (end > i && repeats(pattern, i)) {
+            if (group.unbounded || group.overlapping()) {
+              return true;
+            }
+            current.unbounded |= unbounded(pattern, i);
+          }
+          // the group can also make its enclosing group backtrack
+          current.unbounded |= group.unbounded;
+          current.first(end == i || pattern.charAt(i) == '+' ? group.first() : null);
+          current.lastUnbounded = null;
+          i = end;
+          break;
+        }
+        case '|':
+          current.alternatives.add("");
+          current.lastUnbounded = null;
+          i++;
+          break;
+        default:
+          i = atom(current, String.valueOf(c), pattern, i + 1);
+      }
+      if (current.adjacent) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Record an atom of the pattern and its quantifier.
+   *
+   * @return the index following the quantifier
+   */
+  private static int atom(Group group, String atom, String pattern, int i) {
+    final int end = quantifier(pattern, i);
+    if (end > i) {
+      if (unbounded(pattern, i)) {
+        group.unbounded = true;
+        // both quantifiers can take any share of a run of the characters they match
+        group.adjacent |= group.lastUnbounded != null && overlap(group.lastUnbounded, atom);
+        group.lastUnbounded = atom;
+      } else if (!optional(pattern, i)) {
+        group.lastUnbounded = null;
+      }
+      // an optional atom is not always the first one
+      group.first(pattern.charAt(i) == '+' ? atom : null);
+    } else {
+      group.lastUnbounded = null;
+      group.first(atom);
+    }
+    return end;
+  }
+
+  private static final class Group {
+    boolean unbounded;
+    // the last atom with an unbounded quantifier, until a mandatory atom follows it
+    String lastUnbounded;
+    // adjacent unbounded quantifiers over the same characters
+    boolean adjacent;
+    // the first atom of each alternative, null when it cannot be told
+    final List<String> alternatives = new ArrayList<>(Collections.singletonList(""));
+
+    void first(String atom) {
+      final int last = alternatives.size() - 1;
+      if ("".equals(alternatives.get(last))) {
+        alternatives.set(last, atom);
+      }
+    }
+
+    String first() {
+      final String atom = alternatives.get(0);
+      return alternatives.size() == 1 && atom != null && !atom.isEmpty() ? atom : null;
+    }
+
+    boolean overlapping() {
+      if (alternatives.size() < 2) {
+        return false;
+      }
+      final Set<String> firsts = new HashSet<>();
+      for (String atom : alternatives) {
+        if (atom == null || atom.isEmpty() || wide(atom) || !firsts.add(atom)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * @return {@code true} when the atom is a class, a shorthand or a wildcard, which can overlap anything
+   */
+  private static boolean wide(String atom) {
+    return atom.startsWith("[") || atom.equals(".") || atom.startsWith("\\") && Character.isLetter(atom.charAt(atom.length() - 1));
+  }
+
+  /**
+   * @return {@code true} when the atoms can match the same character
+   */
+  private static boolean overlap(String a, String b) {
+    return wide(a) || wide(b) || a.equals(b);
+  }
+
+  /**
+   * @return the index following the quantifier at {@code i}, or {@code i} when there is none
+   */
+  private static int quantifier(String pattern, int i) {
+    if (i >= pattern.length()) {
+      return i;
+    }
+    int end;
+    switch (pattern.charAt(i)) {
+      case '*':
+      case '+':
+      case '?':
+        end = i + 1;
+        break;
+      case '{':
+        end = pattern.indexOf('}', i);
+        if (end == -1) {
+          return i;
+        }
+        end++;
+        break;
+      default:
+        return i;
+    }
+    // lazy or possessive
+    if (end < pattern.length() && (pattern.charAt(end) == '?' || pattern.charAt(end) == '+')) {
+      end++;
+    }
+    return end;
+  }
+
+  /**
+   * @return {@code true} when the quantifier at {@code i} repeats more than once, e.g. {@code {12}}
+   */
+  private static boolean repeats(String pattern, int i) {
+    if (pattern.charAt(i) == '{') {
+      final String bounds = pattern.substring(i + 1, pattern.indexOf('}', i));
+      final int comma = bounds.indexOf(',');
+      try {
+        return Integer.parseInt((comma == -1 ? bounds : bounds.substring(comma + 1)).trim()) > 1;
+      } catch (NumberFormatException e) {
+        return true;
+      }
+    }
+    return unbounded(pattern, i);
+  }
+
+  /**
+   * @return {@code true} when the quantifier at {@code i} can match nothing
+   */
+  private static boolean optional(String pattern, int i) {
+    switch (pattern.charAt(i)) {
+      case '*':
+      case '?':
+        return true;
+      case '{':
+        final String bounds = pattern.substring(i + 1, pattern.indexOf('}', i));
+        final int comma = bounds.indexOf(',');
+        return (comma == -1 ? bounds : bounds.substring(0, comma)).trim().equals("0");
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * @return {@code true} when the quantifier at {@code i} can repeat a variable number of times, more than once
+   */
+  private static boolean unbounded(String pattern, int i) {
+    switch (pattern.charAt(i)) {
+      case '*':
+      case '+':
+        return true;
+      case '{':
+        final String bounds = pattern.substring(i + 1, pattern.indexOf('}', i));
+        final int comma = bounds.indexOf(',');
+        if (comma == -1) {
+          return false;
+        }
+        final String max = bounds.substring(comma + 1).trim();
+        try {
+          return max.isEmpty() || Integer.parseInt(max) > 1;
+        } catch (NumberFormatException e) {
+          return true;
+        }
+      default:
+        return false;
+    }
+  }
+}
@@ -0,0 +1,275 @@
+package io.vertx.json.schema.impl;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.JsonSchema;
+import io.vertx.json.schema.OutputUnit;
+
+import java.util.*;
+
+/**
+ * Bounded (LRU) cache of the results of sub validations, keyed by the schema node and the instance.
+ * <p>
+ * Only context free schemas are cached: schemas whose result depends on nothing but the instance. Schemas using, even
+ * through references, {@code unevaluatedProperties}, {@code unevaluatedItems}, {@code $dynamicRef} or
+ * {@code $recursiveRef} depend on the validation path and are never cached. Only results without errors nor
+ * annotations are cached, as those carry the locations of the instance they were computed for.
+ * <p>
+ * Only small instances are cached: the structural hash of an instance is computed in a single walk that gives up once
+ * the instance weighs more than {@link #MAX_WEIGHT} (one per value, plus the length of the strings), so a key costs a
+ * bounded amount of work whatever the size of the instance. The instance itself is only compared on a hash hit, and
+ * the cache keeps its own copy of the small instances it stores. Integers and decimals are different values, e.g.
+ * {@code 1} and {@code 1.0} are different instances, as they are for some drafts.
+ * <p>
+ * The entries are spread over independent LRU stripes, each with its own lock, so concurrent validations rarely
+ * contend. A small cache is a single stripe, as the entries of tiny stripes would evict each other.
+ */
+final class ResultCache {
+
+  // upper bound of the weight of a cached instance
+  static final int MAX_WEIGHT = 64;
+  // characters of a string weighing as much as a value
+  private static final int STRING_WEIGHT = 32;
+  private static final int MAX_STRIPES = 16;
+  // a stripe holds the sub schemas of a document along with it, fewer entries would evict each other
+  private static final int MIN_STRIPE_SIZE = 64;
+
+  private final Map<String, JsonSchema> lookup;
+  private final Stripe[] stripes;
+  // copy on write, as it is read by every lookup and only grows up to the number of schema nodes
+  private volatile Map<Object, Boolean> contextFree = new IdentityHashMap<>();
+
+  ResultCache(Map<String, JsonSchema> lookup, int size) {
+    this.lookup = lookup;
+    int count = 1;
+    while (count < MAX_STRIPES && count * 2 * MIN_STRIPE_SIZE <= size) {
+      count *= 2;
+    }
+    this.stripes = new Stripe[count];
+    for (int i = 0; i < count; i++) {
+      // the remainder goes to the first stripes
+      stripes[i] = new Stripe(size / count + (i < size % count ? 1 : 0));
+    }
+  }
+
+  /**
+   * @return the cache key of the validation of the instance against the schema, or {@code null} when the validation
+   * cannot be cached
+   */
+  Object key(JsonSchema schema, Object instance) {
+    if (!(schema instanceof JsonObject)) {
+      // boolean schemas are cheaper than any lookup
+      return null;
+    }
+    final Object identity = ((JsonObject) schema).getMap();
+    Boolean free = contextFree.get(identity);
+    if (free == null) {
+      free = !Utils.Schemas.uses(schema, KeywordKind.PATH_DEPENDENT, lookup);
+      final Map<Object, Boolean> copy = new IdentityHashMap<>(contextFree);
+      copy.put(identity, free);
+      contextFree = copy;
+    }
+    if (!free) {
+      return null;
+    }
+    final Hash hash = new Hash();
+    final int instanceHash = hash.of(instance);
+    if (hash.aborted) {
+      return null;
+    }
+    return new Key(identity, instance, 31 * System.identityHashCode(identity) + instanceHash);
+  }
+
+  OutputUnit get(Object key) {
+    final Key k = (Key) key;
+    final OutputUnit result = stripe(k).get(k);
+    // output units are mutable, never hand out the cached one
+    return result == null ? null : new OutputUnit(result.getValid()).setErrorType(result.getErrorType());
+  }
+
+  void put(Object key, OutputUnit result) {
+    if (result.getErrors() != null || result.getAnnotations() != null) {
+      return;
+    }
+    final Key k = (Key) key;
+    // the validated instance may be modified afterwards, keep a copy of it
+    stripe(k).put(new Key(k.schema, copy(k.instance), k.hash), new OutputUnit(result.getValid()).setErrorType(result.getErrorType()));
+  }
+
+  private Stripe stripe(Key key) {
+    final int h = key.hash ^ (key.hash >>> 16);
+    return stripes[h & (stripes.length - 1)];
+  }
+
+  private static Object copy(Object instance) {
+    if (instance instanceof JsonObject) {
+      return ((JsonObject) instance).copy();
+    }
+    if (instance instanceof JsonArray) {
+      return ((JsonArray) instance).copy();
+    }
+    return instance;
+  }
+
+  /**
+   * Structural equality of the instances the {@link Hash} accepted.
+   */
+  private static boolean same(Object a, Object b) {
+    if (a == b) {
+      return true;
+    }
+    if (a == null || b == null) {
+      return false;
+    }
+    if (a instanceof JsonObject) {
+      if (!(b instanceof JsonObject)) {
+        return false;
+      }
+      final JsonObject x = (JsonObject) a;
+      final JsonObject y = (JsonObject) b;
+      if (x.size() != y.size()) {
+        return false;
+      }
+      for (Map.Entry<String, Object> entry : x) {
+        if (!y.containsKey(entry.getKey()) || !same(entry.getValue(), y.getValue(entry.getKey()))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (a instanceof JsonArray) {
+      if (!(b instanceof JsonArray)) {
+        return false;
+      }
+      final JsonArray x = (JsonArray) a;
+      final JsonArray y = (JsonArray) b;
+      if (x.size() != y.size()) {
+        return false;
+      }
+      for (int i = 0; i < x.size(); i++) {
+        if (!same(x.getValue(i), y.getValue(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (integral(a)) {
+      return integral(b) && ((Number) a).longValue() == ((Number) b).longValue();
+    }
+    if (decimal(a)) {
+      return decimal(b) && Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue()) == 0;
+    }
+    return a.equals(b);
+  }
+
+  private static boolean integral(Object value) {
+    return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+  }
+
+  private static boolean decimal(Object value) {
+    return value instanceof Double || value instanceof Float;
+  }
+
+  /**
+   * Structural hash of an instance, consistent with {@link #same(Object, Object)}. It is aborted when the instance
+   * weighs more than {@link #MAX_WEIGHT}, or holds values other than the JSON types.
+   */
+  private static final class Hash {
+
+    int weight;
+    boolean aborted;
+
+    int of(Object value) {
+      if (aborted || ++weight > MAX_WEIGHT) {
+        aborted = true;
+        return 0;
+      }
+      if (value == null) {
+        return 0x9e3779b9;
+      }
+      if (value instanceof JsonObject) {
+        int h = 1;
+        for (Map.Entry<String, Object> entry : (JsonObject) value) {
+          weight += entry.getKey().length() / STRING_WEIGHT;
+          // the order of the members does not matter
+          h += entry.getKey().hashCode() ^ (31 * of(entry.getValue()));
+        }
+        return 17 * h + 3;
+      }
+      if (value instanceof JsonArray) {
+        int h = 7;
+        for (Object item : (JsonArray) value) {
+          h = 31 * h + of(item);
+        }
+        return h;
+      }
+      if (value instanceof String) {
+        weight += ((String) value).length() / STRING_WEIGHT;
+        return value.hashCode();
+      }
+      if (value instanceof Boolean) {
+        return value.hashCode();
+      }
+      if (integral(value)) {
+        return 3 * Long.hashCode(((Number) value).longValue()) + 1;
+      }
+      if (decimal(value)) {
+        return 3 * Double.hashCode(((Number) value).doubleValue()) + 2;
+      }
+      // big numbers, binary data...
+      aborted = true;
+      return 0;
+    }
+  }
+
+  private static final class Stripe {
+
+    private final Map<Key, OutputUnit> results;
+
+    Stripe(int size) {
+      this.results = new LinkedHashMap<Key, OutputUnit>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, OutputUnit> eldest) {
+          return size() > size;
+        }
+      };
+    }
+
+    synchronized OutputUnit get(Key key) {
+      return results.get(key);
+    }
+
+    synchronized void put(Key key, OutputUnit result) {
+      results.put(key, result);
+    }
+  }
+
+  private static final class Key {
+    final Object schema;
+    final Object instance;
+    final int hash;
+
+    Key(Object schema, Object instance, int hash) {
+      this.schema = schema;
+      this.instance = instance;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) o;
+      return hash == other.hash && schema == other.schema && same(instance, other.instance);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
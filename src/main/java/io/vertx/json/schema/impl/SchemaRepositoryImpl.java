@@ -1,71 +1,24 @@
 package io.vertx.json.schema.impl;
 
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.file.FileSystem;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.json.schema.*;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 public class SchemaRepositoryImpl implements SchemaRepository {
 
-  private static final List<String> IGNORE_KEYWORD = Arrays.asList(
-    "id",
-    "$id",
-    "$ref",
-    "$schema",
-    "$anchor",
-    "$vocabulary",
-    "$comment",
-    "default",
-    "enum",
-    "const",
-    "required",
-    "type",
-    "maximum",
-    "minimum",
-    "exclusiveMaximum",
-    "exclusiveMinimum",
-    "multipleOf",
-    "maxLength",
-    "minLength",
-    "pattern",
-    "format",
-    "maxItems",
-    "minItems",
-    "uniqueItems",
-    "maxProperties",
-    "minProperties");
-
-  private static final List<String> SCHEMA_ARRAY_KEYWORD = Arrays.asList(
-    "prefixItems",
-    "items",
-    "allOf",
-    "anyOf",
-    "oneOf");
-
-  private static final List<String> SCHEMA_MAP_KEYWORD = Arrays.asList(
-    "$defs",
-    "definitions",
-    "properties",
-    "patternProperties",
-    "dependentSchemas");
-
-  private static final List<String> SCHEMA_KEYWORD = Arrays.asList(
-    "additionalItems",
-    "unevaluatedItems",
-    "items",
-    "contains",
-    "additionalProperties",
-    "unevaluatedProperties",
-    "propertyNames",
-    "not",
-    "if",
-    "then",
-    "else"
-  );
-
   public static final List<String> DRAFT_4_META_FILES = Collections.singletonList(
     "http://json-schema.org/draft-04/schema"
   );
@@ -101,6 +54,10 @@ public class SchemaRepositoryImpl implements SchemaRepository {
   private final URL baseUri;
   private final JsonFormatValidator formatValidator;
 
+  // the non-blocking dereferences
+  private final AtomicInteger running = new AtomicInteger();
+  private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
   public SchemaRepositoryImpl(JsonSchemaOptions options, JsonFormatValidator formatValidator) {
     Objects.requireNonNull(options, "'options' cannot be null");
     Objects.requireNonNull(options.getBaseUri(), "'options.baseUri' cannot be null");
@@ -122,6 +79,137 @@ public class SchemaRepositoryImpl implements SchemaRepository {
     return this;
   }
 
+  @Override
+  @SuppressWarnings("unchecked")
+  public SchemaRepository dereferenceAll(Map<String, JsonSchema> schemas) throws SchemaException {
+    Objects.requireNonNull(schemas, "'schemas' cannot be null");
+    // sort the documents so the outcome never depends on the parallel execution order
+    final List<String> uris = new ArrayList<>(schemas.keySet());
+    Collections.sort(uris);
+
+    // index each document on its own table, the parallel stream runs on the common fork/join pool
+    final List<Object> indexed = uris
+      .parallelStream()
+      .map(uri -> {
+        try {
+          final Map<String, JsonSchema> staged = new HashMap<>();
+          dereference(staged, schemas.get(uri), new URL(uri, options.getBaseUri()), "", true);
+          return (Object) staged;
+        } catch (RuntimeException e) {
+          return e;
+        }
+      })
+      .collect(Collectors.toList());
+
+    final Map<String, JsonSchema> staged = new HashMap<>();
+    final Map<String, String> sources = new HashMap<>();
+    for (int i = 0; i < uris.size(); i++) {
+      final Object result = indexed.get(i);
+      if (result instanceof RuntimeException) {
+        throw (RuntimeException) result;
+      }
+      for (Map.Entry<String, JsonSchema> entry : ((Map<String, JsonSchema>) result).entrySet()) {
+        final JsonSchema existing = staged.putIfAbsent(entry.getKey(), entry.getValue());
+        if (existing == null) {
+          sources.put(entry.getKey(), uris.get(i));
+        } else if (!existing.equals(entry.getValue())) {
+          throw new SchemaException(entry.getValue(), "Duplicate schema URI \"" + entry.getKey() + "\" in \"" + sources.get(entry.getKey()) + "\" and \"" + uris.get(i) + "\".");
+        }
+      }
+    }
+
+    merge(staged);
+    return this;
+  }
+
+  @Override
+  public Future<SchemaRepository> dereference(Vertx vertx, JsonSchema schema) {
+    return dereference(vertx, null, schema);
+  }
+
+  @Override
+  public Future<SchemaRepository> dereference(Vertx vertx, String uri, JsonSchema schema) {
+    return offload(vertx, () -> {
+      // work on a private table, so the repository only sees complete results
+      final Map<String, JsonSchema> staged = new HashMap<>();
+      dereference(staged, schema, uri == null ? baseUri : new URL(uri, options.getBaseUri()), "", true);
+      merge(staged);
+      return this;
+    });
+  }
+
+  @Override
+  public SchemaRepository preloadMetaSchema() {
+    if (options.getDraft() == null) {
+      throw new IllegalStateException("No draft version is defined in the options of the repository");
+    }
+    return preloadMetaSchema(options.getDraft());
+  }
+
+  @Override
+  public SchemaRepository preloadMetaSchema(Draft draft) {
+    // meta schemas are dereferenced once per JVM and shared
+    merge(MetaSchemas.lookup(draft));
+    return this;
+  }
+
+  @Override
+  public Future<SchemaRepository> preloadMetaSchema(Vertx vertx) {
+    if (options.getDraft() == null) {
+      return Future.failedFuture(new IllegalStateException("No draft version is defined in the options of the repository"));
+    }
+    return preloadMetaSchema(vertx, options.getDraft());
+  }
+
+  @Override
+  public Future<SchemaRepository> preloadMetaSchema(Vertx vertx, Draft draft) {
+    return offload(vertx, () -> preloadMetaSchema(draft));
+  }
+
+  /**
+   * Run some work on a worker thread of the calling context, with at most {@code maxConcurrentDereferences} of them
+   * running at the same time for this repository.
+   */
+  private Future<SchemaRepository> offload(Vertx vertx, Callable<SchemaRepository> work) {
+    final Context context = vertx.getOrCreateContext();
+    if (options.getMaxConcurrentDereferences() <= 0) {
+      return context.executeBlocking(work, false);
+    }
+    final Promise<SchemaRepository> promise = Promise.promise();
+    pending.add(() -> context
+      .executeBlocking(work, false)
+      .onComplete(ar -> {
+        running.decrementAndGet();
+        promise.handle(ar);
+        drain();
+      }));
+    drain();
+    return promise.future();
+  }
+
+  private void drain() {
+    for (;;) {
+      final int count = running.get();
+      if (count >= options.getMaxConcurrentDereferences()) {
+        // a running dereference will drain the queue when it completes
+        return;
+      }
+      if (!running.compareAndSet(count, count + 1)) {
+        continue;
+      }
+      final Runnable task = pending.poll();
+      if (task == null) {
+        running.decrementAndGet();
+        // a task may have been queued while we were holding the slot
+        if (pending.isEmpty()) {
+          return;
+        }
+        continue;
+      }
+      task.run();
+    }
+  }
+
   @Override
   public SchemaRepository preloadMetaSchema(FileSystem fs) {
     if (options.getDraft() == null) {
@@ -132,30 +220,17 @@ public class SchemaRepositoryImpl implements SchemaRepository {
 
   @Override
   public SchemaRepository preloadMetaSchema(FileSystem fs, Draft draft) {
-    List<String> metaSchemaIds;
-    switch (draft) {
-      case DRAFT4:
-        metaSchemaIds = DRAFT_4_META_FILES;
-        break;
-      case DRAFT7:
-        metaSchemaIds = DRAFT_7_META_FILES;
-        break;
-      case DRAFT201909:
-        metaSchemaIds = DRAFT_201909_META_FILES;
-        break;
-      case DRAFT202012:
-        metaSchemaIds = DRAFT_202012_META_FILES;
-        break;
-      default:
-        throw new IllegalStateException();
-    }
+    return preloadMetaSchema(draft);
+  }
 
-    for (String id : metaSchemaIds) {
-      // read files from classpath
-      JsonSchema schema = JsonSchema.of(fs.readFileBlocking(id.substring(id.indexOf("://") + 3)).toJsonObject());
-      // try to extract the '$id' from the schema itself, fallback to old field 'id' and if not present to the given url
-      dereference(schema.get("$id", schema.get("id", id)), schema);
-    }
+  @Override
+  public Buffer snapshot() {
+    return SchemaSnapshot.write(lookup);
+  }
+
+  @Override
+  public SchemaRepository restore(Buffer snapshot) throws SchemaException {
+    merge(SchemaSnapshot.read(snapshot));
     return this;
   }
 
@@ -248,6 +323,20 @@ public class SchemaRepositoryImpl implements SchemaRepository {
     return lookup.get(url.href());
   }
 
+  /**
+   * Publishes the given entries to the lookup table. Entries are only added once all of them have been checked, so
+   * a conflicting entry leaves the repository untouched.
+   */
+  private synchronized void merge(Map<String, JsonSchema> entries) throws SchemaException {
+    for (Map.Entry<String, JsonSchema> entry : entries.entrySet()) {
+      final JsonSchema existing = lookup.get(entry.getKey());
+      if (existing != null && !existing.equals(entry.getValue())) {
+        throw new SchemaException(entry.getValue(), "Duplicate schema URI \"" + entry.getKey() + "\".");
+      }
+    }
+    entries.forEach(lookup::putIfAbsent);
+  }
+
   static void dereference(Map<String, JsonSchema> lookup, JsonSchema schema, URL baseURI, String basePointer, boolean schemaRoot) {
     if (schema == null) {
       return;
@@ -333,7 +422,8 @@ public class SchemaRepositoryImpl implements SchemaRepository {
 
     // process subschemas.
     for (String key : schema.fieldNames()) {
-      if (IGNORE_KEYWORD.contains(key)) {
+      final int kind = KeywordKind.of(key);
+      if ((kind & KeywordKind.IGNORE) != 0) {
         continue;
       }
 
@@ -341,7 +431,7 @@ public class SchemaRepositoryImpl implements SchemaRepository {
       final Object subSchema = schema.get(key);
 
       if (subSchema instanceof JsonArray) {
-        if (SCHEMA_ARRAY_KEYWORD.contains(key)) {
+        if ((kind & KeywordKind.SCHEMA_ARRAY) != 0) {
           for (int i = 0; i < ((JsonArray) subSchema).size(); i++) {
             dereference(
               lookup,
@@ -351,7 +441,7 @@ public class SchemaRepositoryImpl implements SchemaRepository {
               false);
           }
         }
-      } else if (SCHEMA_MAP_KEYWORD.contains(key)) {
+      } else if ((kind & KeywordKind.SCHEMA_MAP) != 0) {
         for (String subKey : ((JsonObject) subSchema).fieldNames()) {
           dereference(
             lookup,
@@ -366,14 +456,14 @@ public class SchemaRepositoryImpl implements SchemaRepository {
           JsonSchema.of((Boolean) subSchema),
           baseURI,
           keyBase,
-          SCHEMA_KEYWORD.contains(key));
+          (kind & KeywordKind.SCHEMA) != 0);
       } else if (subSchema instanceof JsonObject) {
         dereference(
           lookup,
           JsonSchema.of((JsonObject) subSchema),
           baseURI,
           keyBase,
-          SCHEMA_KEYWORD.contains(key));
+          (kind & KeywordKind.SCHEMA) != 0);
       }
     }
   }
@@ -0,0 +1,248 @@
+package io.vertx.json.schema.impl;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.JsonSchema;
+import io.vertx.json.schema.SchemaException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Binary snapshot of a dereferenced lookup table.
+ * <p>
+ * A lookup table maps absolute URIs to schemas, most of them being sub schemas of a few documents. Instead of
+ * encoding each entry, the snapshot encodes every distinct document once (with the {@code __absolute_*__}
+ * annotations computed during dereference) and stores each entry as a JSON pointer into one of those documents.
+ * Restoring a snapshot is then a matter of parsing the documents and walking the pointers, no URL resolution
+ * or dereference is required.
+ * <p>
+ * Layout (all integers are big endian):
+ *
+ * <pre>
+ *   int      magic ("VXJS")
+ *   int      version
+ *   int      documents count
+ *   [int, byte[]] documents, UTF-8 encoded JSON
+ *   int      entries count
+ *   [string, int, string] entries: URI, document index (or {@code -1}/{@code -2} for boolean schemas), pointer
+ * </pre>
+ *
+ * Strings are encoded as an {@code int} length followed by the UTF-8 bytes.
+ */
+public final class SchemaSnapshot {
+
+  private static final int MAGIC = 0x56584A53;
+  private static final int VERSION = 1;
+
+  private static final int TRUE_SCHEMA = -1;
+  private static final int FALSE_SCHEMA = -2;
+
+  private SchemaSnapshot() {
+  }
+
+  /**
+   * Encode the given lookup table.
+   *
+   * @param lookup the dereferenced lookup table
+   * @return the snapshot
+   */
+  public static Buffer write(Map<String, JsonSchema> lookup) {
+    // sort the keys so the same repository always produces the same snapshot
+    final List<String> uris = new ArrayList<>(lookup.keySet());
+    Collections.sort(uris);
+
+    final List<Map<String, Object>> documents = new ArrayList<>();
+    final Map<Object, Location> locations = new IdentityHashMap<>();
+
+    for (String uri : uris) {
+      final JsonSchema schema = lookup.get(uri);
+      if (schema instanceof BooleanSchema) {
+        continue;
+      }
+      final Map<String, Object> node = unwrap(schema);
+      if (locations.containsKey(node)) {
+        // already part of a known document
+        continue;
+      }
+      // a new document, if previous documents are nested in this one, their nodes are re-located
+      final int index = documents.size();
+      documents.add(node);
+      index(node, index, "", locations);
+    }
+
+    // drop the documents that ended up nested in other documents
+    final int[] remap = new int[documents.size()];
+    final List<Map<String, Object>> roots = new ArrayList<>();
+    for (int i = 0; i < documents.size(); i++) {
+      final Map<String, Object> document = documents.get(i);
+      if (locations.get(document).document == i) {
+        remap[i] = roots.size();
+        roots.add(document);
+      } else {
+        remap[i] = -1;
+      }
+    }
+
+    final Buffer buffer = Buffer.buffer();
+    buffer
+      .appendInt(MAGIC)
+      .appendInt(VERSION)
+      .appendInt(roots.size());
+
+    for (Map<String, Object> root : roots) {
+      final Buffer json = new JsonObject(root).toBuffer();
+      buffer
+        .appendInt(json.length())
+        .appendBuffer(json);
+    }
+
+    buffer.appendInt(uris.size());
+    for (String uri : uris) {
+      final JsonSchema schema = lookup.get(uri);
+      appendString(buffer, uri);
+      if (schema instanceof BooleanSchema) {
+        buffer.appendInt(schema == BooleanSchema.TRUE ? TRUE_SCHEMA : FALSE_SCHEMA);
+        appendString(buffer, "");
+      } else {
+        final Location location = locations.get(unwrap(schema));
+        buffer.appendInt(remap[location.document]);
+        appendString(buffer, location.pointer);
+      }
+    }
+
+    return buffer;
+  }
+
+  /**
+   * Decode a snapshot produced by {@link #write(Map)}.
+   *
+   * @param snapshot the snapshot
+   * @return the lookup table, sorted by URI
+   * @throws SchemaException when the snapshot is not valid
+   */
+  public static Map<String, JsonSchema> read(Buffer snapshot) throws SchemaException {
+    Objects.requireNonNull(snapshot, "'snapshot' cannot be null");
+
+    try {
+      int pos = 0;
+      if (snapshot.getInt(pos) != MAGIC) {
+        throw new SchemaException(null, "Invalid schema snapshot");
+      }
+      pos += 4;
+      final int version = snapshot.getInt(pos);
+      if (version != VERSION) {
+        throw new SchemaException(null, "Unsupported schema snapshot version: " + version);
+      }
+      pos += 4;
+
+      final int count = snapshot.getInt(pos);
+      pos += 4;
+      final JsonObject[] documents = new JsonObject[count];
+      for (int i = 0; i < count; i++) {
+        final int length = snapshot.getInt(pos);
+        pos += 4;
+        documents[i] = new JsonObject(snapshot.slice(pos, pos + length));
+        pos += length;
+      }
+
+      final int entries = snapshot.getInt(pos);
+      pos += 4;
+      final Map<String, JsonSchema> lookup = new LinkedHashMap<>();
+      for (int i = 0; i < entries; i++) {
+        int length = snapshot.getInt(pos);
+        pos += 4;
+        final String uri = snapshot.getString(pos, pos + length, StandardCharsets.UTF_8.name());
+        pos += length;
+        final int document = snapshot.getInt(pos);
+        pos += 4;
+        length = snapshot.getInt(pos);
+        pos += 4;
+        final String pointer = snapshot.getString(pos, pos + length, StandardCharsets.UTF_8.name());
+        pos += length;
+
+        switch (document) {
+          case TRUE_SCHEMA:
+            lookup.put(uri, BooleanSchema.TRUE);
+            break;
+          case FALSE_SCHEMA:
+            lookup.put(uri, BooleanSchema.FALSE);
+            break;
+          default:
+            lookup.put(uri, new JsonObjectSchema(query(documents[document], pointer)));
+        }
+      }
+      return lookup;
+    } catch (IndexOutOfBoundsException | ClassCastException | IllegalArgumentException | DecodeException e) {
+      throw new SchemaException(null, "Invalid schema snapshot", e);
+    }
+  }
+
+  private static void index(Object node, int document, String pointer, Map<Object, Location> locations) {
+    if (node instanceof JsonObject) {
+      node = ((JsonObject) node).getMap();
+    } else if (node instanceof JsonArray) {
+      node = ((JsonArray) node).getList();
+    }
+
+    if (node instanceof Map) {
+      locations.put(node, new Location(document, pointer));
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) node).entrySet()) {
+        index(entry.getValue(), document, pointer + "/" + Utils.Pointers.escape((String) entry.getKey()), locations);
+      }
+    } else if (node instanceof List) {
+      locations.put(node, new Location(document, pointer));
+      final List<?> list = (List<?>) node;
+      for (int i = 0; i < list.size(); i++) {
+        index(list.get(i), document, pointer + "/" + i, locations);
+      }
+    }
+  }
+
+  private static JsonObject query(JsonObject document, String pointer) {
+    if (pointer.isEmpty()) {
+      return document;
+    }
+    Object node = document;
+    // skip the leading slash
+    for (String token : pointer.substring(1).split("/", -1)) {
+      if (node instanceof JsonObject) {
+        node = ((JsonObject) node).getValue(Utils.Pointers.unescape(token));
+      } else if (node instanceof JsonArray) {
+        node = ((JsonArray) node).getValue(Integer.parseInt(token));
+      } else {
+        throw new SchemaException(document, "Invalid schema snapshot pointer: " + pointer);
+      }
+    }
+    if (!(node instanceof JsonObject)) {
+      throw new SchemaException(document, "Invalid schema snapshot pointer: " + pointer);
+    }
+    return (JsonObject) node;
+  }
+
+  private static Map<String, Object> unwrap(JsonSchema schema) {
+    if (schema instanceof JsonObject) {
+      return ((JsonObject) schema).getMap();
+    }
+    throw new IllegalStateException("Unsupported schema type: " + schema.getClass());
+  }
+
+  private static void appendString(Buffer buffer, String value) {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    buffer
+      .appendInt(bytes.length)
+      .appendBytes(bytes);
+  }
+
+  private static final class Location {
+    final int document;
+    final String pointer;
+
+    Location(int document, String pointer) {
+      this.document = document;
+      this.pointer = pointer;
+    }
+  }
+}
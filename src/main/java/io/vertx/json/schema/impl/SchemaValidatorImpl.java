@@ -1,5 +1,6 @@
 package io.vertx.json.schema.impl;
 
+import io.vertx.core.Future;
 import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
@@ -7,19 +8,44 @@ import io.vertx.json.schema.*;
 
 import java.util.Objects;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static io.vertx.json.schema.impl.SchemaRepositoryImpl.dereference;
 import static io.vertx.json.schema.impl.Utils.*;
 
 public class SchemaValidatorImpl implements SchemaValidatorInternal {
 
+  private static final long UNKNOWN_LENGTH = Long.MIN_VALUE;
+
   private final Map<String, JsonSchema> lookup;
 
   private final JsonSchema schema;
   private final Draft draft;
   private final OutputFormat outputFormat;
   private final JsonFormatValidator formatValidator;
+  private final ValidationOffload offload;
+  private final int parallelThreshold;
+  private final ResultCache resultCache;
+  private final boolean failFast;
+  private final Shortcuts shortcuts;
+  private volatile long maxInstanceLength = UNKNOWN_LENGTH;
+  private volatile Boolean memberValidation;
+  private final int compileThreshold;
+  private final boolean linearRegex;
+  private final int maxRegexSteps;
+  private final Map<String, LongAdder> abortedMatches = new ConcurrentHashMap<>();
+  private final AtomicInteger uses = new AtomicInteger();
+  private volatile CompiledSchema compiled;
+  private volatile boolean notCompilable;
+  // the dispatch of the unions by node, computed with the lookup of this validator, as a node can be shared by the
+  // validators of several repositories; copy on write, as they are read by every union validation and only grow up
+  // to the number of union nodes
+  private volatile Map<Object, UnionDispatch> anyOfDispatch = new IdentityHashMap<>();
+  private volatile Map<Object, UnionDispatch> oneOfDispatch = new IdentityHashMap<>();
 
   public SchemaValidatorImpl(JsonSchema schema, JsonSchemaOptions options, Map<String, JsonSchema> lookup,
                              boolean dereference, JsonFormatValidator formatValidator) {
@@ -36,12 +62,72 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
       Draft.fromIdentifier(schema.get("$schema")) :
       options.getDraft();
     this.outputFormat = options.getOutputFormat();
+    this.parallelThreshold = options.getParallelValidationThreshold();
+    this.offload = new ValidationOffload(this, options.getInlineValidationThreshold(), options.getMaxInlineValidationSteps(), options.getMaxConcurrentValidations());
     this.lookup = new HashMap<>(lookup);
     if (dereference) {
       URL baseUri = new URL(options.getBaseUri());
       // add the root schema
       dereference(this.lookup, schema, baseUri, "", true);
     }
+    this.resultCache = options.getResultCacheSize() > 0 ? new ResultCache(this.lookup, options.getResultCacheSize()) : null;
+    // an early rejection skips the sub schemas that would have marked properties or items as evaluated
+    this.failFast = outputFormat == OutputFormat.Flag && !Schemas.uses(schema, KeywordKind.UNEVALUATED, this.lookup);
+    // when only the validity is needed, the nodes forwarding the validation to another one are skipped
+    this.shortcuts = failFast ? Shortcuts.of(schema, this.lookup, draft) : null;
+    this.compileThreshold = schema instanceof BooleanSchema ? 0 : options.getCompileThreshold();
+    this.linearRegex = options.isLinearTimeRegex();
+    this.maxRegexSteps = options.getMaxRegexSteps();
+    if (linearRegex) {
+      // reject the patterns the linear time engine does not support now rather than during a validation
+      compilePatterns(schema, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+  }
+
+  /**
+   * Compile the {@code pattern} and {@code patternProperties} of the sub schemas of a node, and of the schemas they
+   * reference.
+   *
+   * @throws SchemaException when a pattern cannot be compiled
+   */
+  private void compilePatterns(final Object node, final Set<Object> visited) {
+    if (node instanceof JsonArray) {
+      for (Object item : (JsonArray) node) {
+        compilePatterns(item, visited);
+      }
+      return;
+    }
+    if (!(node instanceof JsonObject) || !visited.add(((JsonObject) node).getMap())) {
+      return;
+    }
+    final JsonObjectSchema json = node instanceof JsonObjectSchema ? (JsonObjectSchema) node : new JsonObjectSchema((JsonObject) node);
+    if (json.getValue("pattern") instanceof String) {
+      json.pattern(linearRegex, maxRegexSteps);
+    }
+    if (json.getValue("patternProperties") instanceof JsonObject) {
+      json.propertyDispatch(linearRegex, maxRegexSteps);
+    }
+    for (String key : json.fieldNames()) {
+      final Object value = json.getValue(key);
+      if (("$ref".equals(key) || "$dynamicRef".equals(key)) && value instanceof String) {
+        // unresolved references are reported by the validations reaching them
+        compilePatterns(lookup.get(json.getString("__absolute_ref__", (String) value)), visited);
+      } else if (KeywordKind.is(key, KeywordKind.SCHEMA | KeywordKind.SCHEMA_ARRAY)) {
+        compilePatterns(value, visited);
+      } else if (KeywordKind.is(key, KeywordKind.SCHEMA_MAP) && value instanceof JsonObject) {
+        for (String name : ((JsonObject) value).fieldNames()) {
+          compilePatterns(((JsonObject) value).getValue(name), visited);
+        }
+      } else if ("dependencies".equals(key) && value instanceof JsonObject) {
+        // the schema dependencies, the others are arrays of names
+        for (String name : ((JsonObject) value).fieldNames()) {
+          final Object dependency = ((JsonObject) value).getValue(name);
+          if (dependency instanceof JsonObject) {
+            compilePatterns(dependency, visited);
+          }
+        }
+      }
+    }
   }
 
   @Override
@@ -51,15 +137,269 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
 
   @Override
   public OutputUnit validate(Object instance) throws SchemaException {
-    return validate(
+    final ValidationContext context = ValidationContext.acquire();
+    try {
+      return validate(instance, context);
+    } finally {
+      context.release();
+    }
+  }
+
+  @Override
+  public long maxInstanceLength() {
+    long length = maxInstanceLength;
+    if (length == UNKNOWN_LENGTH) {
+      // racy but idempotent
+      maxInstanceLength = length = InstanceLength.of(schema, lookup, draft);
+    }
+    return length;
+  }
+
+  @Override
+  public ValidationResults validateAll(List<?> instances) throws SchemaException {
+    Objects.requireNonNull(instances, "'instances' cannot be null");
+    final ValidationResultsImpl results = new ValidationResultsImpl(instances.size());
+    // the validation state is set up once for the whole batch
+    final ValidationContext context = ValidationContext.acquire();
+    try {
+      int index = 0;
+      for (Object instance : instances) {
+        results.add(index++, validate(instance, context));
+        context.reset();
+      }
+    } finally {
+      context.release();
+    }
+    return results;
+  }
+
+  /**
+   * Check the root schema against the type of the root instance, as soon as the type is known, before the instance is
+   * decoded.
+   *
+   * @param type the JSON type of the root instance, {@code object} or {@code array}
+   * @return an invalid result, or {@code null} when the type does not invalidate the instance
+   */
+  OutputUnit validateRootType(String type) {
+    if (schema == BooleanSchema.FALSE) {
+      return new OutputUnit(false).setErrorType(OutputErrorType.INVALID_VALUE);
+    }
+    if (!memberValidation()) {
+      return null;
+    }
+    final Object expected = schema.get("type");
+    if (expected instanceof JsonArray ? !((JsonArray) expected).contains(type) : expected != null && !type.equals(expected)) {
+      return rootResult(Collections.singletonList(new OutputUnit("#", computeAbsoluteKeywordLocation(schema, "#/type"), "#/type", "Instance type " + type + " is invalid. Expected " + (expected instanceof JsonArray ? ((JsonArray) expected).stream().map(String::valueOf).collect(Collectors.joining(", ")) : expected), OutputErrorType.INVALID_VALUE)));
+    }
+    return null;
+  }
+
+  /**
+   * Validate the last decoded property of the root object on its own, against the sub schemas it will be validated
+   * against once the whole object is decoded, so that an invalid object can be rejected before it is fully received.
+   *
+   * @param root the root object decoded so far
+   * @param key  the property that was just decoded
+   * @return an invalid result, or {@code null} when the property does not invalidate the object
+   */
+  OutputUnit validateRootProperty(JsonObject root, String key) throws SchemaException {
+    if (!memberValidation()) {
+      return null;
+    }
+    final List<OutputUnit> errors = new ArrayList<>();
+    final String instanceLocation = "#/" + Pointers.encode(key);
+    final Object value = root.getValue(key);
+    final ValidationContext context = ValidationContext.acquire();
+    try {
+      if (schema.containsKey("maxProperties") && root.size() > schema.<Integer>get("maxProperties")) {
+        errors.add(new OutputUnit("#", computeAbsoluteKeywordLocation(schema, "#/maxProperties"), "#/maxProperties", "Instance has more than " + schema.get("maxProperties") + " properties", OutputErrorType.INVALID_VALUE));
+      }
+      if (schema.containsKey("propertyNames")) {
+        final OutputUnit result = validateScoped(key, Schemas.wrap((JsonObject) schema, "propertyNames"), null, instanceLocation, "#/propertyNames", "#/propertyNames", context);
+        if (!result.getValid()) {
+          errors.add(new OutputUnit("#", computeAbsoluteKeywordLocation(schema, "#/propertyNames"), "#/propertyNames", "Property name \"" + key + "\" does not match schema", OutputErrorType.INVALID_VALUE));
+          addErrors(errors, result);
+        }
+      }
+      final PropertyDispatch dispatch = propertyDispatch(schema);
+      if (schema.containsKey("properties") && schema.<JsonObject>get("properties").containsKey(key)) {
+        final OutputUnit result = validateScoped(value, Schemas.wrap(schema.<JsonObject>get("properties"), key), null, instanceLocation, "#/properties/" + Pointers.encode(key), "#/properties/" + Pointers.encode(key), context);
+        if (!result.getValid()) {
+          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, "#/properties"), "#/properties", "Property \"" + key + "\" does not match schema", result.getErrorType()));
+          addErrors(errors, result);
+        }
+      }
+      int[] matches;
+      try {
+        matches = dispatch.matches(key);
+      } catch (Regex.Aborted e) {
+        final String pattern = dispatch.patterns()[e.index];
+        errors.add(aborted(schema, instanceLocation, "#/patternProperties/" + Pointers.encode(pattern), "#/patternProperties/" + Pointers.encode(pattern), "Property \"" + key + "\""));
+        matches = null;
+      }
+      if (schema.containsKey("patternProperties") && matches != null) {
+        for (final int index : matches) {
+          final String pattern = dispatch.patterns()[index];
+          final OutputUnit result = validateScoped(value, Schemas.wrap(schema.get("patternProperties"), pattern), null, instanceLocation, "#/patternProperties/" + Pointers.encode(pattern), "#/patternProperties/" + Pointers.encode(pattern), context);
+          if (!result.getValid()) {
+            errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, "#/patternProperties"), "#/patternProperties", "Property \"" + key + "\" matches pattern \"" + pattern + "\" but does not match associated schema", OutputErrorType.INVALID_VALUE));
+            addErrors(errors, result);
+          }
+        }
+      }
+      if (schema.containsKey("additionalProperties") && matches != null && matches.length == 0 && !dispatch.declared(key)) {
+        final OutputUnit result = validateScoped(value, Schemas.wrap((JsonObject) schema, "additionalProperties"), null, instanceLocation, "#/additionalProperties", "#/additionalProperties", context);
+        if (!result.getValid()) {
+          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, "#/additionalProperties"), "#/additionalProperties", "Property \"" + key + "\" does not match additional properties schema", result.getErrorType()));
+          addErrors(errors, result);
+        }
+      }
+    } finally {
+      context.release();
+    }
+    return errors.isEmpty() ? null : rootResult(errors);
+  }
+
+  /**
+   * Validate the last decoded item of the root array on its own, against the sub schema it will be validated against
+   * once the whole array is decoded, so that an invalid array can be rejected before it is fully received.
+   *
+   * @param root  the root array decoded so far
+   * @param index the index of the item that was just decoded
+   * @return an invalid result, or {@code null} when the item does not invalidate the array
+   */
+  OutputUnit validateRootItem(JsonArray root, int index) throws SchemaException {
+    if (!memberValidation()) {
+      return null;
+    }
+    final List<OutputUnit> errors = new ArrayList<>();
+    if (schema.containsKey("maxItems") && root.size() > schema.<Integer>get("maxItems")) {
+      errors.add(new OutputUnit("#", computeAbsoluteKeywordLocation(schema, "#/maxItems"), "#/maxItems", "Array has too many items ( + " + root.size() + " > " + schema.get("maxItems") + ")", OutputErrorType.INVALID_VALUE));
+    }
+    // same precedence as the full validation: prefixItems, then items, then additionalItems
+    final JsonSchema items;
+    final String keyword;
+    final Object prefixItems = schema.get("prefixItems");
+    final Object tupleItems = schema.get("items");
+    if (prefixItems instanceof JsonArray && index < ((JsonArray) prefixItems).size()) {
+      items = Schemas.wrap((JsonArray) prefixItems, index);
+      keyword = "prefixItems/" + index;
+    } else if (tupleItems instanceof JsonArray) {
+      if (index < ((JsonArray) tupleItems).size()) {
+        items = Schemas.wrap((JsonArray) tupleItems, index);
+        keyword = "items/" + index;
+      } else {
+        items = Schemas.wrap((JsonObject) schema, "additionalItems");
+        keyword = "additionalItems";
+      }
+    } else {
+      items = Schemas.wrap((JsonObject) schema, "items");
+      keyword = "items";
+    }
+    if (items != null) {
+      final ValidationContext context = ValidationContext.acquire();
+      final OutputUnit result;
+      try {
+        result = validateScoped(root.getValue(index), items, null, "#/" + index, "#/" + keyword, "#/" + keyword, context);
+      } finally {
+        context.release();
+      }
+      if (!result.getValid()) {
+        final String name = keyword.contains("/") ? keyword.substring(0, keyword.indexOf('/')) : keyword;
+        errors.add(new OutputUnit("#", computeAbsoluteKeywordLocation(schema, "#/" + name), "#/" + name, "Items did not match schema", result.getErrorType()));
+        addErrors(errors, result);
+      }
+    }
+    return errors.isEmpty() ? null : rootResult(errors);
+  }
+
+  /**
+   * Members of the root instance can be validated on their own when the root schema applies its keywords directly and
+   * nothing in it depends on the dynamic scope of the validation.
+   */
+  boolean memberValidation() {
+    Boolean enabled = memberValidation;
+    if (enabled == null) {
+      // racy but idempotent
+      memberValidation = enabled = schema instanceof JsonObject &&
+        !((draft == Draft.DRAFT4 || draft == Draft.DRAFT7) && schema.containsKey("$ref")) &&
+        !Schemas.uses(schema, KeywordKind.DYNAMIC_SCOPE, lookup);
+    }
+    return enabled;
+  }
+
+  private static void addErrors(List<OutputUnit> errors, OutputUnit result) {
+    if (result.getErrors() != null) {
+      errors.addAll(result.getErrors());
+    }
+  }
+
+  private OutputUnit rootResult(List<OutputUnit> errors) {
+    return new OutputUnit(false)
+      .setErrors(outputFormat == OutputFormat.Flag ? null : new ArrayList<>(errors))
+      .setErrorType(outputFormat == OutputFormat.Flag ? OutputErrorType.NONE : errors.get(0).getErrorType());
+  }
+
+  /**
+   * Validate an instance within a given validation context.
+   *
+   * @throws ValidationContext.BudgetExceededException when the context budget is exceeded
+   */
+  OutputUnit validate(Object instance, ValidationContext context) throws SchemaException {
+    // the compiled schema does not count the steps of a bounded validation
+    final CompiledSchema compiled = context.bounded() ? null : compiled();
+    if (compiled != null) {
+      if (compiled.valid(instance)) {
+        return compiledResult(true);
+      }
+      if (outputFormat == OutputFormat.Flag) {
+        return compiledResult(false);
+      }
+      // the errors are reported by the interpreter
+    }
+    final Set<Object> evaluated = context.set();
+    final OutputUnit result = validate(
       instance,
       schema,
       null,
       "#",
       "#",
       "#",
-      new HashSet<>(),
-      new HashMap<>());
+      evaluated,
+      context);
+    context.release(evaluated);
+    return result;
+  }
+
+  /**
+   * @return the compiled schema once the validator was used {@code compileThreshold} times, {@code null} before or
+   * when the schema cannot be compiled
+   */
+  private CompiledSchema compiled() {
+    if (compileThreshold == 0) {
+      return null;
+    }
+    CompiledSchema compiled = this.compiled;
+    if (compiled == null && !notCompilable && uses.incrementAndGet() == compileThreshold) {
+      compiled = CompiledSchema.compile(schema, draft, lookup, formatValidator, linearRegex, maxRegexSteps);
+      if (compiled == null) {
+        notCompilable = true;
+      } else {
+        this.compiled = compiled;
+      }
+    }
+    return compiled;
+  }
+
+  private OutputUnit compiledResult(boolean valid) {
+    // in draft 4 and 7, a root $ref short-cuts the result, which has no error type in the flag format
+    final boolean ref = (draft == Draft.DRAFT4 || draft == Draft.DRAFT7) && schema.containsKey("$ref");
+    return new OutputUnit(valid).setErrorType(outputFormat == OutputFormat.Flag && ref ? null : OutputErrorType.NONE);
+  }
+
+  @Override
+  public Future<OutputUnit> validateAsync(Object instance) {
+    return offload.validate(instance);
   }
 
   /**
@@ -74,12 +414,30 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
    * @param schemaLocation   tracks the schema location (needed to build the correct error messages)
    * @param baseLocation     tracks the location from start to current schema (needed to build the correct error messages)
    * @param evaluated        tracks evaluated schemas needed for or/oneOf/anyOf/all/etc... like validations
-   * @param dynamicContext   tracks the dynamic context needed for $dynamicRef (2020-12 draft). Keys start with # for
-   *                         dynamic anchors, $ are used for 2019-09 fragments
+   * @param context          tracks the state of the whole validation, such as the dynamic scope needed for $dynamicRef
+   *                         (2020-12 draft)
    * @return the validation result
    * @throws SchemaException when the schema is not resolvable (unknown $ref)
    */
-  private OutputUnit validate(final Object _instance, final JsonSchema schema, final JsonSchema _recursiveAnchor, final String instanceLocation, final String schemaLocation, final String baseLocation, final Set<Object> evaluated, final Map<String, Deque<JsonSchema>> dynamicContext) throws SchemaException {
+  // the keywords are checked by one method per kind of keyword: HotSpot never compiles a method of more than 8000
+  // bytes of bytecode (HugeMethodLimit), so a single method checking all of them would always be interpreted
+  private OutputUnit validate(final Object _instance, final JsonSchema schema, final JsonSchema _recursiveAnchor, final String instanceLocation, final String schemaLocation, final String baseLocation, final Set<Object> evaluated, final ValidationContext context) throws SchemaException {
+
+    final Shortcuts.Shortcut shortcut = shortcuts == null ? null : shortcuts.get(schema);
+    if (shortcut != null) {
+      // validated at the location it has when the forwarding nodes are evaluated
+      return validate(
+        _instance,
+        shortcut.target,
+        shortcut.keepsRecursiveAnchor ? _recursiveAnchor : null,
+        instanceLocation,
+        shortcut.schemaLocation(schemaLocation),
+        baseLocation + shortcut.baseSuffix,
+        evaluated,
+        context);
+    }
+
+    context.step();
 
     // the are 2 kinds of schemas BooleanSchema and JsonSchema
     // Boolean schemas are terminal and require no further processing.
@@ -99,17 +457,23 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
 
     // start validating
     String instanceType = JSON.typeOf(instance);
-    List<OutputUnit> errors = new ArrayList<>();
-    List<OutputUnit> annotations = new ArrayList<>();
+
+    if (failFast && schema instanceof JsonObjectSchema && ((JsonObjectSchema) schema).keywordOrder().rejects((JsonObjectSchema) schema, instance, instanceType, draft, linearRegex, maxRegexSteps)) {
+      // only the validity is reported, it can be decided by the first failing assertion
+      return new OutputUnit(false).setErrorType(OutputErrorType.NONE);
+    }
+
+    // scratch buffers, their content is copied to the output unit when needed
+    final List<OutputUnit> errorsBuffer = context.list();
+    final List<OutputUnit> annotations = context.list();
+    List<OutputUnit> errors = errorsBuffer;
 
     final String dynamicAnchor;
 
     // push $dynamicAnchor with current "__absolute_uri__"
     if (schema.containsKey("$dynamicAnchor")) {
       dynamicAnchor = "#" + schema.get("$dynamicAnchor");
-      dynamicContext
-        .computeIfAbsent(dynamicAnchor, k -> new LinkedList<>())
-        .add(schema);
+      context.pushDynamicAnchor(dynamicAnchor, schema);
     } else {
       dynamicAnchor = null;
     }
@@ -136,7 +500,7 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
         schemaLocation + "/$recursiveRef",
         baseLocation + "/$recursiveRef",
         evaluated,
-        dynamicContext
+        context
       );
       if (!result.getValid()) {
         errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/$recursiveRef"), baseLocation + "/$recursiveRef", "A sub-schema had errors", result.getErrorType()));
@@ -147,44 +511,41 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
     }
 
     if (schema.containsKey("$dynamicRef")) {
-      Deque<JsonSchema> deque = dynamicContext.get(schema.<String>get("$dynamicRef"));
-      if (deque != null) {
-        JsonSchema head = deque.peekFirst();
-        if (head != null) {
-          // compute the dynamic reference uri
-          String uri = new URL(schema.<String>get("$dynamicRef"), head.<String>get("__absolute_uri__")).href();
-
-          if (!lookup.containsKey(uri)) {
-            String message = "Unresolved $dynamicRef " + schema.<String>get("$dynamicRef");
-            message += "\nKnown schemas:\n- " + String.join("\n- ", lookup.keySet());
-            throw new SchemaException(schema, message);
-          }
+      final JsonSchema head = context.dynamicAnchor(schema.get("$dynamicRef"));
+      if (head != null) {
+        // compute the dynamic reference uri
+        String uri = new URL(schema.<String>get("$dynamicRef"), head.<String>get("__absolute_uri__")).href();
+
+        if (!lookup.containsKey(uri)) {
+          String message = "Unresolved $dynamicRef " + schema.<String>get("$dynamicRef");
+          message += "\nKnown schemas:\n- " + String.join("\n- ", lookup.keySet());
+          throw new SchemaException(schema, message);
+        }
 
-          final JsonSchema refSchema = lookup.get(uri);
-          final OutputUnit result = validate(
-            instance,
-            recursiveAnchor == null ? schema : recursiveAnchor,
-            refSchema,
-            instanceLocation,
-            schemaLocation + "/$dynamicRef",
-            baseLocation + "/$dynamicRef",
-            evaluated,
-            dynamicContext
-          );
-          if (!result.getValid()) {
-            errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/$dynamicRef"), baseLocation + "/$dynamicRef", "A sub-schema had errors", result.getErrorType()));
-            if (result.getErrors() != null) {
-              errors.addAll(result.getErrors());
-            }
+        final JsonSchema refSchema = lookup.get(uri);
+        final OutputUnit result = validate(
+          instance,
+          recursiveAnchor == null ? schema : recursiveAnchor,
+          refSchema,
+          instanceLocation,
+          schemaLocation + "/$dynamicRef",
+          baseLocation + "/$dynamicRef",
+          evaluated,
+          context
+        );
+        if (!result.getValid()) {
+          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/$dynamicRef"), baseLocation + "/$dynamicRef", "A sub-schema had errors", result.getErrorType()));
+          if (result.getErrors() != null) {
+            errors.addAll(result.getErrors());
           }
-          if (draft == Draft.DRAFT4 || draft == Draft.DRAFT7) {
-            if (dynamicAnchor != null) {
-              dynamicContext
-                .get(dynamicAnchor)
-                .removeLast();
-            }
-            return new OutputUnit(errors.isEmpty()).setErrors(errors).setErrorType(errors.isEmpty() ? OutputErrorType.NONE : errors.get(0).getErrorType());
+        }
+        if (draft == Draft.DRAFT4 || draft == Draft.DRAFT7) {
+          if (dynamicAnchor != null) {
+            context.popDynamicAnchor(dynamicAnchor);
           }
+          final OutputUnit unit = new OutputUnit(errors.isEmpty()).setErrors(new ArrayList<>(errors)).setErrorType(errors.isEmpty() ? OutputErrorType.NONE : errors.get(0).getErrorType());
+          release(context, errorsBuffer, annotations);
+          return unit;
         }
       }
     }
@@ -209,7 +570,7 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
         schema.get("$ref"),
         baseLocation + "/$ref",
         evaluated,
-        dynamicContext
+        context
       );
       if (!result.getValid()) {
         errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/$ref"), baseLocation + "/$ref", "A subschema had errors", result.getErrorType()));
@@ -218,12 +579,62 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
         }
       }
       if (draft == Draft.DRAFT4 || draft == Draft.DRAFT7) {
-        return new OutputUnit(errors.isEmpty())
-          .setErrors(outputFormat == OutputFormat.Flag ? null : errors.isEmpty() ? null : errors)
+        final OutputUnit unit = new OutputUnit(errors.isEmpty())
+          .setErrors(outputFormat == OutputFormat.Flag ? null : errors.isEmpty() ? null : new ArrayList<>(errors))
           .setErrorType(outputFormat == OutputFormat.Flag ? null : errors.isEmpty() ? OutputErrorType.NONE : errors.get(0).getErrorType());
+        release(context, errorsBuffer, annotations);
+        return unit;
       }
     }
 
+    validateValue(instance, instanceType, schema, instanceLocation, schemaLocation, baseLocation, errors);
+    errors = validateApplicators(instance, instanceType, schema, recursiveAnchor, instanceLocation, schemaLocation, baseLocation, evaluated, errors, context);
+
+    switch (instanceType) {
+      case "object":
+        validateObject(instance, schema, recursiveAnchor, instanceLocation, schemaLocation, baseLocation, evaluated, errors, context);
+        break;
+      case "array":
+        errors = validateArray(instance, schema, recursiveAnchor, instanceLocation, schemaLocation, baseLocation, evaluated, errors, context);
+        break;
+      case "number":
+        validateNumber((Number) instance, schema, instanceLocation, schemaLocation, baseLocation, errors);
+        break;
+      case "string":
+        validateString((String) instance, schema, instanceLocation, schemaLocation, baseLocation, errors, annotations);
+        break;
+    }
+
+    String error = formatValidator.validateFormat(instanceType, schema.get("format"), instance);
+    if (error != null) {
+      errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/format"),
+        baseLocation + "/format", error, OutputErrorType.INVALID_VALUE));
+    }
+
+    if (dynamicAnchor != null) {
+      context.popDynamicAnchor(dynamicAnchor);
+    }
+
+    final OutputUnit unit = new OutputUnit(errors.isEmpty())
+      .setErrors(outputFormat == OutputFormat.Flag ? null : errors.isEmpty() ? null : new ArrayList<>(errors))
+      .setAnnotations(outputFormat == OutputFormat.Flag ? null : annotations.isEmpty() ? null : new ArrayList<>(annotations))
+      .setErrorType((outputFormat == OutputFormat.Flag ? OutputErrorType.NONE :
+        errors.isEmpty() ? OutputErrorType.NONE : errors.get(0).getErrorType()));
+    release(context, errorsBuffer, annotations);
+    return unit;
+  }
+
+  private OutputUnit typeError(final JsonSchema schema, final Object type, final String instanceType, final String instanceLocation, final String schemaLocation, final String baseLocation) {
+    @SuppressWarnings("unchecked")
+    final String expected = type instanceof JsonArray ? String.join(", ", ((JsonArray) type).getList()) : String.valueOf(type);
+    return new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/type"), baseLocation + "/type", "Instance type " + instanceType + " is invalid. Expected " + expected, OutputErrorType.INVALID_VALUE);
+  }
+
+  /**
+   * Validate the keywords constraining the value of an instance of any type: {@code type}, {@code const} and
+   * {@code enum}.
+   */
+  private void validateValue(final Object instance, final String instanceType, final JsonSchema schema, final String instanceLocation, final String schemaLocation, final String baseLocation, final List<OutputUnit> errors) {
     if (schema.get("type") instanceof JsonArray) {
       final JsonArray type = schema.get("type");
       int length = type.size();
@@ -237,14 +648,14 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
         }
       }
       if (!valid) {
-        errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/type"), baseLocation + "/type", "Instance type " + instanceType + " is invalid. Expected " + String.join(", ", type.getList()), OutputErrorType.INVALID_VALUE));
+        errors.add(typeError(schema, type, instanceType, instanceLocation, schemaLocation, baseLocation));
       }
     } else if ("integer".equals(schema.get("type"))) {
       if (!"number".equals(instanceType) || !Numbers.isInteger(instance)) {
-        errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/type"), baseLocation + "/type", "Instance type " + instanceType + " is invalid. Expected " + schema.get("type"), OutputErrorType.INVALID_VALUE));
+        errors.add(typeError(schema, schema.get("type"), instanceType, instanceLocation, schemaLocation, baseLocation));
       }
     } else if (schema.containsKey("type") && !instanceType.equals(schema.get("type"))) {
-      errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/type"), baseLocation + "/type", "Instance type " + instanceType + " is invalid. Expected " + schema.get("type"), OutputErrorType.INVALID_VALUE));
+      errors.add(typeError(schema, schema.get("type"), instanceType, instanceLocation, schemaLocation, baseLocation));
     }
 
     if (schema.containsKey("const")) {
@@ -266,30 +677,47 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
         errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/enum"), baseLocation + "/enum", "Instance does not match any of " + Json.encode(schema.get("enum")), OutputErrorType.INVALID_VALUE));
       }
     }
+  }
 
+  /**
+   * Validate the in-place applicators: {@code not}, {@code anyOf}, {@code allOf}, {@code oneOf} and {@code if}.
+   *
+   * @return the errors, truncated when a valid sub schema discards the errors of the others
+   */
+  private List<OutputUnit> validateApplicators(final Object instance, final String instanceType, final JsonSchema schema, final JsonSchema recursiveAnchor, final String instanceLocation, final String schemaLocation, final String baseLocation, final Set<Object> evaluated, List<OutputUnit> errors, final ValidationContext context) throws SchemaException {
     if (schema.containsKey("not")) {
-      final OutputUnit result = validate(
+      final OutputUnit result = validateScoped(
         instance,
         Schemas.wrap((JsonObject) schema, "not"),
         recursiveAnchor,
         instanceLocation,
         schemaLocation + "/not",
         baseLocation + "/not",
-        new HashSet<>(),
-        dynamicContext
+        context
       );
       if (result.getValid()) {
         errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/not"), baseLocation + "/not", "Instance matched \"not\" schema", result.getErrorType()));
       }
     }
 
-    Set<Object> subEvaluateds = new HashSet<>();
+    final Set<Object> subEvaluateds = context.set();
 
     if (schema.containsKey("anyOf")) {
       final int errorsLength = errors.size();
       boolean anyValid = false;
-      for (int i = 0; i < schema.<JsonArray>get("anyOf").size(); i++) {
-        final Set<Object> subEvaluated = new HashSet<>(evaluated);
+      final UnionDispatch dispatch = unionDispatch(schema, "anyOf");
+      final int[] candidates = candidates(dispatch, instance, instanceType);
+      final int length = candidates == null ? schema.<JsonArray>get("anyOf").size() : candidates.length;
+      for (int c = 0; c < length; c++) {
+        final int i = candidates == null ? c : candidates[c];
+        final Object rejectedType = candidates == null ? typeError(dispatch, i, instance, instanceType) : null;
+        if (rejectedType != null) {
+          // the only error the branch would report
+          errors.add(typeError(Schemas.wrap(schema.get("anyOf"), i), rejectedType, instanceType, instanceLocation, schemaLocation + "/anyOf/" + i, baseLocation + "/anyOf/" + i));
+          continue;
+        }
+        final Set<Object> subEvaluated = context.set();
+        subEvaluated.addAll(evaluated);
         final OutputUnit result = validate(
           instance,
           Schemas.wrap(schema.get("anyOf"), i),
@@ -298,7 +726,7 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
           schemaLocation + "/anyOf/" + i,
           baseLocation + "/anyOf/" + i,
           subEvaluated,
-          dynamicContext
+          context
         );
         if (result.getErrors() != null) {
           errors.addAll(result.getErrors());
@@ -307,6 +735,7 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
         if (result.getValid()) {
           subEvaluateds.addAll(subEvaluated);
         }
+        context.release(subEvaluated);
       }
       if (anyValid) {
         errors = errors.subList(0, Math.min(errors.size(), errorsLength));
@@ -319,7 +748,8 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
       final int errorsLength = errors.size();
       boolean allValid = true;
       for (int i = 0; i < schema.<JsonArray>get("allOf").size(); i++) {
-        final Set<Object> subEvaluated = new HashSet<>(evaluated);
+        final Set<Object> subEvaluated = context.set();
+        subEvaluated.addAll(evaluated);
         final OutputUnit result = validate(
           instance,
           Schemas.wrap(schema.get("allOf"), i),
@@ -328,7 +758,7 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
           schemaLocation + "/allOf/" + i,
           baseLocation + "/allOf/" + i,
           subEvaluated,
-          dynamicContext
+          context
         );
         if (result.getErrors() != null) {
           errors.addAll(result.getErrors());
@@ -337,6 +767,7 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
         if (result.getValid()) {
           subEvaluateds.addAll(subEvaluated);
         }
+        context.release(subEvaluated);
       }
       if (allValid) {
         errors = errors.subList(0, Math.min(errors.size(), errorsLength));
@@ -348,8 +779,19 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
     if (schema.containsKey("oneOf")) {
       final int errorsLength = errors.size();
       int matches = 0;
-      for (int i = 0; i < schema.<JsonArray>get("oneOf").size(); i++) {
-        final Set<Object> subEvaluated = new HashSet<>(evaluated);
+      final UnionDispatch dispatch = unionDispatch(schema, "oneOf");
+      final int[] candidates = candidates(dispatch, instance, instanceType);
+      final int length = candidates == null ? schema.<JsonArray>get("oneOf").size() : candidates.length;
+      for (int c = 0; c < length; c++) {
+        final int i = candidates == null ? c : candidates[c];
+        final Object rejectedType = candidates == null ? typeError(dispatch, i, instance, instanceType) : null;
+        if (rejectedType != null) {
+          // the only error the branch would report
+          errors.add(typeError(Schemas.wrap(schema.get("oneOf"), i), rejectedType, instanceType, instanceLocation, schemaLocation + "/oneOf/" + i, baseLocation + "/oneOf/" + i));
+          continue;
+        }
+        final Set<Object> subEvaluated = context.set();
+        subEvaluated.addAll(evaluated);
         final OutputUnit result = validate(
           instance,
           Schemas.wrap(schema.get("oneOf"), i),
@@ -358,7 +800,7 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
           schemaLocation + "/oneOf/" + i,
           baseLocation + "/oneOf/" + i,
           subEvaluated,
-          dynamicContext
+          context
         );
         if (result.getErrors() != null) {
           errors.addAll(result.getErrors());
@@ -366,6 +808,7 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
         if (result.getValid()) {
           subEvaluateds.addAll(subEvaluated);
         }
+        context.release(subEvaluated);
         if (result.getValid()) {
           matches++;
         }
@@ -380,6 +823,7 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
     if ("object".equals(instanceType) || "array".equals(instanceType)) {
       evaluated.addAll(subEvaluateds);
     }
+    context.release(subEvaluateds);
 
     if (schema.containsKey("if")) {
       final OutputUnit conditionResult = validate(
@@ -390,7 +834,7 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
         schemaLocation + "/if",
         baseLocation + "/if",
         evaluated,
-        dynamicContext
+        context
       );
       if (conditionResult.getValid()) {
         if (schema.containsKey("then")) {
@@ -402,7 +846,7 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
             schemaLocation + "/then",
             baseLocation + "/then",
             evaluated,
-            dynamicContext
+            context
           );
           if (!thenResult.getValid()) {
             errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/if"), baseLocation + "/if", "Instance does not match \"then\" schema", thenResult.getErrorType()));
@@ -420,7 +864,7 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
           schemaLocation + "/else",
           baseLocation + "/else",
           evaluated,
-          dynamicContext
+          context
         );
         if (!elseResult.getValid()) {
           errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/else"), baseLocation + "/else", "Instance does not match \"else\" schema", elseResult.getErrorType()));
@@ -430,542 +874,697 @@ public class SchemaValidatorImpl implements SchemaValidatorInternal {
         }
       }
     }
+    return errors;
+  }
 
-    switch (instanceType) {
-      case "object": {
-        if (schema.containsKey("required")) {
-          for (final Object key : schema.<JsonArray>get("required")) {
-            if (!((JsonObject) instance).containsKey((String) key)) {
-              errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/required"), baseLocation + "/required", "Instance does not have required property \"" + key + "\"", OutputErrorType.MISSING_VALUE));
-            }
-          }
-        }
+  private PropertyDispatch propertyDispatch(final JsonSchema schema) {
+    return (schema instanceof JsonObjectSchema ? (JsonObjectSchema) schema : new JsonObjectSchema((JsonObject) schema)).propertyDispatch(linearRegex, maxRegexSteps);
+  }
 
-        final Set<String> keys = ((JsonObject) instance).fieldNames();
+  private Regex pattern(final JsonSchema schema) {
+    return (schema instanceof JsonObjectSchema ? (JsonObjectSchema) schema : new JsonObjectSchema((JsonObject) schema)).pattern(linearRegex, maxRegexSteps);
+  }
 
-        if (schema.containsKey("minProperties") && keys.size() < schema.<Integer>get("minProperties")) {
-          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/minProperties"), baseLocation + "/minProperties", "Instance does not have at least " + schema.get("minProperties") + " properties", OutputErrorType.MISSING_VALUE));
-        }
+  /**
+   * @return the error of a pattern match aborted after {@code maxRegexSteps}, counted by the location of the pattern
+   */
+  private OutputUnit aborted(final JsonSchema schema, final String instanceLocation, final String schemaLocation, final String baseLocation, final String subject) {
+    final String absoluteLocation = computeAbsoluteKeywordLocation(schema, schemaLocation);
+    abortedMatches.computeIfAbsent(absoluteLocation == null ? baseLocation : absoluteLocation, location -> new LongAdder()).increment();
+    return new OutputUnit(instanceLocation, absoluteLocation, baseLocation, subject + " could not be matched against the pattern within " + maxRegexSteps + " steps", OutputErrorType.REGEX_BUDGET_EXCEEDED);
+  }
 
-        if (schema.containsKey("maxProperties") && keys.size() > schema.<Integer>get("maxProperties")) {
-          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/maxProperties"), baseLocation + "/maxProperties", "Instance does not have at least " + schema.get("maxProperties") + " properties", OutputErrorType.INVALID_VALUE));
-        }
+  @Override
+  public Map<String, Long> abortedMatches() {
+    final Map<String, Long> counts = new TreeMap<>();
+    abortedMatches.forEach((location, count) -> counts.put(location, count.sum()));
+    return counts;
+  }
 
-        if (schema.containsKey("propertyNames")) {
-          for (final String key : ((JsonObject) instance).fieldNames()) {
-            final String subInstancePointer = instanceLocation + "/" + Pointers.encode(key);
-            final OutputUnit result = validate(
-              key,
-              Schemas.wrap((JsonObject) schema, "propertyNames"),
-              recursiveAnchor,
-              subInstancePointer,
-              schemaLocation + "/propertyNames",
-              baseLocation + "/propertyNames",
-              new HashSet<>(),
-              dynamicContext
-            );
-            if (!result.getValid()) {
-              errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/propertyNames"), baseLocation + "/propertyNames", "Property name \"" + key + "\" does not match schema", OutputErrorType.INVALID_VALUE));
-              if (result.getErrors() != null) {
-                errors.addAll(result.getErrors());
-              }
-            }
-          }
+  /**
+   * @return the indexes of the only branches of a union that can validate the instance, when only the validity is
+   * reported, or {@code null} to evaluate all of them
+   */
+  private int[] candidates(final UnionDispatch dispatch, final Object instance, final String instanceType) {
+    if (outputFormat != OutputFormat.Flag || dispatch == null) {
+      return null;
+    }
+    return dispatch.candidates(instance, instanceType);
+  }
+
+  /**
+   * @return the {@code type} of a branch of a union rejecting the instance, when it is the only error the branch
+   * reports, so that the branch is not evaluated, or {@code null} to evaluate it
+   */
+  private Object typeError(final UnionDispatch dispatch, final int branch, final Object instance, final String instanceType) {
+    // a custom format validator can report an error for any instance
+    if (dispatch == null || formatValidator != JsonFormatValidator.DEFAULT_VALIDATOR) {
+      return null;
+    }
+    return dispatch.typeError(branch, instance, instanceType);
+  }
+
+  /**
+   * @param keyword {@code anyOf} or {@code oneOf}
+   * @return the dispatch of the union of the node, its references are resolved once, or {@code null} for a node
+   * without dispatch
+   */
+  private UnionDispatch unionDispatch(final JsonSchema schema, final String keyword) {
+    if (!(schema instanceof JsonObject)) {
+      return null;
+    }
+    final boolean anyOf = "anyOf".equals(keyword);
+    final Map<Object, UnionDispatch> dispatches = anyOf ? anyOfDispatch : oneOfDispatch;
+    final Object identity = ((JsonObject) schema).getMap();
+    UnionDispatch dispatch = dispatches.get(identity);
+    if (dispatch == null) {
+      // racy but idempotent
+      dispatch = UnionDispatch.of((JsonObject) schema, keyword, draft, lookup);
+      final Map<Object, UnionDispatch> copy = new IdentityHashMap<>(dispatches);
+      copy.put(identity, dispatch);
+      if (anyOf) {
+        anyOfDispatch = copy;
+      } else {
+        oneOfDispatch = copy;
+      }
+    }
+    return dispatch;
+  }
+
+  private void validateObject(final Object instance, final JsonSchema schema, final JsonSchema recursiveAnchor, final String instanceLocation, final String schemaLocation, final String baseLocation, final Set<Object> evaluated, final List<OutputUnit> errors, final ValidationContext context) throws SchemaException {
+    if (schema.containsKey("required")) {
+      for (final Object key : schema.<JsonArray>get("required")) {
+        if (!((JsonObject) instance).containsKey((String) key)) {
+          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/required"), baseLocation + "/required", "Instance does not have required property \"" + key + "\"", OutputErrorType.MISSING_VALUE));
         }
+      }
+    }
 
-        if (schema.containsKey("dependentRequired")) {
-          for (final String key : schema.<JsonObject>get("dependentRequired").fieldNames()) {
-            if (((JsonObject) instance).containsKey(key)) {
-              final JsonArray required = schema.<JsonObject>get("dependentRequired").getJsonArray(key);
-              for (final Object dependantKey : required) {
-                if (!(((JsonObject) instance).containsKey((String) dependantKey))) {
-                  errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/dependentRequired"), baseLocation + "/dependentRequired", "Instance has \"" + key + "\" but does not have \"" + dependantKey + "\"", OutputErrorType.MISSING_VALUE));
-                }
-              }
-            }
+    final Set<String> keys = ((JsonObject) instance).fieldNames();
+
+    if (schema.containsKey("minProperties") && keys.size() < schema.<Integer>get("minProperties")) {
+      errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/minProperties"), baseLocation + "/minProperties", "Instance does not have at least " + schema.get("minProperties") + " properties", OutputErrorType.MISSING_VALUE));
+    }
+
+    if (schema.containsKey("maxProperties") && keys.size() > schema.<Integer>get("maxProperties")) {
+      errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/maxProperties"), baseLocation + "/maxProperties", "Instance has more than " + schema.get("maxProperties") + " properties", OutputErrorType.INVALID_VALUE));
+    }
+
+    if (schema.containsKey("propertyNames")) {
+      for (final String key : ((JsonObject) instance).fieldNames()) {
+        final String subInstancePointer = instanceLocation + "/" + Pointers.encode(key);
+        final OutputUnit result = validateScoped(
+          key,
+          Schemas.wrap((JsonObject) schema, "propertyNames"),
+          recursiveAnchor,
+          subInstancePointer,
+          schemaLocation + "/propertyNames",
+          baseLocation + "/propertyNames",
+          context
+        );
+        if (!result.getValid()) {
+          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/propertyNames"), baseLocation + "/propertyNames", "Property name \"" + key + "\" does not match schema", OutputErrorType.INVALID_VALUE));
+          if (result.getErrors() != null) {
+            errors.addAll(result.getErrors());
           }
         }
+      }
+    }
 
-        if (schema.containsKey("dependentSchemas")) {
-          for (final String key : schema.<JsonObject>get("dependentSchemas").fieldNames()) {
-            if (((JsonObject) instance).containsKey(key)) {
-              final OutputUnit result = validate(
-                instance,
-                Schemas.wrap(schema.get("dependentSchemas"), key),
-                recursiveAnchor,
-                instanceLocation,
-                schemaLocation + "/dependentSchemas/" + Pointers.encode(key),
-                baseLocation + "/dependentSchemas/" + Pointers.encode(key),
-                evaluated,
-                dynamicContext
-              );
-              if (!result.getValid()) {
-                errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/dependentSchemas"), baseLocation + "/dependentSchemas", "Instance has \"" + key + "\" but does not match dependant schema", OutputErrorType.MISSING_VALUE));
-                if (result.getErrors() != null) {
-                  errors.addAll(result.getErrors());
-                }
-              }
+    if (schema.containsKey("dependentRequired")) {
+      for (final String key : schema.<JsonObject>get("dependentRequired").fieldNames()) {
+        if (((JsonObject) instance).containsKey(key)) {
+          final JsonArray required = schema.<JsonObject>get("dependentRequired").getJsonArray(key);
+          for (final Object dependantKey : required) {
+            if (!(((JsonObject) instance).containsKey((String) dependantKey))) {
+              errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/dependentRequired"), baseLocation + "/dependentRequired", "Instance has \"" + key + "\" but does not have \"" + dependantKey + "\"", OutputErrorType.MISSING_VALUE));
             }
           }
         }
+      }
+    }
 
-        if (schema.containsKey("dependencies")) {
-          for (final String key : schema.<JsonObject>get("dependencies").fieldNames()) {
-            if (((JsonObject) instance).containsKey(key)) {
-              final Object propsOrSchema = schema.<JsonObject>get("dependencies").getValue(key);
-              if (propsOrSchema instanceof JsonArray) {
-                for (final Object dependantKey : ((JsonArray) propsOrSchema)) {
-                  if (!((JsonObject) instance).containsKey((String) dependantKey)) {
-                    errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/dependencies"), baseLocation + "/dependencies", "Instance has \"" + key + "\" but does not have \"" + dependantKey + "\"", OutputErrorType.MISSING_VALUE));
-                  }
-                }
-              } else {
-                final OutputUnit result = validate(
-                  instance,
-                  Schemas.wrap(schema.get("dependencies"), key),
-                  recursiveAnchor,
-                  instanceLocation,
-                  schemaLocation + "/dependencies/" + Pointers.encode(key),
-                  baseLocation + "/dependencies/" + Pointers.encode(key),
-                  new HashSet<>(),
-                  dynamicContext
-                );
-                if (!result.getValid()) {
-                  errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/dependencies"), baseLocation + "/dependencies", "Instance has \"" + key + "\" but does not match dependant schema", OutputErrorType.MISSING_VALUE));
-                  if (result.getErrors() != null) {
-                    errors.addAll(result.getErrors());
-                  }
-                }
-              }
+    if (schema.containsKey("dependentSchemas")) {
+      for (final String key : schema.<JsonObject>get("dependentSchemas").fieldNames()) {
+        if (((JsonObject) instance).containsKey(key)) {
+          final OutputUnit result = validate(
+            instance,
+            Schemas.wrap(schema.get("dependentSchemas"), key),
+            recursiveAnchor,
+            instanceLocation,
+            schemaLocation + "/dependentSchemas/" + Pointers.encode(key),
+            baseLocation + "/dependentSchemas/" + Pointers.encode(key),
+            evaluated,
+            context
+          );
+          if (!result.getValid()) {
+            errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/dependentSchemas"), baseLocation + "/dependentSchemas", "Instance has \"" + key + "\" but does not match dependant schema", OutputErrorType.MISSING_VALUE));
+            if (result.getErrors() != null) {
+              errors.addAll(result.getErrors());
             }
           }
         }
+      }
+    }
 
-        final Set<Object> thisEvaluated = new HashSet<>();
-
-        boolean stop = false;
-
-        if (schema.containsKey("properties")) {
-          for (final String key : schema.<JsonObject>get("properties").fieldNames()) {
-            if (!((JsonObject) instance).containsKey(key)) {
-              continue;
+    if (schema.containsKey("dependencies")) {
+      for (final String key : schema.<JsonObject>get("dependencies").fieldNames()) {
+        if (((JsonObject) instance).containsKey(key)) {
+          final Object propsOrSchema = schema.<JsonObject>get("dependencies").getValue(key);
+          if (propsOrSchema instanceof JsonArray) {
+            for (final Object dependantKey : ((JsonArray) propsOrSchema)) {
+              if (!((JsonObject) instance).containsKey((String) dependantKey)) {
+                errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/dependencies"), baseLocation + "/dependencies", "Instance has \"" + key + "\" but does not have \"" + dependantKey + "\"", OutputErrorType.MISSING_VALUE));
+              }
             }
-            final String subInstancePointer = instanceLocation + "/" + Pointers.encode(key);
-            final OutputUnit result = validate(
-              ((JsonObject) instance).getValue(key),
-              Schemas.wrap(schema.get("properties"), key),
+          } else {
+            final OutputUnit result = validateScoped(
+              instance,
+              Schemas.wrap(schema.get("dependencies"), key),
               recursiveAnchor,
-              subInstancePointer,
-              schemaLocation + "/properties/" + Pointers.encode(key),
-              baseLocation + "/properties/" + Pointers.encode(key),
-              new HashSet<>(),
-              dynamicContext
+              instanceLocation,
+              schemaLocation + "/dependencies/" + Pointers.encode(key),
+              baseLocation + "/dependencies/" + Pointers.encode(key),
+              context
             );
-            if (result.getValid()) {
-              evaluated.add(key);
-              thisEvaluated.add(key);
-            } else {
-              stop = outputFormat == OutputFormat.Flag;
-              errors.add(new OutputUnit(subInstancePointer, computeAbsoluteKeywordLocation(schema, schemaLocation + "/properties"), baseLocation + "/properties", "Property \"" + key + "\" does not match schema", result.getErrorType()));
+            if (!result.getValid()) {
+              errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/dependencies"), baseLocation + "/dependencies", "Instance has \"" + key + "\" but does not match dependant schema", OutputErrorType.MISSING_VALUE));
               if (result.getErrors() != null) {
                 errors.addAll(result.getErrors());
               }
-              if (stop) {
-                break;
-              }
             }
           }
         }
+      }
+    }
 
-        if (!stop && schema.containsKey("patternProperties")) {
-          for (final String pattern : schema.<JsonObject>get("patternProperties").fieldNames()) {
-            final Pattern regex = Pattern.compile(pattern);
-            for (final String key : ((JsonObject) instance).fieldNames()) {
-              if (!regex.matcher(key).find()) {
-                continue;
-              }
-              final String subInstancePointer = instanceLocation + "/" + Pointers.encode(key);
-              final OutputUnit result = validate(
-                ((JsonObject) instance).getValue(key),
-                Schemas.wrap(schema.get("patternProperties"), pattern),
-                recursiveAnchor,
-                subInstancePointer,
-                schemaLocation + "/patternProperties/" + Pointers.encode(pattern),
-                baseLocation + "/patternProperties/" + Pointers.encode(pattern),
-                new HashSet<>(),
-                dynamicContext
-              );
-              if (result.getValid()) {
-                evaluated.add(key);
-                thisEvaluated.add(key);
-              } else {
-                stop = outputFormat == OutputFormat.Flag;
-                errors.add(new OutputUnit(subInstancePointer, computeAbsoluteKeywordLocation(schema, schemaLocation + "/patternProperties"), baseLocation + "/patternProperties", "Property \"" + key + "\" matches pattern \"" + pattern + "\" but does not match associated schema", OutputErrorType.INVALID_VALUE));
-                if (result.getErrors() != null) {
-                  errors.addAll(result.getErrors());
-                }
-              }
-            }
+    final Set<Object> thisEvaluated = context.set();
+
+    boolean stop = false;
+
+    if (schema.containsKey("properties")) {
+      final JsonObject properties = schema.get("properties");
+      final List<String> present = context.list();
+      for (final String key : properties.fieldNames()) {
+        if (((JsonObject) instance).containsKey(key)) {
+          present.add(key);
+        }
+      }
+      final SubValidation validation = (index, fork) -> {
+        final String key = present.get(index);
+        return validateScoped(
+          ((JsonObject) instance).getValue(key),
+          Schemas.wrap(properties, key),
+          recursiveAnchor,
+          instanceLocation + "/" + Pointers.encode(key),
+          schemaLocation + "/properties/" + Pointers.encode(key),
+          baseLocation + "/properties/" + Pointers.encode(key),
+          fork
+        );
+      };
+      final Object[] results = parallel(context, present.size()) ? validateParallel(0, present.size(), context, validation) : null;
+      for (int index = 0; index < present.size(); index++) {
+        final String key = present.get(index);
+        final String subInstancePointer = instanceLocation + "/" + Pointers.encode(key);
+        final OutputUnit result = results != null ? result(results, index) : validation.validate(index, context);
+        if (result.getValid()) {
+          evaluated.add(key);
+          thisEvaluated.add(key);
+        } else {
+          stop = outputFormat == OutputFormat.Flag;
+          errors.add(new OutputUnit(subInstancePointer, computeAbsoluteKeywordLocation(schema, schemaLocation + "/properties"), baseLocation + "/properties", "Property \"" + key + "\" does not match schema", result.getErrorType()));
+          if (result.getErrors() != null) {
+            errors.addAll(result.getErrors());
+          }
+          if (stop) {
+            break;
           }
         }
+      }
+      context.release(present);
+    }
 
-        if (!stop && schema.containsKey("additionalProperties")) {
-          for (final String key : ((JsonObject) instance).fieldNames()) {
-            if (thisEvaluated.contains(key)) {
-              continue;
-            }
-            final String subInstancePointer = instanceLocation + "/" + Pointers.encode(key);
-            final OutputUnit result = validate(
-              ((JsonObject) instance).getValue(key),
-              Schemas.wrap((JsonObject) schema, "additionalProperties"),
-              recursiveAnchor,
-              subInstancePointer,
-              schemaLocation + "/additionalProperties",
-              baseLocation + "/additionalProperties",
-              new HashSet<>(),
-              dynamicContext
-            );
-            if (result.getValid()) {
-              evaluated.add(key);
-            } else {
-              stop = outputFormat == OutputFormat.Flag;
-              errors.add(new OutputUnit(subInstancePointer, computeAbsoluteKeywordLocation(schema, schemaLocation + "/additionalProperties"), baseLocation + "/additionalProperties", "Property \"" + key + "\" does not match additional properties schema", result.getErrorType()));
-              if (result.getErrors() != null) {
-                errors.addAll(result.getErrors());
-              }
-              if (stop) {
-                break;
-              }
-            }
-          }
-        } else if (!stop && schema.containsKey("unevaluatedProperties")) {
-          for (final String key : ((JsonObject) instance).fieldNames()) {
-            if (!evaluated.contains(key)) {
-              final String subInstancePointer = instanceLocation + "/" + Pointers.encode(key);
-              final OutputUnit result = validate(
-                ((JsonObject) instance).getValue(key),
-                Schemas.wrap((JsonObject) schema, "unevaluatedProperties"),
-                recursiveAnchor,
-                subInstancePointer,
-                schemaLocation + "/unevaluatedProperties",
-                baseLocation + "/unevaluatedProperties",
-                new HashSet<>(),
-                dynamicContext
-              );
-              if (result.getValid()) {
-                evaluated.add(key);
-              } else {
-                errors.add(new OutputUnit(subInstancePointer, computeAbsoluteKeywordLocation(schema, schemaLocation + "/unevaluatedProperties"), baseLocation + "/unevaluatedProperties", "Property \"" + key + "\" does not match unevaluated properties schema", result.getErrorType()));
-                if (result.getErrors() != null) {
-                  errors.addAll(result.getErrors());
-                }
-              }
+    if (!stop && schema.containsKey("patternProperties")) {
+      final PropertyDispatch dispatch = propertyDispatch(schema);
+      final Map<String, Integer> aborted = maxRegexSteps > 0 ? new LinkedHashMap<>() : null;
+      final List<String>[] byPattern = dispatch.byPattern(((JsonObject) instance).fieldNames(), aborted);
+      for (int index = 0; index < byPattern.length; index++) {
+        if (byPattern[index] == null) {
+          continue;
+        }
+        final String pattern = dispatch.patterns()[index];
+        for (final String key : byPattern[index]) {
+          final String subInstancePointer = instanceLocation + "/" + Pointers.encode(key);
+          final OutputUnit result = validateScoped(
+            ((JsonObject) instance).getValue(key),
+            Schemas.wrap(schema.get("patternProperties"), pattern),
+            recursiveAnchor,
+            subInstancePointer,
+            schemaLocation + "/patternProperties/" + Pointers.encode(pattern),
+            baseLocation + "/patternProperties/" + Pointers.encode(pattern),
+            context
+          );
+          if (result.getValid()) {
+            evaluated.add(key);
+            thisEvaluated.add(key);
+          } else {
+            stop = outputFormat == OutputFormat.Flag;
+            errors.add(new OutputUnit(subInstancePointer, computeAbsoluteKeywordLocation(schema, schemaLocation + "/patternProperties"), baseLocation + "/patternProperties", "Property \"" + key + "\" matches pattern \"" + pattern + "\" but does not match associated schema", OutputErrorType.INVALID_VALUE));
+            if (result.getErrors() != null) {
+              errors.addAll(result.getErrors());
             }
           }
         }
-        break;
       }
-      case "array": {
-        if (schema.containsKey("maxItems") && ((JsonArray) instance).size() > schema.<Integer>get("maxItems")) {
-          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/maxItems"), baseLocation + "/maxItems", "Array has too many items ( + " + ((JsonArray) instance).size() + " > " + schema.get("maxItems") + ")", OutputErrorType.INVALID_VALUE));
+      if (aborted != null && !aborted.isEmpty()) {
+        for (final Map.Entry<String, Integer> entry : aborted.entrySet()) {
+          final String pattern = dispatch.patterns()[entry.getValue()];
+          // the sub schemas of a property that could not be classified are unknown
+          thisEvaluated.add(entry.getKey());
+          errors.add(aborted(schema, instanceLocation + "/" + Pointers.encode(entry.getKey()), schemaLocation + "/patternProperties/" + Pointers.encode(pattern), baseLocation + "/patternProperties/" + Pointers.encode(pattern), "Property \"" + entry.getKey() + "\""));
         }
+        stop = outputFormat == OutputFormat.Flag;
+      }
+    }
 
-        if (schema.containsKey("minItems") && ((JsonArray) instance).size() < schema.<Integer>get("minItems")) {
-          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/minItems"), baseLocation + "/minItems", "Array has too few items ( + " + ((JsonArray) instance).size() + " < " + schema.get("minItems") + ")", OutputErrorType.MISSING_VALUE));
+    if (!stop && schema.containsKey("additionalProperties")) {
+      for (final String key : ((JsonObject) instance).fieldNames()) {
+        if (thisEvaluated.contains(key)) {
+          continue;
         }
-
-        final int length = ((JsonArray) instance).size();
-        int i = 0;
-        boolean stop = false;
-
-        if (schema.containsKey("prefixItems")) {
-          final int length2 = Math.min(schema.<JsonArray>get("prefixItems").size(), length);
-          for (; i < length2; i++) {
-            final OutputUnit result = validate(
-              ((JsonArray) instance).getValue(i),
-              Schemas.wrap(schema.get("prefixItems"), i),
-              recursiveAnchor,
-              instanceLocation + "/" + i,
-              schemaLocation + "/prefixItems/" + i,
-              baseLocation + "/prefixItems/" + i,
-              new HashSet<>(),
-              dynamicContext
-            );
-            evaluated.add(i);
-            if (!result.getValid()) {
-              stop = outputFormat == OutputFormat.Flag;
-              errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/prefixItems"), baseLocation + "/prefixItems", "Items did not match schema", result.getErrorType()));
-              if (result.getErrors() != null) {
-                errors.addAll(result.getErrors());
-              }
-              if (stop) {
-                break;
-              }
-            }
+        final String subInstancePointer = instanceLocation + "/" + Pointers.encode(key);
+        final OutputUnit result = validateScoped(
+          ((JsonObject) instance).getValue(key),
+          Schemas.wrap((JsonObject) schema, "additionalProperties"),
+          recursiveAnchor,
+          subInstancePointer,
+          schemaLocation + "/additionalProperties",
+          baseLocation + "/additionalProperties",
+          context
+        );
+        if (result.getValid()) {
+          evaluated.add(key);
+        } else {
+          stop = outputFormat == OutputFormat.Flag;
+          errors.add(new OutputUnit(subInstancePointer, computeAbsoluteKeywordLocation(schema, schemaLocation + "/additionalProperties"), baseLocation + "/additionalProperties", "Property \"" + key + "\" does not match additional properties schema", result.getErrorType()));
+          if (result.getErrors() != null) {
+            errors.addAll(result.getErrors());
+          }
+          if (stop) {
+            break;
           }
         }
-
-        if (schema.containsKey("items")) {
-          if (schema.get("items") instanceof JsonArray) {
-            final int length2 = Math.min(schema.<JsonArray>get("items").size(), length);
-            for (; i < length2; i++) {
-              final OutputUnit result = validate(
-                ((JsonArray) instance).getValue(i),
-                Schemas.wrap(schema.get("items"), i),
-                recursiveAnchor,
-                instanceLocation + "/" + i,
-                schemaLocation + "/items/" + i,
-                baseLocation + "/items/" + i,
-                new HashSet<>(),
-                dynamicContext
-              );
-              evaluated.add(i);
-              if (!result.getValid()) {
-                stop = outputFormat == OutputFormat.Flag;
-                errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/items"), baseLocation + "/items", "Items did not match schema", result.getErrorType()));
-                if (result.getErrors() != null) {
-                  errors.addAll(result.getErrors());
-                }
-                if (stop) {
-                  break;
-                }
-              }
-            }
+      }
+    } else if (!stop && schema.containsKey("unevaluatedProperties")) {
+      for (final String key : ((JsonObject) instance).fieldNames()) {
+        if (!evaluated.contains(key)) {
+          final String subInstancePointer = instanceLocation + "/" + Pointers.encode(key);
+          final OutputUnit result = validateScoped(
+            ((JsonObject) instance).getValue(key),
+            Schemas.wrap((JsonObject) schema, "unevaluatedProperties"),
+            recursiveAnchor,
+            subInstancePointer,
+            schemaLocation + "/unevaluatedProperties",
+            baseLocation + "/unevaluatedProperties",
+            context
+          );
+          if (result.getValid()) {
+            evaluated.add(key);
           } else {
-            for (; i < length; i++) {
-              final OutputUnit result = validate(
-                ((JsonArray) instance).getValue(i),
-                Schemas.wrap((JsonObject) schema, "items"),
-                recursiveAnchor,
-                instanceLocation + "/" + i,
-                schemaLocation + "/items",
-                baseLocation + "/items",
-                new HashSet<>(),
-                dynamicContext
-              );
-              evaluated.add(i);
-              if (!result.getValid()) {
-                stop = outputFormat == OutputFormat.Flag;
-                errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/items"), baseLocation + "/items", "Items did not match schema", result.getErrorType()));
-                if (result.getErrors() != null) {
-                  errors.addAll(result.getErrors());
-                }
-                if (stop) {
-                  break;
-                }
-              }
+            errors.add(new OutputUnit(subInstancePointer, computeAbsoluteKeywordLocation(schema, schemaLocation + "/unevaluatedProperties"), baseLocation + "/unevaluatedProperties", "Property \"" + key + "\" does not match unevaluated properties schema", result.getErrorType()));
+            if (result.getErrors() != null) {
+              errors.addAll(result.getErrors());
             }
           }
+        }
+      }
+    }
+    context.release(thisEvaluated);
+  }
 
-          if (!stop && schema.containsKey("additionalItems")) {
-            final String keywordLocation2 = schemaLocation + "/additionalItems";
-            for (; i < length; i++) {
-              final OutputUnit result = validate(
-                ((JsonArray) instance).getValue(i),
-                Schemas.wrap((JsonObject) schema, "additionalItems"),
-                recursiveAnchor,
-                instanceLocation + "/" + i,
-                keywordLocation2,
-                baseLocation + "/additionalItems",
-                new HashSet<>(),
-                dynamicContext
-              );
-              evaluated.add(i);
-              if (!result.getValid()) {
-                stop = outputFormat == OutputFormat.Flag;
-                errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/additionalItems"), schemaLocation + "/additionalItems", "Items did not match additional items schema", result.getErrorType()));
-                if (result.getErrors() != null) {
-                  errors.addAll(result.getErrors());
-                }
-              }
-            }
+  /**
+   * @return the errors, truncated when {@code contains} discards the errors of the items it did not match
+   */
+  private List<OutputUnit> validateArray(final Object instance, final JsonSchema schema, final JsonSchema recursiveAnchor, final String instanceLocation, final String schemaLocation, final String baseLocation, final Set<Object> evaluated, List<OutputUnit> errors, final ValidationContext context) throws SchemaException {
+    if (schema.containsKey("maxItems") && ((JsonArray) instance).size() > schema.<Integer>get("maxItems")) {
+      errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/maxItems"), baseLocation + "/maxItems", "Array has too many items ( + " + ((JsonArray) instance).size() + " > " + schema.get("maxItems") + ")", OutputErrorType.INVALID_VALUE));
+    }
+
+    if (schema.containsKey("minItems") && ((JsonArray) instance).size() < schema.<Integer>get("minItems")) {
+      errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/minItems"), baseLocation + "/minItems", "Array has too few items ( + " + ((JsonArray) instance).size() + " < " + schema.get("minItems") + ")", OutputErrorType.MISSING_VALUE));
+    }
+
+    final int length = ((JsonArray) instance).size();
+    int i = 0;
+    boolean stop = false;
+
+    if (schema.containsKey("prefixItems")) {
+      final JsonArray prefixItems = schema.get("prefixItems");
+      final int length2 = Math.min(prefixItems.size(), length);
+      final SubValidation validation = (index, fork) -> validateScoped(
+        ((JsonArray) instance).getValue(index),
+        Schemas.wrap(prefixItems, index),
+        recursiveAnchor,
+        instanceLocation + "/" + index,
+        schemaLocation + "/prefixItems/" + index,
+        baseLocation + "/prefixItems/" + index,
+        fork
+      );
+      final Object[] results = parallel(context, length2) ? validateParallel(0, length2, context, validation) : null;
+      for (; i < length2; i++) {
+        final OutputUnit result = results != null ? result(results, i) : validation.validate(i, context);
+        evaluated.add(i);
+        if (!result.getValid()) {
+          stop = outputFormat == OutputFormat.Flag;
+          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/prefixItems"), baseLocation + "/prefixItems", "Items did not match schema", result.getErrorType()));
+          if (result.getErrors() != null) {
+            errors.addAll(result.getErrors());
+          }
+          if (stop) {
+            break;
           }
         }
+      }
+    }
 
-        if (schema.containsKey("contains")) {
-          if (length == 0 && !schema.containsKey("minContains")) {
-            errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/contains"), baseLocation + "/contains", "Array is empty. It must contain at least one item matching the schema", OutputErrorType.MISSING_VALUE));
-          } else if (schema.containsKey("minContains") && length < schema.<Integer>get("minContains")) {
-            errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/minContains"), baseLocation + "/minContains", "Array has less items (" + length + ") than minContains (" + schema.get("minContains") + ")", OutputErrorType.MISSING_VALUE));
-          } else {
-            final int errorsLength = errors.size();
-            int contained = 0;
-            for (int j = 0; j < length; j++) {
-              final OutputUnit result = validate(
-                ((JsonArray) instance).getValue(j),
-                Schemas.wrap((JsonObject) schema, "contains"),
-                recursiveAnchor,
-                instanceLocation + "/" + i,
-                schemaLocation + "/contains",
-                baseLocation + "/contains",
-                new HashSet<>(),
-                dynamicContext
-              );
-              if (result.getValid()) {
-                evaluated.add(j);
-                contained++;
-              } else {
-                if (result.getErrors() != null) {
-                  errors.addAll(result.getErrors());
-                }
-              }
-            }
-
-            if (contained >= schema.<Integer>get("minContains", 0)) {
-              errors = errors.subList(0, Math.min(errors.size(), errorsLength));
+    if (schema.containsKey("items")) {
+      if (schema.get("items") instanceof JsonArray) {
+        final JsonArray items = schema.get("items");
+        final int length2 = Math.min(items.size(), length);
+        final SubValidation validation = (index, fork) -> validateScoped(
+          ((JsonArray) instance).getValue(index),
+          Schemas.wrap(items, index),
+          recursiveAnchor,
+          instanceLocation + "/" + index,
+          schemaLocation + "/items/" + index,
+          baseLocation + "/items/" + index,
+          fork
+        );
+        final int from = i;
+        final Object[] results = parallel(context, length2 - from) ? validateParallel(from, length2, context, validation) : null;
+        for (; i < length2; i++) {
+          final OutputUnit result = results != null ? result(results, i - from) : validation.validate(i, context);
+          evaluated.add(i);
+          if (!result.getValid()) {
+            stop = outputFormat == OutputFormat.Flag;
+            errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/items"), baseLocation + "/items", "Items did not match schema", result.getErrorType()));
+            if (result.getErrors() != null) {
+              errors.addAll(result.getErrors());
             }
-
-            if (
-              !schema.containsKey("minContains") &&
-                !schema.containsKey("maxContains") &&
-                contained == 0
-            ) {
-              errors.add(errorsLength, new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/contains"), baseLocation + "/contains", "Array does not contain item matching schema", OutputErrorType.INVALID_VALUE));
-            } else if (schema.containsKey("minContains") && contained < schema.<Integer>get("minContains")) {
-              errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/minContains"), baseLocation + "/minContains", "Array must contain at least " + schema.get("minContains") + " items matching schema. Only " + contained + " items were found", OutputErrorType.MISSING_VALUE));
-            } else if (schema.containsKey("maxContains") && contained > schema.<Integer>get("maxContains")) {
-              errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/maxContains"), baseLocation + "/maxContains", "Array may contain at most " + schema.get("minContains") + " items matching schema. " + contained + " items were found", OutputErrorType.INVALID_VALUE));
+            if (stop) {
+              break;
             }
           }
         }
-
-        if (!stop && schema.containsKey("unevaluatedItems")) {
-          for (; i < length; i++) {
-            if (evaluated.contains(i)) {
-              continue;
+      } else {
+        final JsonSchema items = Schemas.wrap((JsonObject) schema, "items");
+        final SubValidation validation = (index, fork) -> validateScoped(
+          ((JsonArray) instance).getValue(index),
+          items,
+          recursiveAnchor,
+          instanceLocation + "/" + index,
+          schemaLocation + "/items",
+          baseLocation + "/items",
+          fork
+        );
+        final int from = i;
+        final Object[] results = parallel(context, length - from) ? validateParallel(from, length, context, validation) : null;
+        for (; i < length; i++) {
+          final OutputUnit result = results != null ? result(results, i - from) : validation.validate(i, context);
+          evaluated.add(i);
+          if (!result.getValid()) {
+            stop = outputFormat == OutputFormat.Flag;
+            errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/items"), baseLocation + "/items", "Items did not match schema", result.getErrorType()));
+            if (result.getErrors() != null) {
+              errors.addAll(result.getErrors());
             }
-            final OutputUnit result = validate(
-              ((JsonArray) instance).getValue(i),
-              Schemas.wrap((JsonObject) schema, "unevaluatedItems"),
-              recursiveAnchor,
-              instanceLocation + "/" + i,
-              schemaLocation + "/unevaluatedItems",
-              baseLocation + "/unevaluatedItems",
-              new HashSet<>(),
-              dynamicContext
-            );
-            evaluated.add(i);
-            if (!result.getValid()) {
-              errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/unevaluatedItems"), baseLocation + "/unevaluatedItems", "Items did not match unevaluated items schema", result.getErrorType()));
-              if (result.getErrors() != null) {
-                errors.addAll(result.getErrors());
-              }
+            if (stop) {
+              break;
             }
           }
         }
+      }
 
-        if (schema.containsKey("uniqueItems") && Utils.Objects.truthy(schema.get("uniqueItems"))) {
-          outer:
-          for (int j = 0; j < length; j++) {
-            final Object a = ((JsonArray) instance).getValue(j);
-            final boolean ao = "object".equals(JSON.typeOf(a)) && a != null;
-            for (int k = 0; k < length; k++) {
-              if (j == k) {
-                continue;
-              }
-              final Object b = ((JsonArray) instance).getValue(k);
-              final boolean bo = "object".equals(JSON.typeOf(b)) && b != null;
-              if (Utils.Objects.equals(a, b) || (ao && bo && JSON.deepCompare(a, b))) {
-                errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/uniqueItems"), baseLocation + "/uniqueItems", "Duplicate items at indexes " + j + " and " + k, OutputErrorType.INVALID_VALUE));
-                break outer;
-              }
+      if (!stop && schema.containsKey("additionalItems")) {
+        final String keywordLocation2 = schemaLocation + "/additionalItems";
+        for (; i < length; i++) {
+          final OutputUnit result = validateScoped(
+            ((JsonArray) instance).getValue(i),
+            Schemas.wrap((JsonObject) schema, "additionalItems"),
+            recursiveAnchor,
+            instanceLocation + "/" + i,
+            keywordLocation2,
+            baseLocation + "/additionalItems",
+            context
+          );
+          evaluated.add(i);
+          if (!result.getValid()) {
+            stop = outputFormat == OutputFormat.Flag;
+            errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/additionalItems"), schemaLocation + "/additionalItems", "Items did not match additional items schema", result.getErrorType()));
+            if (result.getErrors() != null) {
+              errors.addAll(result.getErrors());
             }
           }
         }
-        break;
       }
-      case "number":
-        if (draft == Draft.DRAFT4) {
-          if (
-            schema.containsKey("minimum") &&
-              ((schema.<Boolean>get("exclusiveMinimum", false) && Numbers.lte((Number) instance, schema.get("minimum"))) ||
-                Numbers.lt((Number) instance, schema.get("minimum")))
-          ) {
-            errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/minimum"), baseLocation + "/minimum", instance + " is less than " + (schema.<Boolean>get("exclusiveMinimum", false) ? "or equal to " : "") + schema.get("minimum"), OutputErrorType.INVALID_VALUE));
-          }
-          if (
-            schema.containsKey("maximum") &&
-              ((schema.<Boolean>get("exclusiveMaximum", false) && Numbers.gte((Number) instance, schema.get("maximum"))) ||
-                Numbers.gt((Number) instance, schema.get("maximum")))
-          ) {
-            errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/maximum"), baseLocation + "/maximum", instance + " is greater than " + (schema.<Boolean>get("exclusiveMaximum", false) ? "or equal to " : "") + schema.get("maximum"), OutputErrorType.INVALID_VALUE));
-          }
-        } else {
-          if (schema.containsKey("minimum") && Numbers.lt((Number) instance, schema.get("minimum"))) {
-            errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/minimum"), baseLocation + "/minimum", instance + " is less than " + schema.get("minimum"), OutputErrorType.INVALID_VALUE));
-          }
-          if (schema.containsKey("maximum") && Numbers.gt((Number) instance, schema.get("maximum"))) {
-            errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/maximum"), baseLocation + "/maximum", instance + " is greater than " + schema.get("maximum"), OutputErrorType.INVALID_VALUE));
-          }
-          if (schema.containsKey("exclusiveMinimum") && Numbers.lte((Number) instance, schema.get("exclusiveMinimum"))) {
-            errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/exclusiveMinimum"), baseLocation + "/exclusiveMinimum", instance + " is less than or equal to " + schema.get("exclusiveMinimum"), OutputErrorType.INVALID_VALUE));
-          }
-          if (schema.containsKey("exclusiveMaximum") && Numbers.gte((Number) instance, schema.get("exclusiveMaximum"))) {
-            errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/exclusiveMaximum"), baseLocation + "/exclusiveMaximum", instance + " is greater than or equal to " + schema.get("exclusiveMaximum"), OutputErrorType.INVALID_VALUE));
+    }
+
+    if (schema.containsKey("contains")) {
+      if (length == 0 && !schema.containsKey("minContains")) {
+        errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/contains"), baseLocation + "/contains", "Array is empty. It must contain at least one item matching the schema", OutputErrorType.MISSING_VALUE));
+      } else if (schema.containsKey("minContains") && length < schema.<Integer>get("minContains")) {
+        errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/minContains"), baseLocation + "/minContains", "Array has less items (" + length + ") than minContains (" + schema.get("minContains") + ")", OutputErrorType.MISSING_VALUE));
+      } else {
+        final int errorsLength = errors.size();
+        int contained = 0;
+        for (int j = 0; j < length; j++) {
+          final OutputUnit result = validateScoped(
+            ((JsonArray) instance).getValue(j),
+            Schemas.wrap((JsonObject) schema, "contains"),
+            recursiveAnchor,
+            instanceLocation + "/" + i,
+            schemaLocation + "/contains",
+            baseLocation + "/contains",
+            context
+          );
+          if (result.getValid()) {
+            evaluated.add(j);
+            contained++;
+          } else {
+            if (result.getErrors() != null) {
+              errors.addAll(result.getErrors());
+            }
           }
         }
-        if (schema.containsKey("multipleOf")) {
-          final double remainder = Numbers.remainder((Number) instance, schema.get("multipleOf"));
-          if (
-            Math.abs(0 - remainder) >= 1.1920929e-7 &&
-              Math.abs(schema.<Number>get("multipleOf").doubleValue() - remainder) >= 1.1920929e-7
-          ) {
-            errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/multipleOf"), baseLocation + "/multipleOf", instance + " is not a multiple of " + schema.get("multipleOf"), OutputErrorType.INVALID_VALUE));
-          }
+
+        if (contained >= schema.<Integer>get("minContains", 0)) {
+          errors = errors.subList(0, Math.min(errors.size(), errorsLength));
         }
-        break;
-      case "string": {
-        final int length =
-          !schema.containsKey("minLength") && !schema.containsKey("maxLength")
-            ? 0
-            : Strings.ucs2length((String) instance);
-        if (schema.containsKey("minLength") && Numbers.lt(length, schema.get("minLength"))) {
-          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/minLength"), baseLocation + "/minLength", "String is too short (" + length + " < " + schema.get("minLength") + ")", OutputErrorType.INVALID_VALUE));
-        }
-        if (schema.containsKey("maxLength") && Numbers.gt(length, schema.get("maxLength"))) {
-          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/maxLength"), baseLocation + "/maxLength", "String is too long (" + length + " > " + schema.get("maxLength") + ")", OutputErrorType.INVALID_VALUE));
-        }
-        if (schema.containsKey("pattern") && !Pattern.compile(schema.get("pattern")).matcher((String) instance).find()) {
-          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/pattern"), baseLocation + "/pattern", "String does not match pattern", OutputErrorType.INVALID_VALUE));
+
+        if (
+          !schema.containsKey("minContains") &&
+            !schema.containsKey("maxContains") &&
+            contained == 0
+        ) {
+          errors.add(errorsLength, new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/contains"), baseLocation + "/contains", "Array does not contain item matching schema", OutputErrorType.INVALID_VALUE));
+        } else if (schema.containsKey("minContains") && contained < schema.<Integer>get("minContains")) {
+          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/minContains"), baseLocation + "/minContains", "Array must contain at least " + schema.get("minContains") + " items matching schema. Only " + contained + " items were found", OutputErrorType.MISSING_VALUE));
+        } else if (schema.containsKey("maxContains") && contained > schema.<Integer>get("maxContains")) {
+          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/maxContains"), baseLocation + "/maxContains", "Array may contain at most " + schema.get("minContains") + " items matching schema. " + contained + " items were found", OutputErrorType.INVALID_VALUE));
         }
-        if (schema.containsKey("format") &&
-            !Format.fastFormat(schema.get("format"), (String) instance)) {
-          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/format"), baseLocation + "/format", "String does not match format \"" + schema.get("format") + "\"", OutputErrorType.INVALID_VALUE));
+      }
+    }
+
+    if (!stop && schema.containsKey("unevaluatedItems")) {
+      for (; i < length; i++) {
+        if (evaluated.contains(i)) {
+          continue;
+        }
+        final OutputUnit result = validateScoped(
+          ((JsonArray) instance).getValue(i),
+          Schemas.wrap((JsonObject) schema, "unevaluatedItems"),
+          recursiveAnchor,
+          instanceLocation + "/" + i,
+          schemaLocation + "/unevaluatedItems",
+          baseLocation + "/unevaluatedItems",
+          context
+        );
+        evaluated.add(i);
+        if (!result.getValid()) {
+          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/unevaluatedItems"), baseLocation + "/unevaluatedItems", "Items did not match unevaluated items schema", result.getErrorType()));
+          if (result.getErrors() != null) {
+            errors.addAll(result.getErrors());
+          }
         }
+      }
+    }
 
-        //Content encoding was introduced in Draft7, but was turned into annotated only in draft 2019 and after.
-        if (draft.isAfter(Draft.DRAFT4) &&
-          schema.containsKey("contentEncoding") &&
-          !Format.testContentEncoding(schema.get("contentEncoding"), (String) instance)) {
-          OutputUnit errorUnit = new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/contentEncoding"), baseLocation + "/contentEncoding", "String does not match the content encoding \"" + schema.get("contentEncoding") + "\"", OutputErrorType.INVALID_VALUE);
-          if(draft.isAfter(Draft.DRAFT7)) {
-            annotations.add(errorUnit);
-          } else {
-            errors.add(errorUnit);
+    if (schema.containsKey("uniqueItems") && Utils.Objects.truthy(schema.get("uniqueItems"))) {
+      outer:
+      for (int j = 0; j < length; j++) {
+        final Object a = ((JsonArray) instance).getValue(j);
+        final boolean ao = "object".equals(JSON.typeOf(a)) && a != null;
+        for (int k = 0; k < length; k++) {
+          if (j == k) {
+            continue;
+          }
+          final Object b = ((JsonArray) instance).getValue(k);
+          final boolean bo = "object".equals(JSON.typeOf(b)) && b != null;
+          if (Utils.Objects.equals(a, b) || (ao && bo && JSON.deepCompare(a, b))) {
+            errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/uniqueItems"), baseLocation + "/uniqueItems", "Duplicate items at indexes " + j + " and " + k, OutputErrorType.INVALID_VALUE));
+            break outer;
           }
         }
+      }
+    }
+    return errors;
+  }
 
-        break;
+  private void validateNumber(final Number instance, final JsonSchema schema, final String instanceLocation, final String schemaLocation, final String baseLocation, final List<OutputUnit> errors) {
+    if (draft == Draft.DRAFT4) {
+      if (
+        schema.containsKey("minimum") &&
+          ((schema.<Boolean>get("exclusiveMinimum", false) && Numbers.lte(instance, schema.get("minimum"))) ||
+            Numbers.lt(instance, schema.get("minimum")))
+      ) {
+        errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/minimum"), baseLocation + "/minimum", instance + " is less than " + (schema.<Boolean>get("exclusiveMinimum", false) ? "or equal to " : "") + schema.get("minimum"), OutputErrorType.INVALID_VALUE));
+      }
+      if (
+        schema.containsKey("maximum") &&
+          ((schema.<Boolean>get("exclusiveMaximum", false) && Numbers.gte(instance, schema.get("maximum"))) ||
+            Numbers.gt(instance, schema.get("maximum")))
+      ) {
+        errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/maximum"), baseLocation + "/maximum", instance + " is greater than " + (schema.<Boolean>get("exclusiveMaximum", false) ? "or equal to " : "") + schema.get("maximum"), OutputErrorType.INVALID_VALUE));
+      }
+    } else {
+      if (schema.containsKey("minimum") && Numbers.lt(instance, schema.get("minimum"))) {
+        errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/minimum"), baseLocation + "/minimum", instance + " is less than " + schema.get("minimum"), OutputErrorType.INVALID_VALUE));
+      }
+      if (schema.containsKey("maximum") && Numbers.gt(instance, schema.get("maximum"))) {
+        errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/maximum"), baseLocation + "/maximum", instance + " is greater than " + schema.get("maximum"), OutputErrorType.INVALID_VALUE));
+      }
+      if (schema.containsKey("exclusiveMinimum") && Numbers.lte(instance, schema.get("exclusiveMinimum"))) {
+        errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/exclusiveMinimum"), baseLocation + "/exclusiveMinimum", instance + " is less than or equal to " + schema.get("exclusiveMinimum"), OutputErrorType.INVALID_VALUE));
+      }
+      if (schema.containsKey("exclusiveMaximum") && Numbers.gte(instance, schema.get("exclusiveMaximum"))) {
+        errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/exclusiveMaximum"), baseLocation + "/exclusiveMaximum", instance + " is greater than or equal to " + schema.get("exclusiveMaximum"), OutputErrorType.INVALID_VALUE));
       }
     }
+    if (schema.containsKey("multipleOf")) {
+      final double remainder = Numbers.remainder(instance, schema.get("multipleOf"));
+      if (
+        Math.abs(0 - remainder) >= 1.1920929e-7 &&
+          Math.abs(schema.<Number>get("multipleOf").doubleValue() - remainder) >= 1.1920929e-7
+      ) {
+        errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/multipleOf"), baseLocation + "/multipleOf", instance + " is not a multiple of " + schema.get("multipleOf"), OutputErrorType.INVALID_VALUE));
+      }
+    }
+  }
 
-    String error = formatValidator.validateFormat(instanceType, schema.get("format"), instance);
-    if (error != null) {
-      errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/format"),
-        baseLocation + "/format", error, OutputErrorType.INVALID_VALUE));
+  private void validateString(final String instance, final JsonSchema schema, final String instanceLocation, final String schemaLocation, final String baseLocation, final List<OutputUnit> errors, final List<OutputUnit> annotations) {
+    final int length =
+      !schema.containsKey("minLength") && !schema.containsKey("maxLength")
+        ? 0
+        : Strings.ucs2length(instance);
+    if (schema.containsKey("minLength") && Numbers.lt(length, schema.get("minLength"))) {
+      errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/minLength"), baseLocation + "/minLength", "String is too short (" + length + " < " + schema.get("minLength") + ")", OutputErrorType.INVALID_VALUE));
+    }
+    if (schema.containsKey("maxLength") && Numbers.gt(length, schema.get("maxLength"))) {
+      errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/maxLength"), baseLocation + "/maxLength", "String is too long (" + length + " > " + schema.get("maxLength") + ")", OutputErrorType.INVALID_VALUE));
+    }
+    if (schema.containsKey("pattern")) {
+      try {
+        if (!pattern(schema).find(instance)) {
+          errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/pattern"), baseLocation + "/pattern", "String does not match pattern", OutputErrorType.INVALID_VALUE));
+        }
+      } catch (Regex.Aborted e) {
+        errors.add(aborted(schema, instanceLocation, schemaLocation + "/pattern", baseLocation + "/pattern", "String"));
+      }
+    }
+    if (schema.containsKey("format") &&
+        !Format.fastFormat(schema.get("format"), instance)) {
+      errors.add(new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/format"), baseLocation + "/format", "String does not match format \"" + schema.get("format") + "\"", OutputErrorType.INVALID_VALUE));
     }
 
-    if (dynamicAnchor != null) {
-      dynamicContext
-        .get(dynamicAnchor)
-        .removeLast();
+    //Content encoding was introduced in Draft7, but was turned into annotated only in draft 2019 and after.
+    if (draft.isAfter(Draft.DRAFT4) &&
+      schema.containsKey("contentEncoding") &&
+      !Format.testContentEncoding(schema.get("contentEncoding"), instance)) {
+      OutputUnit errorUnit = new OutputUnit(instanceLocation, computeAbsoluteKeywordLocation(schema, schemaLocation + "/contentEncoding"), baseLocation + "/contentEncoding", "String does not match the content encoding \"" + schema.get("contentEncoding") + "\"", OutputErrorType.INVALID_VALUE);
+      if(draft.isAfter(Draft.DRAFT7)) {
+        annotations.add(errorUnit);
+      } else {
+        errors.add(errorUnit);
+      }
     }
+  }
 
-    return new OutputUnit(errors.isEmpty())
-      .setErrors(outputFormat == OutputFormat.Flag ? null : errors.isEmpty() ? null : errors)
-      .setAnnotations(outputFormat == OutputFormat.Flag ? null : annotations.isEmpty() ? null : annotations)
-      .setErrorType((outputFormat == OutputFormat.Flag ? OutputErrorType.NONE :
-        errors.isEmpty() ? OutputErrorType.NONE : errors.get(0).getErrorType()));
+  private static void release(ValidationContext context, List<OutputUnit> errors, List<OutputUnit> annotations) {
+    context.release(errors);
+    context.release(annotations);
+  }
+
+  /**
+   * Validate an instance that starts a new evaluation scope, using an evaluated set borrowed from the context. As the
+   * result does not depend on what the caller evaluated, it can be served from the result cache.
+   */
+  private OutputUnit validateScoped(final Object instance, final JsonSchema schema, final JsonSchema recursiveAnchor, final String instanceLocation, final String schemaLocation, final String baseLocation, final ValidationContext context) throws SchemaException {
+    final Object key = resultCache == null ? null : resultCache.key(schema, instance);
+    if (key != null) {
+      final OutputUnit cached = resultCache.get(key);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    final Set<Object> evaluated = context.set();
+    final OutputUnit result = validate(instance, schema, recursiveAnchor, instanceLocation, schemaLocation, baseLocation, evaluated, context);
+    context.release(evaluated);
+    if (key != null) {
+      resultCache.put(key, result);
+    }
+    return result;
+  }
+
+  private boolean parallel(ValidationContext context, int count) {
+    // a validation with a budget runs on an event loop and must not block it waiting for other threads
+    return parallelThreshold > 0 && count >= parallelThreshold && !context.bounded();
+  }
+
+  /**
+   * Run the sub validations of a keyword in the range {@code [from, to)} on the common fork/join pool.
+   * <p>
+   * Sub validations push and pop dynamic anchors, so each one works on its own fork of the validation context. A failure
+   * is kept in place of the result, so that it is only thrown when the caller, replaying the results in index order,
+   * reaches it, exactly like a sequential validation would.
+   *
+   * @return the results, indexed from {@code from}
+   */
+  private static Object[] validateParallel(int from, int to, ValidationContext context, SubValidation validation) {
+    final Object[] results = new Object[to - from];
+    IntStream.range(from, to).parallel().forEach(index -> {
+      try {
+        results[index - from] = validation.validate(index, context.fork());
+      } catch (RuntimeException e) {
+        results[index - from] = e;
+      }
+    });
+    return results;
+  }
+
+  private static OutputUnit result(Object[] results, int index) {
+    final Object result = results[index];
+    if (result instanceof RuntimeException) {
+      throw (RuntimeException) result;
+    }
+    return (OutputUnit) result;
+  }
+
+  /**
+   * A sub validation of a keyword applying to many array items or object properties.
+   */
+  @FunctionalInterface
+  private interface SubValidation {
+    OutputUnit validate(int index, ValidationContext context);
   }
 
   private String computeAbsoluteKeywordLocation(JsonSchema schema, String schemaKeywordLocation) {
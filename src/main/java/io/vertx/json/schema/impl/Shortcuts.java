@@ -0,0 +1,263 @@
+package io.vertx.json.schema.impl;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.Draft;
+import io.vertx.json.schema.JsonSchema;
+
+import java.util.*;
+
+import static io.vertx.json.schema.impl.Utils.*;
+
+/**
+ * The simplification of the dereferenced schemas used by the interpreter when only the validity of an instance is
+ * needed, so that the nodes which only forward the validation to another node are not evaluated.
+ * <p>
+ * A node forwards the validation when its only keyword checked against instances is a {@code $ref}, or a single
+ * element {@code allOf}, {@code anyOf} or {@code oneOf}, where the {@code true} members of an {@code allOf} are not
+ * counted, as in {@code {allOf: [true, {$ref: Address}]}}. A node without any such keyword always validates. The
+ * shortcut of a node skips the whole chain of forwarding nodes, e.g. a {@code $ref} to a {@code $ref}, up to the
+ * first node doing any check.
+ * <p>
+ * The schemas are not rewritten: each shortcut maps a node to the node it forwards to, along with the location that
+ * node is validated at when the chain is evaluated, so that the locations computed by the interpreter, e.g. the
+ * ones of the aborted pattern matches, are still the original ones.
+ */
+final class Shortcuts {
+
+  /**
+   * Where the validation of a node is forwarded to.
+   */
+  static final class Shortcut {
+
+    final JsonSchema target;
+    // the schema location of the target, or null when relative to the location of the node
+    private final String location;
+    private final String suffix;
+    final String baseSuffix;
+    // the members of the applicators do not inherit the $recursiveAnchor of the node
+    final boolean keepsRecursiveAnchor;
+
+    private Shortcut(JsonSchema target, String location, String suffix, String baseSuffix, boolean keepsRecursiveAnchor) {
+      this.target = target;
+      this.location = location;
+      this.suffix = suffix;
+      this.baseSuffix = baseSuffix;
+      this.keepsRecursiveAnchor = keepsRecursiveAnchor;
+    }
+
+    /**
+     * @param schemaLocation the schema location of the node
+     * @return the schema location of the target
+     */
+    String schemaLocation(String schemaLocation) {
+      return (location == null ? schemaLocation : location) + suffix;
+    }
+  }
+
+  /**
+   * A single forwarding step.
+   */
+  private static final class Step {
+
+    private final JsonSchema target;
+    // the $ref, replacing the schema location, or null
+    private final String ref;
+    private final String suffix;
+
+    private Step(JsonSchema target, String ref, String suffix) {
+      this.target = target;
+      this.ref = ref;
+      this.suffix = suffix;
+    }
+  }
+
+  private static final Step ALWAYS_VALID = new Step(BooleanSchema.TRUE, null, "");
+
+  // by node, the identity of its map as a node is wrapped by several JsonObjectSchema
+  private final Map<Object, Shortcut> shortcuts;
+
+  private Shortcuts(Map<Object, Shortcut> shortcuts) {
+    this.shortcuts = shortcuts;
+  }
+
+  /**
+   * @param schema the root schema, which is never shortcut
+   * @param lookup the dereferenced schemas
+   * @param draft  the draft of the schema
+   * @return the shortcuts of the nodes reachable from the root schema, {@code null} when there is none
+   */
+  static Shortcuts of(JsonSchema schema, Map<String, JsonSchema> lookup, Draft draft) {
+    if (!(schema instanceof JsonObject)) {
+      return null;
+    }
+    final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    final List<JsonObject> nodes = new ArrayList<>();
+    collect(schema, lookup, visited, nodes);
+    final Map<Object, Shortcut> shortcuts = new IdentityHashMap<>();
+    for (JsonObject node : nodes) {
+      if (node.getMap() == ((JsonObject) schema).getMap()) {
+        // the result of the root carries the error type of its own keywords
+        continue;
+      }
+      final Shortcut shortcut = resolve(node, lookup, draft);
+      if (shortcut != null) {
+        shortcuts.put(node.getMap(), shortcut);
+      }
+    }
+    return shortcuts.isEmpty() ? null : new Shortcuts(shortcuts);
+  }
+
+  /**
+   * @return the shortcut of the node, or {@code null} when it does its own checks
+   */
+  Shortcut get(JsonSchema schema) {
+    return schema instanceof JsonObject ? shortcuts.get(((JsonObject) schema).getMap()) : null;
+  }
+
+  private static void collect(Object node, Map<String, JsonSchema> lookup, Set<Object> visited, List<JsonObject> nodes) {
+    if (node instanceof JsonArray) {
+      for (Object item : (JsonArray) node) {
+        collect(item, lookup, visited, nodes);
+      }
+      return;
+    }
+    if (!(node instanceof JsonObject) || !visited.add(((JsonObject) node).getMap())) {
+      return;
+    }
+    final JsonObject json = (JsonObject) node;
+    nodes.add(json);
+    for (String key : json.fieldNames()) {
+      final Object value = json.getValue(key);
+      if (("$ref".equals(key) || "$dynamicRef".equals(key)) && value instanceof String) {
+        collect(lookup.get(json.getString("__absolute_ref__", (String) value)), lookup, visited, nodes);
+      } else if (KeywordKind.is(key, KeywordKind.SCHEMA | KeywordKind.SCHEMA_ARRAY)) {
+        collect(value, lookup, visited, nodes);
+      } else if ((KeywordKind.is(key, KeywordKind.SCHEMA_MAP) || "dependencies".equals(key)) && value instanceof JsonObject) {
+        for (String name : ((JsonObject) value).fieldNames()) {
+          collect(((JsonObject) value).getValue(name), lookup, visited, nodes);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the shortcut of the node, {@code null} when it does not forward the validation or forwards it in a
+   * cycle, which the interpreter then reports as it does without shortcuts
+   */
+  private static Shortcut resolve(JsonObject node, Map<String, JsonSchema> lookup, Draft draft) {
+    final Set<Object> chain = Collections.newSetFromMap(new IdentityHashMap<>());
+    String location = null;
+    final StringBuilder suffix = new StringBuilder();
+    final StringBuilder baseSuffix = new StringBuilder();
+    boolean keepsRecursiveAnchor = true;
+    JsonSchema target = null;
+    Object current = node;
+    Step step;
+    while (current instanceof JsonObject && (step = step((JsonObject) current, lookup, draft)) != null) {
+      if (!chain.add(((JsonObject) current).getMap())) {
+        return null;
+      }
+      if (step.ref != null) {
+        location = step.ref;
+        suffix.setLength(0);
+        baseSuffix.append("/$ref");
+      } else if (!step.suffix.isEmpty()) {
+        suffix.append(step.suffix);
+        baseSuffix.append(step.suffix);
+        keepsRecursiveAnchor = false;
+      }
+      target = step.target;
+      current = target;
+    }
+    return target == null ? null : new Shortcut(target, location, suffix.toString(), baseSuffix.toString(), keepsRecursiveAnchor);
+  }
+
+  /**
+   * @return the step forwarding the validation of the node, {@code null} when the node does its own checks
+   */
+  private static Step step(JsonObject node, Map<String, JsonSchema> lookup, Draft draft) {
+    if (node.containsKey("$dynamicAnchor") || node.containsKey("$recursiveAnchor") || node.containsKey("$dynamicRef") || node.containsKey("$recursiveRef")) {
+      // the dynamic scope of the validation goes through the node
+      return null;
+    }
+    if ((draft == Draft.DRAFT4 || draft == Draft.DRAFT7) && node.containsKey("$ref")) {
+      // the keywords next to a $ref are ignored
+      return ref(node, lookup);
+    }
+    String forward = null;
+    for (String key : node.fieldNames()) {
+      if (ignored(key)) {
+        continue;
+      }
+      if (forward != null || !("$ref".equals(key) || "allOf".equals(key) || "anyOf".equals(key) || "oneOf".equals(key))) {
+        return null;
+      }
+      forward = key;
+    }
+    if (forward == null) {
+      return ALWAYS_VALID;
+    }
+    if ("$ref".equals(forward)) {
+      return ref(node, lookup);
+    }
+    final Object value = node.getValue(forward);
+    if (!(value instanceof JsonArray)) {
+      return null;
+    }
+    final JsonArray members = (JsonArray) value;
+    int member = -1;
+    for (int i = 0; i < members.size(); i++) {
+      if ("allOf".equals(forward) && alwaysValid(members.getValue(i))) {
+        continue;
+      }
+      if (member != -1) {
+        return null;
+      }
+      member = i;
+    }
+    if (member == -1) {
+      // an empty anyOf or oneOf never validates
+      return "allOf".equals(forward) ? ALWAYS_VALID : null;
+    }
+    final JsonSchema target = Schemas.wrap(members, member);
+    return target == null ? null : new Step(target, null, "/" + forward + "/" + member);
+  }
+
+  private static Step ref(JsonObject node, Map<String, JsonSchema> lookup) {
+    final Object ref = node.getValue("$ref");
+    if (!(ref instanceof String)) {
+      return null;
+    }
+    final JsonSchema target = lookup.get(node.getString("__absolute_ref__", (String) ref));
+    // an unresolved reference is reported by the validations reaching it
+    return target == null ? null : new Step(target, (String) ref, "");
+  }
+
+  private static boolean alwaysValid(Object member) {
+    if (member instanceof Boolean) {
+      return (Boolean) member;
+    }
+    if (!(member instanceof JsonObject)) {
+      return false;
+    }
+    for (String key : ((JsonObject) member).fieldNames()) {
+      if (!ignored(key)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return {@code true} for the keywords never checked against instances, e.g. {@code $comment} or {@code $defs}
+   */
+  private static boolean ignored(String key) {
+    if (key.startsWith("__absolute_")) {
+      // the annotations of the dereference
+      return true;
+    }
+    return (KeywordKind.of(key) & ~(KeywordKind.IGNORE | KeywordKind.POINTER | KeywordKind.SCHEMA_MAP)) == 0 &&
+      !"$dynamicAnchor".equals(key) && !"$recursiveAnchor".equals(key);
+  }
+}
@@ -0,0 +1,389 @@
+package io.vertx.json.schema.impl;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.Draft;
+import io.vertx.json.schema.JsonSchema;
+
+import java.util.*;
+
+import static io.vertx.json.schema.impl.Utils.*;
+
+/**
+ * Selects the branches of an {@code anyOf} or {@code oneOf} that can possibly validate an instance, so that the
+ * others are not evaluated when only the validity of the instance is needed.
+ * <p>
+ * A union is discriminated by a property when its branches require that property with a {@code const} or an
+ * {@code enum} of strings, directly, through {@code $ref} or through {@code allOf}, as in
+ * {@code oneOf: [{$ref: Cat}, {$ref: Dog}]} where {@code Cat} and {@code Dog} require {@code kind: {const: ...}}. An
+ * object instance can then only validate the branches accepting the value of its discriminator, and the branches
+ * not constraining that property.
+ * <p>
+ * Branches are also indexed by the JSON types they can accept, from their {@code type}, {@code const} and
+ * {@code enum} keywords, as in {@code anyOf: [{type: string}, {type: integer}, {type: object}]}, so an instance is not
+ * validated against the branches rejecting its type.
+ * <p>
+ * When the errors are reported, a branch whose own {@code type} rejects the instance, and which has no other keyword
+ * checked against instances of that type, would only report its type error, which can be reported without
+ * evaluating the branch.
+ */
+final class UnionDispatch {
+
+  private static final String[] TYPES = {"null", "boolean", "number", "string", "array", "object"};
+  private static final int ANY = (1 << TYPES.length) - 1;
+  private static final int OBJECT = 5;
+
+  private final int[][] byType;
+  private final String property;
+  private final Map<String, int[]> candidates;
+  private final int[] others;
+  // by branch, the type of the branches whose only keyword checked against any instance is their type, else null
+  private final Object[] ownTypes;
+  // by branch, the kinds of instances its other keywords are checked against
+  private final int[] checked;
+
+  private UnionDispatch(int[][] byType, String property, Map<String, int[]> candidates, int[] others, Object[] ownTypes, int[] checked) {
+    this.byType = byType;
+    this.property = property;
+    this.candidates = candidates;
+    this.others = others;
+    this.ownTypes = ownTypes;
+    this.checked = checked;
+  }
+
+  /**
+   * @param branch       the index of the branch
+   * @param instance     the instance, in the JSON type space
+   * @param instanceType the JSON type of the instance
+   * @return the {@code type} of the branch when it rejects the instance, and the type error is the only error the
+   * branch reports for it, {@code null} when the branch has to be evaluated
+   */
+  Object typeError(int branch, Object instance, String instanceType) {
+    final Object type = ownTypes == null ? null : ownTypes[branch];
+    if (type == null || (checked[branch] & kind(instanceType)) != 0) {
+      return null;
+    }
+    if (type instanceof JsonArray) {
+      for (Object member : (JsonArray) type) {
+        if (accepts((String) member, instance, instanceType)) {
+          return null;
+        }
+      }
+      return type;
+    }
+    return accepts((String) type, instance, instanceType) ? null : type;
+  }
+
+  private static boolean accepts(String type, Object instance, String instanceType) {
+    return type.equals(instanceType) || "integer".equals(type) && "number".equals(instanceType) && Numbers.isInteger(instance);
+  }
+
+  private static int kind(String instanceType) {
+    switch (instanceType) {
+      case "object":
+        return KeywordKind.OBJECT;
+      case "array":
+        return KeywordKind.ARRAY;
+      case "number":
+        return KeywordKind.NUMBER;
+      case "string":
+        return KeywordKind.STRING;
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * @param instance     the instance, in the JSON type space
+   * @param instanceType the JSON type of the instance
+   * @return the indexes, in order, of the only branches that can validate the instance, or {@code null} when any
+   * branch can
+   */
+  int[] candidates(Object instance, String instanceType) {
+    final int type = index(instanceType);
+    if (property != null && type == OBJECT) {
+      final Object value = ((JsonObject) instance).getValue(property);
+      if (value instanceof String) {
+        final int[] selected = candidates.get(value);
+        if (selected != null) {
+          return selected;
+        }
+      }
+      return others;
+    }
+    return byType == null ? null : byType[type];
+  }
+
+  private static int index(String type) {
+    switch (type) {
+      case "null":
+        return 0;
+      case "boolean":
+        return 1;
+      case "number":
+      case "integer":
+        return 2;
+      case "string":
+        return 3;
+      case "array":
+        return 4;
+      case "object":
+        return OBJECT;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * @param schema  the schema node holding the union
+   * @param keyword {@code anyOf} or {@code oneOf}
+   * @param draft   the draft of the schema, telling whether {@code $ref} has siblings
+   * @param lookup  the schemas by absolute uri, to follow {@code $ref}
+   */
+  static UnionDispatch of(JsonObject schema, String keyword, Draft draft, Map<String, JsonSchema> lookup) {
+    if (!(schema.getValue(keyword) instanceof JsonArray)) {
+      return new UnionDispatch(null, null, null, null, null, null);
+    }
+    final JsonArray branches = schema.getJsonArray(keyword);
+    final Object[] ownTypes = new Object[branches.size()];
+    final int[] checked = new int[branches.size()];
+    for (int i = 0; i < branches.size(); i++) {
+      ownTypes[i] = ownType(branches.getValue(i), checked, i);
+    }
+    final UnionDispatch none = new UnionDispatch(null, null, null, null, ownTypes, checked);
+    // a branch with an unresolvable reference must still fail the validation when evaluated
+    if (branches.size() < 2 || Schemas.uses(branches, KeywordKind.NONE, lookup)) {
+      return none;
+    }
+
+    final List<Map<String, Set<String>>> constraints = new ArrayList<>();
+    final int[] types = new int[branches.size()];
+    final Map<String, Integer> counts = new LinkedHashMap<>();
+    for (int i = 0; i < branches.size(); i++) {
+      final Object branch = branches.getValue(i);
+      Map<String, Set<String>> constraint = new HashMap<>();
+      types[i] = types(branch, draft, lookup, Collections.newSetFromMap(new IdentityHashMap<>()));
+      if (types[i] == 0 || !collect(branch, constraint, draft, lookup, Collections.newSetFromMap(new IdentityHashMap<>()))) {
+        // never valid
+        constraint = null;
+        types[i] = 0;
+      } else {
+        for (String key : constraint.keySet()) {
+          counts.merge(key, 1, Integer::sum);
+        }
+      }
+      constraints.add(constraint);
+    }
+
+    int[][] byType = null;
+    for (int type = 0; type < TYPES.length; type++) {
+      final List<Integer> indexes = new ArrayList<>();
+      for (int i = 0; i < types.length; i++) {
+        if ((types[i] & (1 << type)) != 0) {
+          indexes.add(i);
+        }
+      }
+      if (indexes.size() < types.length) {
+        if (byType == null) {
+          byType = new int[TYPES.length][];
+        }
+        byType[type] = indexes.stream().mapToInt(Integer::intValue).toArray();
+      }
+    }
+
+    String property = null;
+    int count = 1;
+    for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+      if (entry.getValue() > count) {
+        property = entry.getKey();
+        count = entry.getValue();
+      }
+    }
+    if (property == null) {
+      return byType == null ? none : new UnionDispatch(byType, null, null, null, ownTypes, checked);
+    }
+
+    final Map<String, List<Integer>> selected = new HashMap<>();
+    final List<Integer> others = new ArrayList<>();
+    for (int i = 0; i < constraints.size(); i++) {
+      final Map<String, Set<String>> constraint = constraints.get(i);
+      if (constraint == null || (types[i] & (1 << OBJECT)) == 0) {
+        continue;
+      }
+      final Set<String> values = constraint.get(property);
+      if (values == null) {
+        others.add(i);
+      } else {
+        for (String value : values) {
+          selected.computeIfAbsent(value, k -> new ArrayList<>()).add(i);
+        }
+      }
+    }
+    final Map<String, int[]> candidates = new HashMap<>();
+    for (Map.Entry<String, List<Integer>> entry : selected.entrySet()) {
+      final List<Integer> indexes = new ArrayList<>(entry.getValue());
+      indexes.addAll(others);
+      candidates.put(entry.getKey(), indexes.stream().sorted().mapToInt(Integer::intValue).toArray());
+    }
+    return new UnionDispatch(byType, property, candidates, others.stream().mapToInt(Integer::intValue).toArray(), ownTypes, checked);
+  }
+
+  /**
+   * @return the {@code type} of a branch whose other keywords are only checked against some types of instances, the
+   * kinds of which are set in {@code checked}, or {@code null}
+   */
+  private static Object ownType(Object branch, int[] checked, int index) {
+    if (!(branch instanceof JsonObject)) {
+      return null;
+    }
+    final JsonObject json = (JsonObject) branch;
+    final Object type = json.getValue("type");
+    if (!(type instanceof String) && !(type instanceof JsonArray && ((JsonArray) type).stream().allMatch(String.class::isInstance))) {
+      return null;
+    }
+    for (String key : json.fieldNames()) {
+      final int kind = KeywordKind.of(key);
+      if ((kind & KeywordKind.ANY_TYPE) != 0 && !"type".equals(key)) {
+        return null;
+      }
+      checked[index] |= kind;
+    }
+    return type;
+  }
+
+  /**
+   * @return the bits, indexed as {@link #TYPES}, of the JSON types a branch can accept, the keywords that are not
+   * understood accept any type
+   */
+  private static int types(Object node, Draft draft, Map<String, JsonSchema> lookup, Set<Object> visited) {
+    if (node == BooleanSchema.FALSE || Boolean.FALSE.equals(node)) {
+      return 0;
+    }
+    if (!(node instanceof JsonObject) || !visited.add(((JsonObject) node).getMap())) {
+      return ANY;
+    }
+    final JsonObject json = (JsonObject) node;
+    int types = ANY;
+    if (json.getValue("$ref") instanceof String) {
+      types &= types(lookup.get(json.getString("__absolute_ref__", json.getString("$ref"))), draft, lookup, visited);
+      if (draft == Draft.DRAFT4 || draft == Draft.DRAFT7) {
+        // the other keywords are ignored
+        return types;
+      }
+    }
+    final Object type = json.getValue("type");
+    if (type instanceof String) {
+      types &= bit((String) type);
+    } else if (type instanceof JsonArray) {
+      int any = 0;
+      for (Object member : (JsonArray) type) {
+        any |= member instanceof String ? bit((String) member) : ANY;
+      }
+      types &= any;
+    }
+    if (json.containsKey("const")) {
+      types &= valueBits(Collections.singletonList(json.getValue("const")));
+    }
+    if (json.getValue("enum") instanceof JsonArray) {
+      types &= valueBits(json.getJsonArray("enum").getList());
+    }
+    if (json.getValue("allOf") instanceof JsonArray) {
+      for (Object member : json.getJsonArray("allOf")) {
+        types &= types(member, draft, lookup, visited);
+      }
+    }
+    return types;
+  }
+
+  private static int bit(String type) {
+    final int index = index(type);
+    return index == -1 ? ANY : 1 << index;
+  }
+
+  private static int valueBits(List<?> values) {
+    int types = 0;
+    for (Object value : values) {
+      try {
+        types |= 1 << index(JSON.typeOf(JSON.jsonify(value)));
+      } catch (IllegalArgumentException e) {
+        return ANY;
+      }
+    }
+    return types;
+  }
+
+  /**
+   * Collect the string values a branch accepts for the properties it requires, only necessary conditions are
+   * collected, the keywords that are not understood are ignored.
+   *
+   * @return {@code false} when the branch can never be valid
+   */
+  private static boolean collect(Object node, Map<String, Set<String>> constraints, Draft draft, Map<String, JsonSchema> lookup, Set<Object> visited) {
+    if (node == BooleanSchema.FALSE || Boolean.FALSE.equals(node)) {
+      return false;
+    }
+    if (!(node instanceof JsonObject) || !visited.add(((JsonObject) node).getMap())) {
+      return true;
+    }
+    final JsonObject json = (JsonObject) node;
+    if (json.getValue("$ref") instanceof String) {
+      final JsonSchema target = lookup.get(json.getString("__absolute_ref__", json.getString("$ref")));
+      if (!collect(target, constraints, draft, lookup, visited)) {
+        return false;
+      }
+      if (draft == Draft.DRAFT4 || draft == Draft.DRAFT7) {
+        // the other keywords are ignored
+        return true;
+      }
+    }
+    if (json.getValue("allOf") instanceof JsonArray) {
+      for (Object member : json.getJsonArray("allOf")) {
+        if (!collect(member, constraints, draft, lookup, visited)) {
+          return false;
+        }
+      }
+    }
+    if (json.getValue("required") instanceof JsonArray && json.getValue("properties") instanceof JsonObject) {
+      final JsonObject properties = json.getJsonObject("properties");
+      for (Object key : json.getJsonArray("required")) {
+        final Set<String> values = key instanceof String ? values(properties.getValue((String) key)) : null;
+        if (values != null) {
+          final Set<String> accepted = constraints.get(key);
+          if (accepted == null) {
+            constraints.put((String) key, values);
+          } else {
+            accepted.retainAll(values);
+            if (accepted.isEmpty()) {
+              return false;
+            }
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the strings a property schema is limited to, or {@code null} when it is not limited to strings
+   */
+  private static Set<String> values(Object schema) {
+    if (!(schema instanceof JsonObject)) {
+      return null;
+    }
+    final JsonObject json = (JsonObject) schema;
+    if (json.containsKey("const")) {
+      return json.getValue("const") instanceof String ? new HashSet<>(Collections.singleton(json.getString("const"))) : null;
+    }
+    if (json.getValue("enum") instanceof JsonArray) {
+      final Set<String> values = new HashSet<>();
+      for (Object value : json.getJsonArray("enum")) {
+        if (!(value instanceof String)) {
+          return null;
+        }
+        values.add((String) value);
+      }
+      return values;
+    }
+    return null;
+  }
+}
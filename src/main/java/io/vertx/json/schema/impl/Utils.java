@@ -7,6 +7,8 @@ import io.vertx.json.schema.JsonSchema;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -14,7 +16,7 @@ import java.util.Set;
 
 public class Utils {
 
-  static class Numbers {
+  public static class Numbers {
     public static boolean isInteger(Object instance) {
       if (instance instanceof Number) {
         if (instance instanceof Byte || instance instanceof Short || instance instanceof Integer || instance instanceof Long || instance instanceof BigInteger) {
@@ -143,7 +145,7 @@ public class Utils {
     }
   }
 
-  static class Strings {
+  public static class Strings {
     public static boolean notEmpty(String string) {
       return string != null && string.length() > 0;
     }
@@ -179,7 +181,7 @@ public class Utils {
     }
   }
 
-  static class JSON {
+  public static class JSON {
 
     public static Object jsonify(Object instance) {
       if (instance instanceof Map) {
@@ -254,6 +256,28 @@ public class Utils {
 
       return Objects.equals(a, b);
     }
+
+    /**
+     * @return {@code true} when no two items of the array are equal, as compared by {@code uniqueItems}
+     */
+    public static boolean unique(JsonArray array) {
+      final int length = array.size();
+      for (int j = 0; j < length; j++) {
+        final Object a = array.getValue(j);
+        final boolean ao = "object".equals(typeOf(a)) && a != null;
+        for (int k = 0; k < length; k++) {
+          if (j == k) {
+            continue;
+          }
+          final Object b = array.getValue(k);
+          final boolean bo = "object".equals(typeOf(b)) && b != null;
+          if (Objects.equals(a, b) || (ao && bo && deepCompare(a, b))) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
   }
 
   public static class Pointers {
@@ -305,7 +329,7 @@ public class Utils {
     }
   }
 
-  static class Objects {
+  public static class Objects {
 
     public static boolean equals(Object a, Object b) {
       if (a == null && b == null) {
@@ -401,5 +425,44 @@ public class Utils {
       // any other type cannot be converted is ignored
       return null;
     }
+
+    /**
+     * Check if a schema uses, anywhere in its tree or in the schemas it references, a keyword of the given
+     * {@link KeywordKind kind}. An unresolved reference is assumed to use one.
+     */
+    public static boolean uses(Object schema, int kind, Map<String, JsonSchema> lookup) {
+      return uses(schema, kind, lookup, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private static boolean uses(Object node, int kind, Map<String, JsonSchema> lookup, Set<Object> visited) {
+      if (node instanceof JsonObject) {
+        final JsonObject json = (JsonObject) node;
+        if (!visited.add(json.getMap())) {
+          // already checked, or being checked (recursive schema)
+          return false;
+        }
+        for (String key : json.fieldNames()) {
+          if (KeywordKind.is(key, kind)) {
+            return true;
+          }
+          final Object value = json.getValue(key);
+          if ("$ref".equals(key) && value instanceof String) {
+            final JsonSchema target = lookup.get(json.getString("__absolute_ref__", (String) value));
+            if (target == null || uses(target, kind, lookup, visited)) {
+              return true;
+            }
+          } else if (uses(value, kind, lookup, visited)) {
+            return true;
+          }
+        }
+      } else if (node instanceof JsonArray) {
+        for (Object value : (JsonArray) node) {
+          if (uses(value, kind, lookup, visited)) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
   }
 }
@@ -0,0 +1,214 @@
+package io.vertx.json.schema.impl;
+
+import io.vertx.json.schema.JsonSchema;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.*;
+
+/**
+ * State of a single validation, shared by all the recursive calls of the validator.
+ * <p>
+ * It tracks the dynamic scope needed by {@code $dynamicRef} (2020-12 draft), keyed by {@code #} followed by the
+ * anchor name, and optionally counts the validation steps, so that a validation running on an event loop can be
+ * abandoned once it exceeds its budget.
+ * <p>
+ * It also pools the scratch buffers (lists and evaluated sets) used by the recursive calls. Buffers are borrowed and
+ * given back in a stack like fashion, so a validation reuses a handful of them instead of allocating new ones on each
+ * call. Contexts are kept per platform thread, see {@link #acquire()}. Virtual threads are not pooled, they are
+ * usually created per task, so a thread local context would be allocated for each validation and then retained by a
+ * thread that never runs another one.
+ */
+final class ValidationContext {
+
+  private static final ThreadLocal<ValidationContext> CURRENT = ThreadLocal.withInitial(ValidationContext::new);
+  private static final MethodHandle IS_VIRTUAL = isVirtualHandle();
+
+  // upper bounds of what is kept around between validations
+  private static final int MAX_POOLED = 64;
+  private static final int MAX_POOLED_SIZE = 256;
+
+  private final Map<String, Deque<JsonSchema>> dynamicAnchors;
+  private final int maxSteps;
+  private int steps;
+
+  private final Deque<ArrayList<?>> lists = new ArrayDeque<>();
+  private final Deque<HashSet<Object>> sets = new ArrayDeque<>();
+  private boolean inUse;
+
+  ValidationContext() {
+    this(0);
+  }
+
+  /**
+   * @param maxSteps the maximum number of schemas evaluated by the validation, {@code 0} for no limit
+   */
+  ValidationContext(int maxSteps) {
+    this(new HashMap<>(), maxSteps);
+  }
+
+  private ValidationContext(Map<String, Deque<JsonSchema>> dynamicAnchors, int maxSteps) {
+    this.dynamicAnchors = dynamicAnchors;
+    this.maxSteps = maxSteps;
+  }
+
+  /**
+   * Get the context of the current thread, it must be given back with {@link #release()}. When the current thread is
+   * virtual, or when its context is already in use, e.g. a format validator validating another instance, a new
+   * context is returned.
+   *
+   * @return a context ready to use
+   */
+  static ValidationContext acquire() {
+    final Thread thread = Thread.currentThread();
+    if (isVirtual(thread)) {
+      return new ValidationContext();
+    }
+    final ValidationContext context = CURRENT.get();
+    if (context.inUse) {
+      return new ValidationContext();
+    }
+    context.inUse = true;
+    return context;
+  }
+
+  /**
+   * Looks up {@code Thread.isVirtual()}, as it only exists on Java 21+.
+   *
+   * @return the handle or {@code null} when virtual threads are not available
+   */
+  private static MethodHandle isVirtualHandle() {
+    try {
+      return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  static boolean isVirtual(Thread thread) {
+    if (IS_VIRTUAL == null) {
+      return false;
+    }
+    try {
+      return (boolean) IS_VIRTUAL.invokeExact(thread);
+    } catch (Throwable e) {
+      return false;
+    }
+  }
+
+  /**
+   * Give back a context obtained from {@link #acquire()}.
+   */
+  void release() {
+    reset();
+    inUse = false;
+  }
+
+  /**
+   * Reset the state, so the context can be reused for another validation.
+   */
+  void reset() {
+    // keep the deques, the same anchors are very likely to be seen by the next validation
+    for (Deque<JsonSchema> deque : dynamicAnchors.values()) {
+      deque.clear();
+    }
+    steps = 0;
+  }
+
+  /**
+   * Count a validation step.
+   *
+   * @throws BudgetExceededException when the budget of steps is exceeded
+   */
+  void step() throws BudgetExceededException {
+    if (maxSteps > 0 && ++steps > maxSteps) {
+      throw BudgetExceededException.INSTANCE;
+    }
+  }
+
+  /**
+   * @return {@code true} when the validation has a budget of steps
+   */
+  boolean bounded() {
+    return maxSteps > 0;
+  }
+
+  void pushDynamicAnchor(String anchor, JsonSchema schema) {
+    dynamicAnchors
+      .computeIfAbsent(anchor, k -> new ArrayDeque<>())
+      .add(schema);
+  }
+
+  void popDynamicAnchor(String anchor) {
+    dynamicAnchors
+      .get(anchor)
+      .removeLast();
+  }
+
+  /**
+   * @return the outermost schema of the dynamic scope declaring the anchor, or {@code null}
+   */
+  JsonSchema dynamicAnchor(String anchor) {
+    final Deque<JsonSchema> deque = dynamicAnchors.get(anchor);
+    return deque == null ? null : deque.peekFirst();
+  }
+
+  /**
+   * Borrow an empty list, it must not escape the validation and must be given back with {@link #release(List)}.
+   */
+  @SuppressWarnings("unchecked")
+  <T> List<T> list() {
+    final ArrayList<?> list = lists.poll();
+    return list == null ? new ArrayList<>() : (List<T>) list;
+  }
+
+  void release(List<?> list) {
+    if (lists.size() < MAX_POOLED && list.size() <= MAX_POOLED_SIZE) {
+      list.clear();
+      lists.push((ArrayList<?>) list);
+    }
+  }
+
+  /**
+   * Borrow an empty set, it must not escape the validation and must be given back with {@link #release(Set)}.
+   */
+  Set<Object> set() {
+    final HashSet<Object> set = sets.poll();
+    return set == null ? new HashSet<>() : set;
+  }
+
+  void release(Set<Object> set) {
+    // clearing a set is proportional to its capacity, large sets are left to the garbage collector
+    if (sets.size() < MAX_POOLED && set.size() <= MAX_POOLED_SIZE) {
+      set.clear();
+      sets.push((HashSet<Object>) set);
+    }
+  }
+
+  /**
+   * Create a context for a sub validation running on another thread, it starts with a copy of the dynamic scope and
+   * has no budget.
+   *
+   * @return the new context
+   */
+  ValidationContext fork() {
+    final Map<String, Deque<JsonSchema>> copy = new HashMap<>();
+    dynamicAnchors.forEach((anchor, schemas) -> copy.put(anchor, new ArrayDeque<>(schemas)));
+    return new ValidationContext(copy, 0);
+  }
+
+  /**
+   * Thrown when a validation exceeds its budget of steps. The validation is abandoned, so no stack trace is needed.
+   */
+  static final class BudgetExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    static final BudgetExceededException INSTANCE = new BudgetExceededException();
+
+    private BudgetExceededException() {
+      super("Validation budget exceeded", null, false, false);
+    }
+  }
+}
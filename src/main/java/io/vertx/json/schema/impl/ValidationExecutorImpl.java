@@ -0,0 +1,212 @@
+package io.vertx.json.schema.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.json.schema.OutputUnit;
+import io.vertx.json.schema.ValidationExecutor;
+import io.vertx.json.schema.Validator;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission is done with a {@link Semaphore}, without ever blocking: a submitted validation is queued, and is handed
+ * to the executor only once a permit is available. Validations are CPU bound and never park once started, so on
+ * virtual threads the deep stack of the recursive validator is never copied, the only place where a validation
+ * could wait is the admission, which happens before any stack is built.
+ * <p>
+ * A validation submitted from a Vert.x context is completed on that context, so its callbacks run on the caller's
+ * event loop rather than on a validation thread.
+ */
+public final class ValidationExecutorImpl implements ValidationExecutor {
+
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  private final Executor executor;
+  private final boolean owned;
+  private final Semaphore permits;
+  private final Queue<Task> queue = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicInteger running = new AtomicInteger();
+  private final LongAdder admitted = new LongAdder();
+  private final LongAdder queueTime = new LongAdder();
+  private final AtomicLong maxQueueTime = new AtomicLong();
+
+  private volatile boolean closed;
+
+  public static ValidationExecutor create(int maxConcurrency) {
+    ExecutorService executor = virtualThreadExecutor();
+    if (executor == null) {
+      executor = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+        final Thread thread = new Thread(runnable, "vertx-json-schema-validation-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return new ValidationExecutorImpl(executor, maxConcurrency, true);
+  }
+
+  public ValidationExecutorImpl(Executor executor, int maxConcurrency, boolean owned) {
+    Objects.requireNonNull(executor, "'executor' cannot be null");
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be > 0");
+    }
+    this.executor = executor;
+    this.owned = owned;
+    this.permits = new Semaphore(maxConcurrency);
+  }
+
+  /**
+   * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()} reflectively, as it only exists on Java 21+.
+   *
+   * @return the executor or {@code null} when virtual threads are not available
+   */
+  static ExecutorService virtualThreadExecutor() {
+    try {
+      return (ExecutorService) Executors.class
+        .getMethod("newVirtualThreadPerTaskExecutor")
+        .invoke(null);
+    } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public Future<OutputUnit> validate(Validator validator, Object instance) {
+    Objects.requireNonNull(validator, "'validator' cannot be null");
+    if (closed) {
+      return Future.failedFuture(new RejectedExecutionException("Validation executor is closed"));
+    }
+    final Promise<OutputUnit> promise = Promise.promise();
+    pending.incrementAndGet();
+    queue.add(new Task(validator, instance, promise, Vertx.currentContext(), System.nanoTime()));
+    dispatch();
+    return promise.future();
+  }
+
+  private void dispatch() {
+    while (permits.tryAcquire()) {
+      final Task task = queue.poll();
+      if (task == null) {
+        permits.release();
+        // a task may have been queued while we were holding the permit
+        if (queue.isEmpty()) {
+          return;
+        }
+        continue;
+      }
+      pending.decrementAndGet();
+      try {
+        executor.execute(() -> run(task));
+      } catch (RejectedExecutionException e) {
+        permits.release();
+        task.complete(null, e);
+      }
+    }
+  }
+
+  private void run(Task task) {
+    final long waited = System.nanoTime() - task.submitted;
+    admitted.increment();
+    queueTime.add(waited);
+    maxQueueTime.accumulateAndGet(waited, Math::max);
+
+    running.incrementAndGet();
+    OutputUnit result = null;
+    Throwable failure = null;
+    try {
+      result = task.validator.validate(task.instance);
+    } catch (Throwable e) {
+      // errors too, e.g. a stack overflow on a deeply nested instance, the future must complete whatever happens
+      failure = e;
+    } finally {
+      running.decrementAndGet();
+      permits.release();
+      dispatch();
+    }
+    // complete once the permit is released, callbacks must not hold it
+    task.complete(result, failure);
+  }
+
+  @Override
+  public int pending() {
+    return pending.get();
+  }
+
+  @Override
+  public int running() {
+    return running.get();
+  }
+
+  @Override
+  public long admitted() {
+    return admitted.sum();
+  }
+
+  @Override
+  public long totalQueueTime() {
+    return queueTime.sum();
+  }
+
+  @Override
+  public long maxQueueTime() {
+    return maxQueueTime.get();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    Task task;
+    while ((task = queue.poll()) != null) {
+      pending.decrementAndGet();
+      task.complete(null, new RejectedExecutionException("Validation executor is closed"));
+    }
+    if (owned && executor instanceof ExecutorService) {
+      ((ExecutorService) executor).shutdown();
+    }
+  }
+
+  private static final class Task {
+    final Validator validator;
+    final Object instance;
+    final Promise<OutputUnit> promise;
+    // the context the validation was submitted from, or null
+    final Context context;
+    final long submitted;
+
+    Task(Validator validator, Object instance, Promise<OutputUnit> promise, Context context, long submitted) {
+      this.validator = validator;
+      this.instance = instance;
+      this.promise = promise;
+      this.context = context;
+      this.submitted = submitted;
+    }
+
+    /**
+     * Complete the promise on the context the validation was submitted from.
+     */
+    void complete(OutputUnit result, Throwable failure) {
+      if (context == null) {
+        doComplete(result, failure);
+      } else {
+        context.runOnContext(v -> doComplete(result, failure));
+      }
+    }
+
+    private void doComplete(OutputUnit result, Throwable failure) {
+      if (failure != null) {
+        promise.fail(failure);
+      } else {
+        promise.complete(result);
+      }
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package io.vertx.json.schema.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.OutputUnit;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs validations without blocking the event loop.
+ * <p>
+ * Small instances are cheap to validate, so they are validated inline, the cost of a worker thread hop would be
+ * higher than the validation itself. Larger instances are validated on a worker thread of the calling context,
+ * optionally limiting how many of them run at the same time.
+ * <p>
+ * The size of an instance does not tell everything about the cost of its validation, a small instance can still be
+ * expensive to validate against a schema with many combinators or references. An inline validation can therefore be
+ * given a budget of steps, when it is exceeded the validation is abandoned and restarted on a worker thread, so the
+ * event loop is never blocked for longer than the budget.
+ */
+final class ValidationOffload {
+
+  private final SchemaValidatorImpl validator;
+  private final int threshold;
+  private final int maxInlineSteps;
+  private final int maxConcurrency;
+
+  private final AtomicInteger running = new AtomicInteger();
+  private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+
+  ValidationOffload(SchemaValidatorImpl validator, int threshold, int maxInlineSteps, int maxConcurrency) {
+    this.validator = validator;
+    this.threshold = threshold;
+    this.maxInlineSteps = maxInlineSteps;
+    this.maxConcurrency = maxConcurrency;
+  }
+
+  Future<OutputUnit> validate(Object instance) {
+    final Context context = Vertx.currentContext();
+    // outside an event loop blocking is allowed, so there is no need to hop
+    if (context == null || !context.isEventLoopContext()) {
+      return validateInline(instance, new ValidationContext());
+    }
+
+    if (!exceeds(instance, threshold)) {
+      try {
+        return validateInline(instance, new ValidationContext(maxInlineSteps));
+      } catch (ValidationContext.BudgetExceededException e) {
+        // too expensive after all, continue on a worker thread
+      }
+    }
+
+    if (maxConcurrency <= 0) {
+      return context.executeBlocking(() -> validator.validate(instance), false);
+    }
+
+    final Promise<OutputUnit> promise = Promise.promise();
+    pending.add(new Pending(context, instance, promise));
+    drain();
+    return promise.future();
+  }
+
+  private Future<OutputUnit> validateInline(Object instance, ValidationContext validationContext) {
+    try {
+      return Future.succeededFuture(validator.validate(instance, validationContext));
+    } catch (ValidationContext.BudgetExceededException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      return Future.failedFuture(e);
+    }
+  }
+
+  private void drain() {
+    for (;;) {
+      final int count = running.get();
+      if (count >= maxConcurrency) {
+        // a running validation will drain the queue when it completes
+        return;
+      }
+      if (!running.compareAndSet(count, count + 1)) {
+        continue;
+      }
+      final Pending task = pending.poll();
+      if (task == null) {
+        running.decrementAndGet();
+        // a task may have been queued while we were holding the slot
+        if (pending.isEmpty()) {
+          return;
+        }
+        continue;
+      }
+      task.context
+        .executeBlocking(() -> validator.validate(task.instance), false)
+        .onComplete(ar -> {
+          running.decrementAndGet();
+          task.promise.handle(ar);
+          drain();
+        });
+    }
+  }
+
+  /**
+   * Estimates the cost of an instance, counting its JSON values, and stops as soon as the threshold is exceeded.
+   */
+  static boolean exceeds(Object instance, int threshold) {
+    if (threshold < 1) {
+      return true;
+    }
+    final Deque<Collection<?>> stack = new ArrayDeque<>();
+    int count = 1;
+    Collection<?> children = children(instance);
+    if (children != null) {
+      stack.push(children);
+    }
+    while (!stack.isEmpty()) {
+      for (Object child : stack.pop()) {
+        if (++count > threshold) {
+          return true;
+        }
+        children = children(child);
+        if (children != null) {
+          stack.push(children);
+        }
+      }
+    }
+    return false;
+  }
+
+  private static Collection<?> children(Object value) {
+    if (value instanceof JsonObject) {
+      return ((JsonObject) value).getMap().values();
+    }
+    if (value instanceof Map) {
+      return ((Map<?, ?>) value).values();
+    }
+    if (value instanceof JsonArray) {
+      return ((JsonArray) value).getList();
+    }
+    if (value instanceof Collection) {
+      return (Collection<?>) value;
+    }
+    return null;
+  }
+
+  private static final class Pending {
+    final Context context;
+    final Object instance;
+    final Promise<OutputUnit> promise;
+
+    Pending(Context context, Object instance, Promise<OutputUnit> promise) {
+      this.context = context;
+      this.instance = instance;
+      this.promise = promise;
+    }
+  }
+}
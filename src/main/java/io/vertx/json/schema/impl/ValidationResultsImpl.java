@@ -0,0 +1,82 @@
+package io.vertx.json.schema.impl;
+
+import io.vertx.json.schema.OutputUnit;
+import io.vertx.json.schema.ValidationResults;
+
+import java.util.*;
+
+/**
+ * Compact {@link ValidationResults}, a bit set of the outcomes and a sparse list of the errors, sorted by index.
+ */
+public final class ValidationResultsImpl implements ValidationResults {
+
+  private final int size;
+  private final BitSet valid;
+  private int[] indexes = new int[0];
+  private OutputUnit[] errors = new OutputUnit[0];
+  private int count;
+
+  public ValidationResultsImpl(int size) {
+    this.size = size;
+    this.valid = new BitSet(size);
+  }
+
+  /**
+   * Record the outcome of the next instance, outcomes must be recorded in index order.
+   */
+  public void add(int index, OutputUnit result) {
+    if (result.getValid()) {
+      valid.set(index);
+      return;
+    }
+    if (count == indexes.length) {
+      final int capacity = Math.max(4, count * 2);
+      indexes = Arrays.copyOf(indexes, capacity);
+      errors = Arrays.copyOf(errors, capacity);
+    }
+    indexes[count] = index;
+    errors[count++] = result;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isValid(int index) {
+    Objects.checkIndex(index, size);
+    return valid.get(index);
+  }
+
+  @Override
+  public boolean isAllValid() {
+    return count == 0;
+  }
+
+  @Override
+  public BitSet valid() {
+    return (BitSet) valid.clone();
+  }
+
+  @Override
+  public OutputUnit error(int index) {
+    Objects.checkIndex(index, size);
+    final int i = Arrays.binarySearch(indexes, 0, count, index);
+    return i < 0 ? null : errors[i];
+  }
+
+  @Override
+  public Map<Integer, OutputUnit> errors() {
+    final Map<Integer, OutputUnit> map = new LinkedHashMap<>();
+    for (int i = 0; i < count; i++) {
+      map.put(indexes[i], errors[i]);
+    }
+    return Collections.unmodifiableMap(map);
+  }
+
+  @Override
+  public String toString() {
+    return "ValidationResults{size=" + size + ", errors=" + count + "}";
+  }
+}
@@ -0,0 +1,331 @@
+package io.vertx.json.schema.impl;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.JsonEvent;
+import io.vertx.core.parsetools.JsonParser;
+import io.vertx.json.schema.*;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+
+/**
+ * Decodes the document with the non-blocking {@link JsonParser}, building the JSON tree from its events. Each time a
+ * member of the root object or array is complete, it is validated on its own, see
+ * {@link SchemaValidatorImpl#validateRootProperty(JsonObject, String)}. Validators that are not a
+ * {@link SchemaValidatorImpl} only validate the whole document.
+ * <p>
+ * As the members of the root object are validated as soon as they are decoded, a root object repeating a member name
+ * is rejected: the verdict on the first value could not hold for the decoded object, which keeps the last one.
+ * <p>
+ * The significant length of the document is counted while it is decoded: the length its compact encoding has at least,
+ * without insignificant whitespace, each string counted from its decoded characters and each number as one byte. As it
+ * never exceeds the compact encoding of the decoded instance, a document whose significant length exceeds
+ * {@link Validator#maxInstanceLength()} is rejected as soon as it does, never rejecting a valid one.
+ */
+public final class ValidationStreamImpl implements ValidationStream {
+
+  private final Validator validator;
+  private final SchemaValidatorImpl members;
+  private final JsonParser parser = JsonParser.newParser();
+  private final Promise<OutputUnit> result = Promise.promise();
+
+  // the containers being decoded, the innermost first
+  private final Deque<Object> containers = new ArrayDeque<>();
+  private boolean decoded;
+  private Object root;
+  private String member;
+  private Object instance;
+  private Handler<Throwable> exceptionHandler;
+  // the bound of the significant length, -1 when not bounded
+  private long maxLength;
+  private long length;
+
+  public ValidationStreamImpl(Validator validator) {
+    Objects.requireNonNull(validator, "'validator' cannot be null");
+    this.validator = validator;
+    this.members = validator instanceof SchemaValidatorImpl ? (SchemaValidatorImpl) validator : null;
+    this.maxLength = validator.maxInstanceLength();
+    parser.handler(this::handle);
+    // syntax errors of the underlying Jackson parser are reported unwrapped
+    parser.exceptionHandler(err -> fail(err instanceof DecodeException ? err : new DecodeException(err.getMessage(), err)));
+  }
+
+  public static Future<Object> validate(HttpServerRequest request, Validator validator) {
+    final ValidationStreamImpl stream = new ValidationStreamImpl(validator);
+    // a failed pipe (e.g. the client went away) must not leave the result pending
+    request.pipeTo(stream).onFailure(stream::fail);
+    return stream.result().transform(ar -> {
+      if (ar.succeeded() && ar.result().getValid()) {
+        return Future.succeededFuture(stream.instance());
+      }
+      if (!request.isEnded()) {
+        // stop receiving the rest of the body
+        request.response().reset();
+      }
+      return Future.failedFuture(ar.failed() ? ar.cause() : invalid(ar.result()));
+    });
+  }
+
+  @Override
+  public Future<OutputUnit> result() {
+    return result.future();
+  }
+
+  @Override
+  public Object instance() {
+    return instance;
+  }
+
+  @Override
+  public Future<Void> write(Buffer data) {
+    if (!result.future().isComplete()) {
+      parser.handle(data);
+    }
+    return status();
+  }
+
+  @Override
+  public Future<Void> end() {
+    if (result.future().isComplete()) {
+      return status();
+    }
+    parser.end();
+    if (result.future().isComplete()) {
+      return status();
+    }
+    if (!decoded || !containers.isEmpty()) {
+      fail(new DecodeException("Unexpected end of JSON document"));
+      return status();
+    }
+    final Object document = root;
+    return validator.validateAsync(document)
+      .andThen(ar -> {
+        if (ar.failed()) {
+          fail(ar.cause());
+        } else {
+          if (ar.result().getValid()) {
+            instance = document;
+          }
+          result.tryComplete(ar.result());
+        }
+      })
+      .transform(ar -> status());
+  }
+
+  @Override
+  public ValidationStream exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public ValidationStream setWriteQueueMaxSize(int maxSize) {
+    // writes are handled synchronously, the queue is never full
+    return this;
+  }
+
+  @Override
+  public boolean writeQueueFull() {
+    return false;
+  }
+
+  @Override
+  public ValidationStream drainHandler(Handler<Void> handler) {
+    return this;
+  }
+
+  private void handle(JsonEvent event) {
+    if (result.future().isComplete()) {
+      return;
+    }
+    try {
+      if (maxLength >= 0 && (length += length(event)) > maxLength) {
+        complete(new OutputUnit(false)
+          .setInstanceLocation("#")
+          .setError("Instance is longer than the " + maxLength + " bytes of any valid instance")
+          .setErrorType(OutputErrorType.INVALID_VALUE));
+        return;
+      }
+      switch (event.type()) {
+        case START_OBJECT:
+          open(event.fieldName(), new JsonObject(), "object");
+          break;
+        case START_ARRAY:
+          open(event.fieldName(), new JsonArray(), "array");
+          break;
+        case VALUE:
+          if (containers.isEmpty()) {
+            root(event.value());
+          } else {
+            attach(event.fieldName(), event.value());
+            if (containers.size() == 1) {
+              validateMember(event.fieldName());
+            }
+          }
+          break;
+        case END_OBJECT:
+        case END_ARRAY:
+          containers.pop();
+          if (containers.size() == 1) {
+            validateMember(member);
+          }
+          break;
+      }
+    } catch (RuntimeException e) {
+      fail(e);
+    }
+  }
+
+  /**
+   * @return the significant length the event adds to the document, both brackets of a container are counted at its start
+   */
+  private long length(JsonEvent event) {
+    long length;
+    switch (event.type()) {
+      case START_OBJECT:
+      case START_ARRAY:
+        length = 2;
+        break;
+      case VALUE:
+        length = length(event.value());
+        break;
+      default:
+        return 0;
+    }
+    final Object parent = containers.peek();
+    if (parent instanceof JsonObject) {
+      if (((JsonObject) parent).containsKey(event.fieldName())) {
+        // the decoded object keeps the last value only, what was counted for the first one is not bounded anymore
+        maxLength = -1;
+        return 0;
+      }
+      // the member name and the colon
+      length += length(event.fieldName()) + 1;
+    }
+    if (parent instanceof JsonObject ? !((JsonObject) parent).isEmpty() : parent != null && !((JsonArray) parent).isEmpty()) {
+      // the comma
+      length++;
+    }
+    return length;
+  }
+
+  private static long length(Object value) {
+    if (value == null) {
+      return 4;
+    }
+    if (value instanceof Boolean) {
+      return (Boolean) value ? 4 : 5;
+    }
+    if (value instanceof String) {
+      final String string = (String) value;
+      long length = 2;
+      for (int i = 0; i < string.length(); i++) {
+        final char c = string.charAt(i);
+        if (c < 0x20 || c == '"' || c == '\\') {
+          // the shortest escape
+          length += 2;
+        } else if (c < 0x80) {
+          length++;
+        } else if (c < 0x800 || Character.isSurrogate(c)) {
+          // a surrogate pair is encoded in 4 bytes
+          length += 2;
+        } else {
+          length += 3;
+        }
+      }
+      return length;
+    }
+    // a number has at least one digit
+    return 1;
+  }
+
+  private void open(String name, Object container, String type) {
+    if (containers.isEmpty()) {
+      root(container);
+      if (members != null) {
+        complete(members.validateRootType(type));
+      }
+    } else {
+      attach(name, container);
+      if (containers.size() == 1) {
+        member = name;
+      }
+    }
+    containers.push(container);
+  }
+
+  private void root(Object value) {
+    if (decoded) {
+      throw new DecodeException("Unexpected data after the end of the JSON document");
+    }
+    decoded = true;
+    root = value;
+  }
+
+  private void attach(String name, Object value) {
+    final Object parent = containers.peek();
+    if (parent instanceof JsonObject) {
+      if (members != null && parent == root && ((JsonObject) parent).containsKey(name) && members.memberValidation()) {
+        // the first value was already validated on its own, while a decoded object keeps the last one
+        throw new DecodeException("Duplicate member \"" + name + "\" in the root object");
+      }
+      ((JsonObject) parent).put(name, value);
+    } else {
+      ((JsonArray) parent).add(value);
+    }
+  }
+
+  private void validateMember(String name) {
+    if (members == null) {
+      return;
+    }
+    if (root instanceof JsonObject) {
+      complete(members.validateRootProperty((JsonObject) root, name));
+    } else {
+      complete(members.validateRootItem((JsonArray) root, ((JsonArray) root).size() - 1));
+    }
+  }
+
+  private void complete(OutputUnit violation) {
+    if (violation != null) {
+      result.tryComplete(violation);
+    }
+  }
+
+  private void fail(Throwable cause) {
+    if (result.tryFail(cause)) {
+      final Handler<Throwable> handler = exceptionHandler;
+      if (handler != null) {
+        handler.handle(cause);
+      }
+    }
+  }
+
+  private Future<Void> status() {
+    final Future<OutputUnit> future = result.future();
+    if (future.failed()) {
+      return Future.failedFuture(future.cause());
+    }
+    if (future.succeeded() && !future.result().getValid()) {
+      return Future.failedFuture(invalid(future.result()));
+    }
+    return Future.succeededFuture();
+  }
+
+  private static JsonSchemaValidationException invalid(OutputUnit result) {
+    try {
+      result.checkValidity();
+    } catch (JsonSchemaValidationException e) {
+      return e;
+    }
+    throw new IllegalStateException("The result is valid");
+  }
+}
@@ -0,0 +1,609 @@
+package io.vertx.json.schema.impl;
+
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Generates one method per schema node, checking the keywords of the node in the same order, and with the same
+ * semantics, as {@link SchemaValidatorImpl}. Only the validity is computed, so keywords only producing annotations are
+ * ignored and every check returns as soon as it fails. Local references are calls of the method of the referenced
+ * node.
+ * <p>
+ * A schema is compilable when it is compilable by {@link CompiledSchema}, the generated code implements the same
+ * keywords as its tree of checks.
+ * <p>
+ * Can be run from a build, e.g. with the {@code exec-maven-plugin}, to generate a validator for each {@code .json}
+ * schema of a directory: {@code ValidatorGeneratorImpl <schemas directory> <output directory> <package> [draft]}.
+ */
+public class ValidatorGeneratorImpl implements ValidatorGenerator {
+
+  // base of the references of the schemas generated without a configured base uri
+  private static final String BASE_URI = "app://generated";
+
+  // string constants are limited to 65535 bytes in class files
+  private static final int LITERAL_CHUNK = 8192;
+
+  private final JsonSchemaOptions options;
+
+  public ValidatorGeneratorImpl(JsonSchemaOptions options) {
+    this.options = Objects.requireNonNull(options, "'options' cannot be null");
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 3) {
+      throw new IllegalArgumentException("Usage: <schemas directory> <output directory> <package> [draft]");
+    }
+    final Path schemas = Paths.get(args[0]);
+    final Path output = Paths.get(args[1]).resolve(args[2].replace('.', '/'));
+    final JsonSchemaOptions options = new JsonSchemaOptions();
+    if (args.length > 3) {
+      options.setDraft(Draft.from(args[3]));
+    }
+    final ValidatorGenerator generator = new ValidatorGeneratorImpl(options);
+    Files.createDirectories(output);
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(schemas, "*.json")) {
+      for (Path file : files) {
+        final String className = className(file.getFileName().toString());
+        final Object json = Json.decodeValue(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        final JsonSchema schema = json instanceof Boolean ? JsonSchema.of((Boolean) json) : JsonSchema.of((JsonObject) json);
+        Files.write(output.resolve(className + ".java"), generator.generate(schema, args[2], className).getBytes(StandardCharsets.UTF_8));
+      }
+    }
+  }
+
+  /**
+   * @return the class name derived from a schema file name, e.g. {@code PetStoreValidator} for {@code pet-store.json}
+   */
+  static String className(String fileName) {
+    final StringBuilder name = new StringBuilder();
+    boolean upper = true;
+    for (char c : fileName.substring(0, fileName.length() - ".json".length()).toCharArray()) {
+      if (Character.isLetterOrDigit(c)) {
+        name.append(upper ? Character.toUpperCase(c) : c);
+        upper = false;
+      } else {
+        upper = true;
+      }
+    }
+    if (name.length() == 0 || !Character.isJavaIdentifierStart(name.charAt(0))) {
+      name.insert(0, "Schema");
+    }
+    return name.append("Validator").toString();
+  }
+
+  @Override
+  public boolean isCompilable(JsonSchema schema) {
+    Objects.requireNonNull(schema, "'schema' cannot be null");
+    final Map<String, JsonSchema> lookup = new HashMap<>();
+    final JsonSchema copy = dereference(schema, lookup);
+    return copy != null && compilable(copy, draft(schema), lookup);
+  }
+
+  @Override
+  public String generate(JsonSchema schema, String packageName, String className) {
+    Objects.requireNonNull(schema, "'schema' cannot be null");
+    Objects.requireNonNull(className, "'className' cannot be null");
+    final Draft draft = draft(schema);
+    final Map<String, JsonSchema> lookup = new HashMap<>();
+    final JsonSchema copy = dereference(schema, lookup);
+    final boolean compiled = copy != null && compilable(copy, draft, lookup);
+    return new Source(draft, lookup, packageName, className).generate(schema, compiled ? copy : null);
+  }
+
+  private Draft draft(JsonSchema schema) {
+    return options.getDraft() != null ? options.getDraft() : Draft.fromIdentifier(schema.get("$schema"));
+  }
+
+  /**
+   * @return a copy of the schema with its references resolved in the lookup, or {@code null} when they cannot be
+   */
+  private JsonSchema dereference(JsonSchema schema, Map<String, JsonSchema> lookup) {
+    if (!(schema instanceof JsonObject)) {
+      return schema;
+    }
+    // the nodes are annotated while dereferenced, the schema embedded in the generated class is left untouched
+    final JsonSchema copy = JsonSchema.of(((JsonObject) schema).copy());
+    try {
+      SchemaRepositoryImpl.dereference(lookup, copy, new URL(options.getBaseUri() != null ? options.getBaseUri() : BASE_URI), "", true);
+    } catch (SchemaException e) {
+      // the interpreting validator fails the same way
+      return null;
+    }
+    return copy;
+  }
+
+  private static boolean compilable(JsonSchema schema, Draft draft, Map<String, JsonSchema> lookup) {
+    if (schema == BooleanSchema.FALSE) {
+      // rejected by the interpreting validator without any work, with its own error type
+      return false;
+    }
+    // the format validator only matters once compiled, the generated code always calls it
+    return CompiledSchema.compile(schema, draft, lookup, JsonFormatValidator.DEFAULT_VALIDATOR, false, 0) != null;
+  }
+
+  /**
+   * The source of a single generated class.
+   */
+  private static final class Source {
+
+    private final Draft draft;
+    private final Map<String, JsonSchema> lookup;
+    private final String packageName;
+    private final String className;
+
+    private final StringBuilder fields = new StringBuilder();
+    private final StringBuilder methods = new StringBuilder();
+    private final Map<Object, Integer> nodes = new IdentityHashMap<>();
+    private int constants;
+
+    Source(Draft draft, Map<String, JsonSchema> lookup, String packageName, String className) {
+      this.draft = draft;
+      this.lookup = lookup;
+      this.packageName = packageName;
+      this.className = className;
+    }
+
+    /**
+     * @param schema   the schema, as given
+     * @param compiled its dereferenced copy when compilable, {@code null} otherwise
+     */
+    String generate(JsonSchema schema, JsonSchema compiled) {
+      // the validators of the schemas that cannot be compiled only use the interpreting validator
+      final String isValid = compiled == null ? "" :
+        "\n" +
+          "  @Override\n" +
+          "  protected boolean isValid(Object instance) {\n" +
+          "    return " + call(compiled, "instance") + ";\n" +
+          "  }\n";
+
+      final StringBuilder source = new StringBuilder();
+      if (packageName != null && !packageName.isEmpty()) {
+        source.append("package ").append(packageName).append(";\n\n");
+      }
+      source
+        .append("import io.vertx.core.json.Json;\n")
+        .append("import io.vertx.core.json.JsonArray;\n")
+        .append("import io.vertx.core.json.JsonObject;\n")
+        .append("import io.vertx.json.schema.*;\n\n")
+        .append("import java.util.*;\n")
+        .append("import java.util.regex.Pattern;\n\n")
+        .append("/**\n")
+        .append(" * Generated by {@link ValidatorGenerator}, do not edit.\n")
+        .append(" */\n")
+        .append("public final class ").append(className).append(" extends PrecompiledValidator {\n\n")
+        .append("  private static final String SCHEMA = ").append(literal(schemaJson(schema))).append(";\n")
+        .append(fields)
+        .append("\n")
+        .append("  public ").append(className).append("(JsonSchemaOptions options) {\n")
+        .append("    this(options, JsonFormatValidator.DEFAULT_VALIDATOR);\n")
+        .append("  }\n\n")
+        .append("  public ").append(className).append("(JsonSchemaOptions options, JsonFormatValidator formatValidator) {\n")
+        .append("    super(SCHEMA, Draft.").append(draft.name()).append(", ").append(compiled != null).append(", options, formatValidator);\n")
+        .append("  }\n")
+        .append(isValid)
+        .append(methods)
+        .append("}\n");
+      return source.toString();
+    }
+
+    private static String schemaJson(JsonSchema schema) {
+      if (schema == BooleanSchema.TRUE || schema == BooleanSchema.FALSE) {
+        return String.valueOf(schema == BooleanSchema.TRUE);
+      }
+      return ((JsonObject) schema).encode();
+    }
+
+    /**
+     * @return the expression validating {@code arg} against the schema
+     */
+    private String call(Object schema, String arg) {
+      if (Boolean.TRUE.equals(schema) || schema == BooleanSchema.TRUE) {
+        return "true";
+      }
+      if (Boolean.FALSE.equals(schema) || schema == BooleanSchema.FALSE) {
+        return "false";
+      }
+      final JsonObject json = (JsonObject) schema;
+      // schema nodes sharing the same map are the same node
+      Integer index = nodes.get(json.getMap());
+      if (index == null) {
+        index = nodes.size();
+        nodes.put(json.getMap(), index);
+        methods.append(method(index, json));
+      }
+      return "v" + index + "(" + arg + ")";
+    }
+
+    private String method(int index, JsonObject schema) {
+      final StringBuilder code = new StringBuilder();
+      code
+        .append("\n")
+        .append("  private boolean v").append(index).append("(Object instance) {\n")
+        .append("    final Object i = jsonify(instance);\n")
+        .append("    final String t = typeOf(i);\n");
+
+      if (schema.containsKey("$ref")) {
+        final Object uri = schema.getValue("__absolute_ref__") != null ? schema.getValue("__absolute_ref__") : schema.getValue("$ref");
+        code.append("    if (!").append(call(lookup.get(uri), "i")).append(") return false;\n");
+        if (draft == Draft.DRAFT4 || draft == Draft.DRAFT7) {
+          // the other keywords are ignored
+          return code.append("    return true;\n").append("  }\n").toString();
+        }
+      }
+
+      type(code, schema.getValue("type"));
+
+      if (schema.containsKey("const")) {
+        code.append("    if (!equal(i, ").append(constant("Object", "Json.decodeValue(" + literal(Json.encode(schema.getValue("const"))) + ")")).append(")) return false;\n");
+      }
+      if (schema.containsKey("enum")) {
+        code.append("    if (!in(i, ").append(constant("JsonArray", "new JsonArray(" + literal(schema.getJsonArray("enum").encode()) + ")")).append(")) return false;\n");
+      }
+      if (schema.containsKey("not")) {
+        code.append("    if (").append(call(schema.getValue("not"), "i")).append(") return false;\n");
+      }
+      if (schema.containsKey("anyOf")) {
+        final StringJoiner any = new StringJoiner(" || ", "(", ")").setEmptyValue("false");
+        for (Object sub : schema.getJsonArray("anyOf")) {
+          any.add(call(sub, "i"));
+        }
+        code.append("    if (!").append(any).append(") return false;\n");
+      }
+      if (schema.containsKey("allOf")) {
+        for (Object sub : schema.getJsonArray("allOf")) {
+          code.append("    if (!").append(call(sub, "i")).append(") return false;\n");
+        }
+      }
+      if (schema.containsKey("oneOf")) {
+        code.append("    {\n").append("      int matches = 0;\n");
+        for (Object sub : schema.getJsonArray("oneOf")) {
+          code.append("      if (").append(call(sub, "i")).append(") matches++;\n");
+        }
+        code.append("      if (matches != 1) return false;\n").append("    }\n");
+      }
+      if (schema.containsKey("if") && (schema.containsKey("then") || schema.containsKey("else"))) {
+        code.append("    if (").append(call(schema.getValue("if"), "i")).append(") {\n");
+        if (schema.containsKey("then")) {
+          code.append("      if (!").append(call(schema.getValue("then"), "i")).append(") return false;\n");
+        }
+        code.append("    } else {\n");
+        if (schema.containsKey("else")) {
+          code.append("      if (!").append(call(schema.getValue("else"), "i")).append(") return false;\n");
+        }
+        code.append("    }\n");
+      }
+
+      object(code, schema);
+      array(code, schema);
+      number(code, schema);
+      string(code, schema);
+
+      final String format = schema.getString("format");
+      code
+        .append("    if (!format(t, ").append(format == null ? "null" : literal(format)).append(", i)) return false;\n")
+        .append("    return true;\n")
+        .append("  }\n");
+      return code.toString();
+    }
+
+    private void type(StringBuilder code, Object type) {
+      if (type instanceof String) {
+        code.append("    if (!").append(typeCheck((String) type)).append(") return false;\n");
+      } else if (type instanceof JsonArray) {
+        final StringJoiner any = new StringJoiner(" || ", "(", ")").setEmptyValue("false");
+        for (Object t : (JsonArray) type) {
+          any.add(typeCheck((String) t));
+        }
+        code.append("    if (!").append(any).append(") return false;\n");
+      }
+    }
+
+    private static String typeCheck(String type) {
+      return "integer".equals(type) ?
+        "(\"number\".equals(t) && isInteger(i))" :
+        literal(type) + ".equals(t)";
+    }
+
+    private void object(StringBuilder code, JsonObject schema) {
+      final StringBuilder object = new StringBuilder();
+      if (schema.containsKey("required")) {
+        for (Object key : schema.getJsonArray("required")) {
+          object.append("      if (!o.containsKey(").append(literal((String) key)).append(")) return false;\n");
+        }
+      }
+      if (schema.containsKey("minProperties")) {
+        object.append("      if (o.size() < ").append(schema.getInteger("minProperties")).append(") return false;\n");
+      }
+      if (schema.containsKey("maxProperties")) {
+        object.append("      if (o.size() > ").append(schema.getInteger("maxProperties")).append(") return false;\n");
+      }
+      if (schema.containsKey("propertyNames")) {
+        object
+          .append("      for (String k : o.fieldNames()) {\n")
+          .append("        if (!").append(call(schema.getValue("propertyNames"), "k")).append(") return false;\n")
+          .append("      }\n");
+      }
+      for (String keyword : new String[]{"dependentRequired", "dependentSchemas", "dependencies"}) {
+        if (!schema.containsKey(keyword)) {
+          continue;
+        }
+        final JsonObject dependencies = schema.getJsonObject(keyword);
+        for (String key : dependencies.fieldNames()) {
+          final Object dependency = dependencies.getValue(key);
+          final String check;
+          if (dependency instanceof JsonArray) {
+            if (((JsonArray) dependency).isEmpty()) {
+              continue;
+            }
+            final StringJoiner all = new StringJoiner(" && ", "(", ")");
+            for (Object required : (JsonArray) dependency) {
+              all.add("o.containsKey(" + literal((String) required) + ")");
+            }
+            check = all.toString();
+          } else {
+            check = call(dependency, "i");
+          }
+          object.append("      if (o.containsKey(").append(literal(key)).append(") && !").append(check).append(") return false;\n");
+        }
+      }
+      final JsonObject properties = schema.containsKey("properties") ? schema.getJsonObject("properties") : new JsonObject();
+      for (String key : properties.fieldNames()) {
+        object.append("      if (o.containsKey(").append(literal(key)).append(") && !").append(call(properties.getValue(key), "o.getValue(" + literal(key) + ")")).append(") return false;\n");
+      }
+      if (schema.containsKey("patternProperties") || schema.containsKey("additionalProperties")) {
+        object.append("      for (String k : o.fieldNames()) {\n");
+        final boolean additional = schema.containsKey("additionalProperties");
+        if (additional) {
+          if (properties.isEmpty()) {
+            object.append("        boolean matched = false;\n");
+          } else {
+            final String names = constant("Set<String>", "new HashSet<>(Arrays.asList(" + String.join(", ", properties.fieldNames().stream().map(Source::literal).toArray(String[]::new)) + "))");
+            object.append("        boolean matched = ").append(names).append(".contains(k);\n");
+          }
+        }
+        if (schema.containsKey("patternProperties")) {
+          final JsonObject patterns = schema.getJsonObject("patternProperties");
+          for (String pattern : patterns.fieldNames()) {
+            object
+              .append("        if (").append(pattern(pattern)).append(".matcher(k).find()) {\n")
+              .append(additional ? "          matched = true;\n" : "")
+              .append("          if (!").append(call(patterns.getValue(pattern), "o.getValue(k)")).append(") return false;\n")
+              .append("        }\n");
+          }
+        }
+        if (additional) {
+          object.append("        if (!matched && !").append(call(schema.getValue("additionalProperties"), "o.getValue(k)")).append(") return false;\n");
+        }
+        object.append("      }\n");
+      }
+      if (object.length() > 0) {
+        code
+          .append("    if (\"object\".equals(t)) {\n")
+          .append("      final JsonObject o = (JsonObject) i;\n")
+          .append(object)
+          .append("    }\n");
+      }
+    }
+
+    private void array(StringBuilder code, JsonObject schema) {
+      final StringBuilder array = new StringBuilder();
+      if (schema.containsKey("maxItems")) {
+        array.append("      if (length > ").append(schema.getInteger("maxItems")).append(") return false;\n");
+      }
+      if (schema.containsKey("minItems")) {
+        array.append("      if (length < ").append(schema.getInteger("minItems")).append(") return false;\n");
+      }
+      // same precedence as the interpreter: prefixItems, then items, then additionalItems (only next to items)
+      final JsonArray prefixItems = schema.getValue("prefixItems") instanceof JsonArray ? schema.getJsonArray("prefixItems") : new JsonArray();
+      for (int k = 0; k < prefixItems.size(); k++) {
+        array.append("      if (length > ").append(k).append(" && !").append(call(prefixItems.getValue(k), "a.getValue(" + k + ")")).append(") return false;\n");
+      }
+      if (schema.containsKey("items")) {
+        final String from = "Math.min(" + prefixItems.size() + ", length)";
+        final Object items = schema.getValue("items");
+        if (items instanceof JsonArray) {
+          final JsonArray tuple = (JsonArray) items;
+          for (int k = prefixItems.size(); k < tuple.size(); k++) {
+            array.append("      if (length > ").append(k).append(" && !").append(call(tuple.getValue(k), "a.getValue(" + k + ")")).append(") return false;\n");
+          }
+          if (schema.containsKey("additionalItems")) {
+            array
+              .append("      for (int k = Math.max(").append(from).append(", Math.min(").append(tuple.size()).append(", length)); k < length; k++) {\n")
+              .append("        if (!").append(call(schema.getValue("additionalItems"), "a.getValue(k)")).append(") return false;\n")
+              .append("      }\n");
+          }
+        } else {
+          array
+            .append("      for (int k = ").append(from).append("; k < length; k++) {\n")
+            .append("        if (!").append(call(items, "a.getValue(k)")).append(") return false;\n")
+            .append("      }\n");
+        }
+      }
+      if (schema.containsKey("contains")) {
+        final boolean hasMin = schema.containsKey("minContains");
+        final boolean hasMax = schema.containsKey("maxContains");
+        if (!hasMin) {
+          array.append("      if (length == 0) return false;\n");
+        }
+        array
+          .append("      {\n")
+          .append("        int contained = 0;\n")
+          .append("        for (int k = 0; k < length; k++) {\n")
+          .append("          if (").append(call(schema.getValue("contains"), "a.getValue(k)")).append(") contained++;\n")
+          .append("        }\n");
+        if (!hasMin && !hasMax) {
+          array.append("        if (contained == 0) return false;\n");
+        }
+        if (hasMin) {
+          array.append("        if (contained < ").append(schema.getInteger("minContains")).append(") return false;\n");
+        }
+        if (hasMax) {
+          array.append("        if (contained > ").append(schema.getInteger("maxContains")).append(") return false;\n");
+        }
+        array.append("      }\n");
+      }
+      if (schema.containsKey("uniqueItems") && Utils.Objects.truthy(schema.getValue("uniqueItems"))) {
+        array.append("      if (!unique(a)) return false;\n");
+      }
+      if (array.length() > 0) {
+        code
+          .append("    if (\"array\".equals(t)) {\n")
+          .append("      final JsonArray a = (JsonArray) i;\n")
+          .append("      final int length = a.size();\n")
+          .append(array)
+          .append("    }\n");
+      }
+    }
+
+    private void number(StringBuilder code, JsonObject schema) {
+      final StringBuilder number = new StringBuilder();
+      if (draft == Draft.DRAFT4) {
+        if (schema.containsKey("minimum")) {
+          number.append("      if (").append(schema.getBoolean("exclusiveMinimum", false) ? "lte" : "lt").append("(n, ").append(number(schema.getNumber("minimum"))).append(")) return false;\n");
+        }
+        if (schema.containsKey("maximum")) {
+          number.append("      if (").append(schema.getBoolean("exclusiveMaximum", false) ? "gte" : "gt").append("(n, ").append(number(schema.getNumber("maximum"))).append(")) return false;\n");
+        }
+      } else {
+        final String[][] bounds = {{"minimum", "lt"}, {"maximum", "gt"}, {"exclusiveMinimum", "lte"}, {"exclusiveMaximum", "gte"}};
+        for (String[] bound : bounds) {
+          if (schema.containsKey(bound[0])) {
+            number.append("      if (").append(bound[1]).append("(n, ").append(number(schema.getNumber(bound[0]))).append(")) return false;\n");
+          }
+        }
+      }
+      if (schema.containsKey("multipleOf")) {
+        number.append("      if (!multipleOf(n, ").append(number(schema.getNumber("multipleOf"))).append(")) return false;\n");
+      }
+      if (number.length() > 0) {
+        code
+          .append("    if (\"number\".equals(t)) {\n")
+          .append("      final Number n = (Number) i;\n")
+          .append(number)
+          .append("    }\n");
+      }
+    }
+
+    private void string(StringBuilder code, JsonObject schema) {
+      final StringBuilder string = new StringBuilder();
+      if (schema.containsKey("minLength") || schema.containsKey("maxLength")) {
+        string.append("      final int length = length(s);\n");
+        if (schema.containsKey("minLength")) {
+          string.append("      if (").append(compare("length", "<", schema.getNumber("minLength"))).append(") return false;\n");
+        }
+        if (schema.containsKey("maxLength")) {
+          string.append("      if (").append(compare("length", ">", schema.getNumber("maxLength"))).append(") return false;\n");
+        }
+      }
+      if (schema.containsKey("pattern")) {
+        string.append("      if (!").append(pattern(schema.getString("pattern"))).append(".matcher(s).find()) return false;\n");
+      }
+      if (schema.containsKey("format")) {
+        string.append("      if (!knownFormat(").append(literal(schema.getString("format"))).append(", s)) return false;\n");
+      }
+      if (draft.isAfter(Draft.DRAFT4) && schema.containsKey("contentEncoding")) {
+        // only asserted up to draft 7, the later drafts are not compilable
+        string.append("      if (!contentEncoding(").append(literal(schema.getString("contentEncoding"))).append(", s)) return false;\n");
+      }
+      if (string.length() > 0) {
+        code
+          .append("    if (\"string\".equals(t)) {\n")
+          .append("      final String s = (String) i;\n")
+          .append(string)
+          .append("    }\n");
+      }
+    }
+
+    /**
+     * @return the comparison of an {@code int} with a bound, inlined unless the bound is a big number
+     */
+    private String compare(String value, String operator, Number bound) {
+      if (bound instanceof BigInteger || bound instanceof BigDecimal) {
+        return ("<".equals(operator) ? "lt" : "gt") + "(" + value + ", " + number(bound) + ")";
+      }
+      return value + " " + operator + " " + number(bound);
+    }
+
+    /**
+     * @return a Java literal of the number, of the same type as the schema value
+     */
+    private String number(Number value) {
+      if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+        return value.toString();
+      }
+      if (value instanceof Long) {
+        return value + "L";
+      }
+      if (value instanceof Double || value instanceof Float) {
+        return value.doubleValue() + "d";
+      }
+      final String type = value instanceof BigInteger ? "java.math.BigInteger" : "java.math.BigDecimal";
+      return constant("Number", "new " + type + "(" + literal(value.toString()) + ")");
+    }
+
+    private String pattern(String pattern) {
+      return constant("Pattern", "Pattern.compile(" + literal(pattern) + ")");
+    }
+
+    private String constant(String type, String initializer) {
+      final String name = "C" + constants++;
+      fields.append("  private static final ").append(type).append(" ").append(name).append(" = ").append(initializer).append(";\n");
+      return name;
+    }
+
+    /**
+     * @return a Java string literal, split in chunks when too long for a single constant
+     */
+    private static String literal(String value) {
+      if (value.length() > LITERAL_CHUNK) {
+        final StringJoiner chunks = new StringJoiner(", ", "String.join(\"\", ", ")");
+        for (int i = 0; i < value.length(); i += LITERAL_CHUNK) {
+          chunks.add(literal(value.substring(i, Math.min(value.length(), i + LITERAL_CHUNK))));
+        }
+        return chunks.toString();
+      }
+      final StringBuilder literal = new StringBuilder("\"");
+      for (char c : value.toCharArray()) {
+        switch (c) {
+          case '"':
+            literal.append("\\\"");
+            break;
+          case '\\':
+            literal.append("\\\\");
+            break;
+          case '\n':
+            literal.append("\\n");
+            break;
+          case '\r':
+            literal.append("\\r");
+            break;
+          case '\t':
+            literal.append("\\t");
+            break;
+          default:
+            if (c < 0x20) {
+              // unicode escapes are translated before parsing, line terminators must not be written as such
+              literal.append(String.format("\\%03o", (int) c));
+            } else if (c > 0x7e) {
+              literal.append(String.format("\\u%04x", (int) c));
+            } else {
+              literal.append(c);
+            }
+        }
+      }
+      return literal.append('"').toString();
+    }
+  }
+}
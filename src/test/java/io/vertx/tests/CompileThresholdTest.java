@@ -0,0 +1,94 @@
+package io.vertx.tests;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.*;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CompileThresholdTest {
+
+  @Test
+  public void testCompiledAfterThreshold() {
+    JsonObject name = new JsonObject().put("type", "string").put("maxLength", 3);
+    JsonObject schema = new JsonObject()
+      .put("type", "object")
+      .put("properties", new JsonObject().put("name", new JsonObject().put("$ref", "#/$defs/name")))
+      .put("$defs", new JsonObject().put("name", name));
+    Validator validator = Validator.create(
+      JsonSchema.of(schema),
+      new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setCompileThreshold(3));
+
+    JsonObject instance = new JsonObject().put("name", "vert.x");
+    assertThat(validator.validate(instance).getValid()).isFalse();
+    assertThat(validator.validate(instance).getValid()).isFalse();
+
+    // the compiled schema captures the keyword values at the threshold, which the interpreter reads on each validation
+    name.put("maxLength", 10);
+    assertThat(validator.validate(instance).getValid()).isTrue();
+    name.put("maxLength", 3);
+    assertThat(validator.validate(instance).getValid()).isTrue();
+  }
+
+  @Test
+  public void testRedundantSchemas() {
+    JsonObject node = new JsonObject()
+      .put("type", new JsonArray().add("object"))
+      .put("properties", new JsonObject()
+        .put("value", new JsonObject().put("allOf", new JsonArray().add(new JsonObject().put("$ref", "#/$defs/alias"))))
+        .put("any", true)
+        .put("children", new JsonObject().put("type", "array").put("items", new JsonObject().put("$ref", "#"))))
+      .put("anyOf", new JsonArray().add(true).add(new JsonObject().put("required", new JsonArray().add("missing"))))
+      .put("oneOf", new JsonArray().add(new JsonObject().put("not", false)))
+      .put("additionalProperties", new JsonObject().put("type", new JsonArray().add("integer")))
+      .put("$defs", new JsonObject()
+        .put("alias", new JsonObject().put("$ref", "#/$defs/value"))
+        .put("value", new JsonObject().put("type", "string").put("maxLength", 3)));
+    JsonSchemaOptions options = new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012);
+    Validator compiled = Validator.create(JsonSchema.of(node.copy()), new JsonSchemaOptions(options).setCompileThreshold(1));
+    Validator interpreter = Validator.create(JsonSchema.of(node.copy()), options);
+
+    JsonObject leaf = new JsonObject().put("value", "abc").put("any", new JsonArray()).put("count", 1);
+    Object[] instances = {
+      leaf,
+      leaf.copy().put("value", "abcd"),
+      leaf.copy().put("count", 1.5),
+      new JsonObject().put("children", new JsonArray().add(leaf).add(leaf.copy().put("children", new JsonArray().add(leaf)))),
+      new JsonObject().put("children", new JsonArray().add(leaf).add(leaf.copy().put("children", new JsonArray().add(leaf.copy().put("value", 1))))),
+      "abc"
+    };
+    for (int round = 0; round < 2; round++) {
+      for (Object instance : instances) {
+        assertThat(compiled.validate(instance).getValid()).as("%s", instance).isEqualTo(interpreter.validate(instance).getValid());
+      }
+    }
+  }
+
+  @Test
+  public void testReportsAreInterpreted() {
+    JsonObject schema = new JsonObject()
+      .put("type", "object")
+      .put("required", new JsonArray().add("id"));
+    JsonSchemaOptions options = new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setOutputFormat(OutputFormat.Basic);
+    Validator validator = Validator.create(JsonSchema.of(schema.copy()), new JsonSchemaOptions(options).setCompileThreshold(1));
+    Validator interpreter = Validator.create(JsonSchema.of(schema.copy()), options);
+    for (int i = 0; i < 3; i++) {
+      OutputUnit result = validator.validate(new JsonObject());
+      assertThat(result.getErrors()).hasSize(1);
+      assertThat(result.toJson()).isEqualTo(interpreter.validate(new JsonObject()).toJson());
+      assertThat(validator.validate(new JsonObject().put("id", 1)).toJson()).isEqualTo(interpreter.validate(new JsonObject().put("id", 1)).toJson());
+    }
+  }
+
+  @Test
+  public void testUnresolvableReferenceIsInterpreted() {
+    Validator validator = Validator.create(
+      JsonSchema.of(new JsonObject().put("$ref", "urn:missing")),
+      new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setCompileThreshold(1));
+    for (int i = 0; i < 3; i++) {
+      assertThatThrownBy(() -> validator.validate(1)).isInstanceOf(SchemaException.class);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package io.vertx.tests;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FailFastTest {
+
+  private static Validator validator(JsonObject schema, OutputFormat format, AtomicInteger probes) {
+    return Validator.create(
+      JsonSchema.of(schema),
+      new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setOutputFormat(format),
+      (type, f, instance) -> {
+        if ("probe".equals(f)) {
+          probes.incrementAndGet();
+        }
+        return null;
+      });
+  }
+
+  private static JsonObject schema() {
+    return new JsonObject()
+      .put("type", "object")
+      .put("required", new JsonArray().add("id"))
+      .put("maxProperties", 2)
+      .put("properties", new JsonObject().put("name", new JsonObject().put("type", "string").put("format", "probe")));
+  }
+
+  @Test
+  public void testFlagRejectsBeforeSubSchemas() {
+    AtomicInteger probes = new AtomicInteger();
+    Validator validator = validator(schema(), OutputFormat.Flag, probes);
+    for (int i = 0; i < 5000; i++) {
+      assertThat(validator.validate(new JsonObject().put("name", "vert.x")).getValid()).isFalse();
+      assertThat(validator.validate(new JsonObject().put("id", i).put("name", "vert.x").put("other", true)).getValid()).isFalse();
+    }
+    assertThat(probes.get()).isZero();
+
+    assertThat(validator.validate(new JsonObject().put("id", 1).put("name", "vert.x")).getValid()).isTrue();
+    assertThat(probes.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testOtherFormatsReportAllErrors() {
+    AtomicInteger probes = new AtomicInteger();
+    Validator validator = validator(schema(), OutputFormat.Basic, probes);
+    OutputUnit result = validator.validate(new JsonObject().put("name", "vert.x"));
+    assertThat(result.getValid()).isFalse();
+    assertThat(result.getErrors()).isNotEmpty();
+    assertThat(probes.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testUnevaluatedKeywordsDisableEarlyRejection() {
+    AtomicInteger probes = new AtomicInteger();
+    JsonObject schema = new JsonObject()
+      .put("anyOf", new JsonArray().add(schema()))
+      .put("unevaluatedProperties", false);
+    Validator validator = validator(schema, OutputFormat.Flag, probes);
+    assertThat(validator.validate(new JsonObject().put("name", "vert.x")).getValid()).isFalse();
+    assertThat(probes.get()).isEqualTo(1);
+  }
+}
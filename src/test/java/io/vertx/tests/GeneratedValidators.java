@@ -0,0 +1,62 @@
+package io.vertx.tests;
+
+import io.vertx.json.schema.*;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Validators generated by a {@link ValidatorGenerator} and compiled in a single batch.
+ */
+final class GeneratedValidators {
+
+  private final String packageName;
+  private final URLClassLoader loader;
+
+  private GeneratedValidators(String packageName, URLClassLoader loader) {
+    this.packageName = packageName;
+    this.loader = loader;
+  }
+
+  /**
+   * @param schemas the schemas and their draft, by class name
+   */
+  static GeneratedValidators compile(Path output, String packageName, Map<String, Map.Entry<JsonSchema, Draft>> schemas) throws IOException {
+    final List<String> files = new ArrayList<>();
+    final Path sources = Files.createDirectories(output.resolve("src").resolve(packageName.replace('.', File.separatorChar)));
+    for (Map.Entry<String, Map.Entry<JsonSchema, Draft>> entry : schemas.entrySet()) {
+      final Path file = sources.resolve(entry.getKey() + ".java");
+      final String source = generator(entry.getValue().getValue()).generate(entry.getValue().getKey(), packageName, entry.getKey());
+      Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+      files.add(file.toString());
+    }
+
+    final Path classes = Files.createDirectories(output.resolve("classes"));
+    final String classpath = System.getProperty("java.class.path") + File.pathSeparator + System.getProperty("jdk.module.path", "");
+    final List<String> args = new ArrayList<>(List.of("-nowarn", "-classpath", classpath, "-d", classes.toString()));
+    args.addAll(files);
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    assertThat(compiler.run(null, null, null, args.toArray(new String[0]))).isZero();
+    return new GeneratedValidators(packageName, new URLClassLoader(new URL[]{classes.toUri().toURL()}, GeneratedValidators.class.getClassLoader()));
+  }
+
+  static ValidatorGenerator generator(Draft draft) {
+    return ValidatorGenerator.create(new JsonSchemaOptions().setDraft(draft));
+  }
+
+  Validator load(String className, JsonSchemaOptions options) throws ReflectiveOperationException {
+    return (Validator) loader.loadClass(packageName + "." + className).getConstructor(JsonSchemaOptions.class).newInstance(options);
+  }
+}
@@ -0,0 +1,100 @@
+package io.vertx.tests;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.*;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+public class LinearTimeRegexTest {
+
+  private static final JsonSchemaOptions OPTIONS = new JsonSchemaOptions()
+    .setBaseUri("app://")
+    .setDraft(Draft.DRAFT202012)
+    .setLinearTimeRegex(true);
+
+  private static Validator validator(String pattern) {
+    return Validator.create(JsonSchema.of(new JsonObject().put("pattern", pattern)), OPTIONS);
+  }
+
+  @Test
+  public void testMatchesLikeJavaRegex() {
+    String[] patterns = {
+      "^[a-z]+$", "\\d{3}-\\d{4}", "^\\w+@\\w+\\.com$", "a.c", "^(foo|bar)?baz$", "[^\\s]", "\\bword\\b", "\\Bor\\B",
+      "^x{2,3}$", "^x{2,}$", "^.$", "^a$", "colou?r", "[\\-.]", "^[\\d_]+$", "\\u00e9", "^(?:ab)*?c$", "^(?<year>\\d{4})$",
+      "^[^a-c]*$", "\\x41\\t", "^\\S+\\s\\W$", "", "^$", "a|", "\\$\\^", "[a-]z"
+    };
+    String[] inputs = {
+      "", "abc", "ABC", "555-1234", "me@host.com", "a\nc", "abc\n", "baz", "foobaz", "foobarbaz", " ", "a word!",
+      "words", "xx", "xxxx", "😀", "a", "a\n", "a\r\n", "color", "colour", "-", "123_4", "été", "ababc",
+      "2024", "A\t", "ok !", "$^", "-z", "a "
+    };
+    for (String pattern : patterns) {
+      Validator validator = validator(pattern);
+      Pattern regex = Pattern.compile(pattern);
+      for (String input : inputs) {
+        assertThat(validator.validate(input).getValid())
+          .as("/%s/ on \"%s\"", pattern, input)
+          .isEqualTo(regex.matcher(input).find());
+      }
+    }
+  }
+
+  @Test
+  public void testCatastrophicBacktrackingPatterns() {
+    String input = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa!";
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      assertThat(validator("^(a+)+$").validate(input).getValid()).isFalse();
+      assertThat(validator("^(a|a)*$").validate(input).getValid()).isFalse();
+      assertThat(validator("^(a|aa)+$").validate(input).getValid()).isFalse();
+      assertThat(validator("^(\\w*)*$").validate(input).getValid()).isFalse();
+    });
+    Validator patternProperties = Validator.create(
+      JsonSchema.of(new JsonObject().put("patternProperties", new JsonObject().put("^(a+)+$", false))),
+      OPTIONS);
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      assertThat(patternProperties.validate(new JsonObject().put(input, 1)).getValid()).isTrue();
+    });
+  }
+
+  @Test
+  public void testUnsupportedConstructsAreRejected() {
+    for (String pattern : new String[]{"(a)\\1", "^(?=a)", "(?i)a", "a*+", "\\p{L}", "[a&&[b]]", "a{100000}", "(?<!a)b"}) {
+      assertThat(Validator.create(JsonSchema.of(new JsonObject().put("pattern", pattern)), new JsonSchemaOptions(OPTIONS).setLinearTimeRegex(false)).validate("a")).isNotNull();
+      // rejected when the validator is created
+      assertThatThrownBy(() -> validator(pattern))
+        .as(pattern)
+        .isInstanceOf(SchemaException.class);
+    }
+  }
+
+  @Test
+  public void testUnsupportedNestedPatternsAreRejectedUpFront() {
+    JsonObject[] schemas = {
+      new JsonObject().put("properties", new JsonObject().put("a", new JsonObject().put("pattern", "(a)\\1"))),
+      new JsonObject().put("items", new JsonObject().put("patternProperties", new JsonObject().put("^(?=a)", true))),
+      new JsonObject().put("anyOf", new JsonArray().add(true).add(new JsonObject().put("not", new JsonObject().put("pattern", "(?<!a)b")))),
+      new JsonObject().put("$ref", "#/$defs/a").put("$defs", new JsonObject().put("a", new JsonObject().put("pattern", "a*+")))
+    };
+    for (JsonObject schema : schemas) {
+      assertThatThrownBy(() -> Validator.create(JsonSchema.of(schema), OPTIONS))
+        .as("%s", schema)
+        .isInstanceOf(SchemaException.class);
+    }
+    SchemaRepository repository = SchemaRepository.create(OPTIONS);
+    repository.dereference("app://unsupported", JsonSchema.of(new JsonObject().put("pattern", "\\p{L}")));
+    assertThatThrownBy(() -> repository.validator("app://unsupported")).isInstanceOf(SchemaException.class);
+
+    // values that are not sub schemas are not patterns
+    Validator validator = Validator.create(JsonSchema.of(new JsonObject()
+      .put("const", new JsonObject().put("pattern", "(a)\\1"))
+      .put("properties", new JsonObject().put("pattern", new JsonObject().put("type", "string")))), OPTIONS);
+    assertThat(validator.validate(new JsonObject().put("pattern", "(a)\\1")).getValid()).isTrue();
+  }
+}
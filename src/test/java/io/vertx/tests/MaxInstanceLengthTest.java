@@ -0,0 +1,67 @@
+package io.vertx.tests;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MaxInstanceLengthTest {
+
+  private static Validator validator(JsonObject schema) {
+    return Validator.create(JsonSchema.of(schema), new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012));
+  }
+
+  @Test
+  public void testBoundedSchemas() {
+    assertThat(validator(new JsonObject().put("type", "string").put("maxLength", 3)).maxInstanceLength())
+      .isEqualTo(2 + 3 * 6);
+    assertThat(validator(new JsonObject().put("enum", new JsonArray().add("red").add("green"))).maxInstanceLength())
+      .isEqualTo(7);
+    assertThat(validator(new JsonObject()
+      .put("type", "array")
+      .put("maxItems", 2)
+      .put("items", new JsonObject().put("type", "boolean"))).maxInstanceLength())
+      .isEqualTo(2 + 5 + 1 + 5);
+    assertThat(validator(new JsonObject()
+      .put("type", "object")
+      .put("properties", new JsonObject().put("a", new JsonObject().put("type", "null")))
+      .put("additionalProperties", false)).maxInstanceLength())
+      .isEqualTo(2 + 3 + 1 + 4);
+  }
+
+  @Test
+  public void testUnboundedSchemas() {
+    Validator validator = validator(new JsonObject().put("type", "array").put("items", new JsonObject().put("type", "string")));
+    assertThat(validator.maxInstanceLength()).isEqualTo(-1);
+
+    // recursive schema
+    assertThat(validator(new JsonObject()
+      .put("type", "array")
+      .put("maxItems", 1)
+      .put("items", new JsonObject().put("$ref", "#"))).maxInstanceLength())
+      .isEqualTo(-1);
+  }
+
+  @Test
+  public void testCompactEncodingOfValidInstancesIsBounded() {
+    Validator validator = validator(new JsonObject()
+      .put("type", "object")
+      .put("maxProperties", 2)
+      .put("propertyNames", new JsonObject().put("maxLength", 8))
+      .put("additionalProperties", new JsonObject().put("type", "integer").put("minimum", 0).put("maximum", 100)));
+
+    long max = validator.maxInstanceLength();
+    assertThat(max).isPositive();
+    JsonObject longest = new JsonObject().put("\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000", 100).put("\u0001\u0001\u0001\u0001\u0001\u0001\u0001\u0001", 100);
+    assertThat(validator.validate(longest).getValid()).isTrue();
+    assertThat((long) longest.encode().getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(max);
+    // the bound only holds for the compact encoding, insignificant whitespace makes the payload arbitrarily longer
+    String padded = longest.encode() + " ".repeat((int) max);
+    assertThat(validator.validate(new JsonObject(padded)).getValid()).isTrue();
+    assertThat((long) padded.getBytes(StandardCharsets.UTF_8).length).isGreaterThan(max);
+  }
+}
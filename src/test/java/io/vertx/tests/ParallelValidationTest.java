@@ -0,0 +1,106 @@
+package io.vertx.tests;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.*;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ParallelValidationTest {
+
+  private static final JsonSchemaOptions SEQUENTIAL = new JsonSchemaOptions()
+    .setBaseUri("app://")
+    .setDraft(Draft.DRAFT202012)
+    .setOutputFormat(OutputFormat.Basic);
+
+  private static final JsonSchemaOptions PARALLEL = new JsonSchemaOptions(SEQUENTIAL)
+    .setParallelValidationThreshold(4);
+
+  private static JsonArray items(int size) {
+    JsonArray array = new JsonArray();
+    for (int i = 0; i < size; i++) {
+      array.add(i % 7 == 0 ? "not an integer" : i);
+    }
+    return array;
+  }
+
+  @Test
+  public void testItemsErrorsAreInIndexOrder() {
+    JsonSchema schema = JsonSchema.of(new JsonObject()
+      .put("type", "array")
+      .put("prefixItems", new JsonArray().add(new JsonObject().put("type", "string")))
+      .put("items", new JsonObject().put("type", "integer")));
+
+    OutputUnit parallel = Validator.create(schema, PARALLEL).validate(items(1000));
+    OutputUnit sequential = Validator.create(schema, SEQUENTIAL).validate(items(1000));
+
+    assertThat(parallel.getValid()).isFalse();
+    assertThat(parallel.toJson()).isEqualTo(sequential.toJson());
+  }
+
+  @Test
+  public void testPropertiesErrorsAreInSchemaOrder() {
+    JsonObject properties = new JsonObject();
+    JsonObject instance = new JsonObject();
+    for (int i = 0; i < 100; i++) {
+      properties.put("p" + i, new JsonObject().put("type", "integer"));
+      instance.put("p" + (99 - i), i % 3 == 0 ? "not an integer" : i);
+    }
+    JsonSchema schema = JsonSchema.of(new JsonObject()
+      .put("properties", properties)
+      .put("unevaluatedProperties", false));
+
+    OutputUnit parallel = Validator.create(schema, PARALLEL).validate(instance);
+    OutputUnit sequential = Validator.create(schema, SEQUENTIAL).validate(instance);
+
+    assertThat(parallel.getValid()).isFalse();
+    assertThat(parallel.toJson()).isEqualTo(sequential.toJson());
+  }
+
+  @Test
+  public void testFlagOutput() {
+    JsonSchema schema = JsonSchema.of(new JsonObject()
+      .put("items", new JsonObject().put("type", "integer")));
+
+    Validator validator = Validator.create(schema, new JsonSchemaOptions(PARALLEL).setOutputFormat(OutputFormat.Flag));
+    assertThat(validator.validate(items(1000)).getValid()).isFalse();
+    assertThat(validator.validate(new JsonArray().add(1).add(2).add(3).add(4).add(5)).getValid()).isTrue();
+  }
+
+  @Test
+  public void testDynamicReferences() {
+    JsonSchema schema = JsonSchema.of(new JsonObject()
+      .put("$id", "https://example.com/tree")
+      .put("$dynamicAnchor", "node")
+      .put("type", "object")
+      .put("properties", new JsonObject()
+        .put("data", true)
+        .put("children", new JsonObject()
+          .put("type", "array")
+          .put("items", new JsonObject().put("$dynamicRef", "#node")))));
+
+    JsonObject tree = new JsonObject().put("data", 0);
+    JsonArray children = new JsonArray();
+    for (int i = 0; i < 50; i++) {
+      children.add(new JsonObject().put("data", i).put("children", i == 42 ? new JsonArray().add("leaf") : new JsonArray()));
+    }
+    tree.put("children", children);
+
+    OutputUnit parallel = Validator.create(schema, PARALLEL).validate(tree);
+    OutputUnit sequential = Validator.create(schema, SEQUENTIAL).validate(tree);
+
+    assertThat(parallel.getValid()).isFalse();
+    assertThat(parallel.toJson()).isEqualTo(sequential.toJson());
+  }
+
+  @Test
+  public void testSchemaErrorsArePropagated() {
+    JsonSchema schema = JsonSchema.of(new JsonObject()
+      .put("items", new JsonObject().put("$ref", "#/$defs/missing")));
+
+    assertThatThrownBy(() -> Validator.create(schema, PARALLEL).validate(items(100)))
+      .isInstanceOf(SchemaException.class);
+  }
+}
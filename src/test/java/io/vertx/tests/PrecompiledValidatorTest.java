@@ -0,0 +1,149 @@
+package io.vertx.tests;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+public class PrecompiledValidatorTest {
+
+  private static final String PACKAGE = "io.vertx.tests.generated";
+
+  @TempDir
+  static Path output;
+
+  private static GeneratedValidators generated;
+
+  /**
+   * Generates the validators of the unit tests, compiled in a single batch.
+   */
+  @BeforeAll
+  public static void compile() throws IOException {
+    final Map<String, Map.Entry<JsonSchema, Draft>> schemas = new LinkedHashMap<>();
+    schemas.put("Person", new AbstractMap.SimpleImmutableEntry<>(JsonSchema.of(person()), Draft.DRAFT202012));
+    schemas.put("WithRef", new AbstractMap.SimpleImmutableEntry<>(JsonSchema.of(new JsonObject().put("$ref", "#/$defs/a").put("$defs", new JsonObject().put("a", new JsonObject().put("type", "string")))), Draft.DRAFT202012));
+    schemas.put("True", new AbstractMap.SimpleImmutableEntry<>(JsonSchema.of(true), Draft.DRAFT202012));
+    schemas.put("Tree", new AbstractMap.SimpleImmutableEntry<>(JsonSchema.of(tree()), Draft.DRAFT202012));
+    schemas.put("Unevaluated", new AbstractMap.SimpleImmutableEntry<>(JsonSchema.of(new JsonObject().put("properties", new JsonObject().put("a", new JsonObject())).put("unevaluatedProperties", false)), Draft.DRAFT202012));
+    schemas.put("Backtracking", new AbstractMap.SimpleImmutableEntry<>(JsonSchema.of(new JsonObject().put("type", "string").put("pattern", "^((a+)+)+$")), Draft.DRAFT202012));
+    generated = GeneratedValidators.compile(output, PACKAGE, schemas);
+  }
+
+  private static Validator load(String className, JsonSchemaOptions options) throws ReflectiveOperationException {
+    return generated.load(className, options);
+  }
+
+  private static JsonObject person() {
+    return new JsonObject()
+      .put("type", "object")
+      .put("required", new JsonArray().add("name"))
+      .put("properties", new JsonObject()
+        .put("name", new JsonObject().put("type", "string").put("minLength", 1).put("pattern", "^[A-Z]"))
+        .put("age", new JsonObject().put("type", "integer").put("minimum", 0).put("maximum", 150))
+        .put("tags", new JsonObject().put("type", "array").put("items", new JsonObject().put("enum", new JsonArray().add("a").add("b"))).put("uniqueItems", true)))
+      .put("additionalProperties", false);
+  }
+
+  private static JsonObject tree() {
+    return new JsonObject()
+      .put("$ref", "#/$defs/node")
+      .put("$defs", new JsonObject()
+        .put("node", new JsonObject()
+          .put("type", "object")
+          .put("x-kind", "node")
+          .put("properties", new JsonObject()
+            .put("value", new JsonObject().put("type", "integer"))
+            .put("children", new JsonObject().put("type", "array").put("items", new JsonObject().put("$ref", "#/$defs/node")).put("contains", new JsonObject().put("required", new JsonArray().add("value")))))
+          .put("dependentSchemas", new JsonObject().put("children", new JsonObject().put("required", new JsonArray().add("value"))))));
+  }
+
+  @Test
+  public void testCompiledValidation() throws ReflectiveOperationException {
+    Validator validator = load("Person", new JsonSchemaOptions().setBaseUri("app://").setOutputFormat(OutputFormat.Flag));
+    assertThat(validator.validate(new JsonObject().put("name", "Vert.x").put("age", 12).put("tags", new JsonArray().add("a"))).getValid()).isTrue();
+    assertThat(validator.validate(new JsonObject().put("name", "vert.x")).getValid()).isFalse();
+    assertThat(validator.validate(new JsonObject().put("name", "Vert.x").put("age", 12.5)).getValid()).isFalse();
+    assertThat(validator.validate(new JsonObject().put("name", "Vert.x").put("tags", new JsonArray().add("a").add("a"))).getValid()).isFalse();
+    assertThat(validator.validate(new JsonObject().put("name", "Vert.x").put("other", 1)).getValid()).isFalse();
+    assertThat(validator.validate("Vert.x").getValid()).isFalse();
+  }
+
+  @Test
+  public void testErrorsAreReported() throws ReflectiveOperationException {
+    JsonSchemaOptions options = new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setOutputFormat(OutputFormat.Basic);
+    Validator validator = load("Person", options);
+    JsonObject instance = new JsonObject().put("age", -1);
+    OutputUnit result = validator.validate(instance);
+    assertThat(result.getValid()).isFalse();
+    assertThat(result.getErrors()).isNotEmpty();
+    assertThat(result.toJson()).isEqualTo(Validator.create(JsonSchema.of(person()), options).validate(instance).toJson());
+  }
+
+  @Test
+  public void testCompiledReferences() throws ReflectiveOperationException {
+    JsonSchemaOptions options = new JsonSchemaOptions().setBaseUri("app://").setOutputFormat(OutputFormat.Flag);
+    Validator validator = load("Tree", options);
+    JsonObject leaf = new JsonObject().put("value", 1);
+    assertThat(validator.validate(new JsonObject().put("value", 1).put("children", new JsonArray().add(leaf).add(new JsonObject()))).getValid()).isTrue();
+    // the nested nodes are validated by the same method
+    assertThat(validator.validate(new JsonObject().put("value", 1).put("children", new JsonArray().add(new JsonObject().put("value", "1")))).getValid()).isFalse();
+    // contains
+    assertThat(validator.validate(new JsonObject().put("value", 1).put("children", new JsonArray().add(new JsonObject()))).getValid()).isFalse();
+    // dependentSchemas
+    assertThat(validator.validate(new JsonObject().put("children", new JsonArray().add(leaf))).getValid()).isFalse();
+    assertThat(load("WithRef", options).validate("vert.x").getValid()).isTrue();
+    assertThat(load("WithRef", options).validate(1).getValid()).isFalse();
+    assertThat(load("True", options).validate(1).getValid()).isTrue();
+  }
+
+  @Test
+  public void testNotCompilable() throws ReflectiveOperationException {
+    ValidatorGenerator generator = GeneratedValidators.generator(Draft.DRAFT202012);
+    assertThat(generator.isCompilable(JsonSchema.of(person()))).isTrue();
+    assertThat(generator.isCompilable(JsonSchema.of(tree()))).isTrue();
+    assertThat(generator.isCompilable(JsonSchema.of(new JsonObject().put("$ref", "#")))).isTrue();
+    assertThat(generator.isCompilable(JsonSchema.of(new JsonObject().put("contains", new JsonObject())))).isTrue();
+    assertThat(generator.isCompilable(JsonSchema.of(true))).isTrue();
+    // unknown keywords are ignored
+    assertThat(generator.isCompilable(JsonSchema.of(new JsonObject().put("type", "string").put("nullable", true).put("example", "a").put("x-name", "b")))).isTrue();
+    assertThat(generator.isCompilable(JsonSchema.of(new JsonObject().put("unevaluatedProperties", false)))).isFalse();
+    assertThat(generator.isCompilable(JsonSchema.of(new JsonObject().put("$ref", "https://example.com/remote")))).isFalse();
+    assertThat(generator.isCompilable(JsonSchema.of(new JsonObject().put("minItems", "1")))).isFalse();
+
+    // the interpreting validator is used instead
+    JsonSchemaOptions options = new JsonSchemaOptions().setBaseUri("app://").setOutputFormat(OutputFormat.Flag);
+    assertThat(load("Unevaluated", options).validate(new JsonObject().put("a", 1)).getValid()).isTrue();
+    assertThat(load("Unevaluated", options).validate(new JsonObject().put("b", 1)).getValid()).isFalse();
+  }
+
+  @Test
+  public void testRegexOptionsAreHonored() throws ReflectiveOperationException {
+    String input = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa!";
+    JsonSchemaOptions options = new JsonSchemaOptions().setBaseUri("app://").setOutputFormat(OutputFormat.Flag);
+
+    Validator budgeted = load("Backtracking", new JsonSchemaOptions(options).setMaxRegexSteps(10_000));
+    assertThat(budgeted.validate(input).getValid()).isFalse();
+    assertThat(budgeted.abortedMatches()).isNotEmpty();
+    assertThat(budgeted.validate("aaa").getValid()).isTrue();
+
+    Validator linear = load("Backtracking", new JsonSchemaOptions(options).setLinearTimeRegex(true));
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThat(linear.validate(input).getValid()).isFalse());
+    assertThat(linear.validate("aaa").getValid()).isTrue();
+
+    // the schemas without patterns are not affected
+    Validator tree = load("Tree", new JsonSchemaOptions(options).setLinearTimeRegex(true).setMaxRegexSteps(10));
+    assertThat(tree.validate(new JsonObject().put("value", 1)).getValid()).isTrue();
+  }
+}
@@ -0,0 +1,137 @@
+package io.vertx.tests;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.*;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+public class RegexBudgetTest {
+
+  private static final String INPUT = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa!";
+
+  private static final JsonSchemaOptions OPTIONS = new JsonSchemaOptions()
+    .setBaseUri("app://")
+    .setDraft(Draft.DRAFT202012)
+    .setMaxRegexSteps(10_000);
+
+  @Test
+  public void testPathologicalPatternsAreAborted() {
+    Validator validator = Validator.create(JsonSchema.of(new JsonObject().put("pattern", "^((a+)+)+$")), OPTIONS);
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      assertThat(validator.validate(INPUT).getValid()).isFalse();
+      assertThat(validator.validate(INPUT).getValid()).isFalse();
+    });
+    assertThat(validator.validate("aaaa").getValid()).isTrue();
+    assertThat(validator.abortedMatches()).containsExactly(entry("app:///#/pattern", 2L));
+  }
+
+  @Test
+  public void testAbortedMatchesAreReported() {
+    Validator validator = Validator.create(
+      JsonSchema.of(new JsonObject().put("pattern", "^((\\w+)*)+$")),
+      new JsonSchemaOptions(OPTIONS).setOutputFormat(OutputFormat.Basic));
+    OutputUnit result = validator.validate(INPUT);
+    assertThat(result.getValid()).isFalse();
+    assertThat(result.getErrors())
+      .extracting(OutputUnit::getErrorType)
+      .containsExactly(OutputErrorType.REGEX_BUDGET_EXCEEDED);
+    assertThat(result.getErrors().get(0).getKeywordLocation()).isEqualTo("#/pattern");
+  }
+
+  @Test
+  public void testPatternPropertiesAreAborted() {
+    JsonObject schema = new JsonObject()
+      .put("patternProperties", new JsonObject().put("^x-", true).put("^((a+)+)+$", true))
+      .put("additionalProperties", false);
+    for (OutputFormat format : OutputFormat.values()) {
+      Validator validator = Validator.create(JsonSchema.of(schema), new JsonSchemaOptions(OPTIONS).setOutputFormat(format));
+      assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+        assertThat(validator.validate(new JsonObject().put(INPUT, 1)).getValid()).as(format.name()).isFalse();
+      });
+      assertThat(validator.validate(new JsonObject().put("x-a", 1).put("aaaa", 1)).getValid()).as(format.name()).isTrue();
+      assertThat(validator.abortedMatches()).as(format.name()).containsOnlyKeys("app:///#/patternProperties/%5E((a+)+)+$");
+    }
+  }
+
+  @Test
+  public void testAbortedMatchesOfForwardedSchemas() {
+    // the property schema only forwards the validation, through a $ref chain and a single non true allOf member
+    JsonObject schema = new JsonObject()
+      .put("$defs", new JsonObject()
+        .put("a", new JsonObject().put("$ref", "#/$defs/b"))
+        .put("b", new JsonObject().put("allOf", new JsonArray().add(true).add(new JsonObject().put("pattern", "^((a+)+)+$")))))
+      .put("properties", new JsonObject().put("p", new JsonObject().put("anyOf", new JsonArray().add(new JsonObject().put("$ref", "#/$defs/a")))));
+    for (OutputFormat format : OutputFormat.values()) {
+      Validator validator = Validator.create(JsonSchema.of(schema), new JsonSchemaOptions(OPTIONS).setOutputFormat(format));
+      assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+        assertThat(validator.validate(new JsonObject().put("p", INPUT)).getValid()).as(format.name()).isFalse();
+      });
+      assertThat(validator.validate(new JsonObject().put("p", "aaaa")).getValid()).as(format.name()).isTrue();
+      assertThat(validator.abortedMatches()).as(format.name()).containsExactly(entry("app:///#/$defs/b/allOf/1/pattern", 1L));
+    }
+  }
+
+  @Test
+  public void testOtherPatternsAreNotBudgeted() {
+    // a budget this small would abort any budgeted match
+    JsonSchemaOptions options = new JsonSchemaOptions(OPTIONS).setMaxRegexSteps(1);
+    for (String pattern : new String[]{"^[a-z]+!$", "a+", "^(foo|bar)?baz", "^(ab)+", "\\d{3}-\\d{4}", "^(a{2})*$"}) {
+      Validator validator = Validator.create(JsonSchema.of(new JsonObject().put("pattern", pattern)), options);
+      validator.validate(INPUT);
+      validator.validate("foobaz");
+      assertThat(validator.abortedMatches()).as(pattern).isEmpty();
+    }
+    for (String pattern : new String[]{"^(a+)+$", "(a|ab)*c", "^(.*a){12}", "([a-z]|\\d)+$"}) {
+      Validator validator = Validator.create(JsonSchema.of(new JsonObject().put("pattern", pattern)), options);
+      assertThat(validator.validate("abc").getValid()).as(pattern).isFalse();
+      assertThat(validator.abortedMatches()).as(pattern).isNotEmpty();
+    }
+  }
+
+  @Test
+  public void testAdjacentUnboundedQuantifiersAreBudgeted() {
+    JsonSchemaOptions options = new JsonSchemaOptions(OPTIONS).setMaxRegexSteps(1);
+    for (String pattern : new String[]{"\\s*\\s*$", "^a*a*b", "^a+a+b", "^[a-z]+\\.?[a-z]+!$", "^.*x?.*!$", "^\\w*\\d+!$"}) {
+      Validator validator = Validator.create(JsonSchema.of(new JsonObject().put("pattern", pattern)), options);
+      assertThat(validator.validate("abc").getValid()).as(pattern).isFalse();
+      assertThat(validator.abortedMatches()).as(pattern).isNotEmpty();
+    }
+    // a mandatory atom, or atoms matching different characters, separate the quantifiers
+    for (String pattern : new String[]{"\\s*,\\s*", "^\\d*\\.\\d*$", "^a*b*c", "^(a*)(b*)c", "^a*|a*b"}) {
+      Validator validator = Validator.create(JsonSchema.of(new JsonObject().put("pattern", pattern)), options);
+      validator.validate("abc");
+      assertThat(validator.abortedMatches()).as(pattern).isEmpty();
+    }
+  }
+
+  @Test
+  public void testModifiersAreNotGroups() {
+    JsonSchemaOptions options = new JsonSchemaOptions(OPTIONS).setMaxRegexSteps(1);
+    // the alternatives of the repeated group both start with a
+    for (String pattern : new String[]{"(a|(?i)ab)*c", "(?s)(a|(?i)ab)*c"}) {
+      Validator validator = Validator.create(JsonSchema.of(new JsonObject().put("pattern", pattern)), options);
+      assertThat(validator.validate("abd").getValid()).as(pattern).isFalse();
+      assertThat(validator.abortedMatches()).as(pattern).isNotEmpty();
+    }
+    for (String pattern : new String[]{"(?i)^[a-z]+!$", "^(?s)x(ab)+"}) {
+      Validator validator = Validator.create(JsonSchema.of(new JsonObject().put("pattern", pattern)), options);
+      validator.validate("abc");
+      assertThat(validator.abortedMatches()).as(pattern).isEmpty();
+    }
+  }
+
+  @Test
+  public void testLinearTimeMatchesAreNotBudgeted() {
+    Validator validator = Validator.create(
+      JsonSchema.of(new JsonObject().put("pattern", "^(a+)+!$")),
+      new JsonSchemaOptions(OPTIONS).setMaxRegexSteps(1).setLinearTimeRegex(true));
+    assertThat(validator.validate(INPUT).getValid()).isTrue();
+    assertThat(validator.abortedMatches()).isEmpty();
+  }
+}
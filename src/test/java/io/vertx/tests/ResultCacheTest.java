@@ -0,0 +1,117 @@
+package io.vertx.tests;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResultCacheTest {
+
+  private static final JsonObject ADDRESS = new JsonObject()
+    .put("type", "object")
+    .put("format", "probe")
+    .put("properties", new JsonObject()
+      .put("street", new JsonObject().put("type", "string"))
+      .put("zip", new JsonObject().put("type", "string")))
+    .put("required", new JsonArray().add("street"));
+
+  private static JsonArray addresses(int size) {
+    JsonArray array = new JsonArray();
+    for (int i = 0; i < size; i++) {
+      array.add(new JsonObject().put("street", "Main street").put("zip", i % 2 == 0 ? "1000" : "2000"));
+    }
+    return array;
+  }
+
+  @Test
+  public void testDuplicateSubDocumentsAreValidatedOnce() {
+    AtomicInteger probes = new AtomicInteger();
+    JsonFormatValidator formats = (type, format, instance) -> {
+      if ("probe".equals(format)) {
+        probes.incrementAndGet();
+      }
+      return null;
+    };
+    JsonSchema schema = JsonSchema.of(new JsonObject().put("type", "array").put("items", ADDRESS.copy()));
+
+    Validator validator = Validator.create(schema, new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setResultCacheSize(16), formats);
+    assertThat(validator.validate(addresses(100)).getValid()).isTrue();
+    // only two distinct addresses
+    assertThat(probes.get()).isEqualTo(2);
+
+    assertThat(validator.validate(addresses(100).add(new JsonObject().put("zip", "3000"))).getValid()).isFalse();
+  }
+
+  @Test
+  public void testContextualSchemasAreNotCached() {
+    AtomicInteger probes = new AtomicInteger();
+    JsonFormatValidator formats = (type, format, instance) -> {
+      if ("probe".equals(format)) {
+        probes.incrementAndGet();
+      }
+      return null;
+    };
+    JsonSchema schema = JsonSchema.of(new JsonObject()
+      .put("type", "array")
+      .put("items", ADDRESS.copy().put("unevaluatedProperties", false)));
+
+    Validator validator = Validator.create(schema, new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setResultCacheSize(16), formats);
+    assertThat(validator.validate(addresses(10)).getValid()).isTrue();
+    assertThat(probes.get()).isEqualTo(10);
+  }
+
+  @Test
+  public void testLargeSubDocumentsAreNotCached() {
+    AtomicInteger probes = new AtomicInteger();
+    JsonFormatValidator formats = (type, format, instance) -> {
+      if ("probe".equals(format)) {
+        probes.incrementAndGet();
+      }
+      return null;
+    };
+    JsonSchema schema = JsonSchema.of(new JsonObject().put("type", "array").put("items", ADDRESS.copy()));
+    JsonArray array = new JsonArray();
+    for (int i = 0; i < 10; i++) {
+      JsonObject address = new JsonObject().put("street", "Main street");
+      for (int j = 0; j < 100; j++) {
+        address.put("line" + j, "x");
+      }
+      array.add(address);
+    }
+
+    Validator validator = Validator.create(schema, new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setResultCacheSize(16), formats);
+    assertThat(validator.validate(array).getValid()).isTrue();
+    assertThat(probes.get()).isEqualTo(10);
+  }
+
+  @Test
+  public void testCachedInstancesAreCopied() {
+    JsonSchema schema = JsonSchema.of(new JsonObject().put("type", "array").put("items", ADDRESS.copy()));
+    Validator validator = Validator.create(schema, new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setResultCacheSize(16));
+
+    JsonObject address = new JsonObject().put("street", "Main street");
+    assertThat(validator.validate(new JsonArray().add(address)).getValid()).isTrue();
+    // modifying the validated instance does not modify the cached one
+    address.remove("street");
+    assertThat(validator.validate(new JsonArray().add(address)).getValid()).isFalse();
+  }
+
+  @Test
+  public void testIntegersAndDecimalsAreDifferentInstances() {
+    JsonSchema schema = JsonSchema.of(new JsonObject()
+      .put("type", "array")
+      .put("items", new JsonObject().put("type", "object").put("properties", new JsonObject().put("n", new JsonObject().put("type", "integer")))));
+    JsonSchemaOptions options = new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT4);
+    Validator cached = Validator.create(schema, new JsonSchemaOptions(options).setResultCacheSize(16));
+    Validator uncached = Validator.create(schema, options);
+
+    for (Object n : new Object[]{1, 1.0, 1L, 1.5, 1.5f}) {
+      JsonArray instance = new JsonArray().add(new JsonObject().put("n", n));
+      assertThat(cached.validate(instance).getValid()).as("%s", n).isEqualTo(uncached.validate(instance).getValid());
+    }
+  }
+}
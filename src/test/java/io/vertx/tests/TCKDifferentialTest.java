@@ -0,0 +1,328 @@
+package io.vertx.tests;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the optional validation strategies decide every case of the test suite like the default interpreter.
+ */
+public class TCKDifferentialTest {
+
+  private static final String GENERATED_PACKAGE = "io.vertx.tests.generated.tck";
+
+  @TempDir
+  static Path output;
+
+  private static JsonObject tck;
+  // the classes generated for the compilable groups, by draft and schema
+  private static Map<String, String> generatedClasses;
+  private static GeneratedValidators generated;
+
+  @BeforeAll
+  public static void load() throws IOException {
+    tck = TestUtils.loadTCK();
+  }
+
+  /**
+   * How the outcomes of the validator under test and of the reference validator are compared.
+   */
+  enum Outcome {
+    // the whole output unit
+    OUTPUT,
+    // the validity only
+    VALIDITY
+  }
+
+  interface Factory {
+    /**
+     * @return the validator under test, or {@code null} when the strategy does not apply to the schema
+     */
+    Validator create(SchemaRepository repository, JsonSchema schema, Draft draft, JsonSchemaOptions options) throws Exception;
+  }
+
+  static final class Variant {
+    final String name;
+    final Outcome outcome;
+    OutputFormat[] formats = {OutputFormat.Flag, OutputFormat.Basic};
+    int rounds = 1;
+    UnaryOperator<JsonSchemaOptions> reference = UnaryOperator.identity();
+    UnaryOperator<JsonSchemaOptions> subject = UnaryOperator.identity();
+    UnaryOperator<Validator> wrap = UnaryOperator.identity();
+    Factory factory = (repository, schema, draft, options) -> repository.validator(schema, options, true);
+    // whether one of the validators may fail on a schema error the other one never reaches
+    boolean tolerant;
+    Consumer<Validator> finish = validator -> {
+    };
+
+    Variant(String name, Outcome outcome) {
+      this.name = name;
+      this.outcome = outcome;
+    }
+
+    Variant formats(OutputFormat... formats) {
+      this.formats = formats;
+      return this;
+    }
+
+    Variant rounds(int rounds) {
+      this.rounds = rounds;
+      return this;
+    }
+
+    Variant reference(UnaryOperator<JsonSchemaOptions> reference) {
+      this.reference = reference;
+      return this;
+    }
+
+    Variant subject(UnaryOperator<JsonSchemaOptions> subject) {
+      this.subject = subject;
+      return this;
+    }
+
+    Variant wrap(UnaryOperator<Validator> wrap) {
+      this.wrap = wrap;
+      return this;
+    }
+
+    Variant factory(Factory factory) {
+      this.factory = factory;
+      return this;
+    }
+
+    Variant tolerant() {
+      this.tolerant = true;
+      return this;
+    }
+
+    Variant finish(Consumer<Validator> finish) {
+      this.finish = finish;
+      return this;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  static Stream<Variant> variants() {
+    return Stream.of(
+      new Variant("parallel validation", Outcome.OUTPUT)
+        .subject(options -> options.setParallelValidationThreshold(1)),
+      new Variant("max instance length", Outcome.VALIDITY)
+        .formats(OutputFormat.Flag)
+        .wrap(TCKDifferentialTest::rejectingLongInstances),
+      new Variant("result cache", Outcome.OUTPUT)
+        .subject(options -> options.setResultCacheSize(8))
+        // the second round is served by the cache
+        .rounds(2),
+      new Variant("validation stream", Outcome.VALIDITY)
+        .formats(OutputFormat.Flag)
+        .wrap(TCKDifferentialTest::streaming),
+      new Variant("fail fast", Outcome.VALIDITY)
+        .formats(OutputFormat.Flag)
+        .reference(options -> options.setOutputFormat(OutputFormat.Basic))
+        // enough rounds for the assertions of the nodes to be reordered
+        .rounds(20)
+        .tolerant(),
+      new Variant("generated validator", Outcome.OUTPUT)
+        .factory(TCKDifferentialTest::generated),
+      new Variant("compile threshold", Outcome.OUTPUT)
+        .subject(options -> options.setCompileThreshold(1))
+        // the first validation compiles the schema
+        .rounds(2),
+      new Variant("linear time regex", Outcome.VALIDITY)
+        .formats(OutputFormat.Flag)
+        .subject(options -> options.setLinearTimeRegex(true))
+        // the patterns the linear engine does not support are rejected
+        .tolerant(),
+      new Variant("regex budget", Outcome.VALIDITY)
+        .formats(OutputFormat.Flag)
+        .subject(options -> options.setMaxRegexSteps(1_000_000))
+        .finish(validator -> assertThat(validator.abortedMatches()).isEmpty()),
+      new Variant("generated validator with linear time regex", Outcome.VALIDITY)
+        .formats(OutputFormat.Flag)
+        .reference(options -> options.setLinearTimeRegex(true))
+        .subject(options -> options.setLinearTimeRegex(true))
+        .factory(TCKDifferentialTest::generated),
+      new Variant("generated validator with regex budget", Outcome.VALIDITY)
+        .formats(OutputFormat.Flag)
+        .reference(options -> options.setMaxRegexSteps(100))
+        .subject(options -> options.setMaxRegexSteps(100))
+        .factory(TCKDifferentialTest::generated));
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("variants")
+  public void testMatchesTheInterpreter(Variant variant) throws Exception {
+    SchemaRepository repository = TestUtils.tckRepository(tck);
+    int compared = 0;
+
+    for (Object o : tck.getJsonArray("suites")) {
+      JsonObject suite = (JsonObject) o;
+      Draft draft = Draft.from(suite.getString("draft"));
+      for (Object o1 : suite.getJsonArray("value")) {
+        JsonObject group = (JsonObject) o1;
+        Object raw = group.getValue("schema");
+        for (OutputFormat format : variant.formats) {
+          JsonSchemaOptions options = new JsonSchemaOptions()
+            .setDraft(draft)
+            .setBaseUri("https://github.com/eclipse-vertx")
+            .setOutputFormat(format);
+          Object reference = create(() -> repository.validator(schema(raw), variant.reference.apply(new JsonSchemaOptions(options)), true));
+          Object subject = create(() -> variant.factory.create(repository, schema(raw), draft, variant.subject.apply(new JsonSchemaOptions(options))));
+          if (subject == null) {
+            continue;
+          }
+          if (!(reference instanceof Validator) || !(subject instanceof Validator)) {
+            if (!variant.tolerant) {
+              assertThat(subject)
+                .as("%s (%s)", group.getString("description"), format)
+                .isEqualTo(reference);
+            }
+            continue;
+          }
+          Validator validator = variant.wrap.apply((Validator) subject);
+          for (int round = 0; round < variant.rounds; round++) {
+            for (Object o2 : group.getJsonArray("tests")) {
+              JsonObject test = (JsonObject) o2;
+              Object expected = outcome(variant.outcome, (Validator) reference, test.getValue("data"));
+              Object actual = outcome(variant.outcome, validator, test.getValue("data"));
+              if (variant.tolerant && (expected == SchemaException.class) != (actual == SchemaException.class)) {
+                continue;
+              }
+              assertThat(actual)
+                .as("%s/%s (%s)", group.getString("description"), test.getString("description"), format)
+                .isEqualTo(expected);
+              compared++;
+            }
+          }
+          variant.finish.accept((Validator) subject);
+        }
+      }
+    }
+    assertThat(compared).isPositive();
+  }
+
+  private interface Creation {
+    Validator create() throws Exception;
+  }
+
+  /**
+   * @return the validator, or the class of the schema error when it cannot be created
+   */
+  private static Object create(Creation creation) throws Exception {
+    try {
+      return creation.create();
+    } catch (SchemaException e) {
+      return e.getClass();
+    }
+  }
+
+  private static JsonSchema schema(Object raw) {
+    // each validator works on its own copy of the schema
+    return raw instanceof Boolean ? JsonSchema.of((Boolean) raw) : JsonSchema.of(((JsonObject) raw).copy());
+  }
+
+  private static Object outcome(Outcome outcome, Validator validator, Object data) {
+    try {
+      OutputUnit result = validator.validate(data);
+      return outcome == Outcome.OUTPUT ? result.toJson() : result.getValid();
+    } catch (SchemaException e) {
+      return SchemaException.class;
+    } catch (RuntimeException e) {
+      return e.getClass();
+    }
+  }
+
+  /**
+   * Reject the instances longer than the maximum instance length before validating them, which must never reject a
+   * valid instance.
+   */
+  private static Validator rejectingLongInstances(Validator validator) {
+    long max = validator.maxInstanceLength();
+    return instance -> max >= 0 && Json.encode(instance).getBytes(StandardCharsets.UTF_8).length > max ?
+      new OutputUnit(false).setErrorType(OutputErrorType.NONE) :
+      validator.validate(instance);
+  }
+
+  /**
+   * Validate the encoded instances while they are written, in small chunks.
+   */
+  private static Validator streaming(Validator validator) {
+    return instance -> {
+      ValidationStream stream = ValidationStream.create(validator);
+      byte[] bytes = Json.encode(instance).getBytes(StandardCharsets.UTF_8);
+      for (int i = 0; i < bytes.length; i += 5) {
+        stream.write(Buffer.buffer().appendBytes(bytes, i, Math.min(5, bytes.length - i)));
+      }
+      stream.end();
+      Future<OutputUnit> result = stream.result();
+      assertThat(result.isComplete()).isTrue();
+      if (result.failed()) {
+        throw result.cause() instanceof RuntimeException ? (RuntimeException) result.cause() : new RuntimeException(result.cause());
+      }
+      return result.result();
+    };
+  }
+
+  /**
+   * @return the generated validator of the schema, {@code null} when the schema is not compilable
+   */
+  private static Validator generated(SchemaRepository repository, JsonSchema schema, Draft draft, JsonSchemaOptions options) throws Exception {
+    if (generatedClasses == null) {
+      generate();
+    }
+    String className = generatedClasses.get(key(draft, schema));
+    return className == null ? null : generated.load(className, options);
+  }
+
+  private static String key(Draft draft, JsonSchema schema) {
+    // the boolean schemas print as booleans, the others as their encoding
+    return draft + " " + schema;
+  }
+
+  /**
+   * Generate the validators of all the compilable groups of the test suite, compiled in a single batch.
+   */
+  private static void generate() throws IOException {
+    Map<String, String> classes = new LinkedHashMap<>();
+    Map<String, Map.Entry<JsonSchema, Draft>> schemas = new LinkedHashMap<>();
+    for (Object o : tck.getJsonArray("suites")) {
+      JsonObject suite = (JsonObject) o;
+      Draft draft = Draft.from(suite.getString("draft"));
+      for (Object o1 : suite.getJsonArray("value")) {
+        Object raw = ((JsonObject) o1).getValue("schema");
+        JsonSchema schema = schema(raw);
+        String key = key(draft, schema);
+        if (!classes.containsKey(key) && GeneratedValidators.generator(draft).isCompilable(schema)) {
+          String className = "Tck" + classes.size();
+          classes.put(key, className);
+          schemas.put(className, new AbstractMap.SimpleImmutableEntry<>(schema, draft));
+        }
+      }
+    }
+    assertThat(classes).isNotEmpty();
+    generated = GeneratedValidators.compile(output, GENERATED_PACKAGE, schemas);
+    generatedClasses = classes;
+  }
+}
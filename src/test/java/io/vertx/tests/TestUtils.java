@@ -10,7 +10,12 @@
  */
 package io.vertx.tests;
 
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.Draft;
+import io.vertx.json.schema.JsonSchema;
+import io.vertx.json.schema.JsonSchemaOptions;
+import io.vertx.json.schema.SchemaRepository;
 
 import java.io.IOException;
 import java.net.URI;
@@ -33,4 +38,24 @@ public class TestUtils {
     return new AbstractMap.SimpleImmutableEntry<>(key, value);
   }
 
+  public static JsonObject loadTCK() throws IOException {
+    return new JsonObject(Buffer.buffer(Files.readAllBytes(Paths.get("src", "test", "resources", "test-suite-tck.json"))));
+  }
+
+  /**
+   * A repository with the meta schemas of all the drafts and the remotes of the TCK.
+   */
+  public static SchemaRepository tckRepository(JsonObject tck) {
+    SchemaRepository repository = SchemaRepository.create(new JsonSchemaOptions().setBaseUri("app://"));
+    for (Draft draft : Draft.values()) {
+      repository.preloadMetaSchema(draft);
+    }
+    for (Object o : tck.getJsonArray("remotes")) {
+      JsonObject remote = (JsonObject) o;
+      Object value = remote.getValue("value");
+      repository.dereference(remote.getString("name"), value instanceof Boolean ? JsonSchema.of((Boolean) value) : JsonSchema.of((JsonObject) value));
+    }
+    return repository;
+  }
+
 }
@@ -0,0 +1,181 @@
+package io.vertx.tests;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UnionDispatchTest {
+
+  private static final int VARIANTS = 30;
+
+  /**
+   * A union of variants referenced from {@code $defs}, discriminated by {@code kind}, the last variant has no
+   * discriminator.
+   */
+  private static JsonObject schema(String union) {
+    JsonObject defs = new JsonObject();
+    JsonArray variants = new JsonArray();
+    for (int i = 0; i < VARIANTS; i++) {
+      defs.put("v" + i, new JsonObject()
+        .put("type", "object")
+        .put("format", "probe")
+        .put("required", new JsonArray().add("kind").add("value"))
+        .put("properties", new JsonObject()
+          .put("kind", i % 2 == 0 ? new JsonObject().put("const", "k" + i) : new JsonObject().put("enum", new JsonArray().add("k" + i).add("alias" + i)))
+          .put("value", new JsonObject().put("type", i % 3 == 0 ? "string" : "integer"))));
+      variants.add(new JsonObject().put("$ref", "#/$defs/v" + i));
+    }
+    variants.add(new JsonObject().put("required", new JsonArray().add("legacy")));
+    return new JsonObject().put(union, variants).put("$defs", defs);
+  }
+
+  private static Validator validator(JsonObject schema, OutputFormat format, AtomicInteger probes, int compileThreshold) {
+    return Validator.create(
+      JsonSchema.of(schema),
+      new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setOutputFormat(format).setCompileThreshold(compileThreshold),
+      (type, f, instance) -> {
+        if ("probe".equals(f)) {
+          probes.incrementAndGet();
+        }
+        return null;
+      });
+  }
+
+  @Test
+  public void testOnlyCandidateBranchesAreEvaluated() {
+    AtomicInteger probes = new AtomicInteger();
+    Validator validator = validator(schema("oneOf"), OutputFormat.Flag, probes, 0);
+
+    // only the selected variant and the one without discriminator are evaluated
+    assertThat(validator.validate(new JsonObject().put("kind", "k4").put("value", 1)).getValid()).isTrue();
+    assertThat(probes.getAndSet(0)).isEqualTo(1);
+
+    assertThat(validator.validate(new JsonObject().put("kind", "alias5").put("value", 1)).getValid()).isTrue();
+    assertThat(probes.getAndSet(0)).isEqualTo(1);
+
+    assertThat(validator.validate(new JsonObject().put("kind", "unknown").put("value", 1).put("legacy", true)).getValid()).isTrue();
+    assertThat(probes.getAndSet(0)).isEqualTo(0);
+  }
+
+  @Test
+  public void testAllBranchesAreReportedInOtherFormats() {
+    AtomicInteger probes = new AtomicInteger();
+    Validator validator = validator(schema("anyOf"), OutputFormat.Basic, probes, 0);
+    OutputUnit result = validator.validate(new JsonObject().put("kind", "k4").put("value", "1"));
+    assertThat(result.getValid()).isFalse();
+    assertThat(probes.get()).isEqualTo(VARIANTS);
+  }
+
+  @Test
+  public void testTypeRejectedBranchesReportTheirTypeError() {
+    JsonArray branches = new JsonArray()
+      .add(new JsonObject().put("type", "string").put("title", "name"))
+      .add(new JsonObject().put("type", new JsonArray().add("integer").add("null")))
+      .add(new JsonObject().put("type", "object").put("required", new JsonArray().add("a")))
+      .add(new JsonObject().put("type", "integer").put("minimum", 5))
+      .add(new JsonObject().put("type", "boolean"));
+    for (String union : new String[]{"anyOf", "oneOf"}) {
+      JsonSchema schema = JsonSchema.of(new JsonObject().put(union, branches.copy()));
+      JsonSchemaOptions options = new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setOutputFormat(OutputFormat.Basic);
+      Validator validator = Validator.create(schema, options);
+      // a custom format validator can reject any instance, every branch is evaluated
+      Validator evaluated = Validator.create(schema, options, (type, format, instance) -> null);
+      for (Object instance : new Object[]{1.5, "x", 7, 2, new JsonObject(), new JsonArray(), true, null}) {
+        OutputUnit result = validator.validate(instance);
+        assertThat(result.toJson()).as("%s %s", union, instance).isEqualTo(evaluated.validate(instance).toJson());
+      }
+    }
+    OutputUnit result = Validator.create(JsonSchema.of(new JsonObject().put("anyOf", branches.copy())), new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setOutputFormat(OutputFormat.Basic)).validate(1.5);
+    assertThat(result.getErrors())
+      .extracting(OutputUnit::getKeywordLocation)
+      .containsExactly("#/anyOf", "#/anyOf/0/type", "#/anyOf/1/type", "#/anyOf/2/type", "#/anyOf/3/type", "#/anyOf/3/minimum", "#/anyOf/4/type");
+  }
+
+  @Test
+  public void testBranchesAreIndexedByType() {
+    AtomicInteger probes = new AtomicInteger();
+    JsonObject schema = new JsonObject()
+      .put("oneOf", new JsonArray()
+        .add(new JsonObject().put("type", "string").put("format", "probe").put("maxLength", 3))
+        .add(new JsonObject().put("type", new JsonArray().add("integer").add("null")).put("format", "probe"))
+        .add(new JsonObject().put("$ref", "#/$defs/flag"))
+        .add(new JsonObject().put("enum", new JsonArray().add("yes").add(1)).put("format", "probe"))
+        .add(new JsonObject().put("type", "object").put("format", "probe").put("required", new JsonArray().add("id"))))
+      .put("$defs", new JsonObject().put("flag", new JsonObject().put("type", "boolean").put("format", "probe")));
+
+    for (int threshold : new int[]{0, 1}) {
+      Validator validator = validator(schema.copy(), OutputFormat.Flag, probes, threshold);
+      validator.validate(null);
+      probes.set(0);
+
+      // matches the string branch and the enum
+      assertThat(validator.validate("yes").getValid()).isFalse();
+      assertThat(probes.getAndSet(0)).isEqualTo(2);
+      assertThat(validator.validate(true).getValid()).isTrue();
+      assertThat(probes.getAndSet(0)).isEqualTo(1);
+      assertThat(validator.validate(new JsonArray()).getValid()).isFalse();
+      assertThat(probes.getAndSet(0)).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void testSameValidity() {
+    Object[] instances = {
+      new JsonObject().put("kind", "k4").put("value", 1),
+      new JsonObject().put("kind", "k3").put("value", 1),
+      new JsonObject().put("kind", "k3").put("value", "1"),
+      new JsonObject().put("kind", "alias7").put("value", 7),
+      new JsonObject().put("kind", "k4").put("value", 1).put("legacy", true),
+      new JsonObject().put("kind", 4).put("legacy", true),
+      new JsonObject().put("value", 1),
+      new JsonObject(),
+      "k4",
+      4
+    };
+    for (String union : new String[]{"anyOf", "oneOf"}) {
+      AtomicInteger probes = new AtomicInteger();
+      Validator basic = validator(schema(union), OutputFormat.Basic, probes, 0);
+      Validator flag = validator(schema(union), OutputFormat.Flag, probes, 0);
+      Validator compiled = validator(schema(union), OutputFormat.Flag, probes, 1);
+      for (Object instance : instances) {
+        boolean expected = basic.validate(instance).getValid();
+        assertThat(flag.validate(instance).getValid()).as("%s %s", union, instance).isEqualTo(expected);
+        assertThat(compiled.validate(instance).getValid()).as("%s %s", union, instance).isEqualTo(expected);
+      }
+    }
+  }
+
+  @Test
+  public void testSharedNodesAreDispatchedWithTheirOwnReferences() {
+    JsonSchema union = JsonSchema.of(new JsonObject().put("oneOf", new JsonArray()
+      .add(new JsonObject().put("$ref", "a"))
+      .add(new JsonObject().put("$ref", "b"))));
+    JsonSchemaOptions options = new JsonSchemaOptions().setBaseUri("https://example.org").setDraft(Draft.DRAFT202012).setOutputFormat(OutputFormat.Flag);
+    // the same node is validated against repositories defining the referenced branches the other way round
+    Validator first = SchemaRepository.create(options)
+      .dereference("a", JsonSchema.of(kind("x")))
+      .dereference("b", JsonSchema.of(kind("y")))
+      .validator(union, options, true);
+    Validator second = SchemaRepository.create(options)
+      .dereference("a", JsonSchema.of(kind("y")))
+      .dereference("b", JsonSchema.of(kind("x")))
+      .validator(union, options, true);
+
+    for (Validator validator : new Validator[]{first, second, first}) {
+      assertThat(validator.validate(new JsonObject().put("kind", "x")).getValid()).isTrue();
+      assertThat(validator.validate(new JsonObject().put("kind", "y")).getValid()).isTrue();
+      assertThat(validator.validate(new JsonObject().put("kind", "z")).getValid()).isFalse();
+    }
+  }
+
+  private static JsonObject kind(String kind) {
+    return new JsonObject()
+      .put("required", new JsonArray().add("kind"))
+      .put("properties", new JsonObject().put("kind", new JsonObject().put("const", kind)));
+  }
+}
@@ -0,0 +1,124 @@
+package io.vertx.tests;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.*;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(VertxExtension.class)
+public class ValidateAsyncTest {
+
+  private static final JsonSchema SCHEMA = JsonSchema.of(new JsonObject()
+    .put("type", "array")
+    .put("items", new JsonObject().put("type", "integer").put("format", "probe")));
+
+  private static JsonArray items(int size) {
+    JsonArray array = new JsonArray();
+    for (int i = 0; i < size; i++) {
+      array.add(i);
+    }
+    return array;
+  }
+
+  @Test
+  public void testSmallInstancesAreValidatedInline(Vertx vertx, VertxTestContext testContext) {
+    List<Boolean> eventLoop = new ArrayList<>();
+    Validator validator = Validator.create(SCHEMA, new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012), (type, format, instance) -> {
+      eventLoop.add(Context.isOnEventLoopThread());
+      return null;
+    });
+
+    vertx.runOnContext(v -> validator.validateAsync(items(10))
+      .onComplete(testContext.succeeding(result -> testContext.verify(() -> {
+        assertThat(result.getValid()).isTrue();
+        assertThat(eventLoop).isNotEmpty().containsOnly(true);
+        testContext.completeNow();
+      }))));
+  }
+
+  @Test
+  public void testLargeInstancesAreOffloaded(Vertx vertx, VertxTestContext testContext) {
+    List<Boolean> eventLoop = new ArrayList<>();
+    Validator validator = Validator.create(SCHEMA, new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setInlineValidationThreshold(100), (type, format, instance) -> {
+      eventLoop.add(Context.isOnEventLoopThread());
+      return null;
+    });
+
+    vertx.runOnContext(v -> validator.validateAsync(items(100).add("not an integer"))
+      .onComplete(testContext.succeeding(result -> testContext.verify(() -> {
+        assertThat(Context.isOnEventLoopThread()).isTrue();
+        assertThat(result.getValid()).isFalse();
+        assertThat(eventLoop).isNotEmpty().containsOnly(false);
+        testContext.completeNow();
+      }))));
+  }
+
+  @Test
+  public void testInlineValidationBudget(Vertx vertx, VertxTestContext testContext) {
+    List<Boolean> eventLoop = new ArrayList<>();
+    Validator validator = Validator.create(SCHEMA, new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setMaxInlineValidationSteps(5), (type, format, instance) -> {
+      eventLoop.add(Context.isOnEventLoopThread());
+      return null;
+    });
+
+    vertx.runOnContext(v -> validator.validateAsync(items(10))
+      .onComplete(testContext.succeeding(result -> testContext.verify(() -> {
+        assertThat(result.getValid()).isTrue();
+        // the inline attempt is abandoned once the budget is exceeded, then the validation runs again on a worker
+        assertThat(eventLoop.subList(0, 4)).containsOnly(true);
+        assertThat(eventLoop.subList(4, eventLoop.size())).hasSize(11).containsOnly(false);
+        testContext.completeNow();
+      }))));
+  }
+
+  @Test
+  public void testMaxConcurrentValidations(Vertx vertx, VertxTestContext testContext) {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger max = new AtomicInteger();
+    Validator validator = Validator.create(
+      JsonSchema.of(new JsonObject().put("type", "array").put("format", "probe")),
+      new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setInlineValidationThreshold(10).setMaxConcurrentValidations(2),
+      (type, format, instance) -> {
+        max.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+          Thread.sleep(20);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        running.decrementAndGet();
+        return null;
+      });
+
+    vertx.runOnContext(v -> {
+      List<Future<OutputUnit>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(validator.validateAsync(items(20)));
+      }
+      Future.all(futures)
+        .onComplete(testContext.succeeding(all -> testContext.verify(() -> {
+          assertThat(max.get()).isEqualTo(2);
+          testContext.completeNow();
+        })));
+    });
+  }
+
+  @Test
+  public void testOutsideOfEventLoop() {
+    Validator validator = Validator.create(SCHEMA, new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setInlineValidationThreshold(0));
+    Future<OutputUnit> result = validator.validateAsync(items(10));
+    assertThat(result.succeeded()).isTrue();
+    assertThat(result.result().getValid()).isTrue();
+  }
+}
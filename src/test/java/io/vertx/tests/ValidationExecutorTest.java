@@ -0,0 +1,133 @@
+package io.vertx.tests;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ValidationExecutorTest {
+
+  private static Validator validator(AtomicInteger running, AtomicInteger max) {
+    return Validator.create(
+      JsonSchema.of(new JsonObject().put("type", "integer").put("format", "probe")),
+      new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012),
+      (type, format, instance) -> {
+        if ("probe".equals(format)) {
+          max.accumulateAndGet(running.incrementAndGet(), Math::max);
+          try {
+            Thread.sleep(10);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          running.decrementAndGet();
+        }
+        return null;
+      });
+  }
+
+  @Test
+  public void testBoundedConcurrency() throws Exception {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger max = new AtomicInteger();
+    Validator validator = validator(running, max);
+
+    try (ValidationExecutor executor = ValidationExecutor.create(2)) {
+      List<Future<OutputUnit>> futures = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        futures.add(executor.validate(validator, i % 2 == 0 ? i : "odd"));
+      }
+      Future.all(futures).toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+      for (int i = 0; i < 10; i++) {
+        assertThat(futures.get(i).result().getValid()).isEqualTo(i % 2 == 0);
+      }
+      assertThat(max.get()).isEqualTo(2);
+      assertThat(executor.admitted()).isEqualTo(10);
+      assertThat(executor.pending()).isZero();
+      assertThat(executor.maxQueueTime()).isPositive();
+      assertThat(executor.totalQueueTime()).isGreaterThanOrEqualTo(executor.maxQueueTime());
+    }
+  }
+
+  @Test
+  public void testCustomExecutor() throws Exception {
+    ExecutorService threads = Executors.newCachedThreadPool();
+    try {
+      AtomicInteger running = new AtomicInteger();
+      AtomicInteger max = new AtomicInteger();
+      ValidationExecutor executor = ValidationExecutor.create(threads, 3);
+      List<Future<OutputUnit>> futures = new ArrayList<>();
+      for (int i = 0; i < 12; i++) {
+        futures.add(executor.validate(validator(running, max), i));
+      }
+      Future.all(futures).toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+      assertThat(max.get()).isLessThanOrEqualTo(3);
+      executor.close();
+      // the executor is not owned, so it is still usable
+      assertThat(threads.isShutdown()).isFalse();
+    } finally {
+      threads.shutdown();
+    }
+  }
+
+  @Test
+  public void testClosed() {
+    ValidationExecutor executor = ValidationExecutor.create(1);
+    executor.close();
+    Future<OutputUnit> result = executor.validate(validator(new AtomicInteger(), new AtomicInteger()), 1);
+    assertThat(result.failed()).isTrue();
+    assertThat(result.cause()).isInstanceOf(RejectedExecutionException.class);
+  }
+
+  @Test
+  public void testCompletedOnTheCallerContext() throws Exception {
+    Vertx vertx = Vertx.vertx();
+    try (ValidationExecutor executor = ValidationExecutor.create(1)) {
+      Context context = vertx.getOrCreateContext();
+      CompletableFuture<Boolean> completed = new CompletableFuture<>();
+      context.runOnContext(v -> executor
+        .validate(validator(new AtomicInteger(), new AtomicInteger()), 1)
+        .onComplete(ar -> completed.complete(ar.succeeded() && Vertx.currentContext() == context)));
+      assertThat(completed.get(10, TimeUnit.SECONDS)).isTrue();
+    } finally {
+      vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void testErrorsFailTheValidation() throws Exception {
+    Validator validator = Validator.create(
+      JsonSchema.of(new JsonObject().put("type", "array").put("items", new JsonObject().put("$ref", "#"))),
+      new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012));
+    JsonArray instance = new JsonArray();
+    JsonArray current = instance;
+    for (int i = 0; i < 1_000_000; i++) {
+      JsonArray nested = new JsonArray();
+      current.add(nested);
+      current = nested;
+    }
+
+    try (ValidationExecutor executor = ValidationExecutor.create(1)) {
+      Future<OutputUnit> future = executor.validate(validator, instance);
+      CompletableFuture<OutputUnit> completion = future.toCompletionStage().toCompletableFuture();
+      assertThat(completion).failsWithin(10, TimeUnit.SECONDS);
+      assertThat(future.cause()).isInstanceOf(StackOverflowError.class);
+      // the permit was given back
+      assertThat(executor.validate(validator, new JsonArray()).toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS).getValid()).isTrue();
+    }
+  }
+}
@@ -0,0 +1,221 @@
+package io.vertx.tests;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientAgent;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.json.schema.*;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(VertxExtension.class)
+public class ValidationStreamTest {
+
+  private static final JsonSchema SCHEMA = JsonSchema.of(new JsonObject()
+    .put("type", "object")
+    .put("properties", new JsonObject()
+      .put("name", new JsonObject().put("type", "string"))
+      .put("tags", new JsonObject().put("type", "array").put("items", new JsonObject().put("type", "string"))))
+    .put("required", new JsonArray().add("name")));
+
+  private static Validator validator(JsonSchema schema) {
+    return Validator.create(schema, new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012).setOutputFormat(OutputFormat.Basic));
+  }
+
+  private static void write(ValidationStream stream, String json, int chunk) {
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    for (int i = 0; i < bytes.length; i += chunk) {
+      stream.write(Buffer.buffer().appendBytes(bytes, i, Math.min(chunk, bytes.length - i)));
+    }
+  }
+
+  @Test
+  public void testValidDocument() {
+    ValidationStream stream = ValidationStream.create(validator(SCHEMA));
+    write(stream, "{\"name\": \"vert.x\", \"tags\": [\"json\", \"schema\"]}", 3);
+    assertThat(stream.result().isComplete()).isFalse();
+
+    assertThat(stream.end().succeeded()).isTrue();
+    assertThat(stream.result().result().getValid()).isTrue();
+    assertThat(stream.instance()).isEqualTo(new JsonObject().put("name", "vert.x").put("tags", new JsonArray().add("json").add("schema")));
+  }
+
+  @Test
+  public void testRejectsAtTheFirstInvalidMember() {
+    ValidationStream stream = ValidationStream.create(validator(SCHEMA));
+    write(stream, "{\"tags\": [\"json\", 1], ", 4);
+    assertThat(stream.result().isComplete()).isTrue();
+    OutputUnit result = stream.result().result();
+    assertThat(result.getValid()).isFalse();
+    assertThat(result.getErrors()).isNotEmpty();
+    assertThat(result.getErrors().get(0).getInstanceLocation()).isEqualTo("#/tags");
+
+    // the rest of the document is not decoded anymore
+    Future<Void> write = stream.write(Buffer.buffer("\"name\": \"vert.x\"}"));
+    assertThat(write.failed()).isTrue();
+    assertThat(write.cause()).isInstanceOf(JsonSchemaValidationException.class);
+    assertThat(stream.end().failed()).isTrue();
+    assertThat(stream.instance()).isNull();
+  }
+
+  @Test
+  public void testRejectsTheRootType() {
+    ValidationStream stream = ValidationStream.create(validator(SCHEMA));
+    stream.write(Buffer.buffer("["));
+    assertThat(stream.result().result().getValid()).isFalse();
+  }
+
+  @Test
+  public void testRejectsItemsOfRootArrays() {
+    AtomicInteger decoded = new AtomicInteger();
+    Validator validator = Validator.create(
+      JsonSchema.of(new JsonObject().put("type", "array").put("maxItems", 3).put("items", new JsonObject().put("type", "integer").put("format", "probe"))),
+      new JsonSchemaOptions().setBaseUri("app://").setDraft(Draft.DRAFT202012),
+      (type, format, instance) -> {
+        decoded.incrementAndGet();
+        return null;
+      });
+
+    ValidationStream stream = ValidationStream.create(validator);
+    write(stream, "[1, 2, 3, 4, 5, 6]", 1);
+    assertThat(stream.result().result().getValid()).isFalse();
+    // items are validated as they are decoded, until maxItems is exceeded
+    assertThat(decoded.get()).isEqualTo(4);
+  }
+
+  @Test
+  public void testDynamicScopeIsOnlyValidatedOnceEnded() {
+    JsonSchema schema = JsonSchema.of(new JsonObject()
+      .put("$dynamicAnchor", "node")
+      .put("type", "object")
+      .put("properties", new JsonObject().put("child", new JsonObject().put("$dynamicRef", "#node")))
+      .put("additionalProperties", false));
+
+    ValidationStream stream = ValidationStream.create(validator(schema));
+    write(stream, "{\"child\": {\"child\": 1}, \"other\": 1", 2);
+    assertThat(stream.result().isComplete()).isFalse();
+    stream.end(Buffer.buffer("}"));
+    assertThat(stream.result().result().getValid()).isFalse();
+  }
+
+  @Test
+  public void testMalformedDocument() {
+    ValidationStream stream = ValidationStream.create(validator(SCHEMA));
+    stream.write(Buffer.buffer("{\"name\": }"));
+    assertThat(stream.result().failed()).isTrue();
+    assertThat(stream.result().cause()).isInstanceOf(DecodeException.class);
+
+    stream = ValidationStream.create(validator(SCHEMA));
+    stream.write(Buffer.buffer("{\"name\": \"vert.x\""));
+    assertThat(stream.end().failed()).isTrue();
+    assertThat(stream.result().cause()).isInstanceOf(DecodeException.class);
+
+    stream = ValidationStream.create(validator(SCHEMA));
+    stream.write(Buffer.buffer("{\"name\": \"vert.x\"} {}"));
+    assertThat(stream.result().cause()).isInstanceOf(DecodeException.class);
+  }
+
+  @Test
+  public void testDuplicateRootMembers() {
+    // the members are validated as they are decoded, a repeated member is rejected whatever its values
+    ValidationStream stream = ValidationStream.create(validator(SCHEMA));
+    stream.write(Buffer.buffer("{\"name\": \"vert.x\", \"name\": \"json\"}"));
+    assertThat(stream.result().failed()).isTrue();
+    assertThat(stream.result().cause()).isInstanceOf(DecodeException.class);
+    stream = ValidationStream.create(validator(SCHEMA));
+    stream.write(Buffer.buffer("{\"name\": 1, \"name\": \"json\"}"));
+    assertThat(stream.result().result().getValid()).isFalse();
+
+    // nested objects keep the last value
+    stream = ValidationStream.create(validator(JsonSchema.of(new JsonObject().put("type", "object"))));
+    stream.end(Buffer.buffer("{\"a\": {\"b\": 1, \"b\": 2}}"));
+    assertThat(stream.result().result().getValid()).isTrue();
+    assertThat(stream.instance()).isEqualTo(new JsonObject().put("a", new JsonObject().put("b", 2)));
+  }
+
+  @Test
+  public void testMaxPropertiesViolation() {
+    ValidationStream stream = ValidationStream.create(validator(JsonSchema.of(new JsonObject().put("maxProperties", 1))));
+    write(stream, "{\"a\": 1, \"b\": 2, ", 3);
+    OutputUnit result = stream.result().result();
+    assertThat(result.getValid()).isFalse();
+    assertThat(result.getErrors().get(0).getError()).isEqualTo("Instance has more than 1 properties");
+  }
+
+  @Test
+  public void testMaxInstanceLength() {
+    Validator validator = validator(JsonSchema.of(new JsonObject()
+      .put("type", "object")
+      .put("properties", new JsonObject().put("name", new JsonObject()
+        .put("type", "object")
+        .put("properties", new JsonObject().put("first", new JsonObject().put("type", "string").put("maxLength", 3)))
+        .put("additionalProperties", false)))
+      .put("additionalProperties", false)));
+    long max = validator.maxInstanceLength();
+    assertThat(max).isPositive();
+
+    // insignificant whitespace and escapes make a valid document longer than the bound, it is not rejected
+    String padded = "{\n  \"name\" : {\n    \"first\" : \"\\u00e9\\u00e9\\u00e9\"" + " ".repeat((int) max) + "\n  }\n}";
+    assertThat((long) padded.length()).isGreaterThan(max);
+    ValidationStream stream = ValidationStream.create(validator);
+    write(stream, padded, 7);
+    assertThat(stream.end().succeeded()).isTrue();
+    assertThat(stream.result().result().getValid()).isTrue();
+
+    // rejected as soon as the decoded document exceeds the bound, before the member is complete
+    stream = ValidationStream.create(validator);
+    write(stream, "{\"name\": {\"first\": \"" + "a".repeat((int) max) + "\", ", 5);
+    OutputUnit result = stream.result().result();
+    assertThat(result.getValid()).isFalse();
+    assertThat(result.getError()).isEqualTo("Instance is longer than the " + max + " bytes of any valid instance");
+    assertThat(stream.end().failed()).isTrue();
+  }
+
+  @Test
+  public void testHttpRequestBody(Vertx vertx, VertxTestContext testContext) {
+    Validator validator = validator(SCHEMA);
+    HttpServer server = vertx.createHttpServer().requestHandler(request -> ValidationStream.validate(request, validator)
+      .onSuccess(body -> request.response().end(((JsonObject) body).getString("name")))
+      .onFailure(err -> {
+        if (!request.response().closed()) {
+          request.response().setStatusCode(400).end();
+        }
+      }));
+
+    HttpClientAgent client = vertx.createHttpClient();
+    server.listen(0)
+      .compose(s -> client.request(HttpMethod.POST, s.actualPort(), "localhost", "/")
+        .compose(request -> request.send(Buffer.buffer("{\"name\": \"vert.x\"}")))
+        .compose(response -> response.body())
+        .map(body -> {
+          testContext.verify(() -> assertThat(body.toString()).isEqualTo("vert.x"));
+          return s;
+        }))
+      .compose(s -> client.request(HttpMethod.POST, s.actualPort(), "localhost", "/")
+        .compose(request -> {
+          request.setChunked(true);
+          // the body is never ended, only the reset of the request completes it
+          request.write("{\"name\": 1, ");
+          return request.response().compose(response -> response.body().map(response.statusCode()));
+        }))
+      .onComplete(ar -> testContext.verify(() -> {
+        // either the connection is closed, or the response was sent before it was
+        if (ar.succeeded()) {
+          assertThat(ar.result()).isEqualTo(400);
+        }
+        testContext.completeNow();
+      }));
+  }
+}
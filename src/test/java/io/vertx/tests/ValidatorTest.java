@@ -7,6 +7,8 @@ import io.vertx.json.schema.common.dsl.Schemas;
 import io.vertx.junit5.Timeout;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static io.vertx.json.schema.OutputFormat.Basic;
@@ -563,4 +565,57 @@ public class ValidatorTest {
     assertThat(ouFailed.getErrors()).hasSize(1);
     assertThat(ouFailed.getErrors().get(0).getError()).isEqualTo("no foobar allowed");
   }
+
+  @Test
+  public void testValidateAll() {
+    final Validator validator = Validator.create(
+      JsonSchema.of(new JsonObject()
+        .put("$id", "https://vertx.io/node")
+        .put("$dynamicAnchor", "node")
+        .put("properties", new JsonObject()
+          .put("id", new JsonObject().put("type", "integer"))
+          .put("next", new JsonObject().put("$dynamicRef", "#node")))
+        .put("unevaluatedProperties", false)),
+      new JsonSchemaOptions()
+        .setBaseUri("https://vertx.io")
+        .setDraft(Draft.DRAFT202012)
+        .setOutputFormat(Basic));
+
+    final List<Object> instances = Arrays.asList(
+      new JsonObject().put("id", 1),
+      new JsonObject().put("id", 2).put("next", new JsonObject().put("id", "3")),
+      new JsonObject().put("id", 4).put("next", new JsonObject().put("id", 5)),
+      new JsonObject().put("other", true),
+      new JsonObject().put("id", 6));
+
+    final ValidationResults results = validator.validateAll(instances);
+
+    assertThat(results.size()).isEqualTo(5);
+    assertThat(results.isAllValid()).isFalse();
+    assertThat(results.valid().stream().toArray()).containsExactly(0, 2, 4);
+    assertThat(results.errors()).containsOnlyKeys(1, 3);
+    for (int i = 0; i < instances.size(); i++) {
+      final OutputUnit expected = validator.validate(instances.get(i));
+      assertThat(results.isValid(i)).isEqualTo(expected.getValid());
+      if (expected.getValid()) {
+        assertThat(results.error(i)).isNull();
+      } else {
+        assertThat(results.error(i).toJson()).isEqualTo(expected.toJson());
+      }
+    }
+  }
+
+  @Test
+  public void testExternalImplementationsGetDefaults() {
+    // an implementation written before the batch, async, length and regex budget methods were added
+    final Validator numbers = instance -> new OutputUnit(instance instanceof Number).setErrorType(OutputErrorType.NONE);
+
+    final ValidationResults results = numbers.validateAll(Arrays.asList(1, "a", 2.5));
+    assertThat(results.valid().stream().toArray()).containsExactly(0, 2);
+    assertThat(results.errors()).containsOnlyKeys(1);
+    assertThat(numbers.validateAsync(7).result().getValid()).isTrue();
+    assertThat(numbers.validateAsync("7").result().getValid()).isFalse();
+    assertThat(numbers.maxInstanceLength()).isEqualTo(-1);
+    assertThat(numbers.abortedMatches()).isEmpty();
+  }
 }
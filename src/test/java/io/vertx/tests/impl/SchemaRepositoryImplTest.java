@@ -1,16 +1,21 @@
 package io.vertx.tests.impl;
 
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.file.FileSystem;
+import io.vertx.core.json.JsonObject;
 import io.vertx.json.schema.Draft;
 import io.vertx.json.schema.JsonFormatValidator;
 import io.vertx.json.schema.JsonSchema;
 import io.vertx.json.schema.JsonSchemaOptions;
 import io.vertx.json.schema.OutputUnit;
+import io.vertx.json.schema.SchemaException;
 import io.vertx.json.schema.SchemaRepository;
 import io.vertx.json.schema.common.dsl.Schemas;
 import io.vertx.json.schema.impl.SchemaRepositoryImpl;
 import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,7 +23,12 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import static io.vertx.json.schema.Draft.DRAFT201909;
@@ -33,10 +43,10 @@ import static io.vertx.json.schema.impl.SchemaRepositoryImpl.DRAFT_7_META_FILES;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.endsWith;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(VertxExtension.class)
 class SchemaRepositoryImplTest {
@@ -59,9 +69,28 @@ class SchemaRepositoryImplTest {
     repo.preloadMetaSchema(fileSystemSpy, draft);
 
     for(String id : ids) {
-      String classpath = id.replace("http://", "").replace("https://", "");
-      verify(fileSystemSpy).readFileBlocking(endsWith(classpath));
+      assertThat(repo.find(id)).isNotNull();
     }
+    // meta schemas are shared, no file is read per repository
+    verifyNoInteractions(fileSystemSpy);
+  }
+
+  @Test
+  @DisplayName("preloadMetaSchema() should give each repository its own copy of the meta schemas")
+  void testPreloadMetaSchemaShared() {
+    JsonSchemaOptions opts = new JsonSchemaOptions().setBaseUri("https://example.org").setDraft(DRAFT202012);
+    SchemaRepository repo1 = SchemaRepository.create(opts).preloadMetaSchema();
+    SchemaRepository repo2 = SchemaRepository.create(opts).preloadMetaSchema(DRAFT202012);
+
+    for(String id : DRAFT_202012_META_FILES) {
+      assertThat(repo1.find(id)).isNotNull();
+      // the nodes hold per validator state, they are not shared
+      assertThat(repo2.find(id)).isNotSameAs(repo1.find(id)).isEqualTo(repo1.find(id));
+    }
+    assertThat(repo1.validator(DRAFT_202012_META_FILES.get(0)).validate(new JsonObject().put("type", 1)).getValid()).isFalse();
+    assertThat(repo2.validator(DRAFT_202012_META_FILES.get(0)).validate(new JsonObject().put("type", "string")).getValid()).isTrue();
+    assertThat(repo1.find(DRAFT_7_META_FILES.get(0))).isNull();
+    assertThat(repo1.validator(DRAFT_202012_META_FILES.get(0)).validate(new JsonObject().put("type", 1)).getValid()).isFalse();
   }
 
   @Test
@@ -80,7 +109,7 @@ class SchemaRepositoryImplTest {
     SchemaRepository repoSpy = spy(SchemaRepository.create(opts));
     repoSpy.preloadMetaSchema(vertx.fileSystem());
 
-    verify(repoSpy).preloadMetaSchema(any(), eq(DRAFT4));
+    verify(repoSpy).preloadMetaSchema(any(FileSystem.class), eq(DRAFT4));
   }
 
   @Test
@@ -111,4 +140,165 @@ class SchemaRepositoryImplTest {
     assertThat(ouFailed.getErrors()).hasSize(1);
     assertThat(ouFailed.getErrors().get(0).getError()).isEqualTo("no foobar allowed");
   }
+
+  @Test
+  public void testSnapshotRestore(Vertx vertx) {
+    JsonSchemaOptions opts = new JsonSchemaOptions().setBaseUri("https://example.org").setDraft(DRAFT202012);
+    SchemaRepository repo = SchemaRepository.create(opts)
+      .preloadMetaSchema(vertx.fileSystem())
+      .dereference("person", JsonSchema.of(new JsonObject()
+        .put("type", "object")
+        .put("properties", new JsonObject()
+          .put("name", new JsonObject().put("$ref", "#/$defs/name"))
+          .put("address", new JsonObject().put("$ref", "address")))
+        .put("$defs", new JsonObject()
+          .put("name", new JsonObject().put("$anchor", "name").put("type", "string")))))
+      .dereference("address", JsonSchema.of(new JsonObject().put("type", "string").put("minLength", 3)));
+
+    Buffer snapshot = repo.snapshot();
+    // snapshots are deterministic
+    assertThat(repo.snapshot()).isEqualTo(snapshot);
+
+    SchemaRepository restored = SchemaRepository.create(opts).restore(snapshot);
+    assertThat(restored.snapshot()).isEqualTo(snapshot);
+    assertThat(restored.find("https://example.org/person#name")).isEqualTo(repo.find("https://example.org/person#name"));
+
+    JsonObject valid = new JsonObject().put("name", "Paulo").put("address", "Lisbon");
+    JsonObject invalid = new JsonObject().put("name", 1).put("address", "NY");
+    assertThat(restored.validator("person").validate(valid).getValid()).isTrue();
+    assertThat(restored.validator("person").validate(invalid).getValid()).isFalse();
+
+    // the meta schemas rely on $dynamicRef, which must be restored as well
+    JsonObject schema = new JsonObject().put("type", "object").put("properties", new JsonObject().put("a", new JsonObject().put("type", 1)));
+    assertThat(restored.validator(DRAFT_202012_META_FILES.get(0)).validate(schema).getValid()).isFalse();
+    assertThat(restored.validator(DRAFT_202012_META_FILES.get(0)).validate(new JsonObject().put("type", "object")).getValid()).isTrue();
+  }
+
+  @Test
+  public void testRestoreConflict() {
+    JsonSchemaOptions opts = new JsonSchemaOptions().setBaseUri("https://example.org").setDraft(DRAFT202012);
+    Buffer snapshot = SchemaRepository.create(opts)
+      .dereference("person", JsonSchema.of(new JsonObject().put("type", "object")))
+      .snapshot();
+
+    SchemaRepository repo = SchemaRepository.create(opts)
+      .dereference("person", JsonSchema.of(new JsonObject().put("type", "string")));
+
+    assertThrows(SchemaException.class, () -> repo.restore(snapshot));
+    assertThrows(SchemaException.class, () -> repo.restore(Buffer.buffer("{}")));
+    assertThat(repo.validator("person").validate("Paulo").getValid()).isTrue();
+  }
+
+  @Test
+  public void testAsyncDereference(Vertx vertx, VertxTestContext testContext) {
+    JsonSchemaOptions opts = new JsonSchemaOptions().setBaseUri("https://example.org").setDraft(DRAFT202012);
+    SchemaRepository repo = SchemaRepository.create(opts);
+
+    repo.preloadMetaSchema(vertx)
+      .compose(r -> r.dereference(vertx, "person", JsonSchema.of(new JsonObject()
+        .put("type", "object")
+        .put("properties", new JsonObject().put("address", new JsonObject().put("$ref", "address"))))))
+      .compose(r -> r.dereference(vertx, "address", JsonSchema.of(new JsonObject().put("type", "string"))))
+      .onComplete(testContext.succeeding(r -> testContext.verify(() -> {
+        assertThat(r).isSameAs(repo);
+        assertThat(repo.find(DRAFT_202012_META_FILES.get(0))).isNotNull();
+        assertThat(repo.validator("person").validate(new JsonObject().put("address", "Lisbon")).getValid()).isTrue();
+        assertThat(repo.validator("person").validate(new JsonObject().put("address", 1)).getValid()).isFalse();
+        testContext.completeNow();
+      })));
+  }
+
+  @Test
+  public void testAsyncDereferenceIsAtomic(Vertx vertx, VertxTestContext testContext) {
+    JsonSchemaOptions opts = new JsonSchemaOptions().setBaseUri("https://example.org");
+    SchemaRepository repo = SchemaRepository.create(opts)
+      .dereference("address", JsonSchema.of(new JsonObject().put("type", "string")));
+
+    // the second document conflicts with the existing one, none of its schemas can be published
+    repo.dereference(vertx, "person", JsonSchema.of(new JsonObject()
+        .put("$defs", new JsonObject()
+          .put("name", new JsonObject().put("type", "string"))
+          .put("address", new JsonObject().put("$id", "address").put("type", "number")))))
+      .onComplete(testContext.failing(err -> testContext.verify(() -> {
+        assertThat(err).isInstanceOf(SchemaException.class);
+        assertThat(repo.find("person")).isNull();
+        assertThat(repo.find("person#/$defs/name")).isNull();
+        assertThat(repo.preloadMetaSchema(vertx).failed()).isTrue();
+        testContext.completeNow();
+      })));
+  }
+
+  @Test
+  public void testAsyncDereferenceConcurrency(Vertx vertx, VertxTestContext testContext) {
+    JsonSchemaOptions opts = new JsonSchemaOptions().setBaseUri("https://example.org").setMaxConcurrentDereferences(2);
+    SchemaRepository repo = SchemaRepository.create(opts);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+
+    List<Future<SchemaRepository>> futures = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      // a schema tracking how many dereferences read it at the same time
+      Map<String, Object> map = new LinkedHashMap<String, Object>() {
+        @Override
+        public boolean containsKey(Object key) {
+          if ("$id".equals(key)) {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+              Thread.sleep(20);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+          }
+          return super.containsKey(key);
+        }
+      };
+      map.put("type", "string");
+      futures.add(repo.dereference(vertx, "doc" + i, JsonSchema.of(new JsonObject(map))));
+    }
+    Future.all(futures).onComplete(testContext.succeeding(r -> testContext.verify(() -> {
+      for (int i = 0; i < 8; i++) {
+        assertThat(repo.find("doc" + i)).isNotNull();
+      }
+      assertThat(maxRunning.get()).isBetween(1, 2);
+      testContext.completeNow();
+    })));
+  }
+
+  @Test
+  public void testDereferenceAll() {
+    JsonSchemaOptions opts = new JsonSchemaOptions().setBaseUri("https://example.org").setDraft(DRAFT202012);
+    Map<String, JsonSchema> bundle = new HashMap<>();
+    for (int i = 0; i < 100; i++) {
+      bundle.put("item" + i, JsonSchema.of(new JsonObject()
+        .put("type", "object")
+        .put("properties", new JsonObject().put("next", new JsonObject().put("$ref", "item" + ((i + 1) % 100))))));
+    }
+
+    SchemaRepository repo = SchemaRepository.create(opts).dereferenceAll(bundle);
+    for (int i = 0; i < 100; i++) {
+      assertThat(repo.find("item" + i)).isNotNull();
+      assertThat(repo.find("item" + i + "#/properties/next")).isNotNull();
+    }
+    assertThat(repo.validator("item0").validate(new JsonObject().put("next", new JsonObject().put("next", 1))).getValid())
+      .isFalse();
+  }
+
+  @Test
+  public void testDereferenceAllDuplicates() {
+    JsonSchemaOptions opts = new JsonSchemaOptions().setBaseUri("https://example.org").setDraft(DRAFT202012);
+    Map<String, JsonSchema> bundle = new HashMap<>();
+    bundle.put("a", JsonSchema.of(new JsonObject().put("type", "string")));
+    for (String name : new String[]{"c", "b", "d"}) {
+      bundle.put(name, JsonSchema.of(new JsonObject()
+        .put("$defs", new JsonObject().put("a", new JsonObject().put("$id", "a").put("type", name)))));
+    }
+
+    SchemaRepository repo = SchemaRepository.create(opts);
+    SchemaException err = assertThrows(SchemaException.class, () -> repo.dereferenceAll(bundle));
+    assertThat(err).hasMessage("Duplicate schema URI \"https://example.org/a\" in \"a\" and \"b\".");
+    // nothing was published
+    assertThat(repo.find("a")).isNull();
+    assertThat(repo.find("c")).isNull();
+  }
 }
@@ -1,7 +1,11 @@
 package io.vertx.tests.impl;
 
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import io.vertx.json.schema.JsonSchema;
 import io.vertx.json.schema.JsonSchemaOptions;
+import io.vertx.json.schema.OutputFormat;
+import io.vertx.json.schema.OutputUnit;
 import io.vertx.json.schema.common.dsl.Keywords;
 import io.vertx.json.schema.common.dsl.Schemas;
 import io.vertx.json.schema.common.dsl.StringFormat;
@@ -11,6 +15,13 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 import static io.vertx.json.schema.Draft.DRAFT201909;
@@ -20,6 +31,7 @@ import static io.vertx.json.schema.common.dsl.StringFormat.BYTE;
 import static java.util.Collections.emptyMap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class SchemaValidatorImplTest {
   private static final JsonSchemaOptions DUMMY_OPTIONS =
@@ -50,4 +62,154 @@ class SchemaValidatorImplTest {
       () -> new SchemaValidatorImpl(dummySchema, DUMMY_OPTIONS, emptyMap(), true, null));
     assertThat(exception).hasMessage("'formatValidator' cannot be null");
   }
+
+  @Test
+  void testOutputUnitsDoNotShareScratchBuffers() {
+    JsonSchemaOptions options = new JsonSchemaOptions(DUMMY_OPTIONS).setOutputFormat(OutputFormat.Basic);
+    JsonSchema schema = JsonSchema.of(new JsonObject()
+      .put("properties", new JsonObject().put("a", new JsonObject().put("type", "integer")))
+      .put("anyOf", new JsonArray().add(new JsonObject().put("required", new JsonArray().add("a")))));
+    SchemaValidatorImpl validator = new SchemaValidatorImpl(schema, options, emptyMap(), true, DEFAULT_VALIDATOR);
+
+    OutputUnit first = validator.validate(new JsonObject().put("a", "x"));
+    JsonObject expected = first.toJson().copy();
+    // the buffers used by the first validation are reused by the next ones
+    validator.validate(new JsonObject().put("b", 1));
+    validator.validate(new JsonObject().put("a", 1));
+
+    assertThat(first.getValid()).isFalse();
+    assertThat(first.toJson()).isEqualTo(expected);
+  }
+
+  @Test
+  void testReentrantValidation() {
+    JsonSchemaOptions options = new JsonSchemaOptions(DUMMY_OPTIONS).setOutputFormat(OutputFormat.Basic);
+    SchemaValidatorImpl inner = new SchemaValidatorImpl(JsonSchema.of(new JsonObject().put("type", "integer")), options, emptyMap(), true, DEFAULT_VALIDATOR);
+    SchemaValidatorImpl outer = new SchemaValidatorImpl(
+      JsonSchema.of(new JsonObject().put("items", new JsonObject().put("format", "int-string"))),
+      options,
+      emptyMap(),
+      true,
+      (type, format, instance) -> {
+        // a format validator validating another instance on the same thread
+        if ("int-string".equals(format) && !inner.validate(Integer.parseInt((String) instance)).getValid()) {
+          return "not an integer";
+        }
+        return null;
+      });
+
+    assertThat(outer.validate(new JsonArray().add("1").add("2")).getValid()).isTrue();
+    assertThat(outer.validate(new JsonArray().add("1").add("2")).getValid()).isTrue();
+  }
+
+  @Test
+  void testPropertiesAreClassifiedOnce() {
+    JsonObject schema = new JsonObject()
+      .put("properties", new JsonObject().put("id", new JsonObject().put("type", "integer")))
+      .put("patternProperties", new JsonObject()
+        .put("^x-", new JsonObject().put("type", "string"))
+        .put("-id$", new JsonObject().put("type", "integer")))
+      .put("additionalProperties", false);
+    JsonSchemaOptions options = new JsonSchemaOptions(DUMMY_OPTIONS).setOutputFormat(OutputFormat.Basic);
+    SchemaValidatorImpl validator = new SchemaValidatorImpl(JsonSchema.of(schema), options, emptyMap(), true, DEFAULT_VALIDATOR);
+
+    JsonObject instance = new JsonObject()
+      .put("x-id", "a")
+      .put("owner-id", "b")
+      .put("x-name", 1)
+      .put("id", 1)
+      .put("other", 1);
+    for (int i = 0; i < 2; i++) {
+      OutputUnit result = validator.validate(instance);
+      assertThat(result.getValid()).isFalse();
+      // the errors of each pattern in the order of the schema, then the additional properties, in the order of the
+      // instance
+      assertThat(result.getErrors()).extracting(OutputUnit::getInstanceLocation).containsExactly(
+        "#/x-name", "#/x-name", "#/x-id", "#/x-id", "#/owner-id", "#/owner-id", "#/owner-id", "#/x-name", "#/other");
+    }
+  }
+
+  @Test
+  void testManyAndLongPropertyNamesAreClassified() {
+    JsonObject schema = new JsonObject()
+      .put("patternProperties", new JsonObject().put("^x-", new JsonObject().put("type", "string")))
+      .put("additionalProperties", new JsonObject().put("type", "integer"));
+    SchemaValidatorImpl validator = new SchemaValidatorImpl(JsonSchema.of(schema), DUMMY_OPTIONS, emptyMap(), true, DEFAULT_VALIDATOR);
+
+    StringBuilder suffix = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      suffix.append('a');
+    }
+    // more distinct names than the classification cache holds, the evicted ones are classified again
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < 3000; i++) {
+        assertThat(validator.validate(new JsonObject().put("x-" + i, "a").put("y-" + i, 1)).getValid()).isTrue();
+        assertThat(validator.validate(new JsonObject().put("x-" + i, 1)).getValid()).isFalse();
+        assertThat(validator.validate(new JsonObject().put("x-" + suffix + i, "a").put(suffix + "y", 1)).getValid()).isTrue();
+        assertThat(validator.validate(new JsonObject().put("x-" + suffix + i, 1)).getValid()).isFalse();
+      }
+    }
+  }
+
+  @Test
+  void testPatternPropertiesMatchLikeRegexes() {
+    String[] patterns = {"^x-", "^x-[a-z]+$", "^x-id$", "id", "-id$", "^a?b", "^\\.hidden", "^(?i)X", "a|^b", "^x\\d", "^\u00e9", "^$", "^x-i"};
+    String[] keys = {"x-id", "x-id\n", "x-", "X-ID", "id", "ab", "b", ".hidden", "x1", "", "\u00e9-id", "y-x-id", "x-i"};
+    JsonObject patternProperties = new JsonObject();
+    for (String pattern : patterns) {
+      patternProperties.put(pattern, false);
+    }
+    JsonSchemaOptions options = new JsonSchemaOptions(DUMMY_OPTIONS).setOutputFormat(OutputFormat.Basic);
+    SchemaValidatorImpl validator = new SchemaValidatorImpl(JsonSchema.of(new JsonObject().put("patternProperties", patternProperties)), options, emptyMap(), true, DEFAULT_VALIDATOR);
+
+    Pattern error = Pattern.compile("matches pattern \"(.*)\" but", Pattern.DOTALL);
+    for (String key : keys) {
+      List<String> expected = new ArrayList<>();
+      for (String pattern : patterns) {
+        if (Pattern.compile(pattern).matcher(key).find()) {
+          expected.add(pattern);
+        }
+      }
+      OutputUnit result = validator.validate(new JsonObject().put(key, 1));
+      List<String> matched = new ArrayList<>();
+      if (result.getErrors() != null) {
+        for (OutputUnit unit : result.getErrors()) {
+          Matcher matcher = error.matcher(unit.getError());
+          if (matcher.find()) {
+            matched.add(matcher.group(1));
+          }
+        }
+      }
+      assertThat(matched).as(key).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  void testValidationOnVirtualThreads() throws Exception {
+    ExecutorService executor;
+    try {
+      executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException e) {
+      executor = null;
+    }
+    assumeTrue(executor != null, "virtual threads are not available");
+
+    JsonSchemaOptions options = new JsonSchemaOptions(DUMMY_OPTIONS).setOutputFormat(OutputFormat.Basic);
+    SchemaValidatorImpl validator = new SchemaValidatorImpl(
+      JsonSchema.of(new JsonObject().put("items", new JsonObject().put("type", "integer"))), options, emptyMap(), true, DEFAULT_VALIDATOR);
+    JsonArray instance = new JsonArray().add(1).add("a").add(2);
+    JsonObject expected = validator.validate(instance).toJson();
+
+    List<Future<OutputUnit>> results = new ArrayList<>();
+    try {
+      for (int i = 0; i < 100; i++) {
+        results.add(executor.submit(() -> validator.validate(instance)));
+      }
+      for (Future<OutputUnit> result : results) {
+        assertThat(result.get().toJson()).isEqualTo(expected);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
 }
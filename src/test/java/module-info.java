@@ -5,4 +5,5 @@ open module io.vertx.tests {
   requires org.junit.jupiter.params;
   requires org.assertj.core;
   requires org.mockito;
+  requires java.compiler;
 }